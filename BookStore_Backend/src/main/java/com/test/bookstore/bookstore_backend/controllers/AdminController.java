@@ -2,7 +2,10 @@ package com.test.bookstore.bookstore_backend.controllers;
 
 import com.test.bookstore.bookstore_backend.dto.BookDTO;
 import com.test.bookstore.bookstore_backend.dto.DiscussionDTO;
-import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.dto.requests.JwtSecretRotationDTO;
+import com.test.bookstore.bookstore_backend.security.dto.requests.PersonRoleChangeDTO;
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPerson;
+import com.test.bookstore.bookstore_backend.security.services.AuthenticationService;
 import com.test.bookstore.bookstore_backend.services.BookService;
 import com.test.bookstore.bookstore_backend.services.DiscussionService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -26,18 +29,13 @@ public class AdminController {
 
     private final BookService bookService;
     private final DiscussionService discussionService;
-    private final JwtUtils jwtUtils;
+    private final AuthenticationService authenticationService;
 
     @Autowired
-    public AdminController(BookService bookService, DiscussionService discussionService, JwtUtils jwtUtils) {
+    public AdminController(BookService bookService, DiscussionService discussionService, AuthenticationService authenticationService) {
         this.bookService = bookService;
         this.discussionService = discussionService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private String extractEmail(String token) {
-        String jwt = token.substring(7);
-        return jwtUtils.extractPersonEmail(jwt);
+        this.authenticationService = authenticationService;
     }
 
     @Operation(summary = "Add new book to DataBase.",
@@ -68,6 +66,17 @@ public class AdminController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    @Operation(summary = "Spread available copies of a specific book over inventory slots.",
+            description = "Meant for books with heavy checkout demand, concurrent checkouts then lock different rows. " +
+                    "0 slots moves all available copies back to the book itself.")
+    @PatchMapping("/inventory-slots/{bookId}")
+    public ResponseEntity<HttpStatus> changeBookInventorySlots(@PathVariable("bookId") Long bookId,
+                                                               @RequestParam(value = "slots") Integer slots) {
+
+        bookService.changeInventorySlots(bookId, slots);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @Operation(summary = "Delete a book from a DataBase.",
             description = "Permanently deletes a book entity from a DataBase.")
     @DeleteMapping("/delete-book/{bookId}")
@@ -90,11 +99,31 @@ public class AdminController {
     @Operation(summary = "Update specific discussion entity.",
             description = "Sets the administration answer to a selected discussion entity and marks it as closed. Requires a valid DiscussionDTO object as a request body.")
     @PatchMapping("/close-discussion")
-    public ResponseEntity<HttpStatus> updateDiscussion(@RequestHeader("Authorization") String token,
+    public ResponseEntity<HttpStatus> updateDiscussion(@CurrentPerson String adminEmail,
                                                        @RequestBody @Valid DiscussionDTO discussionDTO,
                                                        BindingResult bindingResult) {
 
-        discussionService.updateDiscussion(extractEmail(token), discussionDTO, bindingResult);
+        discussionService.updateDiscussion(adminEmail, discussionDTO, bindingResult);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @Operation(summary = "Rotate the JWT signing secret.",
+            description = "Stores the provided secret and signs new tokens with it right away, other instances switch to it within the key refresh interval. Tokens signed with replaced secrets stay valid until they expire. Requires a valid JwtSecretRotationDTO object as a request body.")
+    @PutMapping("/rotate-jwt-secret")
+    public ResponseEntity<HttpStatus> rotateJwtSecret(@RequestBody @Valid JwtSecretRotationDTO jwtSecretRotationDTO,
+                                                      BindingResult bindingResult) {
+
+        authenticationService.rotateJwtSecret(jwtSecretRotationDTO, bindingResult);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @Operation(summary = "Change the role of a person.",
+            description = "Tokens the person got before carry the old role and are checked against the DataBase from now on, by other instances within the revocation lookup interval. Requires a valid PersonRoleChangeDTO object as a request body.")
+    @PatchMapping("/change-role")
+    public ResponseEntity<HttpStatus> changePersonRole(@RequestBody @Valid PersonRoleChangeDTO personRoleChangeDTO,
+                                                       BindingResult bindingResult) {
+
+        authenticationService.changePersonRole(personRoleChangeDTO, bindingResult);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
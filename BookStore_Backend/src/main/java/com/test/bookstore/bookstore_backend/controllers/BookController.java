@@ -1,8 +1,13 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookFacetsDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSliceDTO;
+import com.test.bookstore.bookstore_backend.dto.BookStatusDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSuggestionDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
-import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPerson;
 import com.test.bookstore.bookstore_backend.services.BookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -16,33 +21,48 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @CrossOrigin("http://localhost:5173/")
 @RestController
 @RequestMapping("/api/books")
 @Tag(name = "Book Controller")
 public class BookController {
 
+    private static final String APPROXIMATE_TOTAL = "With approximate-total=true a large total is estimated by the DataBase instead of counted, " +
+            "totalExact in the response is false then.";
+
     private final BookService bookService;
-    private final JwtUtils jwtUtils;
 
     @Autowired
-    public BookController(BookService bookService, JwtUtils jwtUtils) {
+    public BookController(BookService bookService) {
         this.bookService = bookService;
-        this.jwtUtils = jwtUtils;
     }
 
-    private String extractEmail(String token) {
-        String jwt = token.substring(7);
-        return jwtUtils.extractPersonEmail(jwt);
+    @Operation(summary = "Get paginated list of books.",
+            description = "Returns a Page containing BookSummaryDTO objects sorted by 'id', 'title', 'author', 'newest', 'rating', 'popularity' or 'availability'. " +
+                    APPROXIMATE_TOTAL)
+    @GetMapping(params = "page")
+    public ResponseEntity<Page<BookSummaryDTO>> findAll(@RequestParam(value = "page") Integer page,
+                                                        @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                        @RequestParam(value = "sort", defaultValue = BookService.SORT_BY_ID) String sort,
+                                                        @RequestParam(value = "approximate-total", defaultValue = "false") boolean approximateTotal) {
+
+        Page<BookSummaryDTO> responseBody = bookService.findAll(PageRequest.of(page, booksPerPage), sort, approximateTotal);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
-    @Operation(summary = "Get paginated list of books.",
-            description = "Returns a Page containing BookDTO objects.")
-    @GetMapping
-    public ResponseEntity<Page<BookDTO>> findAll(@RequestParam(value = "page") Integer page,
-                                                 @RequestParam(value = "books-per-page") Integer booksPerPage) {
+    @Operation(summary = "Get a slice of books after the cursor.",
+            description = "Returns a BookSliceDTO with books sorted by 'id', 'title', 'author', 'newest', 'rating', 'popularity' or 'availability' " +
+                    "and the cursor for the next slice. " +
+                    "Used when no 'page' parameter is sent, skips the count query of the paginated list.")
+    @GetMapping(params = "!page")
+    public ResponseEntity<BookSliceDTO> findAllAfter(@RequestParam(value = "after", required = false) String after,
+                                                     @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                     @RequestParam(value = "sort", defaultValue = BookService.SORT_BY_ID) String sort) {
 
-        Page<BookDTO> responseBody = bookService.findAll(PageRequest.of(page, booksPerPage));
+        BookSliceDTO responseBody = bookService.findAllAfter(after, booksPerPage, sort);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
@@ -56,24 +76,94 @@ public class BookController {
     }
 
     @Operation(summary = "Get paginated list of books, found by title.",
-            description = "Returns a Page containing BookDTO objects.")
+            description = "Returns a Page containing BookSummaryDTO objects, sorted like the list of all books. " + APPROXIMATE_TOTAL)
     @GetMapping("/search/by-title")
-    public ResponseEntity<Page<BookDTO>> findAllByTitle(@RequestParam(value = "page") Integer page,
-                                                        @RequestParam(value = "books-per-page") Integer booksPerPage,
-                                                        @RequestParam("title-query") String titleQuery) {
+    public ResponseEntity<Page<BookSummaryDTO>> findAllByTitle(@RequestParam(value = "page") Integer page,
+                                                               @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                               @RequestParam("title-query") String titleQuery,
+                                                               @RequestParam(value = "sort", defaultValue = BookService.SORT_BY_ID) String sort,
+                                                               @RequestParam(value = "approximate-total", defaultValue = "false") boolean approximateTotal) {
+
+        Page<BookSummaryDTO> responseBody = bookService.findAllByTitle(titleQuery, PageRequest.of(page, booksPerPage), sort, approximateTotal);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get paginated list of books, found by full text search.",
+            description = "Returns a Page containing BookSummaryDTO objects ranked by relevance. Searches title, author and description, " +
+                    "matches word prefixes and tolerates typos in title and author.")
+    @GetMapping("/search/full-text")
+    public ResponseEntity<Page<BookSummaryDTO>> searchBooks(@RequestParam(value = "page") Integer page,
+                                                            @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                            @RequestParam("query") String query) {
+
+        Page<BookSummaryDTO> responseBody = bookService.searchBooks(query, PageRequest.of(page, booksPerPage));
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get paginated list of books, found in the in-memory search index.",
+            description = "Returns a Page containing BookSummaryDTO objects ranked by BM25 over title, author and description. Every word has to match, " +
+                    "a word ending with * matches words starting with it and words in double quotes have to follow each other.")
+    @GetMapping("/search")
+    public ResponseEntity<Page<BookSummaryDTO>> searchBooksInIndex(@RequestParam(value = "page") Integer page,
+                                                                   @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                                   @RequestParam("query") String query) {
 
-        Page<BookDTO> responseBody = bookService.findAllByTitle(titleQuery, PageRequest.of(page, booksPerPage));
+        Page<BookSummaryDTO> responseBody = bookService.searchBooksInIndex(query, PageRequest.of(page, booksPerPage));
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get typeahead suggestions for the beginning of a book title or author name.",
+            description = "Returns up to 10 BookSuggestionDTO objects, the most reviewed first. Any word of a title or name may be the one the prefix starts.")
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestionDTO>> suggest(@RequestParam("prefix") String prefix) {
+
+        List<BookSuggestionDTO> responseBody = bookService.suggest(prefix);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
     @Operation(summary = "Get paginated list of books, found by genre.",
-            description = "Returns a Page containing BookDTO objects.")
+            description = "Returns a Page containing BookSummaryDTO objects, sorted like the list of all books. " + APPROXIMATE_TOTAL)
     @GetMapping("/search/by-genre")
-    public ResponseEntity<Page<BookDTO>> findAllByGenre(@RequestParam("genre-query") String genreQuery,
-                                                        @RequestParam(value = "page") Integer page,
-                                                        @RequestParam(value = "books-per-page") Integer booksPerPage) {
+    public ResponseEntity<Page<BookSummaryDTO>> findAllByGenre(@RequestParam("genre-query") String genreQuery,
+                                                               @RequestParam(value = "page") Integer page,
+                                                               @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                               @RequestParam(value = "sort", defaultValue = BookService.SORT_BY_ID) String sort,
+                                                               @RequestParam(value = "approximate-total", defaultValue = "false") boolean approximateTotal) {
 
-        Page<BookDTO> responseBody = bookService.findAllByGenre(genreQuery, PageRequest.of(page, booksPerPage));
+        Page<BookSummaryDTO> responseBody = bookService.findAllByGenre(genreQuery, PageRequest.of(page, booksPerPage), sort, approximateTotal);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get paginated list of books, filtered by any combination of title, author, genre and availability.",
+            description = "Returns a Page containing BookSummaryDTO objects, sorted like the list of all books. Title and author match " +
+                    "case-insensitive parts of them, genre is a genre's description and available-only=true leaves out books without available copies. " +
+                    "Filters that aren't sent don't restrict the books. " + APPROXIMATE_TOTAL)
+    @GetMapping("/query")
+    public ResponseEntity<Page<BookSummaryDTO>> findAllMatching(@RequestParam(value = "title", required = false) String title,
+                                                                @RequestParam(value = "author", required = false) String author,
+                                                                @RequestParam(value = "genre", required = false) String genreQuery,
+                                                                @RequestParam(value = "available-only", defaultValue = "false") boolean availableOnly,
+                                                                @RequestParam(value = "page") Integer page,
+                                                                @RequestParam(value = "books-per-page") Integer booksPerPage,
+                                                                @RequestParam(value = "sort", defaultValue = BookService.SORT_BY_ID) String sort,
+                                                                @RequestParam(value = "approximate-total", defaultValue = "false") boolean approximateTotal) {
+
+        Page<BookSummaryDTO> responseBody = bookService.findAllMatching(title, author, genreQuery, availableOnly, PageRequest.of(page, booksPerPage), sort,
+                approximateTotal);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Get paginated list of books, filtered by several genres, with the number of matching books in every genre.",
+            description = "Returns a BookFacetsDTO object. With match=all books need every given genre, with match=any one of them is enough. " +
+                    "No genres match all books. Available copies are as of the last refresh of the genre bitmaps, until they are first built the DataBase answers with current copies.")
+    @GetMapping("/search/by-genres")
+    public ResponseEntity<BookFacetsDTO> findAllByGenres(@RequestParam(value = "genres", defaultValue = "") List<String> genreQueries,
+                                                         @RequestParam(value = "match", defaultValue = BookService.MATCH_ALL_GENRES) String match,
+                                                         @RequestParam(value = "available-only", defaultValue = "false") boolean availableOnly,
+                                                         @RequestParam(value = "page") Integer page,
+                                                         @RequestParam(value = "books-per-page") Integer booksPerPage) {
+
+        BookFacetsDTO responseBody = bookService.findAllByGenres(genreQueries, match, availableOnly, PageRequest.of(page, booksPerPage));
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
@@ -82,9 +172,20 @@ public class BookController {
     @SecurityRequirement(name = "Bearer Authentication")
     @GetMapping("/secure/is-checked-out/{bookId}")
     public ResponseEntity<Boolean> isBookCheckedOutByPerson(@PathVariable("bookId") Long bookId,
-                                                            @RequestHeader("Authorization") String token) {
+                                                            @CurrentPerson String personEmail) {
+
+        Boolean responseBody = bookService.isBookCheckedOutByPerson(personEmail, bookId);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Check if several books are checked out or reviewed by authenticated user.",
+            description = "Takes up to 100 book ids. Returns a map of book id to BookStatusDTO object.")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @GetMapping("/secure/status")
+    public ResponseEntity<Map<Long, BookStatusDTO>> getBookStatuses(@RequestParam(value = "ids") List<Long> bookIds,
+                                                                    @CurrentPerson String personEmail) {
 
-        Boolean responseBody = bookService.isBookCheckedOutByPerson(extractEmail(token), bookId);
+        Map<Long, BookStatusDTO> responseBody = bookService.getBookStatuses(personEmail, bookIds);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
@@ -93,9 +194,9 @@ public class BookController {
     @SecurityRequirement(name = "Bearer Authentication")
     @PutMapping("/secure/checkout/{bookId}")
     public ResponseEntity<HttpStatus> checkoutBook(@PathVariable("bookId") Long bookId,
-                                                   @RequestHeader("Authorization") String token) {
+                                                   @CurrentPerson String personEmail) {
 
-        bookService.checkoutBook(extractEmail(token), bookId);
+        bookService.checkoutBook(personEmail, bookId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
@@ -104,9 +205,9 @@ public class BookController {
     @SecurityRequirement(name = "Bearer Authentication")
     @PutMapping("/secure/renew-checkout/{bookId}")
     public ResponseEntity<HttpStatus> renewCheckout(@PathVariable("bookId") Long bookId,
-                                                    @RequestHeader("Authorization") String token) {
+                                                    @CurrentPerson String personEmail) {
 
-        bookService.renewCheckout(extractEmail(token), bookId);
+        bookService.renewCheckout(personEmail, bookId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
@@ -115,9 +216,9 @@ public class BookController {
     @SecurityRequirement(name = "Bearer Authentication")
     @PutMapping("/secure/return/{bookId}")
     public ResponseEntity<HttpStatus> returnBook(@PathVariable("bookId") Long bookId,
-                                                 @RequestHeader("Authorization") String token) {
+                                                 @CurrentPerson String personEmail) {
 
-        bookService.returnBook(extractEmail(token), bookId);
+        bookService.returnBook(personEmail, bookId);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
@@ -126,9 +227,9 @@ public class BookController {
     @SecurityRequirement(name = "Bearer Authentication")
     @GetMapping("/secure/is-reviewed/{bookId}")
     public ResponseEntity<Boolean> isBookReviewedByPerson(@PathVariable("bookId") Long bookId,
-                                                          @RequestHeader("Authorization") String token) {
+                                                          @CurrentPerson String personEmail) {
 
-        Boolean responseBody = bookService.isBookReviewedByPerson(extractEmail(token), bookId);
+        Boolean responseBody = bookService.isBookReviewedByPerson(personEmail, bookId);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
@@ -137,11 +238,11 @@ public class BookController {
     @SecurityRequirement(name = "Bearer Authentication")
     @PostMapping("/secure/review/{bookId}")
     public ResponseEntity<ReviewDTO> reviewBook(@PathVariable("bookId") Long bookId,
-                                                @RequestHeader("Authorization") String token,
+                                                @CurrentPerson String personEmail,
                                                 @RequestBody @Valid ReviewDTO reviewDTO,
                                                 BindingResult bindingResult) {
 
-        ReviewDTO responseBody = bookService.reviewBook(extractEmail(token), bookId, reviewDTO, bindingResult);
+        ReviewDTO responseBody = bookService.reviewBook(personEmail, bookId, reviewDTO, bindingResult);
         return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
     }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.test.bookstore.bookstore_backend.dto.CheckoutDTO;
-import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPerson;
 import com.test.bookstore.bookstore_backend.services.CheckoutService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -21,34 +21,27 @@ import java.util.List;
 public class CheckoutController {
 
     private final CheckoutService checkoutService;
-    private final JwtUtils jwtUtils;
 
     @Autowired
-    public CheckoutController(CheckoutService checkoutService, JwtUtils jwtUtils) {
+    public CheckoutController(CheckoutService checkoutService) {
         this.checkoutService = checkoutService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private String extractEmail(String token) {
-        String jwt = token.substring(7);
-        return jwtUtils.extractPersonEmail(jwt);
     }
 
     @Operation(summary = "Get a number of current checkouts held by authenticated user.",
             description = "Returns a number of current checkouts as an int.")
     @GetMapping("/current-loans-count")
-    public ResponseEntity<Integer> getCurrentCheckoutsCount(@RequestHeader(value = "Authorization") String token) {
+    public ResponseEntity<Integer> getCurrentCheckoutsCount(@CurrentPerson String personEmail) {
 
-        Integer responseBody = checkoutService.getCurrentCheckoutsCount(extractEmail(token));
+        Integer responseBody = checkoutService.getCurrentCheckoutsCount(personEmail);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
     @Operation(summary = "Get a list of all current checkouts held by authenticated user.",
             description = "Returns a list containing CheckoutDTO objects.")
     @GetMapping("/current-checkouts")
-    public ResponseEntity<List<CheckoutDTO>> getCurrentCheckouts(@RequestHeader(value = "Authorization") String token) {
+    public ResponseEntity<List<CheckoutDTO>> getCurrentCheckouts(@CurrentPerson String personEmail) {
 
-        List<CheckoutDTO> responseBody = checkoutService.getCurrentCheckouts(extractEmail(token));
+        List<CheckoutDTO> responseBody = checkoutService.getCurrentCheckouts(personEmail);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 }
@@ -1,7 +1,7 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.test.bookstore.bookstore_backend.dto.DiscussionDTO;
-import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPerson;
 import com.test.bookstore.bookstore_backend.services.DiscussionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -22,39 +22,32 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "Discussion Controller")
 public class DiscussionController {
 
-    private final JwtUtils jwtUtils;
     private final DiscussionService discussionService;
 
     @Autowired
-    public DiscussionController(JwtUtils jwtUtils, DiscussionService discussionService) {
-        this.jwtUtils = jwtUtils;
+    public DiscussionController(DiscussionService discussionService) {
         this.discussionService = discussionService;
     }
 
-    private String extractEmail(String token) {
-        String jwt = token.substring(7);
-        return jwtUtils.extractPersonEmail(jwt);
-    }
-
     @Operation(summary = "Get a paginated list of all discussions.",
             description = "Returns a Page containing DiscussionDTO objects for authenticated user.")
     @GetMapping
-    public ResponseEntity<Page<DiscussionDTO>> findAllByPersonEmail(@RequestHeader("Authorization") String token,
+    public ResponseEntity<Page<DiscussionDTO>> findAllByPersonEmail(@CurrentPerson String personEmail,
                                                                     @RequestParam(value = "page") Integer page,
                                                                     @RequestParam(value = "discussions-per-page") Integer discussionsPerPage) {
 
-        Page<DiscussionDTO> responseBody = discussionService.findAllByPersonEmail(extractEmail(token), PageRequest.of(page, discussionsPerPage));
+        Page<DiscussionDTO> responseBody = discussionService.findAllByPersonEmail(personEmail, PageRequest.of(page, discussionsPerPage));
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
     @Operation(summary = "Create a new discussion entity.",
             description = "Adds a new discussion entity marked as open to a DataBase. Requires a valid DiscussionDTO object as a request body.")
     @PostMapping("add-discussion")
-    public ResponseEntity<DiscussionDTO> addDiscussion(@RequestHeader("Authorization") String token,
+    public ResponseEntity<DiscussionDTO> addDiscussion(@CurrentPerson String personEmail,
                                                        @RequestBody @Valid DiscussionDTO discussionDTO,
                                                        BindingResult bindingResult) {
 
-        DiscussionDTO responseBody = discussionService.addDiscussion(extractEmail(token), discussionDTO, bindingResult);
+        DiscussionDTO responseBody = discussionService.addDiscussion(personEmail, discussionDTO, bindingResult);
         return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
     }
 }
@@ -1,7 +1,7 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.test.bookstore.bookstore_backend.dto.HistoryRecordDTO;
-import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPerson;
 import com.test.bookstore.bookstore_backend.services.HistoryRecordService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -21,27 +21,20 @@ import org.springframework.web.bind.annotation.*;
 public class HistoryRecordController {
 
     private final HistoryRecordService historyRecordService;
-    private final JwtUtils jwtUtils;
 
     @Autowired
-    public HistoryRecordController(HistoryRecordService historyRecordService, JwtUtils jwtUtils) {
+    public HistoryRecordController(HistoryRecordService historyRecordService) {
         this.historyRecordService = historyRecordService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private String extractEmail(String token) {
-        String jwt = token.substring(7);
-        return jwtUtils.extractPersonEmail(jwt);
     }
 
     @Operation(summary = "Get a paginated list of history records for an authenticated user.",
             description = "Returns a page containing HistoryRecordDTO objects.")
     @GetMapping
-    public ResponseEntity<Page<HistoryRecordDTO>> findAllByPersonEmail(@RequestHeader("Authorization") String token,
+    public ResponseEntity<Page<HistoryRecordDTO>> findAllByPersonEmail(@CurrentPerson String personEmail,
                                                                        @RequestParam(value = "page") Integer page,
                                                                        @RequestParam(value = "records-per-page") Integer recordsPerPage) {
 
-        Page<HistoryRecordDTO> responseBody = historyRecordService.findAllByPersonEmail(extractEmail(token), PageRequest.of(page, recordsPerPage));
+        Page<HistoryRecordDTO> responseBody = historyRecordService.findAllByPersonEmail(personEmail, PageRequest.of(page, recordsPerPage));
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 }
@@ -0,0 +1,97 @@
+package com.test.bookstore.bookstore_backend.controllers;
+
+import com.test.bookstore.bookstore_backend.images.ByteRange;
+import com.test.bookstore.bookstore_backend.images.StoredImage;
+import com.test.bookstore.bookstore_backend.services.ImageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+@CrossOrigin("http://localhost:5173/")
+@RestController
+@RequestMapping("/api/images")
+@Tag(name = "Image Controller")
+public class ImageController {
+
+    // An image is named by the hash of its bytes and never changes, so clients and proxies keep it for a year without revalidating
+    private static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+
+    // Request attributes of Tomcat's connector, which then writes the file to the socket itself with FileChannel.transferTo
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ImageService imageService;
+
+    @Autowired
+    public ImageController(ImageService imageService) {
+        this.imageService = imageService;
+    }
+
+    @Operation(summary = "Get an image by the SHA-256 hash of its bytes.",
+            description = "Streams the image with a strong ETag and caching headers of an immutable resource. " +
+                    "Answers If-None-Match with 304 and a single byte Range with 206. With size=small, medium or large " +
+                    "returns the image scaled down to 200, 400 or 800 pixels wide, the original is sent uncached while a new thumbnail is being made.")
+    @GetMapping("/{hash}")
+    public void findByHash(@PathVariable("hash") String hash, @RequestParam(value = "size", required = false) String size,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        StoredImage image = size == null ? imageService.findByHash(hash) : imageService.findByHash(hash, size);
+
+        // A stand-in is checked again next time, by then its thumbnail is likely ready
+        response.setHeader(HttpHeaders.CACHE_CONTROL, image.immutable() ? CACHE_FOREVER : "no-cache");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Sets the ETag and answers with 304 when the client already has this image
+        if (new ServletWebRequest(request, response).checkNotModified(image.eTag())) return;
+
+        ByteRange range = requestedRange(request, image);
+
+        if (range != null && !range.isSatisfiable()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + image.size());
+            return;
+        }
+
+        long start = range == null ? 0 : range.start();
+        long length = range == null ? image.size() : range.length();
+
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange());
+        }
+
+        response.setContentType(image.contentType());
+        response.setContentLengthLong(length);
+
+        if ("HEAD".equals(request.getMethod())) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, image.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+
+        imageService.transfer(image, start, length, Channels.newChannel(response.getOutputStream()));
+    }
+
+    // With If-Range the range only applies to the image with that ETag, a date or another ETag gets the whole image
+    private ByteRange requestedRange(HttpServletRequest request, StoredImage image) {
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange != null && !ifRange.equals(image.eTag())) return null;
+
+        return ByteRange.parse(request.getHeader(HttpHeaders.RANGE), image.size());
+    }
+}
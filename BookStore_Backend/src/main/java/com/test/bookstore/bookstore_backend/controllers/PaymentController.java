@@ -1,7 +1,7 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.test.bookstore.bookstore_backend.dto.PaymentInfoDTO;
-import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPerson;
 import com.test.bookstore.bookstore_backend.services.PaymentService;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
@@ -21,25 +21,18 @@ import org.springframework.web.bind.annotation.*;
 public class PaymentController {
 
     private final PaymentService paymentService;
-    private final JwtUtils jwtUtils;
 
     @Autowired
-    public PaymentController(PaymentService paymentService, JwtUtils jwtUtils) {
+    public PaymentController(PaymentService paymentService) {
         this.paymentService = paymentService;
-        this.jwtUtils = jwtUtils;
-    }
-
-    private String extractEmail(String token) {
-        String jwt = token.substring(7);
-        return jwtUtils.extractPersonEmail(jwt);
     }
 
     @Operation(summary = "Get pending fee amount for authenticated user.",
             description = "Get pending fee amount for authenticated user. Returns a value of type Double.")
     @GetMapping
-    public ResponseEntity<Double> findByPersonEmail(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<Double> findByPersonEmail(@CurrentPerson String personEmail) {
 
-        Double responseBody = paymentService.findPaymentFeesByPersonEmail(extractEmail(token));
+        Double responseBody = paymentService.findPaymentFeesByPersonEmail(personEmail);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
 
@@ -56,9 +49,9 @@ public class PaymentController {
     @Operation(summary = "Confirm that payment attempt went successfully.",
             description = "Confirm that payment attempt went successfully. Updates a value of payment amount for authenticated user.")
     @PutMapping("/payment-complete")
-    public ResponseEntity<HttpStatus> stripePaymentComplete(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<HttpStatus> stripePaymentComplete(@CurrentPerson String personEmail) {
 
-        paymentService.stripePayment(extractEmail(token));
+        paymentService.stripePayment(personEmail);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
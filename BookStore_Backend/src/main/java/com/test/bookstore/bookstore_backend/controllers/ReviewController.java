@@ -11,6 +11,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @CrossOrigin("http://localhost:5173/")
 @RestController
 @RequestMapping("/api/reviews")
@@ -44,4 +47,13 @@ public class ReviewController {
         Double responseBody = reviewService.getAverageRatingByBookId(bookId);
         return new ResponseEntity<>(responseBody, HttpStatus.OK);
     }
+
+    @Operation(summary = "Get average ratings for several books at once.",
+            description = "Takes up to 100 book ids. Returns a map of book id to average rating, books that don't exist are left out.")
+    @GetMapping("/average-rating")
+    public ResponseEntity<Map<Long, Double>> getAverageRatingsByBookIds(@RequestParam(value = "ids") List<Long> bookIds) {
+
+        Map<Long, Double> responseBody = reviewService.getAverageRatingsByBookIds(bookIds);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
 }
@@ -31,9 +31,14 @@ public class BookDTO {
     @Min(value = 0, message = "Available copies count cannot be below 0")
     private Integer copiesAvailable;
 
+    // The cover is uploaded as a data URL, the saved book only returns the hash it's served by from /api/images
     @NotBlank(message = "Cover image must be present")
     private String img;
 
+    private String imageHash;
+
     @NotEmpty(message = "At least one genre must be assigned")
     private List<GenreDTO> genres;
+
+    private Double averageRating;
 }
@@ -0,0 +1,21 @@
+package com.test.bookstore.bookstore_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacetsDTO {
+
+    private Page<BookSummaryDTO> books;
+
+    // Number of matching books in every genre, so a client can show how many books each further filter leaves
+    private Map<String, Long> genreCounts;
+}
@@ -0,0 +1,20 @@
+package com.test.bookstore.bookstore_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSliceDTO {
+
+    private List<BookSummaryDTO> content;
+
+    // Opaque cursor of the last book in content, null when there are no more books
+    private String nextCursor;
+}
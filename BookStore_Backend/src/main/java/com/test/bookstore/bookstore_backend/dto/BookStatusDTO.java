@@ -0,0 +1,17 @@
+package com.test.bookstore.bookstore_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStatusDTO {
+
+    private boolean checkedOut;
+
+    private boolean reviewed;
+}
@@ -0,0 +1,21 @@
+package com.test.bookstore.bookstore_backend.dto;
+
+import com.test.bookstore.bookstore_backend.search.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDTO {
+
+    private String text;
+
+    private SuggestionType type;
+
+    // Only title suggestions point to a book, an author stands for all of their books
+    private Long bookId;
+}
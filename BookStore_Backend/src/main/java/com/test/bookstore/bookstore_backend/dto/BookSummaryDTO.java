@@ -0,0 +1,33 @@
+package com.test.bookstore.bookstore_backend.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A book as list pages show it. The full description is only sent with the single book,
+ * the cover is loaded from /api/images by its hash.
+ */
+@Getter
+@Setter
+public class BookSummaryDTO {
+
+    private Long id;
+
+    private String title;
+
+    private String author;
+
+    private String descriptionPreview;
+
+    private Integer copies;
+
+    private Integer copiesAvailable;
+
+    private List<GenreDTO> genres;
+
+    private Double averageRating;
+
+    private String imageHash;
+}
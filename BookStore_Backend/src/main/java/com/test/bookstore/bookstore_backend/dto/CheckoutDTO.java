@@ -7,7 +7,7 @@ import lombok.Setter;
 @Setter
 public class CheckoutDTO {
 
-    private BookDTO bookDTO;
+    private BookSummaryDTO bookDTO;
 
     private Integer daysLeft;
 }
@@ -11,7 +11,7 @@ public class HistoryRecordDTO {
 
     private Long id;
 
-    private BookDTO bookDTO;
+    private BookSummaryDTO bookDTO;
 
     private LocalDate checkoutDate;
 
@@ -0,0 +1,34 @@
+package com.test.bookstore.bookstore_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "account_summary")
+public class AccountSummary {
+
+    @Id
+    @Column(name = "person_email")
+    private String personEmail;
+
+    @Column(name = "active_loans")
+    private Integer activeLoans;
+
+    @Column(name = "earliest_due_date")
+    private LocalDate earliestDueDate;
+
+    @Column(name = "outstanding_fees")
+    private Double outstandingFees;
+
+    public AccountSummary(String personEmail, Integer activeLoans, LocalDate earliestDueDate, Double outstandingFees) {
+        this.personEmail = personEmail;
+        this.activeLoans = activeLoans;
+        this.earliestDueDate = earliestDueDate;
+        this.outstandingFees = outstandingFees;
+    }
+}
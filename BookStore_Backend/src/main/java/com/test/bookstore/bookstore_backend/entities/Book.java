@@ -3,10 +3,13 @@ package com.test.bookstore.bookstore_backend.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
@@ -45,13 +48,47 @@ public class Book {
     @Column(name = "copies_available")
     private Integer copiesAvailable;
 
-    @NotNull(message = "Image must not be null")
-    @Column(name = "img")
-    private String img;
+    // SHA-256 hash of the cover in the ImageStore, the image itself is served from /api/images
+    @Column(name = "image_hash")
+    private String imageHash;
+
+    // Above 0 the available copies are spread over that many book_inventory_slot rows,
+    // so concurrent checkouts of a hot book don't all wait for the lock on this row
+    @Column(name = "inventory_slots")
+    private Integer inventorySlots = 0;
+
+    // Inventory slots with copies left, only changed by the statements that empty or restock a slot,
+    // so saving a book loaded before a concurrent checkout can't overwrite it
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    @Column(name = "stocked_slots", insertable = false, updatable = false)
+    private Integer stockedSlots = 0;
+
+    // Kept up to date when a review is added and recomputed from the review table by ReviewService,
+    // so the average rating is read with the book instead of aggregating its reviews
+    @Column(name = "rating_count")
+    private Integer ratingCount = 0;
+
+    @Column(name = "rating_sum")
+    private Double ratingSum = 0.0;
+
+    // Generated by the DataBase from the columns above and only read to sort books with an index,
+    // getAverageRating() computes it from the fields, so it's current before the book is saved
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    @Column(name = "average_rating", insertable = false, updatable = false)
+    private Double averageRating;
+
+    // Copies left on the book row or on any of its stocked slots, generated from the columns above
+    @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.NONE)
+    @Column(name = "available", insertable = false, updatable = false)
+    private Boolean available;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     @NotEmpty(message = "At least one genre must be assigned")
+    @BatchSize(size = 50) // Genres of a whole page of books are loaded with one query instead of one per book
     @ManyToMany(mappedBy = "books")
     private List<Genre> genres;
 
@@ -73,12 +110,16 @@ public class Book {
     @OneToMany(mappedBy = "reviewedBook", fetch = FetchType.LAZY)
     private List<Review> reviews;
 
-    public Book(String title, String author, String description, Integer copies, Integer copiesAvailable, String img) {
+    public Book(String title, String author, String description, Integer copies, Integer copiesAvailable, String imageHash) {
         this.title = title;
         this.author = author;
         this.description = description;
         this.copies = copies;
         this.copiesAvailable = copiesAvailable;
-        this.img = img;
+        this.imageHash = imageHash;
+    }
+
+    public Double getAverageRating() {
+        return ratingCount == 0 ? 0.0 : ratingSum / ratingCount;
     }
 }
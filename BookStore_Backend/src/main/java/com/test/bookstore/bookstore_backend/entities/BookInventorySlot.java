@@ -0,0 +1,35 @@
+package com.test.bookstore.bookstore_backend.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "book_inventory_slot")
+public class BookInventorySlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", referencedColumnName = "id")
+    @JsonIgnore
+    private Book slottedBook;
+
+    @Column(name = "slot")
+    private Integer slot;
+
+    @Column(name = "copies_available")
+    private Integer copiesAvailable;
+
+    public BookInventorySlot(Book slottedBook, Integer slot, Integer copiesAvailable) {
+        this.slottedBook = slottedBook;
+        this.slot = slot;
+        this.copiesAvailable = copiesAvailable;
+    }
+}
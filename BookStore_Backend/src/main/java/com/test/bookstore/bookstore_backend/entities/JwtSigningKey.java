@@ -0,0 +1,30 @@
+package com.test.bookstore.bookstore_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "jwt_signing_key")
+public class JwtSigningKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "secret")
+    private String secret;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public JwtSigningKey(String secret, LocalDateTime createdAt) {
+        this.secret = secret;
+        this.createdAt = createdAt;
+    }
+}
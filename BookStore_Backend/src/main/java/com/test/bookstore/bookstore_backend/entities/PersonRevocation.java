@@ -0,0 +1,26 @@
+package com.test.bookstore.bookstore_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "person_revocation")
+public class PersonRevocation {
+
+    @Id
+    @Column(name = "person_email")
+    private String personEmail;
+
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    public PersonRevocation(String personEmail, LocalDateTime revokedAt) {
+        this.personEmail = personEmail;
+        this.revokedAt = revokedAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The bytes from start to end, both inclusive, of a file of the given size asked for by a Range header.
+ */
+public record ByteRange(long start, long end, long size) {
+
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    /**
+     * Parses a Range header with one range. Null means the whole file is sent: no header, a header that can't be
+     * parsed or several ranges, which are allowed to be answered with the whole file instead of a multipart body.
+     */
+    public static ByteRange parse(String header, long size) {
+
+        if (header == null) return null;
+
+        Matcher matcher = SINGLE_RANGE.matcher(header.trim());
+
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) return null;
+
+        try {
+
+            if (matcher.group(1).isEmpty()) {
+                // "bytes=-N" is the last N bytes
+                long suffixLength = Long.parseLong(matcher.group(2));
+                return new ByteRange(Math.max(size - suffixLength, 0), size - 1, size);
+            }
+
+            long start = Long.parseLong(matcher.group(1));
+            long end = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+
+            if (!matcher.group(2).isEmpty() && Long.parseLong(matcher.group(2)) < start) return null;
+
+            return new ByteRange(start, end, size);
+
+        } catch (NumberFormatException e) {
+            // More digits than a long holds
+            return null;
+        }
+    }
+
+    public boolean isSatisfiable() {
+        return start < size && start <= end;
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange() {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+}
@@ -0,0 +1,154 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps cover images on local disk under the SHA-256 hash of their bytes, so a book only stores the hash and the same
+ * image uploaded twice is stored once. A file never changes once written, which lets clients cache it forever.
+ */
+@Component
+public class ImageStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern DATA_URL = Pattern.compile("data:[\\w.+-]+/[\\w.+-]+;base64,(.*)", Pattern.DOTALL);
+
+    // Longest magic number of the supported types, the WebP one is checked at offset 8
+    private static final int SNIFF_LENGTH = 12;
+
+    private final Path directory;
+
+    public ImageStore(@Value("${image_store_directory:images}") String directory) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+    }
+
+    // The admin page uploads covers as data URLs, anything else or an unsupported image type gives an empty result
+    public Optional<byte[]> decodeDataUrl(String dataUrl) {
+
+        Matcher matcher = DATA_URL.matcher(dataUrl);
+
+        if (!matcher.matches()) return Optional.empty();
+
+        byte[] bytes;
+
+        try {
+            bytes = Base64.getMimeDecoder().decode(matcher.group(1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        return detectContentType(bytes, bytes.length) == null ? Optional.empty() : Optional.of(bytes);
+    }
+
+    public String store(byte[] bytes) {
+
+        if (detectContentType(bytes, bytes.length) == null) {
+            throw new IllegalArgumentException("Only PNG, JPEG, GIF and WebP images are stored");
+        }
+
+        String hash = hash(bytes);
+        Path path = pathOf(hash);
+
+        if (!Files.exists(path)) writeAtomically(path, bytes);
+
+        return hash;
+    }
+
+    public Optional<StoredImage> find(String hash) {
+
+        if (!isHash(hash)) return Optional.empty();
+
+        return open(hash, pathOf(hash));
+    }
+
+    public static boolean isHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    // Written next to its final place and moved there, so a reader never sees half of a file
+    static void writeAtomically(Path path, byte[] bytes) {
+
+        try {
+            Files.createDirectories(path.getParent());
+
+            Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+            try {
+                Files.write(temporary, bytes);
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Optional<StoredImage> open(String name, Path path) {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            ByteBuffer head = ByteBuffer.allocate(SNIFF_LENGTH);
+            channel.read(head, 0);
+
+            String contentType = detectContentType(head.array(), head.position());
+
+            return Optional.of(new StoredImage(name, path, channel.size(), contentType == null ? "application/octet-stream" : contentType, true));
+
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Types come from the bytes rather than from the upload, so nothing but these images is ever served from the store
+    static String detectContentType(byte[] head, int length) {
+
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "image/png";
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(head, length, 0, 'G', 'I', 'F', '8')) return "image/gif";
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F') && startsWith(head, length, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, int... magic) {
+
+        if (length < offset + magic.length) return false;
+
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[offset + i] & 0xFF) != magic[i]) return false;
+        }
+
+        return true;
+    }
+
+    // Spread over 256 directories by the first byte of the hash, so no single directory grows too large
+    private Path pathOf(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String hash(byte[] bytes) {
+
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
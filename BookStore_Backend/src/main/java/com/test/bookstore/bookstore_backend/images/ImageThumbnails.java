@@ -0,0 +1,223 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scales covers down to the fixed ThumbnailSizes with ImageIO and keeps the results on disk next to the originals.
+ * Thumbnails are made on a small pool of worker threads with a bounded queue: all sizes right after a cover is stored,
+ * and a missing size when it's first asked for. Requests for a thumbnail that is being made wait for the same work.
+ */
+@Component
+public class ImageThumbnails {
+
+    // Larger images are not decoded at all, 4 bytes per pixel would take too much memory
+    private static final long MAX_PIXELS = 40_000_000;
+
+    private final ImageStore imageStore;
+    private final Path directory;
+    private final ExecutorService executor;
+
+    // Thumbnails being made, so concurrent requests for the same one share its work instead of repeating it
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImageThumbnails(ImageStore imageStore,
+                           @Value("${thumbnail_directory:${image_store_directory:images}/thumbnails}") String directory,
+                           @Value("${thumbnail_threads:2}") int threads,
+                           @Value("${thumbnail_queue_capacity:100}") int queueCapacity) {
+
+        this(imageStore, Path.of(directory), workers(threads, queueCapacity));
+    }
+
+    ImageThumbnails(ImageStore imageStore, Path directory, ExecutorService executor) {
+        this.imageStore = imageStore;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.executor = executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void generateAll(String hash) {
+
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            thumbnail(hash, size);
+        }
+    }
+
+    // The thumbnail's file, made on the worker pool unless it's on disk already
+    public CompletableFuture<Path> thumbnail(String hash, ThumbnailSize size) {
+
+        Path path = pathOf(hash, size);
+
+        if (Files.exists(path)) return CompletableFuture.completedFuture(path);
+
+        String key = nameOf(hash, size);
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(key, created);
+
+        if (running != null) return running;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(generate(hash, size, path));
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+
+        return created;
+    }
+
+    public Optional<StoredImage> find(String hash, ThumbnailSize size) {
+
+        if (!ImageStore.isHash(hash)) return Optional.empty();
+
+        return ImageStore.open(nameOf(hash, size), pathOf(hash, size));
+    }
+
+    public static String nameOf(String hash, ThumbnailSize size) {
+        return hash + "-" + size.getParameter();
+    }
+
+    private Path generate(String hash, ThumbnailSize size, Path path) throws IOException {
+
+        // Made by an earlier request between the check and queueing this one
+        if (Files.exists(path)) return path;
+
+        StoredImage original = imageStore.find(hash).orElseThrow(() -> new NoSuchFileException(hash));
+        BufferedImage source = read(original.path());
+
+        if (source == null || source.getWidth() <= size.getWidth()) {
+            // Images that ImageIO can't read or that are small already are their own thumbnail, linked instead of copied
+            linkOrCopy(original.path(), path);
+            return path;
+        }
+
+        boolean opaque = source.getTransparency() == Transparency.OPAQUE;
+        BufferedImage scaled = scale(source, size.getWidth(), opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(scaled, opaque ? "jpeg" : "png", bytes);
+        ImageStore.writeAtomically(path, bytes.toByteArray());
+
+        return path;
+    }
+
+    // Aborts when the queue is full, a thumbnail that isn't made now is made on its first request
+    private static ExecutorService workers(int threads, int queueCapacity) {
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "image-thumbnails-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static BufferedImage read(Path path) throws IOException {
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+
+            // WebP has no reader in the JDK
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(input, true, true);
+
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) return null;
+
+                return reader.read(0);
+
+            } catch (IOException | IllegalArgumentException e) {
+                // Corrupt or in a variant the reader doesn't support, e.g. CMYK JPEG
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the image until it's close to the target width, a single bilinear step from far larger images drops most pixels
+    static BufferedImage scale(BufferedImage source, int targetWidth, int imageType) {
+
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BufferedImage current = source;
+
+        do {
+            width = Math.max(width / 2, targetWidth);
+            height = Math.max(height / 2, targetHeight);
+
+            BufferedImage next = new BufferedImage(width, height, imageType);
+            Graphics2D graphics = next.createGraphics();
+
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            current = next;
+
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private static void linkOrCopy(Path original, Path path) throws IOException {
+
+        Files.createDirectories(path.getParent());
+
+        try {
+            Files.createLink(path, original);
+        } catch (FileAlreadyExistsException e) {
+            // Linked by another instance sharing the directory
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(original, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path pathOf(String hash, ThumbnailSize size) {
+        return directory.resolve(size.getParameter()).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+}
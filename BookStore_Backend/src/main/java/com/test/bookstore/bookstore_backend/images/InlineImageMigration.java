@@ -0,0 +1,96 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves covers that were stored as data URLs in book.img into the ImageStore and leaves only their hash in the row.
+ * Runs in the background after startup until no inline cover is left, a failed run is retried on a schedule. A cover
+ * that isn't a data URL of a supported image stays where it is and is skipped.
+ */
+@Slf4j
+@Component
+public class InlineImageMigration {
+
+    // Every row carries a whole image, so batches are small
+    private static final int BATCH_SIZE = 50;
+
+    private final BookRepository bookRepository;
+    private final ImageStore imageStore;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    private volatile boolean finished;
+
+    @Autowired
+    public InlineImageMigration(BookRepository bookRepository, ImageStore imageStore, PlatformTransactionManager transactionManager,
+                                @Value("${inline_image_migration_enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.imageStore = imageStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInBackground() {
+
+        if (!enabled) return;
+
+        Thread migration = new Thread(this::migrateUntilFinished, "inline-image-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    // Moved covers no longer match, so a retry only reads the rows that are still left
+    @Scheduled(cron = "${inline_image_migration_retry_cron:0 */10 * * * *}")
+    public void migrateUntilFinished() {
+
+        if (!enabled || finished) return;
+
+        try {
+            log.info("Moved {} inline covers to the image store", migrate());
+            finished = true;
+        } catch (RuntimeException e) {
+            log.error("Moving inline covers to the image store failed, it's retried later", e);
+        }
+    }
+
+    // Returns the number of moved covers
+    public synchronized int migrate() {
+
+        int moved = 0;
+        long afterId = 0;
+
+        while (true) {
+
+            List<Object[]> batch = bookRepository.findInlineImagesAfter(afterId, BATCH_SIZE);
+
+            if (batch.isEmpty()) return moved;
+
+            // Files are written before the rows point to them, a failed update only leaves an unused file behind
+            Map<Long, String> imageHashes = new LinkedHashMap<>();
+
+            for (Object[] row : batch) {
+                long bookId = ((Number) row[0]).longValue();
+                imageStore.decodeDataUrl((String) row[1]).ifPresent(bytes -> imageHashes.put(bookId, imageStore.store(bytes)));
+            }
+
+            transactionTemplate.executeWithoutResult(status -> imageHashes.forEach(bookRepository::moveImageToStore));
+
+            moved += imageHashes.size();
+            afterId = ((Number) batch.get(batch.size() - 1)[0]).longValue();
+        }
+    }
+}
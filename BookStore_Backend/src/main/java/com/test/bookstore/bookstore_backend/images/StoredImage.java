@@ -0,0 +1,18 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import java.nio.file.Path;
+
+/**
+ * An image file ready to be served. The name is the hash of the original image, followed by the size for a thumbnail.
+ * Immutable images are cached by clients for good, a stand-in served until a thumbnail is ready is not.
+ */
+public record StoredImage(String name, Path path, long size, String contentType, boolean immutable) {
+
+    public String eTag() {
+        return "\"" + name + "\"";
+    }
+
+    public StoredImage asStandIn() {
+        return new StoredImage(name, path, size, contentType, false);
+    }
+}
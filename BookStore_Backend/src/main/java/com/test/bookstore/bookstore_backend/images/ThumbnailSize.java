@@ -0,0 +1,34 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Widths covers are scaled down to. Cards show covers 200 to 250 pixels wide, the larger sizes are for high density screens.
+ */
+public enum ThumbnailSize {
+
+    SMALL("small", 200),
+    MEDIUM("medium", 400),
+    LARGE("large", 800);
+
+    private final String parameter;
+    private final int width;
+
+    ThumbnailSize(String parameter, int width) {
+        this.parameter = parameter;
+        this.width = width;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public static Optional<ThumbnailSize> fromParameter(String parameter) {
+        return Arrays.stream(values()).filter(size -> size.parameter.equals(parameter)).findFirst();
+    }
+}
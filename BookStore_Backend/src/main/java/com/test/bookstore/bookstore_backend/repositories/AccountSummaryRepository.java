@@ -0,0 +1,51 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.AccountSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the account summary of a person in step with their checkouts and payment, every change is a single conditional update
+ * made in the same transaction as the checkout or payment change itself. Updates that re-read checkouts flush first,
+ * so checkouts deleted or renewed in the same transaction are already seen.
+ */
+public interface AccountSummaryRepository extends JpaRepository<AccountSummary, String> {
+
+    // Inserted directly, saving a new summary with its assigned id would select it first to decide between insert and update
+    @Modifying
+    @Query(value = "INSERT INTO account_summary (person_email, active_loans, earliest_due_date, outstanding_fees) VALUES (:personEmail, 1, :dueDate, :fees)",
+            nativeQuery = true)
+    int openWithLoan(@Param("personEmail") String personEmail, @Param("dueDate") LocalDate dueDate, @Param("fees") Double fees);
+
+    @Modifying
+    @Query("UPDATE AccountSummary s SET s.activeLoans = s.activeLoans + 1, " +
+            "s.earliestDueDate = CASE WHEN s.earliestDueDate IS NULL OR s.earliestDueDate > :dueDate THEN :dueDate ELSE s.earliestDueDate END " +
+            "WHERE s.personEmail = :personEmail")
+    int addLoan(@Param("personEmail") String personEmail, @Param("dueDate") LocalDate dueDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AccountSummary s SET s.activeLoans = s.activeLoans - 1, s.outstandingFees = s.outstandingFees + :fees, " +
+            "s.earliestDueDate = (SELECT MIN(c.returnDate) FROM Checkout c WHERE c.checkoutHolder.email = s.personEmail) " +
+            "WHERE s.personEmail = :personEmail AND s.activeLoans > 0")
+    int removeLoan(@Param("personEmail") String personEmail, @Param("fees") Double fees);
+
+    // Checkouts of the book are deleted together with it, so their holders lose the loan before the book is gone
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AccountSummary s SET s.activeLoans = s.activeLoans - 1, " +
+            "s.earliestDueDate = (SELECT MIN(c.returnDate) FROM Checkout c WHERE c.checkoutHolder.email = s.personEmail AND c.checkedOutBook.id <> :bookId) " +
+            "WHERE s.personEmail IN (SELECT c.checkoutHolder.email FROM Checkout c WHERE c.checkedOutBook.id = :bookId) AND s.activeLoans > 0")
+    int removeLoansOfBook(@Param("bookId") Long bookId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AccountSummary s SET s.earliestDueDate = (SELECT MIN(c.returnDate) FROM Checkout c WHERE c.checkoutHolder.email = s.personEmail) " +
+            "WHERE s.personEmail = :personEmail")
+    int refreshEarliestDueDate(@Param("personEmail") String personEmail);
+
+    @Modifying
+    @Query("UPDATE AccountSummary s SET s.outstandingFees = 0 WHERE s.personEmail = :personEmail")
+    int clearOutstandingFees(@Param("personEmail") String personEmail);
+}
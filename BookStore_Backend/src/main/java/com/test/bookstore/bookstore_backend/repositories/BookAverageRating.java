@@ -0,0 +1,7 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+/**
+ * Average rating of one book, read from the book's rating aggregates without loading the book itself.
+ */
+public record BookAverageRating(Long bookId, Double averageRating) {
+}
@@ -0,0 +1,23 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import java.util.Optional;
+
+public interface BookCirculationRepository {
+
+    // Whole checkout or return as a single statement, empty when the DataBase can't run it and the entity based path has to be used
+    Optional<CirculationResult> checkoutInOneStatement(String personEmail, Long bookId);
+
+    Optional<CirculationResult> returnInOneStatement(String personEmail, Long bookId);
+
+    // Nothing is changed in the DataBase unless the result is OK
+    enum CirculationResult {
+        OK,
+        PERSON_NOT_FOUND,
+        BOOK_NOT_FOUND,
+        ALREADY_CHECKED_OUT,
+        NOT_CHECKED_OUT,
+        OUTSTANDING_FEES,
+        PAYMENT_MISSING,
+        NO_COPIES_AVAILABLE
+    }
+}
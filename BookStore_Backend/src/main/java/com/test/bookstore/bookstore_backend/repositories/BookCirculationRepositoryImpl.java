@@ -0,0 +1,154 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Optional;
+
+/**
+ * Runs checkouts and returns as one PostgreSQL statement built from data-modifying CTEs, so every validation,
+ * the inventory change, payment, account summary, history and checkout rows cost a single round trip. Each change is guarded by the same checks
+ * the entity based path in BookService does, and the final select reports which check failed.
+ * Any other DataBase (H2 in tests) gets empty results and BookService falls back to the entity based path.
+ */
+public class BookCirculationRepositoryImpl implements BookCirculationRepository {
+
+    // Picks a random inventory slot with copies left, the book row is only used when there is no such slot.
+    // The book row is only locked to count the slot as emptied when its last copy is taken
+    private static final String CHECKOUT = """
+            WITH person_row AS (SELECT email FROM person WHERE email = :email),
+                 book_row AS (SELECT id FROM book WHERE id = :bookId),
+                 payment_row AS (SELECT amount FROM payment WHERE person_email = :email),
+                 existing_checkout AS (SELECT id FROM checkout WHERE person_email = :email AND book_id = :bookId),
+                 blocked AS (SELECT 1 FROM account_summary s WHERE s.person_email = :email
+                                AND (s.outstanding_fees > 0 OR s.earliest_due_date < current_date)),
+                 allowed AS (SELECT 1 WHERE EXISTS (SELECT 1 FROM person_row) AND EXISTS (SELECT 1 FROM book_row)
+                                AND NOT EXISTS (SELECT 1 FROM existing_checkout) AND NOT EXISTS (SELECT 1 FROM blocked)),
+                 taken_from_slot AS (UPDATE book_inventory_slot SET copies_available = copies_available - 1
+                                WHERE id = (SELECT s.id FROM book_inventory_slot s WHERE s.book_id = :bookId AND s.copies_available > 0
+                                               AND EXISTS (SELECT 1 FROM allowed) ORDER BY random() LIMIT 1 FOR UPDATE)
+                                AND copies_available > 0
+                                RETURNING book_id, copies_available),
+                 emptied_slot AS (UPDATE book SET stocked_slots = stocked_slots - 1
+                                WHERE id = :bookId AND stocked_slots > 0 AND EXISTS (SELECT 1 FROM taken_from_slot WHERE copies_available = 0)
+                                RETURNING id),
+                 taken_from_book AS (UPDATE book SET copies_available = copies_available - 1
+                                WHERE id = :bookId AND copies_available > 0
+                                AND EXISTS (SELECT 1 FROM allowed) AND NOT EXISTS (SELECT 1 FROM taken_from_slot)
+                                RETURNING id AS book_id),
+                 taken AS (SELECT book_id FROM taken_from_slot UNION ALL SELECT book_id FROM taken_from_book),
+                 new_payment AS (INSERT INTO payment (person_email, amount)
+                                SELECT :email, 0 FROM taken WHERE NOT EXISTS (SELECT 1 FROM payment_row)
+                                RETURNING id),
+                 updated_summary AS (INSERT INTO account_summary (person_email, active_loans, earliest_due_date, outstanding_fees)
+                                SELECT :email, 1, current_date + 7, COALESCE((SELECT amount FROM payment_row), 0) FROM taken
+                                ON CONFLICT (person_email) DO UPDATE SET active_loans = account_summary.active_loans + 1,
+                                    earliest_due_date = LEAST(account_summary.earliest_due_date, excluded.earliest_due_date)
+                                RETURNING person_email),
+                 new_checkout AS (INSERT INTO checkout (person_email, book_id, checkout_date, return_date)
+                                SELECT :email, book_id, current_date, current_date + 7 FROM taken
+                                RETURNING id)
+            SELECT CASE
+                       WHEN NOT EXISTS (SELECT 1 FROM person_row) THEN 'PERSON_NOT_FOUND'
+                       WHEN NOT EXISTS (SELECT 1 FROM book_row) THEN 'BOOK_NOT_FOUND'
+                       WHEN EXISTS (SELECT 1 FROM existing_checkout) THEN 'ALREADY_CHECKED_OUT'
+                       WHEN EXISTS (SELECT 1 FROM blocked) THEN 'OUTSTANDING_FEES'
+                       WHEN NOT EXISTS (SELECT 1 FROM new_checkout) THEN 'NO_COPIES_AVAILABLE'
+                       ELSE 'OK'
+                   END
+            """;
+
+    // The checkout row is locked, so a concurrent return of the same book finds nothing to return.
+    // Every sub-statement sees the checkouts as they were before the statement, so the returned one is left out of the earliest due date
+    private static final String RETURN = """
+            WITH person_row AS (SELECT email FROM person WHERE email = :email),
+                 book_row AS (SELECT id FROM book WHERE id = :bookId),
+                 checkout_row AS (SELECT id, checkout_date, return_date FROM checkout
+                                WHERE person_email = :email AND book_id = :bookId LIMIT 1 FOR UPDATE),
+                 payment_row AS (SELECT id FROM payment WHERE person_email = :email),
+                 allowed AS (SELECT c.* FROM checkout_row c WHERE EXISTS (SELECT 1 FROM person_row) AND EXISTS (SELECT 1 FROM book_row)
+                                AND (c.return_date >= current_date OR EXISTS (SELECT 1 FROM payment_row))),
+                 deleted_checkout AS (DELETE FROM checkout WHERE id IN (SELECT id FROM allowed)
+                                RETURNING id),
+                 charged_payment AS (UPDATE payment SET amount = amount + (current_date - a.return_date) FROM allowed a
+                                WHERE payment.person_email = :email AND a.return_date < current_date
+                                RETURNING payment.id),
+                 updated_summary AS (UPDATE account_summary SET active_loans = active_loans - 1,
+                                    outstanding_fees = outstanding_fees + GREATEST(current_date - a.return_date, 0),
+                                    earliest_due_date = (SELECT min(c.return_date) FROM checkout c WHERE c.person_email = :email AND c.id <> a.id)
+                                FROM allowed a WHERE account_summary.person_email = :email AND account_summary.active_loans > 0
+                                RETURNING account_summary.person_email),
+                 new_history_record AS (INSERT INTO history_record (person_email, book_id, checkout_date, return_date)
+                                SELECT :email, :bookId, checkout_date, current_date FROM allowed
+                                RETURNING id),
+                 returned_to_slot AS (UPDATE book_inventory_slot SET copies_available = copies_available + 1
+                                WHERE id = (SELECT s.id FROM book_inventory_slot s WHERE s.book_id = :bookId
+                                               AND EXISTS (SELECT 1 FROM allowed) ORDER BY random() LIMIT 1)
+                                RETURNING id, copies_available),
+                 restocked_slot AS (UPDATE book SET stocked_slots = stocked_slots + 1
+                                WHERE id = :bookId AND EXISTS (SELECT 1 FROM returned_to_slot WHERE copies_available = 1)
+                                RETURNING id),
+                 returned_to_book AS (UPDATE book SET copies_available = copies_available + 1
+                                WHERE id = :bookId AND copies_available < copies
+                                AND EXISTS (SELECT 1 FROM allowed) AND NOT EXISTS (SELECT 1 FROM returned_to_slot)
+                                RETURNING id)
+            SELECT CASE
+                       WHEN NOT EXISTS (SELECT 1 FROM person_row) THEN 'PERSON_NOT_FOUND'
+                       WHEN NOT EXISTS (SELECT 1 FROM book_row) THEN 'BOOK_NOT_FOUND'
+                       WHEN NOT EXISTS (SELECT 1 FROM checkout_row) THEN 'NOT_CHECKED_OUT'
+                       WHEN NOT EXISTS (SELECT 1 FROM allowed) THEN 'PAYMENT_MISSING'
+                       ELSE 'OK'
+                   END
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${book_circulation_single_statement_enabled:true}")
+    private boolean singleStatementEnabled;
+
+    private volatile Boolean postgreSql;
+
+    @Override
+    public Optional<CirculationResult> checkoutInOneStatement(String personEmail, Long bookId) {
+
+        return runInOneStatement(CHECKOUT, personEmail, bookId);
+    }
+
+    @Override
+    public Optional<CirculationResult> returnInOneStatement(String personEmail, Long bookId) {
+
+        return runInOneStatement(RETURN, personEmail, bookId);
+    }
+
+    private Optional<CirculationResult> runInOneStatement(String statement, String personEmail, Long bookId) {
+
+        if (!singleStatementEnabled || !isPostgreSql()) {
+            return Optional.empty();
+        }
+
+        String result = (String) entityManager.createNativeQuery(statement)
+                .setParameter("email", personEmail)
+                .setParameter("bookId", bookId)
+                .getSingleResult();
+
+        return Optional.of(CirculationResult.valueOf(result));
+    }
+
+    private boolean isPostgreSql() {
+
+        Boolean available = postgreSql;
+
+        if (available == null) {
+
+            available = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+
+            postgreSql = available;
+        }
+
+        return available;
+    }
+}
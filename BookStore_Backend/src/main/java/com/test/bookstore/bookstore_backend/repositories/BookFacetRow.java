@@ -0,0 +1,7 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+/**
+ * Whether a book has any copy available, counting copies kept in its inventory slots.
+ */
+public record BookFacetRow(Long id, Boolean available) {
+}
@@ -0,0 +1,29 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * The filters of the catalogue query, a null filter or availableOnly=false doesn't restrict the books.
+ */
+public record BookFilter(String title, String author, Genre genre, boolean availableOnly) {
+
+    public static final BookFilter NONE = new BookFilter(null, null, null, false);
+
+    public Specification<Book> toSpecification() {
+
+        Specification<Book> specification = Specification.where(null);
+
+        if (title != null) specification = specification.and(BookSpecifications.titleContains(title));
+        if (author != null) specification = specification.and(BookSpecifications.authorContains(author));
+        if (genre != null) specification = specification.and(BookSpecifications.inGenre(genre));
+        if (availableOnly) specification = specification.and(BookSpecifications.availableNow());
+
+        return specification;
+    }
+
+    public boolean isEmpty() {
+        return equals(NONE);
+    }
+}
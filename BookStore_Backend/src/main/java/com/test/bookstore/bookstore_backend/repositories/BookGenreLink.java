@@ -0,0 +1,7 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+/**
+ * One row of book_genre with the genre's description.
+ */
+public record BookGenreLink(Long bookId, Long genreId, String genreDescription) {
+}
@@ -0,0 +1,40 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.BookInventorySlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BookInventorySlotRepository extends JpaRepository<BookInventorySlot, Long> {
+
+    // Locks the slots, so checkouts and returns wait while the copies are being redistributed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<BookInventorySlot> findBySlottedBookId(Long slottedBookId);
+
+    @Query("SELECT COALESCE(SUM(s.copiesAvailable), 0) FROM BookInventorySlot s WHERE s.slottedBook.id = :bookId")
+    int sumCopiesAvailable(@Param("bookId") Long bookId);
+
+    // Taking a slot's last copy and returning the first copy to an empty slot are separate statements,
+    // so the caller knows when the book's stocked slots change without reading the slot back
+
+    @Modifying
+    @Query("UPDATE BookInventorySlot s SET s.copiesAvailable = s.copiesAvailable - 1 WHERE s.slottedBook.id = :bookId AND s.slot = :slot AND s.copiesAvailable > 1")
+    int decrementCopiesAvailable(@Param("bookId") Long bookId, @Param("slot") int slot);
+
+    @Modifying
+    @Query("UPDATE BookInventorySlot s SET s.copiesAvailable = 0 WHERE s.slottedBook.id = :bookId AND s.slot = :slot AND s.copiesAvailable = 1")
+    int takeLastCopy(@Param("bookId") Long bookId, @Param("slot") int slot);
+
+    @Modifying
+    @Query("UPDATE BookInventorySlot s SET s.copiesAvailable = s.copiesAvailable + 1 WHERE s.slottedBook.id = :bookId AND s.slot = :slot AND s.copiesAvailable > 0")
+    int incrementCopiesAvailable(@Param("bookId") Long bookId, @Param("slot") int slot);
+
+    @Modifying
+    @Query("UPDATE BookInventorySlot s SET s.copiesAvailable = 1 WHERE s.slottedBook.id = :bookId AND s.slot = :slot AND s.copiesAvailable = 0")
+    int returnFirstCopy(@Param("bookId") Long bookId, @Param("slot") int slot);
+}
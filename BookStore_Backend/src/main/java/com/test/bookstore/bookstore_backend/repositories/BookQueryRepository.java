@@ -0,0 +1,22 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Map;
+
+public interface BookQueryRepository {
+
+    // The columns of BookSummaryRow for books matching the specification, which may combine any BookSpecifications.
+    // The count query only runs when the page doesn't tell the total already
+    Page<BookSummaryRow> findSummariesMatching(Specification<Book> specification, Pageable pageable);
+
+    // With approximateTotal on PostgreSQL, a total the planner estimates at approximate_total_threshold books or more
+    // is taken from that estimate instead of counting the books. Smaller totals and other DataBases are still counted
+    CountedPage<BookSummaryRow> findSummariesMatching(BookFilter filter, Pageable pageable, boolean approximateTotal);
+
+    // How many books matching the specification are in each genre, with 0 for genres without any of them
+    Map<String, Long> countGenresMatching(Specification<Book> specification);
+}
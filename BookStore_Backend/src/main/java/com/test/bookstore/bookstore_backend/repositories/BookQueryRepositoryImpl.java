@@ -0,0 +1,213 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+public class BookQueryRepositoryImpl implements BookQueryRepository {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${approximate_total_threshold:10000}")
+    private long approximateTotalThreshold;
+
+    private volatile Boolean postgreSql;
+
+    @Override
+    public Page<BookSummaryRow> findSummariesMatching(Specification<Book> specification, Pageable pageable) {
+
+        return PageableExecutionUtils.getPage(select(specification, pageable), pageable, () -> count(specification));
+    }
+
+    @Override
+    public CountedPage<BookSummaryRow> findSummariesMatching(BookFilter filter, Pageable pageable, boolean approximateTotal) {
+
+        Specification<Book> specification = filter.toSpecification();
+        AtomicBoolean estimated = new AtomicBoolean();
+
+        Page<BookSummaryRow> page = PageableExecutionUtils.getPage(select(specification, pageable), pageable, () -> {
+
+            OptionalLong estimate = approximateTotal ? estimate(filter) : OptionalLong.empty();
+
+            if (estimate.isPresent() && estimate.getAsLong() >= approximateTotalThreshold) {
+                estimated.set(true);
+                return estimate.getAsLong();
+            }
+
+            return count(specification);
+        });
+
+        return new CountedPage<>(page.getContent(), pageable, page.getTotalElements(), !estimated.get());
+    }
+
+    // A count per genre instead of grouping the joined genres, so genres without matching books are counted too
+    @Override
+    public Map<String, Long> countGenresMatching(Specification<Book> specification) {
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> count = criteriaBuilder.createTupleQuery();
+        Root<Genre> genre = count.from(Genre.class);
+
+        Subquery<Long> books = count.subquery(Long.class);
+        Root<Book> book = books.from(Book.class);
+        Join<Book, Genre> bookGenre = book.join("genres");
+        Predicate inGenre = criteriaBuilder.equal(bookGenre.get("id"), genre.get("id"));
+        Predicate matching = specification.toPredicate(book, count, criteriaBuilder);
+        books.select(criteriaBuilder.count(book)).where(matching == null ? inGenre : criteriaBuilder.and(inGenre, matching));
+
+        count.multiselect(genre.get("description"), books);
+
+        return entityManager.createQuery(count).getResultList().stream()
+                .collect(Collectors.toMap(row -> row.get(0, String.class), row -> row.get(1, Long.class)));
+    }
+
+    private List<BookSummaryRow> select(Specification<Book> specification, Pageable pageable) {
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookSummaryRow> select = criteriaBuilder.createQuery(BookSummaryRow.class);
+        Root<Book> book = select.from(Book.class);
+        select.select(BookSummaryRow.select(book, select, criteriaBuilder));
+        where(select, specification.toPredicate(book, select, criteriaBuilder));
+        select.orderBy(QueryUtils.toOrders(pageable.getSort(), book, criteriaBuilder));
+
+        return entityManager.createQuery(select)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    private long count(Specification<Book> specification) {
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> count = criteriaBuilder.createQuery(Long.class);
+        Root<Book> book = count.from(Book.class);
+        count.select(criteriaBuilder.count(book));
+        where(count, specification.toPredicate(book, count, criteriaBuilder));
+
+        return entityManager.createQuery(count).getSingleResult();
+    }
+
+    // Specification.where(null) matches all books and has no predicate
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private OptionalLong estimate(BookFilter filter) {
+
+        if (!isPostgreSql()) {
+            return OptionalLong.empty();
+        }
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                filter.isEmpty() ? estimateAllBooks(connection) : estimateBooksMatching(connection, filter));
+    }
+
+    // The row count of the last ANALYZE or VACUUM, -1 if the table was never analyzed
+    private static OptionalLong estimateAllBooks(Connection connection) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT reltuples FROM pg_class WHERE oid = 'book'::regclass");
+             ResultSet result = statement.executeQuery()) {
+
+            if (!result.next() || result.getDouble(1) < 0) return OptionalLong.empty();
+
+            return OptionalLong.of((long) result.getDouble(1));
+        }
+    }
+
+    // The rows the planner expects for the conditions of BookSpecifications written out in SQL, explaining the criteria query's own SQL
+    // would need its parameters in the order Hibernate binds them
+    private static OptionalLong estimateBooksMatching(Connection connection, BookFilter filter) throws SQLException {
+
+        StringBuilder sql = new StringBuilder("EXPLAIN (FORMAT JSON) SELECT 1 FROM book b WHERE true");
+        List<Object> parameters = new ArrayList<>();
+
+        if (filter.title() != null) {
+            sql.append(" AND b.title ILIKE ? ESCAPE '").append(BookSpecifications.ESCAPE).append("'");
+            parameters.add(BookSpecifications.contains(filter.title()));
+        }
+        if (filter.author() != null) {
+            sql.append(" AND b.author ILIKE ? ESCAPE '").append(BookSpecifications.ESCAPE).append("'");
+            parameters.add(BookSpecifications.contains(filter.author()));
+        }
+        if (filter.genre() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM book_genre g WHERE g.book_id = b.id AND g.genre_id = ?)");
+            parameters.add(filter.genre().getId());
+        }
+        if (filter.availableOnly()) {
+            sql.append(" AND b.available");
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+
+            try (ResultSet plan = statement.executeQuery()) {
+
+                if (!plan.next()) return OptionalLong.empty();
+
+                JsonNode rows = OBJECT_MAPPER.readTree(plan.getString(1)).path(0).path("Plan").path("Plan Rows");
+
+                return rows.isNumber() ? OptionalLong.of(rows.asLong()) : OptionalLong.empty();
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private boolean isPostgreSql() {
+
+        Boolean available = postgreSql;
+
+        if (available == null) {
+
+            available = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+
+            postgreSql = available;
+        }
+
+        return available;
+    }
+}
@@ -4,15 +4,131 @@ import com.test.bookstore.bookstore_backend.entities.Book;
 import com.test.bookstore.bookstore_backend.entities.Genre;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookSearchRepository, BookCirculationRepository, BookSortRepository,
+        BookQueryRepository {
 
     Optional<Book> findByTitleAndAuthor(String title, String author); // This method is required for BookValidator
 
-    Page<Book> findByTitleContainingIgnoreCase(String query, Pageable pageable);
+    // List pages select only the columns of BookSummaryRow, genres of the page's books come from findGenreLinksOfBooks
 
-    Page<Book> findByGenresContains(Genre genre, Pageable pageable);
+    @Query(value = BookSummaryRow.SELECT + "FROM Book b", countQuery = "SELECT count(b) FROM Book b")
+    Page<BookSummaryRow> findSummaries(Pageable pageable);
+
+    @Query(value = BookSummaryRow.SELECT + "FROM Book b WHERE LOWER(b.title) LIKE CONCAT('%', LOWER(:query), '%')",
+            countQuery = "SELECT count(b) FROM Book b WHERE LOWER(b.title) LIKE CONCAT('%', LOWER(:query), '%')")
+    Page<BookSummaryRow> findSummariesByTitle(@Param("query") String query, Pageable pageable);
+
+    @Query(value = BookSummaryRow.SELECT + "FROM Book b JOIN b.genres g WHERE g = :genre",
+            countQuery = "SELECT count(b) FROM Book b JOIN b.genres g WHERE g = :genre")
+    Page<BookSummaryRow> findSummariesByGenre(@Param("genre") Genre genre, Pageable pageable);
+
+    @Query(BookSummaryRow.SELECT + "FROM Book b WHERE b.id IN (:ids)")
+    List<BookSummaryRow> findSummariesByIds(@Param("ids") List<Long> ids);
+
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.BookGenreLink(b.id, g.id, g.description) " +
+            "FROM Book b JOIN b.genres g WHERE b.id IN (:ids) ORDER BY g.id")
+    List<BookGenreLink> findGenreLinksOfBooks(@Param("ids") List<Long> ids);
+
+    // Covers saved before the image store are data URLs in the img column, which the entity no longer maps. Rows are id and img
+    @Query(value = "SELECT id, img FROM book WHERE image_hash IS NULL AND img IS NOT NULL AND id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findInlineImagesAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE book SET image_hash = :imageHash, img = NULL WHERE id = :id AND image_hash IS NULL", nativeQuery = true)
+    int moveImageToStore(@Param("id") Long id, @Param("imageHash") String imageHash);
+
+    // Links the book to genres with plain inserts, so the genre's books collection is never loaded for that
+    @Modifying
+    @Query(value = "INSERT INTO book_genre (book_id, genre_id) SELECT :bookId, g.id FROM genre g WHERE g.id IN (:genreIds)", nativeQuery = true)
+    void addGenres(@Param("bookId") Long bookId, @Param("genreIds") List<Long> genreIds);
+
+    // Inventory changes are single conditional updates, the returned row count tells whether the change was applied.
+    // Concurrent requests are serialized by the row lock, so the last copy can't be handed out twice
+
+    @Modifying
+    @Query("UPDATE Book b SET b.copiesAvailable = b.copiesAvailable - 1 WHERE b.id = :id AND b.copiesAvailable > 0")
+    int decrementCopiesAvailable(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.copiesAvailable = b.copiesAvailable + 1 WHERE b.id = :id AND b.copiesAvailable < b.copies")
+    int incrementCopiesAvailable(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.copies = b.copies + 1, b.copiesAvailable = b.copiesAvailable + 1 WHERE b.id = :id")
+    int increaseQuantity(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.copies = b.copies - 1, b.copiesAvailable = b.copiesAvailable - 1 WHERE b.id = :id AND b.copies > 0 AND b.copiesAvailable > 0")
+    int decreaseQuantity(@Param("id") Long id);
+
+    // Used when the removed copy was taken from one of the book's inventory slots instead of the book row
+    @Modifying
+    @Query("UPDATE Book b SET b.copies = b.copies - 1 WHERE b.id = :id AND b.copies > 0")
+    int decreaseCopies(@Param("id") Long id);
+
+    // Counts the inventory slots that were emptied or restocked, so the generated available column covers hot books without reading their slots.
+    // Only runs when a slot's last copy is taken or its first copy is returned, checkouts that leave copies on the slot don't lock the book row
+    @Modifying
+    @Query("UPDATE Book b SET b.stockedSlots = b.stockedSlots - 1 WHERE b.id = :id AND b.stockedSlots > 0")
+    int decrementStockedSlots(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.stockedSlots = b.stockedSlots + 1 WHERE b.id = :id")
+    int incrementStockedSlots(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.stockedSlots = :stockedSlots WHERE b.id = :id")
+    int setStockedSlots(@Param("id") Long id, @Param("stockedSlots") int stockedSlots);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.ratingCount = b.ratingCount + 1, b.ratingSum = b.ratingSum + :rating WHERE b.id = :id")
+    int addRating(@Param("id") Long id, @Param("rating") Double rating);
+
+    // Repairs rating aggregates that drifted from the review table, only rows that actually differ are written
+    @Modifying
+    @Query("UPDATE Book b SET " +
+            "b.ratingCount = (SELECT COUNT(r) FROM Review r WHERE r.reviewedBook = b), " +
+            "b.ratingSum = COALESCE((SELECT SUM(r.rating) FROM Review r WHERE r.reviewedBook = b), 0.0) " +
+            "WHERE b.ratingCount <> (SELECT COUNT(r) FROM Review r WHERE r.reviewedBook = b) " +
+            "OR b.ratingSum <> COALESCE((SELECT SUM(r.rating) FROM Review r WHERE r.reviewedBook = b), 0.0)")
+    int recalculateRatings();
+
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.BookAverageRating(b.id, " +
+            "CASE WHEN b.ratingCount = 0 THEN 0.0 ELSE b.ratingSum / b.ratingCount END) FROM Book b WHERE b.id IN (:ids)")
+    List<BookAverageRating> findAverageRatings(@Param("ids") List<Long> ids);
+
+    // Batches of the search index rebuild, only the searchable text is read
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.BookSearchDocument(b.id, b.title, b.author, b.description, b.ratingCount) " +
+            "FROM Book b WHERE b.id > :id ORDER BY b.id")
+    List<BookSearchDocument> findSearchDocumentsAfter(@Param("id") Long id, Pageable pageable);
+
+    // Batches of the genre facet rebuild
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.BookFacetRow(b.id, " +
+            "CASE WHEN b.copiesAvailable > 0 OR EXISTS (SELECT s.id FROM BookInventorySlot s WHERE s.slottedBook = b AND s.copiesAvailable > 0) " +
+            "THEN true ELSE false END) " +
+            "FROM Book b WHERE b.id > :id ORDER BY b.id")
+    List<BookFacetRow> findFacetRowsAfter(@Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.BookGenreLink(b.id, g.id, g.description) " +
+            "FROM Book b JOIN b.genres g WHERE b.id > :fromId AND b.id <= :toId")
+    List<BookGenreLink> findGenreLinks(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Title suggestions until the suggestion trie is built, the most reviewed books first
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.BookSearchDocument(b.id, b.title, b.author, b.description, b.ratingCount) " +
+            "FROM Book b WHERE LOWER(b.title) LIKE CONCAT(LOWER(:prefix), '%') ORDER BY b.ratingCount DESC, b.title, b.id")
+    List<BookSearchDocument> findSuggestionDocuments(@Param("prefix") String prefix, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id = :id")
+    Optional<Book> findByIdForUpdate(@Param("id") Long id);
 }
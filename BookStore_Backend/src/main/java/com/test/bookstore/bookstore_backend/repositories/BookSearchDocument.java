@@ -0,0 +1,7 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+/**
+ * The searchable text of one book and its rating count for ranking suggestions, read without the book's cover image and relations.
+ */
+public record BookSearchDocument(Long id, String title, String author, String description, Integer ratingCount) {
+}
@@ -0,0 +1,10 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface BookSearchRepository {
+
+    // Ranked search over title, author and description, matching word prefixes and tolerating typos where the DataBase allows it
+    Page<BookSummaryRow> search(String query, Pageable pageable);
+}
@@ -0,0 +1,135 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Uses PostgreSQL full text search together with pg_trgm word similarity when the extension is installed,
+ * both are backed by the GIN indexes from schema.sql. Any other DataBase (H2 in tests) or PostgreSQL
+ * without pg_trgm gets a plain case-insensitive substring search over the same columns.
+ */
+public class BookSearchRepositoryImpl implements BookSearchRepository {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final String DOCUMENT = "to_tsvector('simple', b.title || ' ' || b.author || ' ' || b.description)";
+
+    // Word similarity compares the query with the best matching part of a title or author, plain similarity with the whole of it,
+    // so a misspelled word of a long title is only found by word similarity
+    private static final String FULL_TEXT_CONDITION = " FROM book b WHERE " + DOCUMENT + " @@ to_tsquery('simple', :prefixQuery) " +
+            "OR :query <% b.title OR :query <% b.author";
+
+    // The columns of BookSummaryRow in its order
+    private static final String FULL_TEXT_SELECT = "SELECT b.id, b.title, b.author, substring(b.description, 1, " + BookSummaryRow.DESCRIPTION_PREVIEW_LENGTH + "), " +
+            "b.copies, b.copies_available + CASE WHEN b.inventory_slots = 0 THEN 0 ELSE " +
+            "(SELECT coalesce(sum(s.copies_available), 0) FROM book_inventory_slot s WHERE s.book_id = b.id) END, " +
+            "CASE WHEN b.rating_count = 0 THEN 0.0 ELSE b.rating_sum / b.rating_count END, b.image_hash" + FULL_TEXT_CONDITION +
+            " ORDER BY ts_rank(" + DOCUMENT + ", to_tsquery('simple', :prefixQuery)) " +
+            "+ greatest(word_similarity(:query, b.title), word_similarity(:query, b.author)) DESC, b.id";
+
+    private static final String FALLBACK_CONDITION = " FROM Book b WHERE lower(b.title) LIKE :contains " +
+            "OR lower(b.author) LIKE :contains OR lower(b.description) LIKE :contains";
+
+    private static final String FALLBACK_SELECT = BookSummaryRow.SELECT + FALLBACK_CONDITION +
+            " ORDER BY CASE WHEN lower(b.title) LIKE :prefix THEN 0 WHEN lower(b.title) LIKE :contains THEN 1 ELSE 2 END, b.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean fullTextSearchAvailable;
+
+    @Override
+    public Page<BookSummaryRow> search(String query, Pageable pageable) {
+
+        List<String> words = WORD.matcher(query.toLowerCase(Locale.ROOT)).results().map(MatchResult::group).toList();
+
+        if (words.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        String normalizedQuery = String.join(" ", words);
+
+        return isFullTextSearchAvailable() ? fullTextSearch(normalizedQuery, words, pageable) : fallbackSearch(normalizedQuery, pageable);
+    }
+
+    private Page<BookSummaryRow> fullTextSearch(String query, List<String> words, Pageable pageable) {
+
+        // Every word has to match, the last characters of each word may still be missing
+        String prefixQuery = words.stream().map(word -> word + ":*").collect(Collectors.joining(" & "));
+
+        Query select = entityManager.createNativeQuery(FULL_TEXT_SELECT);
+        Query count = entityManager.createNativeQuery("SELECT count(*)" + FULL_TEXT_CONDITION);
+
+        for (Query q : List.of(select, count)) {
+            q.setParameter("prefixQuery", prefixQuery);
+            q.setParameter("query", query);
+        }
+
+        return toPage(select, count, pageable).map(BookSearchRepositoryImpl::toSummaryRow);
+    }
+
+    private Page<BookSummaryRow> fallbackSearch(String query, Pageable pageable) {
+
+        Query select = entityManager.createQuery(FALLBACK_SELECT, BookSummaryRow.class);
+        Query count = entityManager.createQuery("SELECT count(b)" + FALLBACK_CONDITION);
+
+        select.setParameter("prefix", query + "%");
+
+        for (Query q : List.of(select, count)) {
+            q.setParameter("contains", "%" + query + "%");
+        }
+
+        return toPage(select, count, pageable);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Page<T> toPage(Query select, Query count, Pageable pageable) {
+
+        List<T> content = select
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        return new PageImpl<>(content, pageable, ((Number) count.getSingleResult()).longValue());
+    }
+
+    private static BookSummaryRow toSummaryRow(Object row) {
+
+        Object[] columns = (Object[]) row;
+
+        return new BookSummaryRow(((Number) columns[0]).longValue(), (String) columns[1], (String) columns[2], (String) columns[3],
+                ((Number) columns[4]).intValue(), ((Number) columns[5]).intValue(), ((Number) columns[6]).doubleValue(), (String) columns[7]);
+    }
+
+    private boolean isFullTextSearchAvailable() {
+
+        Boolean available = fullTextSearchAvailable;
+
+        if (available == null) {
+
+            available = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+
+            if (available) {
+                available = (Boolean) entityManager
+                        .createNativeQuery("SELECT exists(SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')")
+                        .getSingleResult();
+            }
+
+            fullTextSearchAvailable = available;
+        }
+
+        return available;
+    }
+}
@@ -0,0 +1,114 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The orders books can be listed in. Every order ends with the id, so it is total and can be continued after a book,
+ * and has an index in schema.sql with the same columns in the same direction, so the DataBase reads books in order instead of sorting them.
+ */
+public enum BookSort {
+
+    ID("id", List.of(SortKey.ID)),
+    TITLE("title", List.of(new SortKey("title", Sort.Direction.ASC, value -> value), SortKey.ID)),
+    AUTHOR("author", List.of(new SortKey("author", Sort.Direction.ASC, value -> value), SortKey.ID)),
+    // Ids are handed out in insertion order, the newest book has the highest
+    NEWEST("newest", List.of(SortKey.ID_DESCENDING)),
+    RATING("rating", List.of(new SortKey("averageRating", Sort.Direction.DESC, Double::valueOf), SortKey.ID_DESCENDING)),
+    POPULARITY("popularity", List.of(new SortKey("ratingCount", Sort.Direction.DESC, Integer::valueOf), SortKey.ID_DESCENDING)),
+    AVAILABILITY("availability", List.of(new SortKey("available", Sort.Direction.DESC, BookSort::parseBoolean),
+            new SortKey("title", Sort.Direction.ASC, value -> value), SortKey.ID));
+
+    private final String parameter;
+    private final List<SortKey> keys;
+
+    BookSort(String parameter, List<SortKey> keys) {
+        this.parameter = parameter;
+        this.keys = keys;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    public List<SortKey> getKeys() {
+        return keys;
+    }
+
+    public static Optional<BookSort> fromParameter(String parameter) {
+        return Arrays.stream(values()).filter(sort -> sort.parameter.equals(parameter)).findFirst();
+    }
+
+    public static String parameters() {
+        return Arrays.stream(values()).map(sort -> "'" + sort.parameter + "'").collect(Collectors.joining(", "));
+    }
+
+    // For the paginated lists, Spring Data appends it to their queries
+    public Sort toSort() {
+        return Sort.by(keys.stream().map(key -> new Sort.Order(key.direction(), key.attribute())).toList());
+    }
+
+    // The keys as additional select items, for queries that select a book as b
+    String select() {
+        return keys.stream().map(key -> ", b." + key.attribute()).collect(Collectors.joining());
+    }
+
+    String orderBy() {
+        return " ORDER BY " + keys.stream().map(key -> "b." + key.attribute() + " " + key.direction()).collect(Collectors.joining(", "));
+    }
+
+    // Books after the one whose keys are bound as :key0, :key1 and so on
+    String after() {
+
+        if (keys.size() == 1) {
+            return "b." + keys.get(0).attribute() + comparison(keys.get(0)) + ":key0";
+        }
+
+        boolean sameDirection = keys.stream().allMatch(key -> key.direction() == keys.get(0).direction());
+
+        // A row value comparison is a single range of the index
+        if (sameDirection) {
+            return "(" + keys.stream().map(key -> "b." + key.attribute()).collect(Collectors.joining(", ")) + ")" + comparison(keys.get(0)) +
+                    "(" + IntStream.range(0, keys.size()).mapToObj(i -> ":key" + i).collect(Collectors.joining(", ")) + ")";
+        }
+
+        // Mixed directions are spelled out, the bound on the first key still lets the index start at the cursor
+        String spelledOut = IntStream.range(0, keys.size())
+                .mapToObj(i -> "(" + IntStream.range(0, i).mapToObj(j -> "b." + keys.get(j).attribute() + " = :key" + j + " AND ").collect(Collectors.joining()) +
+                        "b." + keys.get(i).attribute() + comparison(keys.get(i)) + ":key" + i + ")")
+                .collect(Collectors.joining(" OR "));
+
+        String bound = keys.get(0).direction() == Sort.Direction.ASC ? " >= " : " <= ";
+
+        return "b." + keys.get(0).attribute() + bound + ":key0 AND (" + spelledOut + ")";
+    }
+
+    // Unlike Boolean.valueOf anything but true and false is rejected
+    private static Boolean parseBoolean(String value) {
+
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Not a boolean: " + value);
+        }
+
+        return Boolean.valueOf(value);
+    }
+
+    private static String comparison(SortKey key) {
+        return key.direction() == Sort.Direction.ASC ? " > " : " < ";
+    }
+
+    /**
+     * An attribute of Book that books are sorted by and how a cursor's text turns back into its value.
+     */
+    public record SortKey(String attribute, Sort.Direction direction, Function<String, Object> parser) {
+
+        static final SortKey ID = new SortKey("id", Sort.Direction.ASC, Long::valueOf);
+        static final SortKey ID_DESCENDING = new SortKey("id", Sort.Direction.DESC, Long::valueOf);
+    }
+}
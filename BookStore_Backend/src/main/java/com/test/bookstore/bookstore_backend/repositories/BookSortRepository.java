@@ -0,0 +1,10 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import java.util.List;
+
+public interface BookSortRepository {
+
+    // Keyset pagination, books are fetched with a limit only and never issue a count query.
+    // After holds the key values of the last book of the previous slice, null for the first slice
+    List<SortedBookSummaryRow> findSummariesSorted(BookSort sort, List<Object> after, int limit);
+}
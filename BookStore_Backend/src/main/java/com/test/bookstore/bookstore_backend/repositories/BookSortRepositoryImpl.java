@@ -0,0 +1,32 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class BookSortRepositoryImpl implements BookSortRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<SortedBookSummaryRow> findSummariesSorted(BookSort sort, List<Object> after, int limit) {
+
+        String jpql = BookSummaryRow.SELECT.stripTrailing() + sort.select() + " FROM Book b" + (after == null ? "" : " WHERE " + sort.after()) + sort.orderBy();
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class).setMaxResults(limit);
+
+        if (after != null) {
+            for (int i = 0; i < after.size(); i++) {
+                query.setParameter("key" + i, after.get(i));
+            }
+        }
+
+        return query.getResultList().stream()
+                .map(columns -> new SortedBookSummaryRow((BookSummaryRow) columns[0], Arrays.asList(columns).subList(1, columns.length)))
+                .toList();
+    }
+}
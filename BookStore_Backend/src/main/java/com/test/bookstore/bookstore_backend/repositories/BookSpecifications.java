@@ -0,0 +1,64 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Filters of the catalogue query, any combination of them is and-ed into the WHERE clause of a single statement.
+ * None of them joins the book's rows, so a book is never repeated and the statement needs no DISTINCT.
+ */
+public final class BookSpecifications {
+
+    static final char ESCAPE = '\\';
+
+    private BookSpecifications() {
+    }
+
+    // Case-insensitive substring, ILIKE on PostgreSQL is served by the pg_trgm index on the column
+    public static Specification<Book> titleContains(String text) {
+        return (book, query, criteriaBuilder) ->
+                ((HibernateCriteriaBuilder) criteriaBuilder).ilike(book.get("title"), contains(text), ESCAPE);
+    }
+
+    public static Specification<Book> authorContains(String text) {
+        return (book, query, criteriaBuilder) ->
+                ((HibernateCriteriaBuilder) criteriaBuilder).ilike(book.get("author"), contains(text), ESCAPE);
+    }
+
+    // A semi-join on the link table, joining the genres to the book would need DISTINCT once a book could match twice
+    public static Specification<Book> inGenre(Genre genre) {
+        return (book, query, criteriaBuilder) -> {
+
+            Subquery<Long> genres = query.subquery(Long.class);
+            Root<Book> linkedBook = genres.correlate(book);
+            Join<Book, Genre> linkedGenre = linkedBook.join("genres");
+
+            return criteriaBuilder.exists(genres.select(linkedGenre.get("id")).where(criteriaBuilder.equal(linkedGenre.get("id"), genre.getId())));
+        };
+    }
+
+    // Books in every one of the genres or in any of them, no genres match all books
+    public static Specification<Book> inGenres(List<Genre> genres, boolean matchAll) {
+
+        List<Specification<Book>> inEachGenre = genres.stream().map(BookSpecifications::inGenre).toList();
+
+        return matchAll ? Specification.allOf(inEachGenre) : Specification.anyOf(inEachGenre);
+    }
+
+    // The generated available column, it leads the availability sort's index
+    public static Specification<Book> availableNow() {
+        return (book, query, criteriaBuilder) -> criteriaBuilder.isTrue(book.get("available"));
+    }
+
+    // Wildcards typed by the user are matched literally
+    static String contains(String text) {
+        return "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
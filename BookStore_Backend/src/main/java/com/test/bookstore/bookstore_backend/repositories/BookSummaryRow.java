@@ -0,0 +1,49 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.BookInventorySlot;
+import jakarta.persistence.criteria.AbstractQuery;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * The columns of a book that list pages show, with only the beginning of the description and the hash its cover is loaded by.
+ */
+public record BookSummaryRow(Long id, String title, String author, String descriptionPreview, Integer copies, Integer copiesAvailable,
+                             Double averageRating, String imageHash) {
+
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 300;
+
+    // Available copies of a book selected as b. Copies of hot books are spread over inventory slots, other books skip the subquery
+    static final String COPIES_AVAILABLE = "CAST(b.copiesAvailable + CASE WHEN b.inventorySlots = 0 THEN 0 ELSE " +
+            "(SELECT COALESCE(SUM(s.copiesAvailable), 0) FROM BookInventorySlot s WHERE s.slottedBook = b) END AS Integer)";
+
+    // Constructor expression for queries that select a book as b
+    static final String SELECT = "SELECT new com.test.bookstore.bookstore_backend.repositories.BookSummaryRow(b.id, b.title, b.author, " +
+            "SUBSTRING(b.description, 1, " + DESCRIPTION_PREVIEW_LENGTH + "), b.copies, " + COPIES_AVAILABLE + ", " +
+            "CASE WHEN b.ratingCount = 0 THEN 0.0 ELSE b.ratingSum / b.ratingCount END, b.imageHash) ";
+
+    // The same constructor expression for criteria queries, with literals instead of values that criteria would bind as parameters
+    static CompoundSelection<BookSummaryRow> select(Root<Book> b, AbstractQuery<?> query, CriteriaBuilder criteriaBuilder) {
+
+        Subquery<Integer> slotCopies = query.subquery(Integer.class);
+        Root<BookInventorySlot> s = slotCopies.from(BookInventorySlot.class);
+        slotCopies.select(criteriaBuilder.coalesce(criteriaBuilder.sum(s.get("copiesAvailable")), criteriaBuilder.literal(0)))
+                .where(criteriaBuilder.equal(s.get("slottedBook"), b));
+
+        Expression<Integer> copiesAvailable = criteriaBuilder.sum(b.get("copiesAvailable"), criteriaBuilder.<Integer>selectCase()
+                .when(criteriaBuilder.equal(b.get("inventorySlots"), criteriaBuilder.literal(0)), criteriaBuilder.literal(0))
+                .otherwise(slotCopies));
+
+        Expression<Double> averageRating = criteriaBuilder.<Double>selectCase()
+                .when(criteriaBuilder.equal(b.get("ratingCount"), criteriaBuilder.literal(0)), criteriaBuilder.literal(0.0))
+                .otherwise(criteriaBuilder.quot(b.get("ratingSum"), b.<Integer>get("ratingCount")).as(Double.class));
+
+        return criteriaBuilder.construct(BookSummaryRow.class, b.get("id"), b.get("title"), b.get("author"),
+                criteriaBuilder.substring(b.get("description"), criteriaBuilder.literal(1), criteriaBuilder.literal(DESCRIPTION_PREVIEW_LENGTH)), b.get("copies"),
+                copiesAvailable.as(Integer.class), averageRating, b.get("imageHash"));
+    }
+}
@@ -4,6 +4,8 @@ import com.test.bookstore.bookstore_backend.entities.Book;
 import com.test.bookstore.bookstore_backend.entities.Checkout;
 import com.test.bookstore.bookstore_backend.entities.Person;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,5 +14,15 @@ public interface CheckoutRepository extends JpaRepository<Checkout, Long> {
 
     Optional<Checkout> findByCheckoutHolderAndCheckedOutBook(Person checkoutHolder, Book checkedOutBook);
 
-    List<Checkout> findByCheckoutHolder(Person checkoutHolder);
+    // Books, genres and due dates of all current checkouts in one statement, rows of the same checkout are kept together
+    @Query("SELECT new com.test.bookstore.bookstore_backend.repositories.CurrentCheckoutRow(b.id, b.title, b.author, " +
+            "SUBSTRING(b.description, 1, " + BookSummaryRow.DESCRIPTION_PREVIEW_LENGTH + "), b.copies, " +
+            BookSummaryRow.COPIES_AVAILABLE + ", CASE WHEN b.ratingCount = 0 THEN 0.0 ELSE b.ratingSum / b.ratingCount END, b.imageHash, " +
+            "g.id, g.description, c.returnDate) " +
+            "FROM Checkout c JOIN c.checkedOutBook b LEFT JOIN b.genres g " +
+            "WHERE c.checkoutHolder.email = :personEmail ORDER BY c.id, g.id")
+    List<CurrentCheckoutRow> findCurrentCheckoutRows(@Param("personEmail") String personEmail);
+
+    @Query("SELECT c.checkedOutBook.id FROM Checkout c WHERE c.checkoutHolder.email = :personEmail AND c.checkedOutBook.id IN (:bookIds)")
+    List<Long> findCheckedOutBookIds(@Param("personEmail") String personEmail, @Param("bookIds") List<Long> bookIds);
 }
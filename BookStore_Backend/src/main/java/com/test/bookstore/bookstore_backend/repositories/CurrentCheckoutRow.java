@@ -0,0 +1,11 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import java.time.LocalDate;
+
+/**
+ * One genre of one book currently checked out by a person, together with the book's summary and due date.
+ * A book with several genres comes back as several consecutive rows.
+ */
+public record CurrentCheckoutRow(Long bookId, String title, String author, String descriptionPreview, Integer copies, Integer copiesAvailable,
+                                 Double averageRating, String imageHash, Long genreId, String genreDescription, LocalDate returnDate) {
+}
@@ -4,11 +4,14 @@ import com.test.bookstore.bookstore_backend.entities.Discussion;
 import com.test.bookstore.bookstore_backend.entities.Person;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface DiscussionRepository extends JpaRepository<Discussion, Long> {
 
     Page<Discussion> findByDiscussionHolder(Person person, Pageable pageable);
 
+    // Person's payment is a non-owning one-to-one, Hibernate would load it with a separate query for every holder
+    @EntityGraph(attributePaths = {"discussionHolder", "discussionHolder.payment"})
     Page<Discussion> findByClosed(boolean isClosed, Pageable pageable);
 }
@@ -1,12 +1,16 @@
 package com.test.bookstore.bookstore_backend.repositories;
 
 import com.test.bookstore.bookstore_backend.entities.HistoryRecord;
-import com.test.bookstore.bookstore_backend.entities.Person;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface HistoryRecordRepository extends JpaRepository<HistoryRecord, Long> {
 
-    Page<HistoryRecord> findByHistoryRecordHolder(Person person, Pageable pageable);
+    @Query(value = "SELECT new com.test.bookstore.bookstore_backend.repositories.HistoryRecordRow(h.id, h.historyRecordedBook.id, h.checkoutDate, h.returnDate) " +
+            "FROM HistoryRecord h WHERE h.historyRecordHolder.email = :personEmail ORDER BY h.id",
+            countQuery = "SELECT count(h) FROM HistoryRecord h WHERE h.historyRecordHolder.email = :personEmail")
+    Page<HistoryRecordRow> findRowsByPersonEmail(@Param("personEmail") String personEmail, Pageable pageable);
 }
@@ -0,0 +1,9 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import java.time.LocalDate;
+
+/**
+ * A history record with only the id of its book, summaries of the books on a page are read with one more query.
+ */
+public record HistoryRecordRow(Long id, Long bookId, LocalDate checkoutDate, LocalDate returnDate) {
+}
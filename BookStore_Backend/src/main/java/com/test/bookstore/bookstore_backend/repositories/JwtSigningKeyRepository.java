@@ -0,0 +1,12 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.JwtSigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface JwtSigningKeyRepository extends JpaRepository<JwtSigningKey, Long> {
+
+    // Oldest first, every key is retired by the one after it
+    List<JwtSigningKey> findAllByOrderByIdAsc();
+}
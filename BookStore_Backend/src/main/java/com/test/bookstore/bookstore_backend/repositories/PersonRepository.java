@@ -8,4 +8,6 @@ import java.util.Optional;
 public interface PersonRepository extends JpaRepository<Person, Long> {
 
     Optional<Person> findByEmail(String email);
+
+    boolean existsByEmail(String email);
 }
@@ -0,0 +1,19 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.PersonRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PersonRevocationRepository extends JpaRepository<PersonRevocation, String> {
+
+    List<PersonRevocation> findByRevokedAtAfter(LocalDateTime revokedAt);
+
+    @Modifying
+    @Query("DELETE FROM PersonRevocation r WHERE r.revokedAt < :revokedAt")
+    int deleteRevokedBefore(@Param("revokedAt") LocalDateTime revokedAt);
+}
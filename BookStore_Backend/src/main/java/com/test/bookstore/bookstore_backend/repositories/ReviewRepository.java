@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
@@ -20,4 +21,7 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
 
     @Query("select avg(r.rating) from Review r where r.reviewedBook = :book")
     Double getAverageRatingByReviewedBook(@Param("book") Book book);
+
+    @Query("select r.reviewedBook.id from Review r where r.personEmail = :personEmail and r.reviewedBook.id in (:bookIds)")
+    List<Long> findReviewedBookIds(@Param("personEmail") String personEmail, @Param("bookIds") List<Long> bookIds);
 }
@@ -0,0 +1,9 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import java.util.List;
+
+/**
+ * A book of a sorted slice with the values of the sort's keys, the last one's values are where the next slice starts.
+ */
+public record SortedBookSummaryRow(BookSummaryRow book, List<Object> keys) {
+}
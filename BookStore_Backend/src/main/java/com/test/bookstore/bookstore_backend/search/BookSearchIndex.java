@@ -0,0 +1,194 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import com.test.bookstore.bookstore_backend.repositories.BookSearchDocument;
+import com.test.bookstore.bookstore_backend.search.InvertedIndex.AnalyzedBook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an in-memory inverted index and a suggestion trie of all books, so ranked searches and typeahead suggestions
+ * are answered without asking the DataBase. Both are built from the DataBase in the background after startup, rebuilt on
+ * a schedule and follow books added, deleted or reviewed by this instance once their transaction commits. Until they are
+ * built, search and suggest return nothing and callers fall back to the DataBase.
+ */
+@Slf4j
+@Component
+public class BookSearchIndex {
+
+    public static final int MAX_SUGGESTIONS = SuggestionTrie.MAX_SUGGESTIONS;
+
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Indexes indexes = new Indexes(new InvertedIndex(), new SuggestionTrie());
+    private boolean ready;
+
+    // Changes committed while a rebuild reads the DataBase, they're applied again to the rebuilt indexes before they replace the current ones
+    private List<Consumer<Indexes>> pendingChanges;
+
+    @Autowired
+    public BookSearchIndex(BookRepository bookRepository, @Value("${book_search_index_enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+
+        if (!enabled) return;
+
+        Thread rebuild = new Thread(this::refresh, "book-search-index-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    // Also retries a rebuild that failed at startup and drops the postings of deleted books, which the index only marks
+    @Scheduled(cron = "${book_search_index_refresh_cron:0 */15 * * * *}")
+    public void refresh() {
+
+        if (!enabled) return;
+
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // The current indexes stay in use, or searches keep falling back to the DataBase if there are none yet
+            log.error("Rebuilding the book search index failed", e);
+        }
+    }
+
+    public synchronized void rebuild() {
+
+        runLocked(() -> pendingChanges = new ArrayList<>());
+
+        try {
+
+            Indexes rebuilt = new Indexes(new InvertedIndex(), new SuggestionTrie());
+            List<BookSearchDocument> batch;
+            long afterId = 0;
+
+            do {
+                batch = bookRepository.findSearchDocumentsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+
+                // Splitting text into words is the expensive part and runs on all cores, postings are still appended in id order
+                batch.parallelStream().map(InvertedIndex::analyze).toList().forEach(rebuilt.index()::add);
+                batch.forEach(document -> rebuilt.suggestions().add(document.id(), document.title(), document.author(), document.ratingCount()));
+
+                if (!batch.isEmpty()) afterId = batch.get(batch.size() - 1).id();
+
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            runLocked(() -> {
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                indexes = rebuilt;
+                ready = true;
+            });
+
+        } finally {
+            runLocked(() -> pendingChanges = null);
+        }
+    }
+
+    public Optional<SearchHits> search(String query, int offset, int limit) {
+
+        lock.readLock().lock();
+
+        try {
+            return ready ? Optional.of(indexes.index().search(query, offset, limit)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<List<Suggestion>> suggest(String prefix) {
+
+        lock.readLock().lock();
+
+        try {
+            return ready ? Optional.of(indexes.suggestions().suggest(prefix)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(Book book) {
+
+        AnalyzedBook analyzed = InvertedIndex.analyze(new BookSearchDocument(book.getId(), book.getTitle(), book.getAuthor(), book.getDescription(), book.getRatingCount()));
+
+        afterCommit(() -> change(current -> {
+            current.index().add(analyzed);
+            current.suggestions().add(book.getId(), book.getTitle(), book.getAuthor(), book.getRatingCount());
+        }));
+    }
+
+    public void remove(Long bookId) {
+
+        afterCommit(() -> change(current -> {
+            current.index().remove(bookId);
+            current.suggestions().remove(bookId);
+        }));
+    }
+
+    // Every review adds one to the rating count suggestions are ranked by
+    public void reviewed(Long bookId) {
+
+        afterCommit(() -> change(current -> current.suggestions().addPopularity(bookId, 1)));
+    }
+
+    // A rolled back transaction must leave the index as it was
+    private void afterCommit(Runnable action) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void change(Consumer<Indexes> change) {
+
+        runLocked(() -> {
+            change.accept(indexes);
+            if (pendingChanges != null) pendingChanges.add(change);
+        });
+    }
+
+    private void runLocked(Runnable action) {
+
+        lock.writeLock().lock();
+
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record Indexes(InvertedIndex index, SuggestionTrie suggestions) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ids of one page of books matching the genre filter, the number of all matching books
+ * and how many of them belong to each genre.
+ */
+public record FacetHits(long total, List<Long> bookIds, Map<String, Long> genreCounts) {
+}
@@ -0,0 +1,109 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import java.util.*;
+
+/**
+ * One bitmap of books per genre plus one of books with available copies. Books are numbered densely in the order
+ * they are added, so a bitmap takes a bit per book no matter how sparse book ids are, and combining genres is
+ * a word-wise AND or OR of the bitmaps. A book that is added again gets a new number and its old bit stays cleared.
+ * Not thread safe, GenreFacetIndex guards it with a read-write lock.
+ */
+final class GenreBitmaps {
+
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] bookIds = new long[16];
+    private int size;
+
+    private final BitSet live = new BitSet();
+    private final BitSet available = new BitSet();
+    private final Map<String, BitSet> genres = new TreeMap<>();
+
+    void addGenre(String description) {
+        genres.computeIfAbsent(description, key -> new BitSet());
+    }
+
+    boolean hasGenre(String description) {
+        return genres.containsKey(description);
+    }
+
+    void add(long bookId, boolean isAvailable, Collection<String> genreDescriptions) {
+
+        remove(bookId);
+
+        if (size == bookIds.length) {
+            bookIds = Arrays.copyOf(bookIds, size * 2);
+        }
+
+        int ordinal = size++;
+
+        bookIds[ordinal] = bookId;
+        ordinals.put(bookId, ordinal);
+        live.set(ordinal);
+        available.set(ordinal, isAvailable);
+
+        for (String description : genreDescriptions) {
+            genres.computeIfAbsent(description, key -> new BitSet()).set(ordinal);
+        }
+    }
+
+    boolean remove(long bookId) {
+
+        Integer ordinal = ordinals.remove(bookId);
+
+        if (ordinal == null) {
+            return false;
+        }
+
+        // Clearing the live bit is enough for results, genre bits are cleared too so the bitmaps don't keep counting the book
+        live.clear(ordinal);
+        available.clear(ordinal);
+        genres.values().forEach(books -> books.clear(ordinal));
+
+        return true;
+    }
+
+    FacetHits filter(List<String> genreDescriptions, boolean matchAll, boolean availableOnly, int offset, int limit) {
+
+        BitSet matched = (BitSet) live.clone();
+
+        if (!genreDescriptions.isEmpty()) {
+
+            BitSet inGenres = matchAll ? (BitSet) live.clone() : new BitSet();
+
+            for (String description : genreDescriptions) {
+
+                BitSet books = genres.getOrDefault(description, new BitSet());
+
+                if (matchAll) inGenres.and(books);
+                else inGenres.or(books);
+            }
+
+            matched.and(inGenres);
+        }
+
+        if (availableOnly) {
+            matched.and(available);
+        }
+
+        Map<String, Long> genreCounts = new LinkedHashMap<>();
+
+        genres.forEach((description, books) -> {
+            BitSet inGenre = (BitSet) books.clone();
+            inGenre.and(matched);
+            genreCounts.put(description, (long) inGenre.cardinality());
+        });
+
+        List<Long> page = new ArrayList<>(Math.min(limit, 1024));
+        int ordinal = matched.nextSetBit(0);
+
+        for (int skipped = 0; ordinal >= 0 && skipped < offset; skipped++) {
+            ordinal = matched.nextSetBit(ordinal + 1);
+        }
+
+        for (; ordinal >= 0 && page.size() < limit; ordinal = matched.nextSetBit(ordinal + 1)) {
+            page.add(bookIds[ordinal]);
+        }
+
+        return new FacetHits(matched.cardinality(), page, genreCounts);
+    }
+}
@@ -0,0 +1,190 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.repositories.BookFacetRow;
+import com.test.bookstore.bookstore_backend.repositories.BookGenreLink;
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import com.test.bookstore.bookstore_backend.repositories.GenreRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps in-memory bitmaps of the books of every genre and of books with available copies, so any combination of genres
+ * is filtered and counted without asking the DataBase. The bitmaps are built in the background after startup, rebuilt
+ * from book_genre on a schedule and follow books added or deleted by this instance once their transaction commits.
+ * Availability changes by checkouts and returns show up with the next rebuild. Until the first build finishes, or while
+ * the index is disabled, filter returns nothing and the caller asks the DataBase instead.
+ */
+@Slf4j
+@Component
+public class GenreFacetIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+
+    private final BookRepository bookRepository;
+    private final GenreRepository genreRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private GenreBitmaps bitmaps = new GenreBitmaps();
+    private boolean ready;
+
+    // Changes committed while a rebuild reads the DataBase, they're applied again to the rebuilt bitmaps before they replace the current ones
+    private List<Consumer<GenreBitmaps>> pendingChanges;
+
+    @Autowired
+    public GenreFacetIndex(BookRepository bookRepository, GenreRepository genreRepository,
+                           @Value("${book_facet_index_enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.genreRepository = genreRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+
+        if (!enabled) return;
+
+        Thread rebuild = new Thread(this::refresh, "genre-facet-index-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    @Scheduled(cron = "${book_facet_refresh_cron:0 */5 * * * *}")
+    public void refresh() {
+
+        if (!enabled) return;
+
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // The current bitmaps stay in use, if there are none yet the DataBase keeps answering until the next refresh
+            log.error("Rebuilding the genre facet index failed", e);
+        }
+    }
+
+    public synchronized void rebuild() {
+
+        runLocked(() -> pendingChanges = new ArrayList<>());
+
+        try {
+
+            GenreBitmaps rebuilt = new GenreBitmaps();
+            genreRepository.findAll().forEach(genre -> rebuilt.addGenre(genre.getDescription()));
+
+            List<BookFacetRow> batch;
+            long afterId = 0;
+
+            do {
+                batch = bookRepository.findFacetRowsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+
+                if (batch.isEmpty()) break;
+
+                long lastId = batch.get(batch.size() - 1).id();
+
+                Map<Long, List<String>> genresOfBooks = bookRepository.findGenreLinks(afterId, lastId).stream()
+                        .collect(Collectors.groupingBy(BookGenreLink::bookId, Collectors.mapping(BookGenreLink::genreDescription, Collectors.toList())));
+
+                batch.forEach(row -> rebuilt.add(row.id(), row.available(), genresOfBooks.getOrDefault(row.id(), List.of())));
+
+                afterId = lastId;
+
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            runLocked(() -> {
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                bitmaps = rebuilt;
+                ready = true;
+            });
+
+        } finally {
+            runLocked(() -> pendingChanges = null);
+        }
+    }
+
+    // Only tells about genres once filter has answered, before that no genre is known
+    public boolean hasGenre(String description) {
+
+        lock.readLock().lock();
+
+        try {
+            return bitmaps.hasGenre(description);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<FacetHits> filter(List<String> genreDescriptions, boolean matchAll, boolean availableOnly, int offset, int limit) {
+
+        lock.readLock().lock();
+
+        try {
+            return ready ? Optional.of(bitmaps.filter(genreDescriptions, matchAll, availableOnly, offset, limit)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(Book book) {
+
+        List<String> genreDescriptions = book.getGenres().stream().map(Genre::getDescription).toList();
+        boolean available = book.getCopiesAvailable() > 0;
+
+        afterCommit(() -> change(current -> current.add(book.getId(), available, genreDescriptions)));
+    }
+
+    public void remove(Long bookId) {
+
+        afterCommit(() -> change(current -> current.remove(bookId)));
+    }
+
+    // A rolled back transaction must leave the bitmaps as they were
+    private void afterCommit(Runnable action) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void change(Consumer<GenreBitmaps> change) {
+
+        runLocked(() -> {
+            change.accept(bitmaps);
+            if (pendingChanges != null) pendingChanges.add(change);
+        });
+    }
+
+    private void runLocked(Runnable action) {
+
+        lock.writeLock().lock();
+
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.repositories.BookSearchDocument;
+
+import java.util.*;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over title, author and description of books. Every term keeps its postings in one growing int array
+ * as runs of (document, frequency, positions...) in ascending document order, documents are dense ordinals mapped to book ids.
+ * Deleted books are only marked and drop out of the postings on the next rebuild.
+ * Not thread safe, BookSearchIndex guards it with a read-write lock.
+ */
+final class InvertedIndex {
+
+    // Bounds the work of very short prefixes, only that many words starting with the prefix are looked at
+    static final int MAX_PREFIX_EXPANSIONS = 128;
+
+    private static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern CLAUSE = Pattern.compile("\"([^\"]*)\"?|(\\S+)");
+
+    // Keeps phrases from matching across the end of one field and the start of the next one
+    private static final int FIELD_POSITION_GAP = 16;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+
+    private long[] bookIds = new long[1024];
+    private int[] lengths = new int[1024];
+    private int maxDoc;
+    private int liveDocs;
+    private long liveLength;
+
+    record AnalyzedBook(long bookId, String[] terms, int[] positions) {
+    }
+
+    // Pure function of the book's text, so it can run in parallel and outside of any lock
+    static AnalyzedBook analyze(BookSearchDocument document) {
+
+        List<String> terms = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        int position = 0;
+
+        for (String field : new String[] {document.title(), document.author(), document.description()}) {
+
+            for (String term : words(field)) {
+                terms.add(term);
+                positions.add(position++);
+            }
+
+            position += FIELD_POSITION_GAP;
+        }
+
+        return new AnalyzedBook(document.id(), terms.toArray(String[]::new), positions.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    int size() {
+        return liveDocs;
+    }
+
+    void add(AnalyzedBook book) {
+
+        remove(book.bookId());
+
+        int doc = maxDoc++;
+
+        if (doc == bookIds.length) {
+            bookIds = Arrays.copyOf(bookIds, doc * 2);
+            lengths = Arrays.copyOf(lengths, doc * 2);
+        }
+
+        bookIds[doc] = book.bookId();
+        lengths[doc] = book.terms().length;
+        ordinals.put(book.bookId(), doc);
+        liveDocs++;
+        liveLength += book.terms().length;
+
+        Map<String, List<Integer>> termPositions = new LinkedHashMap<>();
+
+        for (int i = 0; i < book.terms().length; i++) {
+            termPositions.computeIfAbsent(book.terms()[i], term -> new ArrayList<>()).add(book.positions()[i]);
+        }
+
+        termPositions.forEach((term, positions) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, positions));
+    }
+
+    boolean remove(long bookId) {
+
+        Integer doc = ordinals.remove(bookId);
+
+        if (doc == null) {
+            return false;
+        }
+
+        deleted.set(doc);
+        liveDocs--;
+        liveLength -= lengths[doc];
+
+        return true;
+    }
+
+    /**
+     * Every clause of the query has to match. A clause is a plain word, a word ending with * that matches any word
+     * starting with it, or several words in double quotes that have to follow each other. Hits are ranked by BM25,
+     * equally ranked books come in id order.
+     */
+    SearchHits search(String query, int offset, int limit) {
+
+        List<Scorer> scorers = new ArrayList<>();
+
+        for (MatchResult clause : CLAUSE.matcher(query).results().toList()) {
+
+            if (clause.group(1) != null) {
+                addPhrase(scorers, words(clause.group(1)));
+            } else {
+                addWords(scorers, clause.group(2));
+            }
+        }
+
+        if (scorers.isEmpty() || scorers.contains(null)) {
+            return new SearchHits(0, List.of());
+        }
+
+        // The rarest clause leads, the others only get asked about its documents
+        scorers.sort(Comparator.comparingLong(Scorer::cost));
+
+        return collect(scorers, offset, limit);
+    }
+
+    private static List<String> words(String text) {
+        return WORD.matcher(text.toLowerCase(Locale.ROOT)).results().map(MatchResult::group).toList();
+    }
+
+    // A missing term can never match, it's added as null and turns the whole query into no hits
+    private void addWords(List<Scorer> scorers, String clause) {
+
+        List<String> words = words(clause);
+
+        for (int i = 0; i < words.size(); i++) {
+
+            boolean prefix = i == words.size() - 1 && clause.endsWith("*");
+            scorers.add(prefix ? prefixScorer(words.get(i)) : termScorer(words.get(i)));
+        }
+    }
+
+    private void addPhrase(List<Scorer> scorers, List<String> words) {
+
+        if (words.size() < 2) {
+            words.forEach(word -> scorers.add(termScorer(word)));
+            return;
+        }
+
+        TermScorer[] terms = new TermScorer[words.size()];
+
+        for (int i = 0; i < terms.length; i++) {
+
+            terms[i] = termScorer(words.get(i));
+
+            if (terms[i] == null) {
+                scorers.add(null);
+                return;
+            }
+        }
+
+        scorers.add(new PhraseScorer(terms));
+    }
+
+    private TermScorer termScorer(String term) {
+
+        Postings termPostings = postings.get(term);
+
+        return termPostings == null ? null : new TermScorer(termPostings);
+    }
+
+    private Scorer prefixScorer(String prefix) {
+
+        Collection<Postings> expansions = postings.subMap(prefix, prefix + Character.MAX_VALUE).values();
+
+        if (expansions.isEmpty()) {
+            return null;
+        }
+
+        // Documents and scores of all expanded terms are packed into longs, sorting them brings every document's terms together
+        long[] packed = new long[0];
+        int size = 0;
+
+        for (Postings termPostings : expansions.stream().limit(MAX_PREFIX_EXPANSIONS).toList()) {
+
+            TermScorer term = new TermScorer(termPostings);
+
+            if (packed.length - size < termPostings.docFreq) {
+                packed = Arrays.copyOf(packed, Math.max(packed.length * 2, size + termPostings.docFreq));
+            }
+
+            for (int doc = term.advance(0); doc != NO_MORE_DOCS; doc = term.advance(doc + 1)) {
+                packed[size++] = ((long) doc << 32) | (Float.floatToRawIntBits(term.score()) & 0xFFFFFFFFL);
+            }
+        }
+
+        Arrays.sort(packed, 0, size);
+
+        int[] docs = new int[size];
+        float[] scores = new float[size];
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+
+            int doc = (int) (packed[i] >>> 32);
+            float score = Float.intBitsToFloat((int) packed[i]);
+
+            if (count > 0 && docs[count - 1] == doc) {
+                scores[count - 1] += score;
+            } else {
+                docs[count] = doc;
+                scores[count++] = score;
+            }
+        }
+
+        return new UnionScorer(docs, scores, count);
+    }
+
+    private SearchHits collect(List<Scorer> scorers, int offset, int limit) {
+
+        int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+
+        // Worst of the best hits on top, so it's the one replaced by a better hit
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::bookId);
+        PriorityQueue<Hit> best = new PriorityQueue<>(ranking.reversed());
+
+        long total = 0;
+        int target = 0;
+
+        while (target != NO_MORE_DOCS) {
+
+            int doc = scorers.get(0).advance(target);
+            target = doc;
+
+            for (int i = 1; i < scorers.size() && target == doc && doc != NO_MORE_DOCS; i++) {
+                target = scorers.get(i).advance(doc);
+            }
+
+            if (doc == NO_MORE_DOCS || target != doc) {
+                continue;
+            }
+
+            target = doc + 1;
+
+            if (deleted.get(doc)) {
+                continue;
+            }
+
+            total++;
+
+            if (wanted == 0) {
+                continue;
+            }
+
+            float score = 0;
+
+            for (Scorer scorer : scorers) {
+                score += scorer.score();
+            }
+
+            Hit hit = new Hit(bookIds[doc], score);
+
+            if (best.size() < wanted) {
+                best.add(hit);
+            } else if (ranking.compare(hit, best.peek()) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+
+        List<Long> page = ranked.stream().skip(offset).map(Hit::bookId).toList();
+
+        return new SearchHits(total, page);
+    }
+
+    private float bm25(float idf, int freq, int doc) {
+
+        float averageLength = liveDocs == 0 ? 1 : (float) liveLength / liveDocs;
+
+        return idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * lengths[doc] / averageLength));
+    }
+
+    private float idf(int docFreq) {
+        // Postings still count deleted books until the next rebuild, so the frequency can exceed the live books
+        return (float) Math.log(1 + (Math.max(liveDocs - docFreq, 0) + 0.5) / (docFreq + 0.5));
+    }
+
+    private record Hit(long bookId, float score) {
+    }
+
+    private static final class Postings {
+
+        private int[] data = new int[8];
+        private int size;
+        private int docFreq;
+
+        private void add(int doc, List<Integer> positions) {
+
+            if (data.length - size < positions.size() + 2) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + positions.size() + 2));
+            }
+
+            data[size++] = doc;
+            data[size++] = positions.size();
+
+            for (int position : positions) {
+                data[size++] = position;
+            }
+
+            docFreq++;
+        }
+    }
+
+    // advance returns the first matching document at or after the target and keeps returning it until asked for a later one
+    private interface Scorer {
+
+        int advance(int target);
+
+        float score();
+
+        long cost();
+    }
+
+    private final class TermScorer implements Scorer {
+
+        private final Postings termPostings;
+        private final float idf;
+        private int next;
+        private int doc = -1;
+        private int freq;
+        private int positionsStart;
+
+        private TermScorer(Postings termPostings) {
+            this.termPostings = termPostings;
+            this.idf = idf(termPostings.docFreq);
+        }
+
+        @Override
+        public int advance(int target) {
+
+            if (doc >= target) {
+                return doc;
+            }
+
+            int[] data = termPostings.data;
+
+            while (next < termPostings.size) {
+
+                int candidate = data[next];
+                int candidateFreq = data[next + 1];
+                int start = next + 2;
+
+                next = start + candidateFreq;
+
+                if (candidate >= target) {
+                    doc = candidate;
+                    freq = candidateFreq;
+                    positionsStart = start;
+                    return doc;
+                }
+            }
+
+            return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public float score() {
+            return bm25(idf, freq, doc);
+        }
+
+        @Override
+        public long cost() {
+            return termPostings.docFreq;
+        }
+
+        private boolean hasPosition(int position) {
+
+            int[] data = termPostings.data;
+
+            for (int i = positionsStart; i < positionsStart + freq && data[i] <= position; i++) {
+                if (data[i] == position) return true;
+            }
+
+            return false;
+        }
+    }
+
+    private final class PhraseScorer implements Scorer {
+
+        private final TermScorer[] terms;
+        private int doc = -1;
+
+        private PhraseScorer(TermScorer[] terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public int advance(int target) {
+
+            if (doc >= target) {
+                return doc;
+            }
+
+            while (target != NO_MORE_DOCS) {
+
+                int candidate = terms[0].advance(target);
+                target = candidate;
+
+                for (int i = 1; i < terms.length && target == candidate && candidate != NO_MORE_DOCS; i++) {
+                    target = terms[i].advance(candidate);
+                }
+
+                if (candidate == NO_MORE_DOCS) {
+                    break;
+                }
+
+                if (target == candidate) {
+
+                    if (followEachOther()) {
+                        return doc = candidate;
+                    }
+
+                    target = candidate + 1;
+                }
+            }
+
+            return doc = NO_MORE_DOCS;
+        }
+
+        private boolean followEachOther() {
+
+            TermScorer first = terms[0];
+
+            for (int i = first.positionsStart; i < first.positionsStart + first.freq; i++) {
+
+                int start = first.termPostings.data[i];
+                boolean matches = true;
+
+                for (int j = 1; j < terms.length && matches; j++) {
+                    matches = terms[j].hasPosition(start + j);
+                }
+
+                if (matches) return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public float score() {
+
+            float score = 0;
+
+            for (TermScorer term : terms) {
+                score += term.score();
+            }
+
+            return score;
+        }
+
+        @Override
+        public long cost() {
+            return Arrays.stream(terms).mapToLong(TermScorer::cost).min().orElse(0);
+        }
+    }
+
+    private static final class UnionScorer implements Scorer {
+
+        private final int[] docs;
+        private final float[] scores;
+        private final int size;
+        private int index = -1;
+
+        private UnionScorer(int[] docs, float[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        @Override
+        public int advance(int target) {
+
+            if (index >= 0 && (index == size || docs[index] >= target)) {
+                return index == size ? NO_MORE_DOCS : docs[index];
+            }
+
+            int found = Arrays.binarySearch(docs, Math.max(index, 0), size, target);
+            index = found >= 0 ? found : -found - 1;
+
+            return index == size ? NO_MORE_DOCS : docs[index];
+        }
+
+        @Override
+        public float score() {
+            return scores[index];
+        }
+
+        @Override
+        public long cost() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import java.util.List;
+
+/**
+ * Ids of one page of matching books in ranked order, together with the number of all matching books.
+ */
+public record SearchHits(long total, List<Long> bookIds) {
+}
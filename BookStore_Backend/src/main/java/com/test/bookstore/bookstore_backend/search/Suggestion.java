@@ -0,0 +1,7 @@
+package com.test.bookstore.bookstore_backend.search;
+
+/**
+ * One typeahead suggestion, a book title with the id of its book or an author with no book id.
+ */
+public record Suggestion(String text, SuggestionType type, Long bookId) {
+}
@@ -0,0 +1,351 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * Radix trie of normalized book titles and authors for typeahead. Every node keeps the most popular entries below it,
+ * so a lookup only walks down the prefix and never visits the subtree. Titles and authors are inserted from every
+ * word on, so "pot" suggests "Harry Potter". An author is one entry shared by all of their books, with the popularity of all of them.
+ * Not thread safe, BookSearchIndex guards it with a read-write lock.
+ */
+final class SuggestionTrie {
+
+    static final int MAX_SUGGESTIONS = 10;
+
+    // Words after that many don't start keys of their own, long titles would otherwise add a key per word
+    private static final int MAX_KEYS_PER_ENTRY = 8;
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong((Entry entry) -> entry.popularity).reversed()
+            .thenComparing(entry -> entry.text)
+            .thenComparing(entry -> entry.bookId == null ? 0 : entry.bookId);
+
+    private final Node root = new Node("");
+    private final Map<Long, Entry> titles = new HashMap<>();
+    private final Map<Long, Entry> authorsOfBooks = new HashMap<>();
+    private final Map<String, Entry> authors = new HashMap<>();
+
+    static String normalize(String text) {
+
+        String withoutAccents = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+
+        return String.join(" ", WORD.matcher(withoutAccents.toLowerCase(Locale.ROOT)).results().map(MatchResult::group).toList());
+    }
+
+    void add(long bookId, String title, String author, long popularity) {
+
+        remove(bookId);
+
+        Entry titleEntry = new Entry(title, SuggestionType.TITLE, bookId, popularity);
+        titles.put(bookId, titleEntry);
+        insert(titleEntry, normalize(title));
+
+        String normalizedAuthor = normalize(author);
+        Entry authorEntry = authors.get(normalizedAuthor);
+
+        if (authorEntry == null) {
+            authorEntry = new Entry(author, SuggestionType.AUTHOR, null, popularity);
+            authors.put(normalizedAuthor, authorEntry);
+            insert(authorEntry, normalizedAuthor);
+        } else {
+            changePopularity(authorEntry, normalizedAuthor, popularity);
+        }
+
+        authorEntry.books++;
+        authorsOfBooks.put(bookId, authorEntry);
+    }
+
+    void remove(long bookId) {
+
+        Entry titleEntry = titles.remove(bookId);
+
+        if (titleEntry == null) {
+            return;
+        }
+
+        delete(titleEntry, normalize(titleEntry.text));
+
+        Entry authorEntry = authorsOfBooks.remove(bookId);
+        String normalizedAuthor = normalize(authorEntry.text);
+
+        if (--authorEntry.books == 0) {
+            authors.remove(normalizedAuthor);
+            delete(authorEntry, normalizedAuthor);
+        } else {
+            changePopularity(authorEntry, normalizedAuthor, -titleEntry.popularity);
+        }
+    }
+
+    void addPopularity(long bookId, long popularity) {
+
+        Entry titleEntry = titles.get(bookId);
+
+        if (titleEntry == null) {
+            return;
+        }
+
+        changePopularity(titleEntry, normalize(titleEntry.text), popularity);
+
+        Entry authorEntry = authorsOfBooks.get(bookId);
+        changePopularity(authorEntry, normalize(authorEntry.text), popularity);
+    }
+
+    List<Suggestion> suggest(String prefix) {
+
+        String key = normalize(prefix);
+
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        Node node = root;
+        int matched = 0;
+
+        while (matched < key.length()) {
+
+            Node child = node.child(key.charAt(matched));
+
+            if (child == null) {
+                return List.of();
+            }
+
+            int common = commonPrefixLength(child.label, key, matched);
+
+            // The prefix may end inside an edge, everything below it still starts with the prefix
+            if (matched + common < key.length() && common < child.label.length()) {
+                return List.of();
+            }
+
+            matched += common;
+            node = child;
+        }
+
+        return node.top.stream().map(entry -> new Suggestion(entry.text, entry.type, entry.bookId)).toList();
+    }
+
+    private static List<String> keys(String normalized) {
+
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        String[] words = normalized.split(" ");
+        List<String> keys = new ArrayList<>();
+
+        for (int i = 0; i < Math.min(words.length, MAX_KEYS_PER_ENTRY); i++) {
+            keys.add(String.join(" ", Arrays.asList(words).subList(i, words.length)));
+        }
+
+        return keys;
+    }
+
+    private void insert(Entry entry, String normalized) {
+
+        for (String key : keys(normalized)) {
+
+            List<Node> path = path(key, true);
+
+            path.get(path.size() - 1).entries.add(entry);
+            path.forEach(node -> node.offer(entry));
+        }
+    }
+
+    private void delete(Entry entry, String normalized) {
+
+        for (String key : keys(normalized)) {
+
+            List<Node> path = path(key, false);
+
+            if (path == null) continue;
+
+            path.get(path.size() - 1).entries.remove(entry);
+
+            // Deepest first, so every node rebuilds its top entries from children that are already up to date
+            for (int i = path.size() - 1; i >= 0; i--) {
+                path.get(i).recompute();
+            }
+        }
+    }
+
+    private void changePopularity(Entry entry, String normalized, long change) {
+
+        if (change >= 0) {
+            entry.popularity += change;
+            keys(normalized).forEach(key -> path(key, false).forEach(node -> node.offer(entry)));
+            return;
+        }
+
+        // A less popular entry can drop out of a top list in favour of one that isn't there yet
+        delete(entry, normalized);
+        entry.popularity += change;
+        insert(entry, normalized);
+    }
+
+    // Nodes from the root to the one the key ends at, nodes and edge splits are created on the way when asked to
+    private List<Node> path(String key, boolean create) {
+
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int matched = 0;
+
+        path.add(node);
+
+        while (matched < key.length()) {
+
+            char next = key.charAt(matched);
+            Node child = node.child(next);
+
+            if (child == null) {
+
+                if (!create) return null;
+
+                child = new Node(key.substring(matched));
+                node.putChild(next, child);
+
+            } else {
+
+                int common = commonPrefixLength(child.label, key, matched);
+
+                if (common < child.label.length()) {
+
+                    if (!create) return null;
+
+                    child = split(node, child, common);
+                }
+            }
+
+            matched += child.label.length();
+            node = child;
+            path.add(node);
+        }
+
+        return path;
+    }
+
+    // The new node takes the shared part of the edge and inherits the top entries, everything below it is unchanged
+    private static Node split(Node parent, Node child, int at) {
+
+        Node middle = new Node(child.label.substring(0, at));
+        middle.top.addAll(child.top);
+
+        child.label = child.label.substring(at);
+        middle.putChild(child.label.charAt(0), child);
+        parent.putChild(middle.label.charAt(0), middle);
+
+        return middle;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+
+        int length = 0;
+
+        while (length < label.length() && offset + length < key.length() && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+
+        return length;
+    }
+
+    private static final class Entry {
+
+        private final String text;
+        private final SuggestionType type;
+        private final Long bookId;
+        private long popularity;
+        private int books;
+
+        private Entry(String text, SuggestionType type, Long bookId, long popularity) {
+            this.text = text;
+            this.type = type;
+            this.bookId = bookId;
+            this.popularity = popularity;
+        }
+    }
+
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+
+        // Sorted first characters of the child edges, a trie has millions of nodes with only a few children each
+        // and arrays keep them smaller and closer together in memory than a map per node
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private final List<Entry> entries = new ArrayList<>(1);
+        private final List<Entry> top = new ArrayList<>(1);
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char key) {
+
+            int index = Arrays.binarySearch(keys, key);
+
+            return index >= 0 ? children[index] : null;
+        }
+
+        private void putChild(char key, Node child) {
+
+            int index = Arrays.binarySearch(keys, key);
+
+            if (index >= 0) {
+                children[index] = child;
+                return;
+            }
+
+            int position = -index - 1;
+
+            char[] grownKeys = new char[keys.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+
+            System.arraycopy(keys, 0, grownKeys, 0, position);
+            System.arraycopy(children, 0, grownChildren, 0, position);
+            grownKeys[position] = key;
+            grownChildren[position] = child;
+            System.arraycopy(keys, position, grownKeys, position + 1, keys.length - position);
+            System.arraycopy(children, position, grownChildren, position + 1, children.length - position);
+
+            keys = grownKeys;
+            children = grownChildren;
+        }
+
+        private void offer(Entry entry) {
+
+            // Most offers near the root lose against a full list, that's decided by one comparison
+            if (top.size() == MAX_SUGGESTIONS && RANKING.compare(entry, top.get(MAX_SUGGESTIONS - 1)) > 0) {
+                return;
+            }
+
+            top.remove(entry);
+
+            int position = 0;
+
+            while (position < top.size() && RANKING.compare(top.get(position), entry) < 0) {
+                position++;
+            }
+
+            top.add(position, entry);
+
+            if (top.size() > MAX_SUGGESTIONS) {
+                top.remove(MAX_SUGGESTIONS);
+            }
+        }
+
+        private void recompute() {
+
+            top.clear();
+            entries.forEach(this::offer);
+            for (Node child : children) {
+                child.top.forEach(this::offer);
+            }
+        }
+    }
+}
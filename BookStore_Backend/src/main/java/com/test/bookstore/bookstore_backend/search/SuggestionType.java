@@ -0,0 +1,5 @@
+package com.test.bookstore.bookstore_backend.search;
+
+public enum SuggestionType {
+    TITLE, AUTHOR
+}
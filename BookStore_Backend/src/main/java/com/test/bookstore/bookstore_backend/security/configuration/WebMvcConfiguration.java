@@ -0,0 +1,25 @@
+package com.test.bookstore.bookstore_backend.security.configuration;
+
+import com.test.bookstore.bookstore_backend.security.jwt.CurrentPersonArgumentResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfiguration implements WebMvcConfigurer {
+
+    private final CurrentPersonArgumentResolver currentPersonArgumentResolver;
+
+    @Autowired
+    public WebMvcConfiguration(CurrentPersonArgumentResolver currentPersonArgumentResolver) {
+        this.currentPersonArgumentResolver = currentPersonArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentPersonArgumentResolver);
+    }
+}
@@ -0,0 +1,17 @@
+package com.test.bookstore.bookstore_backend.security.dto.requests;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JwtSecretRotationDTO {
+
+    @NotBlank(message = "Secret must be a Base64 encoded string of at least 256 bits")
+    private String secret;
+}
@@ -0,0 +1,24 @@
+package com.test.bookstore.bookstore_backend.security.dto.requests;
+
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonRoleChangeDTO {
+
+    @NotBlank(message = "Email must contain at least 1 character")
+    @Email(message = "This field must be formatted as Email address")
+    private String email;
+
+    @NotNull(message = "Role must be ROLE_USER or ROLE_ADMIN")
+    private Role role;
+}
@@ -0,0 +1,18 @@
+package com.test.bookstore.bookstore_backend.security.jwt;
+
+import io.swagger.v3.oas.annotations.Parameter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a controller method parameter to the JWT claims verified by {@link JwtAuthenticationFilter}.
+ * A {@code String} parameter receives the authenticated person's email, a {@code Claims} parameter receives all claims.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Parameter(hidden = true)
+public @interface CurrentPerson {
+}
@@ -0,0 +1,45 @@
+package com.test.bookstore.bookstore_backend.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.MalformedJwtException;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+@Component
+public class CurrentPersonArgumentResolver implements HandlerMethodArgumentResolver {
+
+    // Request attribute under which JwtAuthenticationFilter stores the claims it has already verified
+    public static final String VERIFIED_CLAIMS_ATTRIBUTE = CurrentPersonArgumentResolver.class.getName() + ".VERIFIED_CLAIMS";
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+
+        return parameter.hasParameterAnnotation(CurrentPerson.class)
+                && (String.class.equals(parameter.getParameterType()) || Claims.class.equals(parameter.getParameterType()));
+    }
+
+    @Override
+    public Object resolveArgument(@NonNull MethodParameter parameter,
+                                  ModelAndViewContainer mavContainer,
+                                  @NonNull NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
+
+        Claims claims = (Claims) webRequest.getAttribute(VERIFIED_CLAIMS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (claims == null) {
+            throw new MalformedJwtException("Authentication token is missing.");
+        }
+
+        if (Claims.class.equals(parameter.getParameterType())) {
+            return claims;
+        }
+
+        return claims.getSubject();
+    }
+}
@@ -1,6 +1,7 @@
 package com.test.bookstore.bookstore_backend.security.jwt;
 
 import com.test.bookstore.bookstore_backend.security.services.PersonDetailsService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
@@ -9,6 +10,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,12 +28,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final HandlerExceptionResolver handlerExceptionResolver;
     private final JwtUtils jwtUtils;
     private final PersonDetailsService personDetailsService;
+    private final boolean claimsAuthenticationEnabled;
 
     @Autowired
-    public JwtAuthenticationFilter(HandlerExceptionResolver handlerExceptionResolver, JwtUtils jwtUtils, PersonDetailsService personDetailsService) {
+    public JwtAuthenticationFilter(HandlerExceptionResolver handlerExceptionResolver, JwtUtils jwtUtils, PersonDetailsService personDetailsService,
+                                   @Value("${jwt_claims_authentication_enabled:true}") boolean claimsAuthenticationEnabled) {
         this.handlerExceptionResolver = handlerExceptionResolver;
         this.jwtUtils = jwtUtils;
         this.personDetailsService = personDetailsService;
+        this.claimsAuthenticationEnabled = claimsAuthenticationEnabled;
     }
 
     @Override
@@ -41,6 +46,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final Claims claims;
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -51,12 +57,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
 
             jwt = authHeader.substring(7);
-            userEmail = jwtUtils.extractPersonEmail(jwt);
+            claims = jwtUtils.extractAllClaims(jwt);
+            userEmail = claims.getSubject();
+
+            // Share verified claims with controllers, so the token is parsed only once per request
+            request.setAttribute(CurrentPersonArgumentResolver.VERIFIED_CLAIMS_ATTRIBUTE, claims);
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.personDetailsService.loadUserByUsername(userEmail);
+                // Claims authentication trusts the signed person ID and role, saving a person lookup per request
+                UserDetails userDetails = claimsAuthenticationEnabled
+                        ? this.personDetailsService.loadUserByClaims(claims)
+                        : this.personDetailsService.loadUserByUsername(userEmail);
 
-                if (jwtUtils.isTokenValid(jwt, userDetails)) {
+                if (jwtUtils.isTokenValid(claims, userDetails)) {
 
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -1,25 +1,80 @@
 package com.test.bookstore.bookstore_backend.security.jwt;
 
+import com.test.bookstore.bookstore_backend.entities.JwtSigningKey;
+import com.test.bookstore.bookstore_backend.repositories.JwtSigningKeyRepository;
+import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Signs and verifies JWT tokens. Tokens are signed with jwt_secret until a secret is rotated, rotated secrets are kept in
+ * the jwt_signing_key table and the newest one signs. Tokens name the key they're signed with, a replaced key keeps
+ * verifying its tokens until the rotation grace period after its replacement is over. Every instance reloads the keys
+ * on a schedule and as soon as a token names a key it doesn't know yet.
+ */
+@Slf4j
 @Service
 public class JwtUtils {
 
-    @Value("${jwt_secret}")
-    private String SECRET_KEY;
+    public static final long TOKEN_LIFETIME_MILLIS = 1000 * 60 * 60;
+    public static final String ROLE_CLAIM = "role";
+    public static final String PERSON_ID_CLAIM = "personId";
+
+    // Key ID of jwt_secret, tokens issued before tokens named their key are signed with it as well
+    static final String CONFIGURED_KEY_ID = "0";
+
+    // Made up key IDs make the DataBase be asked at most this often
+    private static final long KEY_LOOKUP_INTERVAL_MILLIS = 1000;
+
+    private final JwtSigningKeyRepository jwtSigningKeyRepository;
+    private final String configuredSecretKey;
+    private final long rotationGracePeriodMillis;
+
+    // Looks up the key every token names, so one parser serves all keys
+    private final JwtParser parser = Jwts
+            .parserBuilder()
+            .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                @Override
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    return resolveVerifyingKey(header.getKeyId());
+                }
+            })
+            .build();
+
+    // Built from the stored keys and swapped as a whole, so readers never see a half-updated state
+    private volatile SigningKeys signingKeys;
+    private volatile long lastKeyLookupMillis;
+
+    @Autowired
+    public JwtUtils(JwtSigningKeyRepository jwtSigningKeyRepository, @Value("${jwt_secret}") String secretKey,
+                    @Value("${jwt_secret_rotation_grace_period_ms:" + TOKEN_LIFETIME_MILLIS + "}") long rotationGracePeriodMillis) {
+
+        this.jwtSigningKeyRepository = jwtSigningKeyRepository;
+        this.configuredSecretKey = secretKey;
+        this.rotationGracePeriodMillis = rotationGracePeriodMillis;
+    }
 
     public String extractPersonEmail(String token) {
 
@@ -34,51 +89,163 @@ public class JwtUtils {
 
     public String generateToken(UserDetails userDetails) {
 
-        return generateToken(new HashMap<>(Map.of("role", userDetails.getAuthorities())), userDetails);
+        Map<String, Object> extraClaims = new HashMap<>(Map.of(ROLE_CLAIM, userDetails.getAuthorities()));
+
+        // Person ID and role allow authenticating requests from the token alone, without loading the person
+        if (userDetails instanceof PersonDetails personDetails && personDetails.getPerson().getId() != null) {
+            extraClaims.put(PERSON_ID_CLAIM, personDetails.getPerson().getId());
+        }
+
+        return generateToken(extraClaims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
 
+        SigningKeys keys = getSigningKeys();
+
         return Jwts
                 .builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keys.keyId())
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
                 .setIssuer("BookStore_Backend(by_IM_Dev)")
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + TOKEN_LIFETIME_MILLIS))
+                .signWith(keys.key(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
 
-        final String username = extractPersonEmail(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(extractAllClaims(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
 
-        return extractExpiration(token).before(new Date());
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername())) && !isTokenExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
+    private boolean isTokenExpired(Claims claims) {
 
-        return extractClaim(token, Claims::getExpiration);
+        return claims.getExpiration().before(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
+    // Parses the token and verifies its signature, callers should reuse the returned claims instead of parsing the token again
+    public Claims extractAllClaims(String token) {
 
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Stores a new signing secret, so it survives restarts and reaches the other instances. New tokens are signed with
+     * it right away, tokens signed with the replaced secret keep verifying during the rotation grace period.
+     */
+    public synchronized void rotateSecret(String newSecretKey) {
+
+        // A secret that can't sign must not get stored
+        buildSigningKey(newSecretKey);
+
+        jwtSigningKeyRepository.save(new JwtSigningKey(newSecretKey, LocalDateTime.now()));
+        signingKeys = loadSigningKeys();
+    }
+
+    // Picks up rotations of other instances, keys are only loaded once a token was signed or verified
+    @Scheduled(cron = "${jwt_signing_key_refresh_cron:*/30 * * * * *}")
+    public void refresh() {
+
+        if (signingKeys != null) reloadSigningKeys();
+    }
+
+    private Key resolveVerifyingKey(String keyId) {
+
+        String id = keyId == null ? CONFIGURED_KEY_ID : keyId;
+        VerifyingKey verifyingKey = getSigningKeys().verifyingKeys().get(id);
+
+        // A key rotated by another instance is known before the next scheduled reload
+        if (verifyingKey == null && System.currentTimeMillis() - lastKeyLookupMillis >= KEY_LOOKUP_INTERVAL_MILLIS) {
+            lastKeyLookupMillis = System.currentTimeMillis();
+            verifyingKey = reloadSigningKeys().verifyingKeys().get(id);
+        }
+
+        if (verifyingKey == null || System.currentTimeMillis() > verifyingKey.validUntil()) {
+            throw new SignatureException("JWT signing key " + id + " is unknown or retired.");
+        }
+
+        return verifyingKey.key();
+    }
+
+    private SigningKeys getSigningKeys() {
+
+        SigningKeys keys = signingKeys;
+
+        if (keys == null) {
+
+            synchronized (this) {
+
+                if (signingKeys == null) reloadSigningKeys();
+
+                keys = signingKeys;
+            }
+        }
+
+        return keys;
+    }
+
+    // Keeps the current keys if the DataBase can't be read, or only jwt_secret if there are none yet
+    private synchronized SigningKeys reloadSigningKeys() {
+
+        try {
+            signingKeys = loadSigningKeys();
+        } catch (RuntimeException e) {
+
+            log.error("Loading the JWT signing keys failed", e);
+
+            if (signingKeys == null) {
+                Key key = buildSigningKey(configuredSecretKey);
+                signingKeys = new SigningKeys(CONFIGURED_KEY_ID, key, Map.of(CONFIGURED_KEY_ID, new VerifyingKey(key, Long.MAX_VALUE)));
+            }
+        }
+
+        return signingKeys;
     }
 
-    private Key getSigningKey() {
+    private SigningKeys loadSigningKeys() {
+
+        List<JwtSigningKey> storedKeys = jwtSigningKeyRepository.findAllByOrderByIdAsc();
+        Map<String, VerifyingKey> verifyingKeys = new HashMap<>();
+        long now = System.currentTimeMillis();
+
+        String keyId = CONFIGURED_KEY_ID;
+        String secretKey = configuredSecretKey;
+
+        // Every key is valid until the grace period after the next one was stored is over, retired keys are left out
+        for (JwtSigningKey storedKey : storedKeys) {
 
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
+            long validUntil = storedKey.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + rotationGracePeriodMillis;
+
+            if (validUntil > now) verifyingKeys.put(keyId, new VerifyingKey(buildSigningKey(secretKey), validUntil));
+
+            keyId = storedKey.getId().toString();
+            secretKey = storedKey.getSecret();
+        }
+
+        Key key = buildSigningKey(secretKey);
+        verifyingKeys.put(keyId, new VerifyingKey(key, Long.MAX_VALUE));
+
+        return new SigningKeys(keyId, key, Map.copyOf(verifyingKeys));
+    }
+
+    private Key buildSigningKey(String secretKey) {
+
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
         return Keys.hmacShaKeyFor(keyBytes);
     }
+
+    // JwtBuilder is mutable, so only the keys are shared between requests
+    private record SigningKeys(String keyId, Key key, Map<String, VerifyingKey> verifyingKeys) {
+    }
+
+    private record VerifyingKey(Key key, long validUntil) {
+    }
 }
@@ -2,14 +2,19 @@ package com.test.bookstore.bookstore_backend.security.services;
 
 import com.test.bookstore.bookstore_backend.entities.Person;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
+import com.test.bookstore.bookstore_backend.security.dto.requests.JwtSecretRotationDTO;
 import com.test.bookstore.bookstore_backend.security.dto.requests.PersonLoginDTO;
 import com.test.bookstore.bookstore_backend.security.dto.requests.PersonRegistrationDTO;
+import com.test.bookstore.bookstore_backend.security.dto.requests.PersonRoleChangeDTO;
 import com.test.bookstore.bookstore_backend.security.dto.responses.AuthenticationResponse;
 import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
 import com.test.bookstore.bookstore_backend.utils.validators.PersonValidator;
+import io.jsonwebtoken.io.DecodingException;
+import io.jsonwebtoken.security.WeakKeyException;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -31,16 +36,18 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
     private final AuthenticationManager authenticationManager;
+    private final PersonRevocationCache personRevocationCache;
 
     @Autowired
     public AuthenticationService(PersonValidator personValidator, PersonRepository personRepository, PasswordEncoder passwordEncoder,
-                                 JwtUtils jwtUtils, AuthenticationManager authenticationManager) {
+                                 JwtUtils jwtUtils, AuthenticationManager authenticationManager, PersonRevocationCache personRevocationCache) {
 
         this.personValidator = personValidator;
         this.personRepository = personRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtils = jwtUtils;
         this.authenticationManager = authenticationManager;
+        this.personRevocationCache = personRevocationCache;
     }
 
     public AuthenticationResponse registerPerson(PersonRegistrationDTO personRegistrationDTO, BindingResult bindingResult) {
@@ -91,4 +98,37 @@ public class AuthenticationService {
 
         return new AuthenticationResponse(jwtToken);
     }
+
+    public void rotateJwtSecret(JwtSecretRotationDTO jwtSecretRotationDTO, BindingResult bindingResult) {
+
+        if (bindingResult.hasErrors()) {
+            ErrorsUtil.returnPersonError("Some fields are invalid.", bindingResult, HttpStatus.BAD_REQUEST);
+        }
+
+        try {
+            jwtUtils.rotateSecret(jwtSecretRotationDTO.getSecret());
+        } catch (DecodingException | WeakKeyException e) {
+            ErrorsUtil.returnPersonError("Secret must be a Base64 encoded string of at least 256 bits.", null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @Transactional
+    public void changePersonRole(PersonRoleChangeDTO personRoleChangeDTO, BindingResult bindingResult) {
+
+        if (bindingResult.hasErrors()) {
+            ErrorsUtil.returnPersonError("Some fields are invalid.", bindingResult, HttpStatus.BAD_REQUEST);
+        }
+
+        Optional<Person> person = personRepository.findByEmail(personRoleChangeDTO.getEmail());
+
+        if (person.isEmpty()) {
+            ErrorsUtil.returnPersonError("Person with such email is not found. Please check the input fields.", null, HttpStatus.NOT_FOUND);
+        }
+
+        person.get().setRole(personRoleChangeDTO.getRole());
+        personRepository.save(person.get());
+
+        // Tokens issued before carry the old role, from now on every instance checks them against the DataBase
+        personRevocationCache.revoke(person.get().getEmail());
+    }
 }
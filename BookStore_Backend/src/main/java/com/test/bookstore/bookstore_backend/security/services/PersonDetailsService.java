@@ -3,22 +3,30 @@ package com.test.bookstore.bookstore_backend.security.services;
 import com.test.bookstore.bookstore_backend.entities.Person;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class PersonDetailsService implements UserDetailsService {
 
     private final PersonRepository personRepository;
+    private final PersonRevocationCache personRevocationCache;
 
     @Autowired
-    public PersonDetailsService(PersonRepository personRepository) {
+    public PersonDetailsService(PersonRepository personRepository, PersonRevocationCache personRevocationCache) {
         this.personRepository = personRepository;
+        this.personRevocationCache = personRevocationCache;
     }
 
     @Override
@@ -32,4 +40,38 @@ public class PersonDetailsService implements UserDetailsService {
 
         return new PersonDetails(person.get());
     }
+
+    // Builds the principal from verified token claims, falls back to the DataBase for old tokens and revoked persons
+    public UserDetails loadUserByClaims(Claims claims) throws UsernameNotFoundException {
+
+        Number personId = claims.get(JwtUtils.PERSON_ID_CLAIM, Number.class);
+        Role role = extractRole(claims);
+
+        if (personId == null || role == null || personRevocationCache.isRevoked(claims.getSubject(), claims.getIssuedAt())) {
+            return loadUserByUsername(claims.getSubject());
+        }
+
+        Person person = new Person();
+        person.setId(personId.longValue());
+        person.setEmail(claims.getSubject());
+        person.setRole(role);
+
+        return new PersonDetails(person);
+    }
+
+    private Role extractRole(Claims claims) {
+
+        // Role claim is serialized from granted authorities, e.g. [{"authority": "ROLE_USER"}]
+        if (!(claims.get(JwtUtils.ROLE_CLAIM) instanceof List<?> authorities) || authorities.size() != 1
+                || !(authorities.get(0) instanceof Map<?, ?> authority)) {
+            return null;
+        }
+
+        Object authorityName = authority.get("authority");
+
+        return Arrays.stream(Role.values())
+                .filter(role -> role.name().equals(authorityName))
+                .findFirst()
+                .orElse(null);
+    }
 }
@@ -0,0 +1,128 @@
+package com.test.bookstore.bookstore_backend.security.services;
+
+import com.test.bookstore.bookstore_backend.entities.PersonRevocation;
+import com.test.bookstore.bookstore_backend.repositories.PersonRevocationRepository;
+import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Remembers persons whose role or account changed, so tokens issued before the change are checked against the DataBase
+ * instead of being trusted as they are. Revocations are stored in the person_revocation table and every instance reloads
+ * them at most once per lookup interval, so a revocation on one instance reaches the others within that interval.
+ * Entries older than the token lifetime are useless and get dropped. When the cache is full, the oldest entry is replaced
+ * by a global cut-off time, which keeps revocation safe at the cost of extra lookups.
+ */
+@Slf4j
+@Component
+public class PersonRevocationCache {
+
+    private final PersonRevocationRepository personRevocationRepository;
+    private final int maxSize;
+    private final long lookupIntervalMillis;
+
+    private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();
+    private volatile long revokedBefore;
+
+    // Only one request reloads the revocations, the others go on with the ones loaded before
+    private final ReentrantLock lookupLock = new ReentrantLock();
+    private volatile long lastLookupMillis;
+
+    @Autowired
+    public PersonRevocationCache(PersonRevocationRepository personRevocationRepository, @Value("${jwt_revocation_cache_size:1000}") int maxSize,
+                                 @Value("${jwt_revocation_lookup_interval_ms:1000}") long lookupIntervalMillis) {
+
+        this.personRevocationRepository = personRevocationRepository;
+        this.maxSize = maxSize;
+        this.lookupIntervalMillis = lookupIntervalMillis;
+    }
+
+    // Runs in the transaction of the change, so the change isn't stored without its revocation
+    public void revoke(String personEmail) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        personRevocationRepository.deleteRevokedBefore(now.minus(JwtUtils.TOKEN_LIFETIME_MILLIS, ChronoUnit.MILLIS));
+        personRevocationRepository.save(new PersonRevocation(personEmail, now));
+
+        remember(personEmail, toMillis(now));
+    }
+
+    public boolean isRevoked(String personEmail, Date issuedAt) {
+
+        if (issuedAt == null) {
+            return true;
+        }
+
+        lookUpIfDue();
+
+        // Token timestamps have seconds precision, so tokens issued in the same second as the revocation count as revoked
+        long issuedAtMillis = issuedAt.getTime();
+
+        if (issuedAtMillis <= revokedBefore) {
+            return true;
+        }
+
+        Long personRevokedAt = revokedAt.get(personEmail);
+
+        return personRevokedAt != null && issuedAtMillis <= personRevokedAt;
+    }
+
+    // Keeps the revocations loaded before if the DataBase can't be read
+    private void lookUpIfDue() {
+
+        if (System.currentTimeMillis() - lastLookupMillis < lookupIntervalMillis || !lookupLock.tryLock()) {
+            return;
+        }
+
+        try {
+
+            if (System.currentTimeMillis() - lastLookupMillis < lookupIntervalMillis) return;
+
+            lastLookupMillis = System.currentTimeMillis();
+
+            List<PersonRevocation> revocations = personRevocationRepository.findByRevokedAtAfter(
+                    LocalDateTime.now().minus(JwtUtils.TOKEN_LIFETIME_MILLIS, ChronoUnit.MILLIS));
+
+            revocations.forEach(revocation -> remember(revocation.getPersonEmail(), toMillis(revocation.getRevokedAt())));
+
+        } catch (RuntimeException e) {
+            log.error("Loading the person revocations failed", e);
+        } finally {
+            lookupLock.unlock();
+        }
+    }
+
+    private synchronized void remember(String personEmail, long time) {
+
+        // Already covered by the cut-off, so a reload doesn't push out newer entries again
+        if (time <= revokedBefore) return;
+
+        long now = System.currentTimeMillis();
+
+        revokedAt.values().removeIf(revokedTime -> revokedTime < now - JwtUtils.TOKEN_LIFETIME_MILLIS);
+        revokedAt.merge(personEmail, time, Math::max);
+
+        if (revokedAt.size() > maxSize) {
+            Map.Entry<String, Long> oldest = Collections.min(revokedAt.entrySet(), Map.Entry.comparingByValue());
+            revokedBefore = Math.max(revokedBefore, oldest.getValue());
+            revokedAt.remove(oldest.getKey());
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
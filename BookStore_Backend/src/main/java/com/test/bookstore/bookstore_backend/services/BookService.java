@@ -1,70 +1,142 @@
 package com.test.bookstore.bookstore_backend.services;
 
 import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookFacetsDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSliceDTO;
+import com.test.bookstore.bookstore_backend.dto.BookStatusDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSuggestionDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
+import com.test.bookstore.bookstore_backend.images.ImageStore;
+import com.test.bookstore.bookstore_backend.images.ImageThumbnails;
 import com.test.bookstore.bookstore_backend.entities.*;
 import com.test.bookstore.bookstore_backend.repositories.*;
 import com.test.bookstore.bookstore_backend.entities.*;
 import com.test.bookstore.bookstore_backend.repositories.*;
+import com.test.bookstore.bookstore_backend.repositories.BookCirculationRepository.CirculationResult;
+import com.test.bookstore.bookstore_backend.search.BookSearchIndex;
+import com.test.bookstore.bookstore_backend.search.FacetHits;
+import com.test.bookstore.bookstore_backend.search.GenreFacetIndex;
+import com.test.bookstore.bookstore_backend.search.SearchHits;
+import com.test.bookstore.bookstore_backend.search.Suggestion;
+import com.test.bookstore.bookstore_backend.search.SuggestionType;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
+import com.test.bookstore.bookstore_backend.utils.mappers.BookMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.ReviewMapper;
 import com.test.bookstore.bookstore_backend.utils.validators.BookValidator;
 import com.test.bookstore.bookstore_backend.utils.validators.ReviewValidator;
 import jakarta.transaction.Transactional;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookService {
 
-    private final ModelMapper modelMapper;
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_TITLE = "title";
+    public static final int MAX_INVENTORY_SLOTS = 64;
+    public static final int MAX_BATCH_BOOK_IDS = 100;
+    public static final String MATCH_ALL_GENRES = "all";
+    public static final String MATCH_ANY_GENRE = "any";
+
+    private final BookMapper bookMapper;
+    private final ReviewMapper reviewMapper;
     private final BookValidator bookValidator;
     private final ReviewValidator reviewValidator;
     private final BookRepository bookRepository;
+    private final BookInventorySlotRepository bookInventorySlotRepository;
     private final GenreRepository genreRepository;
     private final CheckoutRepository checkoutRepository;
     private final PersonRepository personRepository;
     private final PaymentRepository paymentRepository;
+    private final AccountSummaryRepository accountSummaryRepository;
     private final ReviewRepository reviewRepository;
     private final HistoryRecordRepository historyRecordRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final GenreFacetIndex genreFacetIndex;
+    private final ImageStore imageStore;
+    private final ImageThumbnails imageThumbnails;
 
     @Autowired
-    public BookService(ModelMapper modelMapper, BookValidator bookValidator, ReviewValidator reviewValidator, BookRepository bookRepository,
-                       GenreRepository genreRepository, CheckoutRepository checkoutRepository, PersonRepository personRepository,
-                       PaymentRepository paymentRepository, ReviewRepository reviewRepository, HistoryRecordRepository historyRecordRepository) {
-
-        this.modelMapper = modelMapper;
+    public BookService(BookMapper bookMapper, ReviewMapper reviewMapper, BookValidator bookValidator, ReviewValidator reviewValidator, BookRepository bookRepository,
+                       BookInventorySlotRepository bookInventorySlotRepository, GenreRepository genreRepository, CheckoutRepository checkoutRepository, PersonRepository personRepository,
+                       PaymentRepository paymentRepository, AccountSummaryRepository accountSummaryRepository, ReviewRepository reviewRepository,
+                       HistoryRecordRepository historyRecordRepository, BookSearchIndex bookSearchIndex,
+                       GenreFacetIndex genreFacetIndex, ImageStore imageStore, ImageThumbnails imageThumbnails) {
+
+        this.bookMapper = bookMapper;
+        this.reviewMapper = reviewMapper;
         this.bookValidator = bookValidator;
         this.reviewValidator = reviewValidator;
         this.bookRepository = bookRepository;
+        this.bookInventorySlotRepository = bookInventorySlotRepository;
         this.genreRepository = genreRepository;
         this.checkoutRepository = checkoutRepository;
         this.personRepository = personRepository;
         this.paymentRepository = paymentRepository;
+        this.accountSummaryRepository = accountSummaryRepository;
         this.reviewRepository = reviewRepository;
         this.historyRecordRepository = historyRecordRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.genreFacetIndex = genreFacetIndex;
+        this.imageStore = imageStore;
+        this.imageThumbnails = imageThumbnails;
     }
 
 //  <------------------------------------------------------------------------------->
 //  <-------------------- Service public methods for controller -------------------->
 //  <------------------------------------------------------------------------------->
 
-    public Page<BookDTO> findAll(Pageable pageable) {
+    public Page<BookSummaryDTO> findAll(Pageable pageable, String sort, boolean approximateTotal) {
+
+        if (approximateTotal) {
+            return findAllMatching(null, null, null, false, pageable, sort, true);
+        }
+
+        return convertToBookSummaryDTOs(bookRepository.findSummaries(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), getBookSort(sort).toSort())));
+    }
+
+    public BookSliceDTO findAllAfter(String cursor, int booksPerPage, String sort) {
 
-        Page<Book> page = bookRepository.findAll(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        if (booksPerPage < 1) {
+            ErrorsUtil.returnBookError("Books per page must be at least 1", null, HttpStatus.BAD_REQUEST);
+        }
+
+        BookSort bookSort = getBookSort(sort);
+
+        // One extra row tells if there is a next slice without counting the whole table
+        List<Object> after = cursor == null ? null : decodeCursor(cursor, bookSort);
+        List<SortedBookSummaryRow> books = bookRepository.findSummariesSorted(bookSort, after, booksPerPage + 1);
+
+        boolean hasNext = books.size() > booksPerPage;
+        List<SortedBookSummaryRow> content = hasNext ? books.subList(0, booksPerPage) : books;
+        String nextCursor = hasNext ? encodeCursor(content.get(content.size() - 1), bookSort) : null;
 
-        return page.map(this::convertToBookDTO);
+        return new BookSliceDTO(convertToBookSummaryDTOs(content.stream().map(SortedBookSummaryRow::book).toList()), nextCursor);
     }
 
     public BookDTO findById(Long bookId) {
@@ -74,22 +146,118 @@ public class BookService {
         return convertToBookDTO(book);
     }
 
-    public Page<BookDTO> findAllByTitle(String titleQuery, Pageable pageable) {
+    public Page<BookSummaryDTO> findAllByTitle(String titleQuery, Pageable pageable, String sort, boolean approximateTotal) {
+
+        if (approximateTotal) {
+            return findAllMatching(titleQuery, null, null, false, pageable, sort, true);
+        }
+
+        return convertToBookSummaryDTOs(bookRepository.findSummariesByTitle(titleQuery,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), getBookSort(sort).toSort())));
+    }
+
+    public Page<BookSummaryDTO> searchBooks(String query, Pageable pageable) {
+
+        return convertToBookSummaryDTOs(bookRepository.search(query, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())));
+    }
+
+    public Page<BookSummaryDTO> searchBooksInIndex(String query, Pageable pageable) {
+
+        Optional<SearchHits> hits = bookSearchIndex.search(query, (int) pageable.getOffset(), pageable.getPageSize());
+
+        // Right after startup the index is still being built and the DataBase search answers instead
+        if (hits.isEmpty()) {
+            return searchBooks(query, pageable);
+        }
 
-        return bookRepository.findByTitleContainingIgnoreCase(titleQuery, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
-                .map(this::convertToBookDTO);
+        return new PageImpl<>(findAllByIdInOrder(hits.get().bookIds()), PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()), hits.get().total());
     }
 
-    public Page<BookDTO> findAllByGenre(String genreQuery, Pageable pageable) {
+    public List<BookSuggestionDTO> suggest(String prefix) {
+
+        if (prefix.isBlank()) {
+            return List.of();
+        }
+
+        Optional<List<Suggestion>> suggestions = bookSearchIndex.suggest(prefix);
 
+        // Right after startup the trie is still being built and book titles starting with the prefix are suggested instead
+        if (suggestions.isEmpty()) {
+            return bookRepository.findSuggestionDocuments(prefix.strip(), PageRequest.of(0, BookSearchIndex.MAX_SUGGESTIONS)).stream()
+                    .map(document -> new BookSuggestionDTO(document.title(), SuggestionType.TITLE, document.id()))
+                    .toList();
+        }
+
+        return suggestions.get().stream()
+                .map(suggestion -> new BookSuggestionDTO(suggestion.text(), suggestion.type(), suggestion.bookId()))
+                .toList();
+    }
+
+    public Page<BookSummaryDTO> findAllByGenre(String genreQuery, Pageable pageable, String sort, boolean approximateTotal) {
+
+        if (approximateTotal) {
+            return findAllMatching(null, null, genreQuery, false, pageable, sort, true);
+        }
+
+        BookSort bookSort = getBookSort(sort);
         Optional<Genre> genre = genreRepository.findByDescription(genreQuery);
 
         if (genre.isEmpty()) {
             ErrorsUtil.returnGenreError("No such genre found", null, HttpStatus.NOT_FOUND);
         }
 
-        return bookRepository.findByGenresContains(genre.get(), PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()))
-                .map(this::convertToBookDTO);
+        return convertToBookSummaryDTOs(bookRepository.findSummariesByGenre(genre.get(), PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), bookSort.toSort())));
+    }
+
+    // Blank filters are left out, the others are combined into the WHERE clause of one statement.
+    // With approximateTotal a large total may be the DataBase's estimate, the returned page tells whether it is exact
+    public Page<BookSummaryDTO> findAllMatching(String title, String author, String genreQuery, boolean availableOnly, Pageable pageable, String sort,
+                                                boolean approximateTotal) {
+
+        BookSort bookSort = getBookSort(sort);
+        Genre genre = null;
+
+        if (genreQuery != null && !genreQuery.isBlank()) {
+
+            Optional<Genre> foundGenre = genreRepository.findByDescription(genreQuery);
+
+            if (foundGenre.isEmpty()) {
+                ErrorsUtil.returnGenreError("No such genre found", null, HttpStatus.NOT_FOUND);
+            }
+
+            genre = foundGenre.get();
+        }
+
+        BookFilter filter = new BookFilter(stripToNull(title), stripToNull(author), genre, availableOnly);
+
+        return convertToBookSummaryDTOs(bookRepository.findSummariesMatching(filter,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), bookSort.toSort()), approximateTotal));
+    }
+
+    public BookFacetsDTO findAllByGenres(List<String> genreQueries, String match, boolean availableOnly, Pageable pageable) {
+
+        if (!match.equals(MATCH_ALL_GENRES) && !match.equals(MATCH_ANY_GENRE)) {
+            ErrorsUtil.returnBookError("Genre match must be " + MATCH_ALL_GENRES + " or " + MATCH_ANY_GENRE, null, HttpStatus.BAD_REQUEST);
+        }
+
+        Optional<FacetHits> hits = genreFacetIndex.filter(genreQueries, match.equals(MATCH_ALL_GENRES), availableOnly,
+                (int) pageable.getOffset(), pageable.getPageSize());
+
+        // Right after startup, or with the index disabled, the DataBase filters and counts the books instead
+        if (hits.isEmpty()) {
+            return findAllByGenresInDataBase(genreQueries, match.equals(MATCH_ALL_GENRES), availableOnly, pageable);
+        }
+
+        for (String genreQuery : genreQueries) {
+            if (!genreFacetIndex.hasGenre(genreQuery)) {
+                ErrorsUtil.returnGenreError("No such genre found", null, HttpStatus.NOT_FOUND);
+            }
+        }
+
+        Page<BookSummaryDTO> books = new PageImpl<>(findAllByIdInOrder(hits.get().bookIds()), PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()),
+                hits.get().total());
+
+        return new BookFacetsDTO(books, hits.get().genreCounts());
     }
 
     @Transactional
@@ -99,6 +267,12 @@ public class BookService {
 
         bookValidator.validate(book, bindingResult);
 
+        Optional<byte[]> image = bookDTO.getImg() == null ? Optional.empty() : imageStore.decodeDataUrl(bookDTO.getImg());
+
+        if (bookDTO.getImg() != null && image.isEmpty()) {
+            bindingResult.rejectValue("img", "Cover image must be a PNG, JPEG, GIF or WebP data URL");
+        }
+
         if (bindingResult.hasErrors()) {
             ErrorsUtil.returnBookError("Some fields are invalid.", bindingResult, HttpStatus.FORBIDDEN);
         }
@@ -111,8 +285,13 @@ public class BookService {
         }
 
         book.setGenres(genres);
-        genres.forEach(genre -> genre.getBooks().add(book));
+        book.setImageHash(imageStore.store(image.get()));
         Book savedBook = bookRepository.save(book);
+        // Cards ask for thumbnails right after the book shows up, they're made in the background meanwhile
+        imageThumbnails.generateAll(savedBook.getImageHash());
+        bookRepository.addGenres(savedBook.getId(), genres.stream().map(Genre::getId).toList());
+        bookSearchIndex.add(savedBook);
+        genreFacetIndex.add(savedBook);
 
         return convertToBookDTO(savedBook);
     }
@@ -120,31 +299,66 @@ public class BookService {
     @Transactional
     public void deleteById(Long bookId) {
 
+        accountSummaryRepository.removeLoansOfBook(bookId);
         bookRepository.deleteById(bookId);
+        bookSearchIndex.remove(bookId);
+        genreFacetIndex.remove(bookId);
     }
 
     @Transactional
     public void changeQuantity(Long bookId, String operation) {
 
-        Book book = getBookFromRepository(bookId);
-
-        if (operation.equals("increase")) {
-
-            book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-            book.setCopies(book.getCopies() + 1);
-            bookRepository.save(book);
+        if (operation.equals("increase") && bookRepository.increaseQuantity(bookId) == 0) {
+            ErrorsUtil.returnBookError("Book not found", null, HttpStatus.NOT_FOUND);
         }
 
-        if (operation.equals("decrease")) {
+        if (operation.equals("decrease") && bookRepository.decreaseQuantity(bookId) == 0) {
 
-            if (book.getCopiesAvailable() <= 0 || book.getCopies() <= 0) {
+            Book book = getBookFromRepository(bookId);
+
+            // Hot books keep most of their available copies in the inventory slots rather than the book row
+            if (!takeCopyFromInventorySlots(book) || bookRepository.decreaseCopies(bookId) == 0) {
                 ErrorsUtil.returnBookError("Book quantity is already 0", null, HttpStatus.FORBIDDEN);
             }
+        }
+    }
 
-            book.setCopiesAvailable(book.getCopiesAvailable() - 1);
-            book.setCopies(book.getCopies() - 1);
-            bookRepository.save(book);
+    /**
+     * Spreads available copies of a book over the given number of inventory slots, or moves them back to the book row with 0 slots.
+     * Checkouts of a book with slots lock a random slot row instead of the book row, so they don't queue up behind each other.
+     */
+    @Transactional
+    public void changeInventorySlots(Long bookId, int slots) {
+
+        if (slots < 0 || slots > MAX_INVENTORY_SLOTS) {
+            ErrorsUtil.returnBookError("Inventory slots must be between 0 and " + MAX_INVENTORY_SLOTS, null, HttpStatus.BAD_REQUEST);
         }
+
+        // Slots are locked before the book row, the order checkouts and returns lock them in when a slot is emptied or restocked
+        List<BookInventorySlot> currentSlots = bookInventorySlotRepository.findBySlottedBookId(bookId);
+        Optional<Book> bookOptional = bookRepository.findByIdForUpdate(bookId);
+
+        if (bookOptional.isEmpty()) {
+            ErrorsUtil.returnBookError("Book not found", null, HttpStatus.NOT_FOUND);
+        }
+
+        Book book = bookOptional.get();
+        int copiesAvailable = book.getCopiesAvailable() + currentSlots.stream().mapToInt(BookInventorySlot::getCopiesAvailable).sum();
+
+        bookInventorySlotRepository.deleteAllInBatch(currentSlots);
+
+        List<BookInventorySlot> newSlots = new ArrayList<>();
+
+        for (int slot = 0; slot < slots; slot++) {
+            newSlots.add(new BookInventorySlot(book, slot, copiesAvailable / slots + (slot < copiesAvailable % slots ? 1 : 0)));
+        }
+
+        bookInventorySlotRepository.saveAll(newSlots);
+
+        book.setCopiesAvailable(slots == 0 ? copiesAvailable : 0);
+        book.setInventorySlots(slots);
+        bookRepository.save(book);
+        bookRepository.setStockedSlots(bookId, (int) newSlots.stream().filter(slot -> slot.getCopiesAvailable() > 0).count());
     }
 
     public boolean isBookCheckedOutByPerson(String personEmail, Long bookId) {
@@ -159,49 +373,45 @@ public class BookService {
     @Transactional
     public void checkoutBook(String personEmail, Long bookId) {
 
+        Optional<CirculationResult> result = bookRepository.checkoutInOneStatement(personEmail, bookId);
+
+        if (result.isPresent()) {
+            checkCirculationResult(result.get());
+            return;
+        }
+
         Person person = getPersonFromRepository(personEmail);
         Book book = getBookFromRepository(bookId);
         Optional<Checkout> checkout = getCheckoutOptionalFromRepository(person, book);
 
-        if (book.getCopiesAvailable() <= 0 || book.getCopies() <= 0) {
-            ErrorsUtil.returnBookError("Book quantity is already 0", null, HttpStatus.FORBIDDEN);
-        }
-
         if (checkout.isPresent()) {
             ErrorsUtil.returnBookError("Book is already checked out by this user", null, HttpStatus.FORBIDDEN);
         }
 
-        List<Checkout> currentCheckouts = checkoutRepository.findByCheckoutHolder(person);
-        boolean bookNeedsReturned = false;
-
-        for (Checkout currentCheckout : currentCheckouts) {
+        // One row read instead of walking every current checkout, the summary is kept up to date by each checkout, renewal, return and payment
+        Optional<AccountSummary> accountSummary = accountSummaryRepository.findById(personEmail);
+        LocalDate today = LocalDate.now();
 
-            LocalDate d1 = currentCheckout.getReturnDate();
-            LocalDate d2 = LocalDate.now();
-
-            if (d2.isAfter(d1)) {
-                bookNeedsReturned = true;
-                break;
-            }
+        if (accountSummary.isPresent() && hasOutstandingFeesOrOverdueBooks(accountSummary.get(), today)) {
+            ErrorsUtil.returnPaymentError("You have outstanding fees / overdue books, checkout is unavailable", HttpStatus.FORBIDDEN);
         }
 
-        Optional<Payment> payment = getPaymentOptionalFromRepository(person);
-
-        if (payment.isPresent() && (payment.get().getAmount() > 0 || bookNeedsReturned)) {
-            ErrorsUtil.returnPaymentError("You have outstanding fees / overdue books, checkout is unavailable", HttpStatus.FORBIDDEN);
+        // Checked and taken in one statement, a copy read as available here could already be taken by a concurrent checkout
+        if (!takeCopyFromInventorySlots(book) && bookRepository.decrementCopiesAvailable(bookId) == 0) {
+            ErrorsUtil.returnBookError("Book quantity is already 0", null, HttpStatus.FORBIDDEN);
         }
 
-        if (payment.isEmpty()) {
-            Payment newPayment = new Payment(person, 00.00);
-            paymentRepository.save(newPayment);
+        LocalDate dueDate = today.plusDays(7);
+
+        if (accountSummary.isEmpty()) {
+            openAccountSummary(person, dueDate);
+        } else {
+            accountSummaryRepository.addLoan(personEmail, dueDate);
         }
 
-        Checkout newCheckout = new Checkout(person, book, LocalDate.now(), LocalDate.now().plusDays(7));
+        // Inverse collections are left alone, touching them would load the book's whole checkout history
+        Checkout newCheckout = new Checkout(person, book, today, dueDate);
         checkoutRepository.save(newCheckout);
-
-        book.setCopiesAvailable(book.getCopiesAvailable() - 1);
-        book.getCheckouts().add(newCheckout);
-        bookRepository.save(book);
     }
 
     @Transactional
@@ -221,6 +431,7 @@ public class BookService {
         if (d1.isAfter(d2) || d1.isEqual(d2)) {
             checkout.get().setReturnDate(LocalDate.now().plusDays(7));
             checkoutRepository.save(checkout.get());
+            accountSummaryRepository.refreshEarliestDueDate(personEmail);
         }
 
         if (d1.isBefore(d2)) {
@@ -231,6 +442,13 @@ public class BookService {
     @Transactional
     public void returnBook(String personEmail, Long bookId) {
 
+        Optional<CirculationResult> result = bookRepository.returnInOneStatement(personEmail, bookId);
+
+        if (result.isPresent()) {
+            checkCirculationResult(result.get());
+            return;
+        }
+
         Person person = getPersonFromRepository(personEmail);
         Book book = getBookFromRepository(bookId);
         Optional<Checkout> checkout = getCheckoutOptionalFromRepository(person, book);
@@ -241,6 +459,7 @@ public class BookService {
 
         LocalDate d1 = checkout.get().getReturnDate();
         LocalDate d2 = LocalDate.now();
+        int fees = 0;
 
         if (d1.isBefore(d2)) {
 
@@ -252,19 +471,21 @@ public class BookService {
 
             Payment payment = paymentOptional.get();
 
-            payment.setAmount(payment.getAmount() + (int) ChronoUnit.DAYS.between(d1, d2));
+            fees = (int) ChronoUnit.DAYS.between(d1, d2);
+            payment.setAmount(payment.getAmount() + fees);
             paymentRepository.save(payment);
         }
 
         HistoryRecord historyRecord = new HistoryRecord(person, book, checkout.get().getCheckoutDate(), LocalDate.now());
         historyRecordRepository.save(historyRecord);
 
-        book.getCheckouts().remove(checkout.get());
-        book.getHistoryRecords().add(historyRecord);
-        book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-        bookRepository.save(book);
+        // A slot can be gone if the slots were just redistributed, the book row takes the copy then
+        if (!returnCopyToInventorySlot(book)) {
+            bookRepository.incrementCopiesAvailable(bookId);
+        }
 
         checkoutRepository.deleteById(checkout.get().getId());
+        accountSummaryRepository.removeLoan(personEmail, (double) fees);
     }
 
     public boolean isBookReviewedByPerson(String personEmail, Long bookId) {
@@ -275,6 +496,24 @@ public class BookService {
         return review.isPresent();
     }
 
+    // Flags of a whole page of books with one query per flag, books that don't exist are simply neither checked out nor reviewed
+    public Map<Long, BookStatusDTO> getBookStatuses(String personEmail, List<Long> bookIds) {
+
+        List<Long> ids = distinctBookIds(bookIds);
+        Map<Long, BookStatusDTO> statuses = new LinkedHashMap<>();
+
+        if (ids.isEmpty()) return statuses;
+
+        Set<Long> checkedOut = new HashSet<>(checkoutRepository.findCheckedOutBookIds(personEmail, ids));
+        Set<Long> reviewed = new HashSet<>(reviewRepository.findReviewedBookIds(personEmail, ids));
+
+        for (Long id : ids) {
+            statuses.put(id, new BookStatusDTO(checkedOut.contains(id), reviewed.contains(id)));
+        }
+
+        return statuses;
+    }
+
     @Transactional
     public ReviewDTO reviewBook(String personEmail, Long bookId, ReviewDTO reviewDTO, BindingResult bindingResult) {
 
@@ -301,6 +540,8 @@ public class BookService {
         newReview.setReviewedBook(book);
 
         Review savedReview = reviewRepository.save(newReview);
+        bookRepository.addRating(bookId, savedReview.getRating());
+        bookSearchIndex.reviewed(bookId);
 
         return convertToReviewDTO(savedReview);
     }
@@ -309,6 +550,55 @@ public class BookService {
 //  <-------------------- Service private methods for some code re-usability -------------------->
 //  <-------------------------------------------------------------------------------------------->
 
+    // Only the page of books found in memory is loaded, in the order it was found in. Books deleted by another instance are left out
+    // Books come in id order and genres in description order, like from the genre bitmaps
+    private BookFacetsDTO findAllByGenresInDataBase(List<String> genreQueries, boolean matchAll, boolean availableOnly, Pageable pageable) {
+
+        Map<String, Genre> genres = genreRepository.findAll().stream().collect(Collectors.toMap(Genre::getDescription, Function.identity()));
+
+        for (String genreQuery : genreQueries) {
+            if (!genres.containsKey(genreQuery)) {
+                ErrorsUtil.returnGenreError("No such genre found", null, HttpStatus.NOT_FOUND);
+            }
+        }
+
+        Specification<Book> specification = BookSpecifications.inGenres(genreQueries.stream().map(genres::get).toList(), matchAll);
+
+        if (availableOnly) {
+            specification = specification.and(BookSpecifications.availableNow());
+        }
+
+        Page<BookSummaryDTO> books = convertToBookSummaryDTOs(bookRepository.findSummariesMatching(specification,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), BookSort.ID.toSort())));
+
+        return new BookFacetsDTO(books, new TreeMap<>(bookRepository.countGenresMatching(specification)));
+    }
+
+    private List<BookSummaryDTO> findAllByIdInOrder(List<Long> bookIds) {
+
+        Map<Long, BookSummaryRow> books = bookRepository.findSummariesByIds(bookIds).stream()
+                .collect(Collectors.toMap(BookSummaryRow::id, Function.identity()));
+
+        List<BookSummaryRow> rows = bookIds.stream()
+                .filter(books::containsKey)
+                .map(books::get)
+                .toList();
+
+        return convertToBookSummaryDTOs(rows);
+    }
+
+    // Shared with ReviewService, batch endpoints answer for at most MAX_BATCH_BOOK_IDS books in the requested order
+    static List<Long> distinctBookIds(List<Long> bookIds) {
+
+        List<Long> ids = bookIds.stream().distinct().toList();
+
+        if (ids.size() > MAX_BATCH_BOOK_IDS) {
+            ErrorsUtil.returnBookError("At most " + MAX_BATCH_BOOK_IDS + " book ids can be requested at once", null, HttpStatus.BAD_REQUEST);
+        }
+
+        return ids;
+    }
+
     private Book getBookFromRepository(Long bookId) {
 
         Optional<Book> book = bookRepository.findById(bookId);
@@ -341,19 +631,191 @@ public class BookService {
         return paymentRepository.findByPaymentHolder(person);
     }
 
+    private boolean hasOutstandingFeesOrOverdueBooks(AccountSummary accountSummary, LocalDate today) {
+
+        return accountSummary.getOutstandingFees() > 0
+                || (accountSummary.getEarliestDueDate() != null && accountSummary.getEarliestDueDate().isBefore(today));
+    }
+
+    // First checkout of a person, the payment is only looked up here since every later checkout finds the summary
+    private void openAccountSummary(Person person, LocalDate dueDate) {
+
+        Optional<Payment> payment = getPaymentOptionalFromRepository(person);
+
+        if (payment.isEmpty()) {
+            Payment newPayment = new Payment(person, 00.00);
+            paymentRepository.save(newPayment);
+        }
+
+        accountSummaryRepository.openWithLoan(person.getEmail(), dueDate, payment.map(Payment::getAmount).orElse(00.00));
+    }
+
+    // Same errors as the entity based checkout and return paths report for the same failed checks
+    private void checkCirculationResult(CirculationResult result) {
+
+        switch (result) {
+            case PERSON_NOT_FOUND -> ErrorsUtil.returnPersonError("Person with such email is not found.", null, HttpStatus.NOT_FOUND);
+            case BOOK_NOT_FOUND -> ErrorsUtil.returnBookError("Book not found", null, HttpStatus.NOT_FOUND);
+            case ALREADY_CHECKED_OUT -> ErrorsUtil.returnBookError("Book is already checked out by this user", null, HttpStatus.FORBIDDEN);
+            case NOT_CHECKED_OUT -> ErrorsUtil.returnBookError("This book is not checked out by this user", null, HttpStatus.FORBIDDEN);
+            case OUTSTANDING_FEES -> ErrorsUtil.returnPaymentError("You have outstanding fees / overdue books, checkout is unavailable", HttpStatus.FORBIDDEN);
+            case PAYMENT_MISSING -> ErrorsUtil.returnPaymentError("Payment information is missing", HttpStatus.NOT_FOUND);
+            case NO_COPIES_AVAILABLE -> ErrorsUtil.returnBookError("Book quantity is already 0", null, HttpStatus.FORBIDDEN);
+            case OK -> {
+            }
+        }
+    }
+
+    // Starts at a random slot so concurrent checkouts spread over the slot rows, and falls back to the others while the chosen one is empty
+    private boolean takeCopyFromInventorySlots(Book book) {
+
+        int slots = book.getInventorySlots();
+
+        if (slots == 0) {
+            return false;
+        }
+
+        int firstSlot = randomInventorySlot(book);
+
+        for (int i = 0; i < slots; i++) {
+
+            int slot = (firstSlot + i) % slots;
+
+            if (bookInventorySlotRepository.decrementCopiesAvailable(book.getId(), slot) > 0) {
+                return true;
+            }
+
+            if (bookInventorySlotRepository.takeLastCopy(book.getId(), slot) > 0) {
+                bookRepository.decrementStockedSlots(book.getId());
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // The first copy returned to an empty slot makes the slot count as stocked again
+    private boolean returnCopyToInventorySlot(Book book) {
+
+        if (book.getInventorySlots() == 0) {
+            return false;
+        }
+
+        int slot = randomInventorySlot(book);
+
+        if (bookInventorySlotRepository.incrementCopiesAvailable(book.getId(), slot) > 0) {
+            return true;
+        }
+
+        if (bookInventorySlotRepository.returnFirstCopy(book.getId(), slot) > 0) {
+            bookRepository.incrementStockedSlots(book.getId());
+            return true;
+        }
+
+        return false;
+    }
+
+    private int randomInventorySlot(Book book) {
+
+        return ThreadLocalRandom.current().nextInt(book.getInventorySlots());
+    }
+
+    // Only the whitelisted sorts, each of them is backed by an index
+    private BookSort getBookSort(String sort) {
+
+        Optional<BookSort> bookSort = BookSort.fromParameter(sort);
+
+        if (bookSort.isEmpty()) {
+            ErrorsUtil.returnBookError("Books can only be sorted by " + BookSort.parameters(), null, HttpStatus.BAD_REQUEST);
+        }
+
+        return bookSort.get();
+    }
+
+    // Cursor is "sort:id" followed by the other key values of the sort, Base64 encoded, so clients treat it as opaque and can't mix sort orders.
+    // Title and author are always the last key before the id, so they may contain colons
+    private String encodeCursor(SortedBookSummaryRow book, BookSort sort) {
+
+        List<Object> keys = book.keys();
+        StringBuilder cursor = new StringBuilder(sort.getParameter()).append(':').append(keys.get(keys.size() - 1));
+
+        for (Object key : keys.subList(0, keys.size() - 1)) {
+            cursor.append(':').append(key);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Object> decodeCursor(String cursor, BookSort sort) {
+
+        List<BookSort.SortKey> keys = sort.getKeys();
+
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", keys.size() + 1);
+
+            if (parts[0].equals(sort.getParameter()) && parts.length == keys.size() + 1) {
+
+                List<Object> values = new ArrayList<>();
+
+                for (int i = 0; i < keys.size() - 1; i++) {
+                    values.add(keys.get(i).parser().apply(parts[i + 2]));
+                }
+
+                values.add(keys.get(keys.size() - 1).parser().apply(parts[1]));
+
+                return values;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // Not Base64 or not a number, reported as an invalid cursor below
+        }
+
+        ErrorsUtil.returnBookError("Invalid cursor", null, HttpStatus.BAD_REQUEST);
+        return null;
+    }
+
+    private static String stripToNull(String filter) {
+        return filter == null || filter.isBlank() ? null : filter.strip();
+    }
+
     private Book convertToBook(BookDTO bookDTO) {
-        return modelMapper.map(bookDTO, Book.class);
+        return bookMapper.toBook(bookDTO);
     }
 
     private BookDTO convertToBookDTO(Book book) {
-        return modelMapper.map(book, BookDTO.class);
+
+        BookDTO bookDTO = bookMapper.toBookDTO(book);
+
+        // Only hot books have slots, regular books are returned without the extra query
+        if (book.getInventorySlots() > 0) {
+            bookDTO.setCopiesAvailable(book.getCopiesAvailable() + bookInventorySlotRepository.sumCopiesAvailable(book.getId()));
+        }
+
+        return bookDTO;
+    }
+
+    // Genres of all the books on a page are read with one query, an empty page doesn't ask for them
+    private List<BookSummaryDTO> convertToBookSummaryDTOs(List<BookSummaryRow> rows) {
+
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        return bookMapper.toBookSummaryDTOs(rows, bookRepository.findGenreLinksOfBooks(rows.stream().map(BookSummaryRow::id).toList()));
+    }
+
+    private Page<BookSummaryDTO> convertToBookSummaryDTOs(Page<BookSummaryRow> page) {
+        return new PageImpl<>(convertToBookSummaryDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    private CountedPage<BookSummaryDTO> convertToBookSummaryDTOs(CountedPage<BookSummaryRow> page) {
+        return new CountedPage<>(convertToBookSummaryDTOs(page.getContent()), page.getPageable(), page.getTotalElements(), page.isTotalExact());
     }
 
     private Review convertToReview(ReviewDTO reviewDTO) {
-        return modelMapper.map(reviewDTO, Review.class);
+        return reviewMapper.toReview(reviewDTO);
     }
 
     private ReviewDTO convertToReviewDTO(Review review) {
-        return modelMapper.map(review, ReviewDTO.class);
+        return reviewMapper.toReviewDTO(review);
     }
 }
\ No newline at end of file
@@ -1,34 +1,38 @@
 package com.test.bookstore.bookstore_backend.services;
 
-import com.test.bookstore.bookstore_backend.dto.BookDTO;
 import com.test.bookstore.bookstore_backend.dto.CheckoutDTO;
-import com.test.bookstore.bookstore_backend.entities.Book;
-import com.test.bookstore.bookstore_backend.entities.Checkout;
+import com.test.bookstore.bookstore_backend.entities.AccountSummary;
 import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.AccountSummaryRepository;
 import com.test.bookstore.bookstore_backend.repositories.CheckoutRepository;
+import com.test.bookstore.bookstore_backend.repositories.CurrentCheckoutRow;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
-import org.modelmapper.ModelMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.CheckoutMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class CheckoutService {
 
-    private final ModelMapper modelMapper;
+    private final CheckoutMapper checkoutMapper;
     private final CheckoutRepository checkoutRepository;
     private final PersonRepository personRepository;
+    private final AccountSummaryRepository accountSummaryRepository;
 
     @Autowired
-    public CheckoutService(ModelMapper modelMapper, CheckoutRepository checkoutRepository, PersonRepository personRepository) {
-        this.modelMapper = modelMapper;
+    public CheckoutService(CheckoutMapper checkoutMapper, CheckoutRepository checkoutRepository, PersonRepository personRepository,
+                           AccountSummaryRepository accountSummaryRepository) {
+        this.checkoutMapper = checkoutMapper;
         this.checkoutRepository = checkoutRepository;
         this.personRepository = personRepository;
+        this.accountSummaryRepository = accountSummaryRepository;
     }
 
 //  <------------------------------------------------------------------------------->
@@ -37,41 +41,47 @@ public class CheckoutService {
 
     public int getCurrentCheckoutsCount(String personEmail) {
 
-        Person person = getPersonFromRepository(personEmail);
+        Optional<AccountSummary> accountSummary = accountSummaryRepository.findById(personEmail);
 
-        return checkoutRepository.findByCheckoutHolder(person).size();
-    }
-
-    public List<CheckoutDTO> getCurrentCheckouts(String personEmail) {
+        if (accountSummary.isPresent()) {
+            return accountSummary.get().getActiveLoans();
+        }
 
-        Person person = getPersonFromRepository(personEmail);
+        // People without a summary never checked out a book, the person is still looked up to report an unknown email
+        getPersonFromRepository(personEmail);
 
-        List<CheckoutDTO> response = new ArrayList<>();
+        return 0;
+    }
 
-        List<Checkout> checkouts = checkoutRepository.findByCheckoutHolder(person);
+    public List<CheckoutDTO> getCurrentCheckouts(String personEmail) {
 
-        Map<Checkout, Book> checkoutBookMap = new HashMap<>();
+        List<CurrentCheckoutRow> rows = checkoutRepository.findCurrentCheckoutRows(personEmail);
 
-        for (Checkout checkout : checkouts) {
-            checkoutBookMap.put(checkout, checkout.getCheckedOutBook());
+        if (rows.isEmpty()) {
+            // Nothing checked out, the person is still looked up to report an unknown email
+            getPersonFromRepository(personEmail);
+            return List.of();
         }
 
-        for (Map.Entry<Checkout, Book> entry : checkoutBookMap.entrySet()) {
-            LocalDate d1 = entry.getKey().getReturnDate();
-            LocalDate d2 = LocalDate.now();
-
-            long differenceInTime = ChronoUnit.DAYS.between(d2, d1);
+        LocalDate today = LocalDate.now();
+        List<CheckoutDTO> checkoutDTOs = new ArrayList<>();
+        CheckoutDTO checkoutDTO = null;
+        Long bookId = null;
 
-            BookDTO bookDTO = convertToBookDTO(entry.getValue());
+        for (CurrentCheckoutRow row : rows) {
 
-            CheckoutDTO checkoutDTO = new CheckoutDTO();
-            checkoutDTO.setBookDTO(bookDTO);
-            checkoutDTO.setDaysLeft((int) differenceInTime);
+            if (!row.bookId().equals(bookId)) {
+                bookId = row.bookId();
+                checkoutDTO = checkoutMapper.toCheckoutDTO(row, today);
+                checkoutDTOs.add(checkoutDTO);
+            }
 
-            response.add(checkoutDTO);
+            if (row.genreId() != null) {
+                checkoutDTO.getBookDTO().getGenres().add(checkoutMapper.toGenreDTO(row));
+            }
         }
 
-        return response;
+        return checkoutDTOs;
     }
 
 //  <-------------------------------------------------------------------------------------------->
@@ -88,8 +98,4 @@ public class CheckoutService {
 
         return person.get();
     }
-
-    private BookDTO convertToBookDTO(Book book) {
-        return modelMapper.map(book, BookDTO.class);
-    }
 }
\ No newline at end of file
@@ -6,8 +6,8 @@ import com.test.bookstore.bookstore_backend.entities.Person;
 import com.test.bookstore.bookstore_backend.repositories.DiscussionRepository;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
+import com.test.bookstore.bookstore_backend.utils.mappers.DiscussionMapper;
 import jakarta.transaction.Transactional;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -24,13 +24,13 @@ import java.util.Optional;
 @Service
 public class DiscussionService {
 
-    private final ModelMapper modelMapper;
+    private final DiscussionMapper discussionMapper;
     private final DiscussionRepository discussionRepository;
     private final PersonRepository personRepository;
 
     @Autowired
-    public DiscussionService(ModelMapper modelMapper, DiscussionRepository discussionRepository, PersonRepository personRepository) {
-        this.modelMapper = modelMapper;
+    public DiscussionService(DiscussionMapper discussionMapper, DiscussionRepository discussionRepository, PersonRepository personRepository) {
+        this.discussionMapper = discussionMapper;
         this.discussionRepository = discussionRepository;
         this.personRepository = personRepository;
     }
@@ -141,10 +141,10 @@ public class DiscussionService {
     }
 
     private DiscussionDTO convertToDiscussionDTO(Discussion discussion) {
-        return modelMapper.map(discussion, DiscussionDTO.class);
+        return discussionMapper.toDiscussionDTO(discussion);
     }
 
     private Discussion convertToDiscussion(DiscussionDTO discussionDTO) {
-        return modelMapper.map(discussionDTO, Discussion.class);
+        return discussionMapper.toDiscussion(discussionDTO);
     }
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package com.test.bookstore.bookstore_backend.services;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.entities.Genre;
 import com.test.bookstore.bookstore_backend.repositories.GenreRepository;
-import org.modelmapper.ModelMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.GenreMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -13,12 +13,12 @@ import java.util.stream.Collectors;
 @Service
 public class GenreService {
 
-    private final ModelMapper modelMapper;
+    private final GenreMapper genreMapper;
     private final GenreRepository genreRepository;
 
     @Autowired
-    public GenreService(ModelMapper modelMapper, GenreRepository genreRepository) {
-        this.modelMapper = modelMapper;
+    public GenreService(GenreMapper genreMapper, GenreRepository genreRepository) {
+        this.genreMapper = genreMapper;
         this.genreRepository = genreRepository;
     }
 
@@ -36,6 +36,6 @@ public class GenreService {
 //  <-------------------------------------------------------------------------------------------->
 
     private GenreDTO convertToGenreDTO(Genre genre) {
-        return modelMapper.map(genre, GenreDTO.class);
+        return genreMapper.toGenreDTO(genre);
     }
 }
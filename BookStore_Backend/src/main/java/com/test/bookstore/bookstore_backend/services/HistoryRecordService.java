@@ -1,38 +1,44 @@
 package com.test.bookstore.bookstore_backend.services;
 
-import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.HistoryRecordDTO;
-import com.test.bookstore.bookstore_backend.entities.Book;
-import com.test.bookstore.bookstore_backend.entities.HistoryRecord;
-import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import com.test.bookstore.bookstore_backend.repositories.BookSummaryRow;
 import com.test.bookstore.bookstore_backend.repositories.HistoryRecordRepository;
+import com.test.bookstore.bookstore_backend.repositories.HistoryRecordRow;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
-import org.modelmapper.ModelMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.BookMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.HistoryRecordMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class HistoryRecordService {
 
-    private final ModelMapper modelMapper;
+    private final HistoryRecordMapper historyRecordMapper;
     private final HistoryRecordRepository historyRecordRepository;
     private final PersonRepository personRepository;
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
 
     @Autowired
-    public HistoryRecordService(ModelMapper modelMapper, HistoryRecordRepository historyRecordRepository, PersonRepository personRepository) {
-        this.modelMapper = modelMapper;
+    public HistoryRecordService(HistoryRecordMapper historyRecordMapper, HistoryRecordRepository historyRecordRepository, PersonRepository personRepository,
+                                BookRepository bookRepository, BookMapper bookMapper) {
+        this.historyRecordMapper = historyRecordMapper;
         this.historyRecordRepository = historyRecordRepository;
         this.personRepository = personRepository;
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
     }
 
 //  <------------------------------------------------------------------------------->
@@ -41,41 +47,41 @@ public class HistoryRecordService {
 
     public Page<HistoryRecordDTO> findAllByPersonEmail(String personEmail, Pageable pageable) {
 
-        Person person = getPersonFromRepository(personEmail);
+        // Loading the person would load their payment too, only the email is needed to find the records
+        if (!personRepository.existsByEmail(personEmail)) {
+            ErrorsUtil.returnPersonError("Person with such email is not found.", null, HttpStatus.NOT_FOUND);
+        }
 
-        Page<HistoryRecord> historyRecords = historyRecordRepository.findByHistoryRecordHolder(person, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        Page<HistoryRecordRow> historyRecords = historyRecordRepository.findRowsByPersonEmail(personEmail, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
 
-        List<HistoryRecordDTO> pageContent = new ArrayList<>();
+        // A book read several times is summarized once
+        List<Long> bookIds = historyRecords.stream().map(HistoryRecordRow::bookId).distinct().toList();
+        Map<Long, BookSummaryDTO> books = findBookSummaries(bookIds);
 
-        for (HistoryRecord historyRecord : historyRecords) {
-            HistoryRecordDTO historyRecordDTO = convertToHistoryRecordDTO(historyRecord);
-            historyRecordDTO.setBookDTO(convertToBookDTO(historyRecord.getHistoryRecordedBook()));
-            pageContent.add(historyRecordDTO);
-        }
-
-        return new PageImpl<>(pageContent, historyRecords.getPageable(), historyRecords.getTotalElements());
+        return historyRecords.map(historyRecord -> convertToHistoryRecordDTO(historyRecord, books.get(historyRecord.bookId())));
     }
 
 //  <-------------------------------------------------------------------------------------------->
 //  <-------------------- Service private methods for some code re-usability -------------------->
 //  <-------------------------------------------------------------------------------------------->
 
-    private Person getPersonFromRepository(String personEmail) {
-
-        Optional<Person> person = personRepository.findByEmail(personEmail);
+    private Map<Long, BookSummaryDTO> findBookSummaries(List<Long> bookIds) {
 
-        if (person.isEmpty()) {
-            ErrorsUtil.returnPersonError("Person with such email is not found.", null, HttpStatus.NOT_FOUND);
+        if (bookIds.isEmpty()) {
+            return Map.of();
         }
 
-        return person.get();
-    }
+        List<BookSummaryRow> rows = bookRepository.findSummariesByIds(bookIds);
 
-    private HistoryRecordDTO convertToHistoryRecordDTO(HistoryRecord historyRecord) {
-        return modelMapper.map(historyRecord, HistoryRecordDTO.class);
+        return bookMapper.toBookSummaryDTOs(rows, bookRepository.findGenreLinksOfBooks(bookIds)).stream()
+                .collect(Collectors.toMap(BookSummaryDTO::getId, Function.identity()));
     }
 
-    private BookDTO convertToBookDTO(Book book) {
-        return modelMapper.map(book, BookDTO.class);
+    private HistoryRecordDTO convertToHistoryRecordDTO(HistoryRecordRow historyRecordRow, BookSummaryDTO bookSummaryDTO) {
+
+        HistoryRecordDTO historyRecordDTO = historyRecordMapper.toHistoryRecordDTO(historyRecordRow);
+        historyRecordDTO.setBookDTO(bookSummaryDTO);
+
+        return historyRecordDTO;
     }
 }
@@ -0,0 +1,95 @@
+package com.test.bookstore.bookstore_backend.services;
+
+import com.test.bookstore.bookstore_backend.images.ImageStore;
+import com.test.bookstore.bookstore_backend.images.ImageThumbnails;
+import com.test.bookstore.bookstore_backend.images.StoredImage;
+import com.test.bookstore.bookstore_backend.images.ThumbnailSize;
+import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class ImageService {
+
+    private final ImageStore imageStore;
+    private final ImageThumbnails imageThumbnails;
+    private final long thumbnailWaitMillis;
+
+    @Autowired
+    public ImageService(ImageStore imageStore, ImageThumbnails imageThumbnails, @Value("${thumbnail_wait_millis:2000}") long thumbnailWaitMillis) {
+        this.imageStore = imageStore;
+        this.imageThumbnails = imageThumbnails;
+        this.thumbnailWaitMillis = thumbnailWaitMillis;
+    }
+
+//  <------------------------------------------------------------------------------->
+//  <-------------------- Service public methods for controller -------------------->
+//  <------------------------------------------------------------------------------->
+
+    public StoredImage findByHash(String hash) {
+
+        Optional<StoredImage> image = imageStore.find(hash);
+
+        if (image.isEmpty()) {
+            ErrorsUtil.returnImageError("Image not found", null, HttpStatus.NOT_FOUND);
+        }
+
+        return image.get();
+    }
+
+    // A thumbnail that isn't on disk yet is made on the thumbnail workers, the original stands in when that takes too long
+    public StoredImage findByHash(String hash, String size) {
+
+        Optional<ThumbnailSize> thumbnailSize = ThumbnailSize.fromParameter(size);
+
+        if (thumbnailSize.isEmpty()) {
+            ErrorsUtil.returnImageError("Image size must be small, medium or large", null, HttpStatus.BAD_REQUEST);
+        }
+
+        StoredImage original = findByHash(hash);
+        Optional<StoredImage> thumbnail = imageThumbnails.find(hash, thumbnailSize.get());
+
+        if (thumbnail.isPresent()) return thumbnail.get();
+
+        try {
+            imageThumbnails.thumbnail(hash, thumbnailSize.get()).get(thumbnailWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // The workers are busy or the thumbnail failed, the next request for it tries again
+        }
+
+        return imageThumbnails.find(hash, thumbnailSize.get()).orElse(original.asStandIn());
+    }
+
+    // Used when the server can't send the file itself, the file channel still copies it without a heap buffer per chunk when the target allows it
+    public void transfer(StoredImage image, long position, long count, WritableByteChannel target) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(image.path(), StandardOpenOption.READ)) {
+
+            long transferred = 0;
+
+            while (transferred < count) {
+
+                long sent = channel.transferTo(position + transferred, count - transferred, target);
+
+                // Nothing more to read, the file is shorter than its stored size
+                if (sent == 0) throw new EOFException(image.path().toString());
+
+                transferred += sent;
+            }
+        }
+    }
+}
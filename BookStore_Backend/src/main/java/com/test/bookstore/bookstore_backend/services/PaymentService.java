@@ -3,6 +3,7 @@ package com.test.bookstore.bookstore_backend.services;
 import com.test.bookstore.bookstore_backend.dto.PaymentInfoDTO;
 import com.test.bookstore.bookstore_backend.entities.Payment;
 import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.AccountSummaryRepository;
 import com.test.bookstore.bookstore_backend.repositories.PaymentRepository;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
@@ -22,11 +23,14 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final PersonRepository personRepository;
+    private final AccountSummaryRepository accountSummaryRepository;
 
     @Autowired
-    public PaymentService(PaymentRepository paymentRepository, @Value("${stripe.key.secret}") String secretKey, PersonRepository personRepository) {
+    public PaymentService(PaymentRepository paymentRepository, @Value("${stripe.key.secret}") String secretKey, PersonRepository personRepository,
+                          AccountSummaryRepository accountSummaryRepository) {
         this.paymentRepository = paymentRepository;
         this.personRepository = personRepository;
+        this.accountSummaryRepository = accountSummaryRepository;
         Stripe.apiKey = secretKey;
     }
 
@@ -73,6 +77,7 @@ public class PaymentService {
         payment.setAmount(00.00);
 
         paymentRepository.save(payment);
+        accountSummaryRepository.clearOutstandingFees(personEmail);
     }
 
 //  <-------------------------------------------------------------------------------------------->
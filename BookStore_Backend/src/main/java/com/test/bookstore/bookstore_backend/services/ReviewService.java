@@ -3,28 +3,35 @@ package com.test.bookstore.bookstore_backend.services;
 import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
 import com.test.bookstore.bookstore_backend.entities.Book;
 import com.test.bookstore.bookstore_backend.entities.Review;
+import com.test.bookstore.bookstore_backend.repositories.BookAverageRating;
 import com.test.bookstore.bookstore_backend.repositories.BookRepository;
 import com.test.bookstore.bookstore_backend.repositories.ReviewRepository;
 import com.test.bookstore.bookstore_backend.utils.ErrorsUtil;
-import org.modelmapper.ModelMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.ReviewMapper;
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ReviewService {
 
-    private final ModelMapper modelMapper;
+    private final ReviewMapper reviewMapper;
     private final ReviewRepository reviewRepository;
     private final BookRepository bookRepository;
 
     @Autowired
-    public ReviewService(ModelMapper modelMapper, ReviewRepository reviewRepository, BookRepository bookRepository) {
-        this.modelMapper = modelMapper;
+    public ReviewService(ReviewMapper reviewMapper, ReviewRepository reviewRepository, BookRepository bookRepository) {
+        this.reviewMapper = reviewMapper;
         this.reviewRepository = reviewRepository;
         this.bookRepository = bookRepository;
     }
@@ -47,13 +54,36 @@ public class ReviewService {
 
     public Double getAverageRatingByBookId(Long bookId) {
 
-        Book book = getBookFromRepository(bookId);
+        return getBookFromRepository(bookId).getAverageRating();
+    }
+
+    // Books that don't exist are left out of the result
+    public Map<Long, Double> getAverageRatingsByBookIds(List<Long> bookIds) {
+
+        List<Long> ids = BookService.distinctBookIds(bookIds);
+        Map<Long, Double> ratings = new LinkedHashMap<>();
+
+        if (ids.isEmpty()) return ratings;
 
-        Double rating = reviewRepository.getAverageRatingByReviewedBook(book);
+        Map<Long, Double> found = new HashMap<>();
 
-        if (rating == null) return 0.0;
+        for (BookAverageRating rating : bookRepository.findAverageRatings(ids)) {
+            found.put(rating.bookId(), rating.averageRating());
+        }
+
+        for (Long id : ids) {
+            if (found.containsKey(id)) ratings.put(id, found.get(id));
+        }
+
+        return ratings;
+    }
 
-        return rating;
+    // Rating aggregates on books are only ever incremented, this brings back any that drifted from the review table,
+    // for example after reviews were removed directly in the DataBase
+    @Scheduled(cron = "${book_rating_repair_cron:0 0 3 * * *}")
+    @Transactional
+    public int recalculateBookRatings() {
+        return bookRepository.recalculateRatings();
     }
 
 //  <-------------------------------------------------------------------------------------------->
@@ -72,6 +102,6 @@ public class ReviewService {
     }
 
     private ReviewDTO convertToReviewDTO(Review review) {
-        return modelMapper.map(review, ReviewDTO.class);
+        return reviewMapper.toReviewDTO(review);
     }
 }
@@ -52,6 +52,12 @@ public class ApiExceptionHandler {
         return new ResponseEntity<>(response, e.getHttpStatus());
     }
 
+    @ExceptionHandler(ImageException.class)
+    private ResponseEntity<ImageErrorResponse> handleImageException(ImageException e) {
+        ImageErrorResponse response = new ImageErrorResponse(e.getMessage(), System.currentTimeMillis());
+        return new ResponseEntity<>(response, e.getHttpStatus());
+    }
+
     @ExceptionHandler(PaymentException.class)
     private ResponseEntity<PaymentErrorResponse> handlePaymentException(PaymentException e) {
         PaymentErrorResponse response = new PaymentErrorResponse(e.getMessage(), System.currentTimeMillis());
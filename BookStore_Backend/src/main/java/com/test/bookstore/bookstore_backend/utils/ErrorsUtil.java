@@ -25,6 +25,11 @@ public class ErrorsUtil {
         throw new GenreException(buildErrorMessage(generalMessage, bindingResult), httpStatus);
     }
 
+    public static void returnImageError(String generalMessage, BindingResult bindingResult, HttpStatus httpStatus) {
+
+        throw new ImageException(buildErrorMessage(generalMessage, bindingResult), httpStatus);
+    }
+
     public static void returnPaymentError(String message, HttpStatus httpStatus) {
 
         throw new PaymentException(message, httpStatus);
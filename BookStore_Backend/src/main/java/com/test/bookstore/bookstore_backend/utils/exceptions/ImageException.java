@@ -0,0 +1,15 @@
+package com.test.bookstore.bookstore_backend.utils.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class ImageException extends RuntimeException {
+
+    private final HttpStatus httpStatus;
+
+    public ImageException(String message, HttpStatus httpStatus) {
+        super(message);
+        this.httpStatus = httpStatus;
+    }
+}
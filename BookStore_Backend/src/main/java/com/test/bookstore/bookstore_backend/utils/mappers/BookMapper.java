@@ -0,0 +1,51 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
+import com.test.bookstore.bookstore_backend.dto.GenreDTO;
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.repositories.BookGenreLink;
+import com.test.bookstore.bookstore_backend.repositories.BookSummaryRow;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Mapper(config = MappersConfig.class, uses = GenreMapper.class)
+public interface BookMapper {
+
+    @Mapping(target = "img", ignore = true)
+    BookDTO toBookDTO(Book book);
+
+    @Mapping(target = "imageHash", ignore = true)
+    @Mapping(target = "inventorySlots", ignore = true)
+    @Mapping(target = "ratingCount", ignore = true)
+    @Mapping(target = "ratingSum", ignore = true)
+    @Mapping(target = "checkouts", ignore = true)
+    @Mapping(target = "historyRecords", ignore = true)
+    @Mapping(target = "reviews", ignore = true)
+    Book toBook(BookDTO bookDTO);
+
+    @Mapping(target = "genres", ignore = true)
+    BookSummaryDTO toBookSummaryDTO(BookSummaryRow row);
+
+    @Mapping(target = "id", source = "genreId")
+    @Mapping(target = "description", source = "genreDescription")
+    GenreDTO toGenreDTO(BookGenreLink genreLink);
+
+    // Summaries keep the order of their rows, genres of all the books are read with one query beforehand
+    default List<BookSummaryDTO> toBookSummaryDTOs(List<BookSummaryRow> rows, List<BookGenreLink> genreLinks) {
+
+        Map<Long, List<GenreDTO>> genres = genreLinks.stream()
+                .collect(Collectors.groupingBy(BookGenreLink::bookId, Collectors.mapping(this::toGenreDTO, Collectors.toList())));
+
+        return rows.stream().map(row -> {
+            BookSummaryDTO bookSummaryDTO = toBookSummaryDTO(row);
+            bookSummaryDTO.setGenres(genres.getOrDefault(row.id(), new ArrayList<>()));
+            return bookSummaryDTO;
+        }).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
+import com.test.bookstore.bookstore_backend.dto.CheckoutDTO;
+import com.test.bookstore.bookstore_backend.dto.GenreDTO;
+import com.test.bookstore.bookstore_backend.repositories.CurrentCheckoutRow;
+import org.mapstruct.Context;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+@Mapper(config = MappersConfig.class)
+public interface CheckoutMapper {
+
+    // Genres are added row by row, the book only starts with an empty list
+    @Mapping(target = "bookDTO", source = "row")
+    @Mapping(target = "daysLeft", expression = "java(daysLeft(row.returnDate(), today))")
+    CheckoutDTO toCheckoutDTO(CurrentCheckoutRow row, @Context LocalDate today);
+
+    @Mapping(target = "id", source = "bookId")
+    @Mapping(target = "genres", expression = "java(new java.util.ArrayList<>())")
+    BookSummaryDTO toBookSummaryDTO(CurrentCheckoutRow row);
+
+    @Mapping(target = "id", source = "genreId")
+    @Mapping(target = "description", source = "genreDescription")
+    GenreDTO toGenreDTO(CurrentCheckoutRow row);
+
+    default Integer daysLeft(LocalDate returnDate, LocalDate today) {
+        return (int) ChronoUnit.DAYS.between(today, returnDate);
+    }
+}
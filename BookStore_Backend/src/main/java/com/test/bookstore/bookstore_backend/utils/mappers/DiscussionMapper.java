@@ -0,0 +1,19 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.DiscussionDTO;
+import com.test.bookstore.bookstore_backend.entities.Discussion;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappersConfig.class)
+public interface DiscussionMapper {
+
+    // Person fields are filled by the service, which already has the discussion holder at hand
+    @Mapping(target = "personEmail", ignore = true)
+    @Mapping(target = "personFirstName", ignore = true)
+    @Mapping(target = "personLastName", ignore = true)
+    DiscussionDTO toDiscussionDTO(Discussion discussion);
+
+    @Mapping(target = "discussionHolder", ignore = true)
+    Discussion toDiscussion(DiscussionDTO discussionDTO);
+}
@@ -0,0 +1,15 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.GenreDTO;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappersConfig.class)
+public interface GenreMapper {
+
+    GenreDTO toGenreDTO(Genre genre);
+
+    @Mapping(target = "books", ignore = true)
+    Genre toGenre(GenreDTO genreDTO);
+}
@@ -0,0 +1,13 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.HistoryRecordDTO;
+import com.test.bookstore.bookstore_backend.repositories.HistoryRecordRow;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappersConfig.class)
+public interface HistoryRecordMapper {
+
+    @Mapping(target = "bookDTO", ignore = true)
+    HistoryRecordDTO toHistoryRecordDTO(HistoryRecordRow historyRecordRow);
+}
@@ -0,0 +1,16 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.MapperConfig;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Shared configuration of the DTO mappers. Implementations are generated at compile time as Spring beans,
+ * any entity or DTO field left unmapped fails the build instead of silently staying null.
+ */
+@MapperConfig(componentModel = MappingConstants.ComponentModel.SPRING,
+        injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface MappersConfig {
+}
@@ -0,0 +1,16 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
+import com.test.bookstore.bookstore_backend.entities.Review;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappersConfig.class)
+public interface ReviewMapper {
+
+    ReviewDTO toReviewDTO(Review review);
+
+    @Mapping(target = "personLastName", ignore = true)
+    @Mapping(target = "reviewedBook", ignore = true)
+    Review toReview(ReviewDTO reviewDTO);
+}
@@ -16,9 +16,63 @@ create table if not exists book (
     description text not null,
     copies integer not null check (copies >= 0),
     copies_available integer not null check (copies_available >= 0),
-    img text not null
+    img text,
+    image_hash varchar(64),
+    inventory_slots integer default 0 not null check (inventory_slots >= 0),
+    stocked_slots integer default 0 not null check (stocked_slots >= 0),
+    rating_count integer default 0 not null check (rating_count >= 0),
+    rating_sum decimal(12, 2) default 0 not null,
+    average_rating double precision generated always as (case when rating_count = 0 then 0 else rating_sum / rating_count end) stored,
+    available boolean generated always as (copies_available > 0 or stocked_slots > 0) stored
 );
 
+-- Databases created before hot book inventory slots
+alter table book add column if not exists inventory_slots integer default 0 not null check (inventory_slots >= 0);
+
+-- Databases created before stocked slots, filled from the book_inventory_slot table further below
+alter table book add column if not exists stocked_slots integer default 0 not null check (stocked_slots >= 0);
+
+-- Databases created before rating aggregates, filled from the review table further below
+alter table book add column if not exists rating_count integer default 0 not null check (rating_count >= 0);
+alter table book add column if not exists rating_sum decimal(12, 2) default 0 not null;
+
+-- Databases created before sortable lists
+alter table book add column if not exists average_rating double precision generated always as (case when rating_count = 0 then 0 else rating_sum / rating_count end) stored;
+alter table book add column if not exists available boolean generated always as (copies_available > 0 or stocked_slots > 0) stored;
+
+-- Databases created before the image store, their inline covers are moved out by InlineImageMigration
+alter table book add column if not exists image_hash varchar(64);
+alter table book alter column img drop not null;
+
+create index if not exists book_title_id_idx on book (title, id);
+
+-- One index per BookSort with its keys in their direction, so sorted lists are read from the index instead of being sorted.
+-- Newest is the primary key read backwards
+create index if not exists book_author_id_idx on book (author, id);
+create index if not exists book_average_rating_id_idx on book (average_rating desc, id desc);
+create index if not exists book_rating_count_id_idx on book (rating_count desc, id desc);
+create index if not exists book_available_title_id_idx on book (available desc, title, id);
+
+create extension if not exists pg_trgm;
+
+create index if not exists book_search_document_idx on book using gin (to_tsvector('simple', title || ' ' || author || ' ' || description));
+
+create index if not exists book_title_trgm_idx on book using gin (title gin_trgm_ops);
+
+create index if not exists book_author_trgm_idx on book using gin (author gin_trgm_ops);
+
+create table if not exists book_inventory_slot (
+    id integer generated by default as identity primary key,
+    book_id integer not null references book (id) on delete cascade,
+    slot integer not null,
+    copies_available integer not null check (copies_available >= 0),
+    unique (book_id, slot)
+);
+
+-- Hot books slotted before stocked slots existed get them once
+update book b set stocked_slots = (select count(*) from book_inventory_slot s where s.book_id = b.id and s.copies_available > 0)
+where b.inventory_slots > 0 and b.stocked_slots = 0;
+
 create table if not exists genre (
     id integer generated by default as identity primary key,
     description varchar(50) unique not null
@@ -38,6 +92,8 @@ create table if not exists checkout (
     return_date date not null
 );
 
+create index if not exists checkout_person_email_return_date_idx on checkout (person_email, return_date);
+
 create table if not exists review (
     id integer generated by default as identity primary key,
     person_email varchar(100) not null,
@@ -49,6 +105,11 @@ create table if not exists review (
     review_description text
 );
 
+-- Books reviewed before rating aggregates existed get them once
+update book b set rating_count = r.rating_count, rating_sum = r.rating_sum
+from (select book_id, count(*) as rating_count, sum(rating) as rating_sum from review group by book_id) r
+where r.book_id = b.id and b.rating_count = 0;
+
 create table if not exists history_record (
     id integer generated by default as identity primary key,
     person_email varchar(100) not null references person (email) on delete cascade,
@@ -71,4 +132,38 @@ create table if not exists payment (
     id integer generated by default as identity primary key,
     person_email varchar(100) unique not null references person (email) on delete cascade,
     amount decimal(10, 2) not null
-);
\ No newline at end of file
+);
+
+create table if not exists account_summary (
+    person_email varchar(100) primary key references person (email) on delete cascade,
+    active_loans integer default 0 not null check (active_loans >= 0),
+    earliest_due_date date,
+    outstanding_fees decimal(10, 2) default 0 not null
+);
+
+-- Secrets set through the JWT secret rotation, the newest one signs tokens and replaces jwt_secret. They're kept here so
+-- a rotation survives restarts and is seen by every instance
+create table if not exists jwt_signing_key (
+    id integer generated by default as identity primary key,
+    secret varchar not null,
+    created_at timestamp not null
+);
+
+-- The last role change of every person, tokens issued before it carry the old role. Every instance reloads these, so no
+-- instance keeps trusting such a token. Rows older than the token lifetime are deleted with the next change
+create table if not exists person_revocation (
+    person_email varchar(100) primary key references person (email) on delete cascade,
+    revoked_at timestamp not null
+);
+
+create index if not exists person_revocation_revoked_at_idx on person_revocation (revoked_at);
+
+-- Databases created before account summaries, people with checkouts or a payment get their summary once
+insert into account_summary (person_email, active_loans, earliest_due_date, outstanding_fees)
+select p.email, count(c.id), min(c.return_date), coalesce(max(pay.amount), 0)
+from person p
+left join checkout c on c.person_email = p.email
+left join payment pay on pay.person_email = p.email
+where c.id is not null or pay.id is not null
+group by p.email
+on conflict do nothing;
\ No newline at end of file
@@ -3,7 +3,8 @@ package com.test.bookstore.bookstore_backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// There is no schema in this context, so nothing may read the DataBase in the background
+@SpringBootTest(properties = {"book_search_index_enabled=false", "book_facet_index_enabled=false", "inline_image_migration_enabled=false"})
 class MyBookStoreBackendApplicationTests {
 
     @Test
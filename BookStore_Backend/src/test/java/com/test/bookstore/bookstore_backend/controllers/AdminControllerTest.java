@@ -4,13 +4,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.test.bookstore.bookstore_backend.dto.BookDTO;
 import com.test.bookstore.bookstore_backend.dto.DiscussionDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
+import com.test.bookstore.bookstore_backend.security.dto.requests.JwtSecretRotationDTO;
+import com.test.bookstore.bookstore_backend.security.dto.requests.PersonRoleChangeDTO;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.services.AuthenticationService;
 import com.test.bookstore.bookstore_backend.security.services.PersonDetailsService;
 import com.test.bookstore.bookstore_backend.services.BookService;
 import com.test.bookstore.bookstore_backend.services.DiscussionService;
 import com.test.bookstore.bookstore_backend.utils.exceptions.BookException;
 import com.test.bookstore.bookstore_backend.utils.exceptions.DiscussionException;
 import com.test.bookstore.bookstore_backend.utils.exceptions.GenreException;
+import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,6 +58,7 @@ class AdminControllerTest {
 
     @MockBean private BookService bookService;
     @MockBean private DiscussionService discussionService;
+    @MockBean private AuthenticationService authenticationService;
     @MockBean private JwtUtils jwtUtils;
     @MockBean private PersonDetailsService personDetailsService;
 
@@ -265,6 +272,40 @@ class AdminControllerTest {
         verify(bookService, times(1)).changeQuantity(any(Long.class), any(String.class));
     }
 
+    @Test
+    void changeBookInventorySlots_shouldChangeInventorySlots() throws Exception {
+
+        String url = baseURL + "/inventory-slots/{bookId}";
+
+        doNothing().when(bookService).changeInventorySlots(any(Long.class), anyInt());
+
+        mockMvc.perform(patch(url, bookId)
+                        .with(csrf())
+                        .param("slots", "8")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        verify(bookService, times(1)).changeInventorySlots(bookId, 8);
+    }
+
+    @Test
+    void changeBookInventorySlots_shouldReturnBadRequestIfSlotsIsOutOfRange() throws Exception {
+
+        String url = baseURL + "/inventory-slots/{bookId}";
+        BookException exception = new BookException("Inventory slots must be between 0 and 64 ", HttpStatus.BAD_REQUEST);
+
+        doThrow(exception).when(bookService).changeInventorySlots(any(Long.class), anyInt());
+
+        mockMvc.perform(patch(url, bookId)
+                        .with(csrf())
+                        .param("slots", "65")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Inventory slots must be between 0 and 64 "));
+
+        verify(bookService, times(1)).changeInventorySlots(any(Long.class), anyInt());
+    }
+
     @Test
     void deleteBook_shouldDeleteBookById() throws Exception {
 
@@ -309,7 +350,7 @@ class AdminControllerTest {
         String url = baseURL + "/close-discussion";
         String dtoJson = objectMapper.writeValueAsString(respondedDiscussionDTO1);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(adminEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(adminEmail));
         doNothing().when(discussionService).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
 
         mockMvc.perform(patch(url)
@@ -320,7 +361,7 @@ class AdminControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 
@@ -331,7 +372,7 @@ class AdminControllerTest {
         String dtoJson = objectMapper.writeValueAsString(respondedDiscussionDTO1);
         DiscussionException exception = new DiscussionException("Some fields are invalid. question: Question must be present and contain at least 1 character; ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(adminEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(adminEmail));
         doThrow(exception).when(discussionService).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
 
         mockMvc.perform(patch(url)
@@ -343,7 +384,7 @@ class AdminControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Some fields are invalid. question: Question must be present and contain at least 1 character; "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 
@@ -354,7 +395,7 @@ class AdminControllerTest {
         String dtoJson = objectMapper.writeValueAsString(respondedDiscussionDTO1);
         DiscussionException exception = new DiscussionException("Discussion cannot be closed without administration response ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(adminEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(adminEmail));
         doThrow(exception).when(discussionService).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
 
         mockMvc.perform(patch(url)
@@ -366,7 +407,7 @@ class AdminControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Discussion cannot be closed without administration response "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 
@@ -377,7 +418,7 @@ class AdminControllerTest {
         String dtoJson = objectMapper.writeValueAsString(respondedDiscussionDTO1);
         DiscussionException exception = new DiscussionException("Discussion not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(adminEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(adminEmail));
         doThrow(exception).when(discussionService).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
 
         mockMvc.perform(patch(url)
@@ -389,7 +430,7 @@ class AdminControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Discussion not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 
@@ -400,7 +441,7 @@ class AdminControllerTest {
         String dtoJson = objectMapper.writeValueAsString(respondedDiscussionDTO1);
         DiscussionException exception = new DiscussionException("This discussion is already closed. ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(adminEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(adminEmail));
         doThrow(exception).when(discussionService).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
 
         mockMvc.perform(patch(url)
@@ -412,7 +453,83 @@ class AdminControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("This discussion is already closed. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).updateDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void rotateJwtSecret_shouldRotateSecret() throws Exception {
+
+        String url = baseURL + "/rotate-jwt-secret";
+        String dtoJson = objectMapper.writeValueAsString(new JwtSecretRotationDTO("bmV3U2VjcmV0S2V5VGhhdElzTG9uZ0Vub3VnaEZvckhTMjU2QWxnb3JpdGht"));
+
+        doNothing().when(authenticationService).rotateJwtSecret(any(JwtSecretRotationDTO.class), any(BindingResult.class));
+
+        mockMvc.perform(put(url)
+                        .with(csrf())
+                        .content(dtoJson)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        verify(authenticationService, times(1)).rotateJwtSecret(any(JwtSecretRotationDTO.class), any(BindingResult.class));
+    }
+
+    @Test
+    void rotateJwtSecret_shouldReturnBadRequestIfSecretIsTooWeak() throws Exception {
+
+        String url = baseURL + "/rotate-jwt-secret";
+        String dtoJson = objectMapper.writeValueAsString(new JwtSecretRotationDTO("c2hvcnQ="));
+        PersonException exception = new PersonException("Secret must be a Base64 encoded string of at least 256 bits. ", HttpStatus.BAD_REQUEST);
+
+        doThrow(exception).when(authenticationService).rotateJwtSecret(any(JwtSecretRotationDTO.class), any(BindingResult.class));
+
+        mockMvc.perform(put(url)
+                        .with(csrf())
+                        .content(dtoJson)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Secret must be a Base64 encoded string of at least 256 bits. "));
+
+        verify(authenticationService, times(1)).rotateJwtSecret(any(JwtSecretRotationDTO.class), any(BindingResult.class));
+    }
+
+    @Test
+    void changePersonRole_shouldChangeRole() throws Exception {
+
+        String url = baseURL + "/change-role";
+        String dtoJson = objectMapper.writeValueAsString(new PersonRoleChangeDTO("email@email.com", Role.ROLE_ADMIN));
+
+        doNothing().when(authenticationService).changePersonRole(any(PersonRoleChangeDTO.class), any(BindingResult.class));
+
+        mockMvc.perform(patch(url)
+                        .with(csrf())
+                        .content(dtoJson)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        verify(authenticationService, times(1)).changePersonRole(any(PersonRoleChangeDTO.class), any(BindingResult.class));
+    }
+
+    @Test
+    void changePersonRole_shouldReturnNotFoundIfPersonIsNotFound() throws Exception {
+
+        String url = baseURL + "/change-role";
+        String dtoJson = objectMapper.writeValueAsString(new PersonRoleChangeDTO("email@email.com", Role.ROLE_ADMIN));
+        PersonException exception = new PersonException("Person with such email is not found. Please check the input fields. ", HttpStatus.NOT_FOUND);
+
+        doThrow(exception).when(authenticationService).changePersonRole(any(PersonRoleChangeDTO.class), any(BindingResult.class));
+
+        mockMvc.perform(patch(url)
+                        .with(csrf())
+                        .content(dtoJson)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Person with such email is not found. Please check the input fields. "));
+
+        verify(authenticationService, times(1)).changePersonRole(any(PersonRoleChangeDTO.class), any(BindingResult.class));
+    }
+}
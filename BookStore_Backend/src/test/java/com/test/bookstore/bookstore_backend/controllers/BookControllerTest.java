@@ -2,13 +2,21 @@ package com.test.bookstore.bookstore_backend.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookFacetsDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSliceDTO;
+import com.test.bookstore.bookstore_backend.dto.BookStatusDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSuggestionDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
+import com.test.bookstore.bookstore_backend.repositories.CountedPage;
+import com.test.bookstore.bookstore_backend.search.SuggestionType;
 import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
 import com.test.bookstore.bookstore_backend.security.services.PersonDetailsService;
 import com.test.bookstore.bookstore_backend.services.BookService;
 import com.test.bookstore.bookstore_backend.utils.exceptions.*;
 import com.test.bookstore.bookstore_backend.utils.exceptions.*;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,9 +33,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.validation.BindingResult;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -47,7 +58,8 @@ class BookControllerTest {
     private final String baseURL = "/api/books";
 
     private BookDTO bookDTO1;
-    private BookDTO bookDTO2;
+    private BookSummaryDTO bookSummaryDTO1;
+    private BookSummaryDTO bookSummaryDTO2;
     private ReviewDTO reviewDTO;
     private ReviewDTO savedReviewDTO;
 
@@ -80,15 +92,23 @@ class BookControllerTest {
         bookDTO1.setImg("encodedImage 1");
         bookDTO1.setGenres(List.of(genreDTO1));
 
-        bookDTO2 = new BookDTO();
-        bookDTO2.setId(2L);
-        bookDTO2.setTitle("Title 2");
-        bookDTO2.setAuthor("Author 2");
-        bookDTO2.setDescription("Description 2");
-        bookDTO2.setCopies(10);
-        bookDTO2.setCopiesAvailable(10);
-        bookDTO2.setImg("encodedImage 2");
-        bookDTO2.setGenres(List.of(genreDTO1));
+        bookSummaryDTO1 = new BookSummaryDTO();
+        bookSummaryDTO1.setId(1L);
+        bookSummaryDTO1.setTitle("Title 1");
+        bookSummaryDTO1.setAuthor("Author 1");
+        bookSummaryDTO1.setDescriptionPreview("Description 1");
+        bookSummaryDTO1.setCopies(10);
+        bookSummaryDTO1.setCopiesAvailable(10);
+        bookSummaryDTO1.setGenres(List.of(genreDTO1));
+
+        bookSummaryDTO2 = new BookSummaryDTO();
+        bookSummaryDTO2.setId(2L);
+        bookSummaryDTO2.setTitle("Title 2");
+        bookSummaryDTO2.setAuthor("Author 2");
+        bookSummaryDTO2.setDescriptionPreview("Description 2");
+        bookSummaryDTO2.setCopies(10);
+        bookSummaryDTO2.setCopiesAvailable(10);
+        bookSummaryDTO2.setGenres(List.of(genreDTO1));
 
         reviewDTO = new ReviewDTO();
         reviewDTO.setDate(LocalDateTime.now());
@@ -107,11 +127,11 @@ class BookControllerTest {
     @Test
     void findAll_shouldReturnAllBooksPaginated() throws Exception {
 
-        List<BookDTO> pageContent = List.of(bookDTO1, bookDTO2);
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
         Pageable pageable = PageRequest.of(page, booksPerPage);
-        Page<BookDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+        Page<BookSummaryDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(bookService.findAll(any(Pageable.class))).thenReturn(bookDTOPage);
+        when(bookService.findAll(any(Pageable.class), any(String.class), anyBoolean())).thenReturn(bookDTOPage);
 
         mockMvc.perform(get(baseURL)
                         .param("page", String.valueOf(page))
@@ -120,7 +140,59 @@ class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(bookDTOPage)));
 
-        verify(bookService, times(1)).findAll(any(Pageable.class));
+        verify(bookService, times(1)).findAll(PageRequest.of(page, booksPerPage), BookService.SORT_BY_ID, false);
+    }
+
+    @Test
+    void findAll_shouldPassRequestedSortToService() throws Exception {
+
+        Page<BookSummaryDTO> bookDTOPage = new PageImpl<>(List.of(bookSummaryDTO1), PageRequest.of(page, booksPerPage), 1);
+
+        when(bookService.findAll(any(Pageable.class), any(String.class), anyBoolean())).thenReturn(bookDTOPage);
+
+        mockMvc.perform(get(baseURL)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("sort", "rating")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(bookService, times(1)).findAll(PageRequest.of(page, booksPerPage), "rating", false);
+    }
+
+    @Test
+    void findAll_shouldReturnBadRequestIfSortIsNotSupported() throws Exception {
+
+        BookException exception = new BookException("Books can only be sorted by 'id', 'title', 'author', 'newest', 'rating', 'popularity', 'availability' ",
+                HttpStatus.BAD_REQUEST);
+
+        when(bookService.findAll(any(Pageable.class), any(String.class), anyBoolean())).thenThrow(exception);
+
+        mockMvc.perform(get(baseURL)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("sort", "description")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(exception.getMessage()));
+    }
+
+    @Test
+    void findAllAfter_shouldReturnSliceOfBooksIfNoPageIsRequested() throws Exception {
+
+        BookSliceDTO bookSliceDTO = new BookSliceDTO(List.of(bookSummaryDTO1, bookSummaryDTO2), "nextCursor");
+
+        when(bookService.findAllAfter(any(String.class), any(Integer.class), any(String.class))).thenReturn(bookSliceDTO);
+
+        mockMvc.perform(get(baseURL)
+                        .param("after", "cursor")
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(bookSliceDTO)));
+
+        verify(bookService, times(1)).findAllAfter("cursor", booksPerPage, BookService.SORT_BY_ID);
+        verify(bookService, times(0)).findAll(any(Pageable.class), any(String.class), anyBoolean());
     }
 
     @Test
@@ -159,11 +231,11 @@ class BookControllerTest {
 
         String url = baseURL + "/search/by-title";
 
-        List<BookDTO> pageContent = List.of(bookDTO1, bookDTO2);
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
         Pageable pageable = PageRequest.of(page, booksPerPage);
-        Page<BookDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+        Page<BookSummaryDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(bookService.findAllByTitle(any(String.class), any(Pageable.class))).thenReturn(bookDTOPage);
+        when(bookService.findAllByTitle(any(String.class), any(Pageable.class), any(String.class), anyBoolean())).thenReturn(bookDTOPage);
 
         mockMvc.perform(get(url)
                         .param("page", String.valueOf(page))
@@ -173,7 +245,70 @@ class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(bookDTOPage)));
 
-        verify(bookService, times(1)).findAllByTitle(any(String.class), any(Pageable.class));
+        verify(bookService, times(1)).findAllByTitle(any(String.class), any(Pageable.class), any(String.class), anyBoolean());
+    }
+
+    @Test
+    void searchBooks_shouldReturnBooksFoundByFullTextSearchPaginated() throws Exception {
+
+        String url = baseURL + "/search/full-text";
+
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        Page<BookSummaryDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+
+        when(bookService.searchBooks(any(String.class), any(Pageable.class))).thenReturn(bookDTOPage);
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("query", "titel")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(bookDTOPage)));
+
+        verify(bookService, times(1)).searchBooks("titel", pageable);
+    }
+
+    @Test
+    void searchBooksInIndex_shouldReturnBooksFoundInSearchIndexPaginated() throws Exception {
+
+        String url = baseURL + "/search";
+
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        Page<BookSummaryDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+
+        when(bookService.searchBooksInIndex(any(String.class), any(Pageable.class))).thenReturn(bookDTOPage);
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("query", "\"title 1\" auth*")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(bookDTOPage)));
+
+        verify(bookService, times(1)).searchBooksInIndex("\"title 1\" auth*", pageable);
+    }
+
+    @Test
+    void suggest_shouldReturnSuggestionsForPrefix() throws Exception {
+
+        String url = baseURL + "/suggest";
+
+        List<BookSuggestionDTO> suggestions = List.of(new BookSuggestionDTO("Author 1", SuggestionType.AUTHOR, null),
+                new BookSuggestionDTO("Title 1", SuggestionType.TITLE, 1L));
+
+        when(bookService.suggest(any(String.class))).thenReturn(suggestions);
+
+        mockMvc.perform(get(url)
+                        .param("prefix", "t")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(suggestions)));
+
+        verify(bookService, times(1)).suggest("t");
     }
 
     @Test
@@ -181,11 +316,11 @@ class BookControllerTest {
 
         String url = baseURL + "/search/by-genre";
 
-        List<BookDTO> pageContent = List.of(bookDTO1, bookDTO2);
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
         Pageable pageable = PageRequest.of(page, booksPerPage);
-        Page<BookDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+        Page<BookSummaryDTO> bookDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(bookService.findAllByGenre(any(String.class), any(Pageable.class))).thenReturn(bookDTOPage);
+        when(bookService.findAllByGenre(any(String.class), any(Pageable.class), any(String.class), anyBoolean())).thenReturn(bookDTOPage);
 
         mockMvc.perform(get(url)
                         .param("page", String.valueOf(page))
@@ -195,7 +330,111 @@ class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(bookDTOPage)));
 
-        verify(bookService, times(1)).findAllByGenre(any(String.class), any(Pageable.class));
+        verify(bookService, times(1)).findAllByGenre(any(String.class), any(Pageable.class), any(String.class), anyBoolean());
+    }
+
+    @Test
+    void findAllMatching_shouldReturnBooksMatchingFilters() throws Exception {
+
+        String url = baseURL + "/query";
+
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        Page<BookSummaryDTO> bookDTOPage = new CountedPage<>(pageContent, pageable, 20000, false);
+
+        when(bookService.findAllMatching(any(), any(), any(), anyBoolean(), any(Pageable.class), any(String.class), anyBoolean())).thenReturn(bookDTOPage);
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("title", "title")
+                        .param("genre", "genre")
+                        .param("available-only", "true")
+                        .param("sort", "rating")
+                        .param("approximate-total", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(bookDTOPage)))
+                .andExpect(jsonPath("$.totalElements").value(20000))
+                .andExpect(jsonPath("$.totalExact").value(false));
+
+        verify(bookService, times(1)).findAllMatching("title", null, "genre", true, PageRequest.of(page, booksPerPage), "rating", true);
+    }
+
+    @Test
+    void findAllMatching_shouldNotFilterBooksByDefault() throws Exception {
+
+        String url = baseURL + "/query";
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        when(bookService.findAllMatching(any(), any(), any(), anyBoolean(), any(Pageable.class), any(String.class), anyBoolean())).thenReturn(Page.empty(pageable));
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(bookService, times(1)).findAllMatching(null, null, null, false, pageable, BookService.SORT_BY_ID, false);
+    }
+
+    @Test
+    void findAllMatching_shouldReturnNotFoundIfGenreIsIncorrect() throws Exception {
+
+        String url = baseURL + "/query";
+        GenreException exception = new GenreException("No such genre found ", HttpStatus.NOT_FOUND);
+
+        when(bookService.findAllMatching(any(), any(), any(), anyBoolean(), any(Pageable.class), any(String.class), anyBoolean())).thenThrow(exception);
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("genre", "incorrectGenre")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("No such genre found "));
+    }
+
+    @Test
+    void findAllByGenres_shouldReturnFilteredBooksWithGenreCounts() throws Exception {
+
+        String url = baseURL + "/search/by-genres";
+
+        List<BookSummaryDTO> pageContent = List.of(bookSummaryDTO1, bookSummaryDTO2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        BookFacetsDTO bookFacetsDTO = new BookFacetsDTO(new PageImpl<>(pageContent, pageable, pageContent.size()), Map.of("genre 1", 2L, "genre 2", 1L));
+
+        when(bookService.findAllByGenres(anyList(), any(String.class), anyBoolean(), any(Pageable.class))).thenReturn(bookFacetsDTO);
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .param("genres", "genre 1", "genre 2")
+                        .param("match", "any")
+                        .param("available-only", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(bookFacetsDTO)));
+
+        verify(bookService, times(1)).findAllByGenres(List.of("genre 1", "genre 2"), "any", true, pageable);
+    }
+
+    @Test
+    void findAllByGenres_shouldMatchAllGenresOfAllBooksByDefault() throws Exception {
+
+        String url = baseURL + "/search/by-genres";
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        when(bookService.findAllByGenres(anyList(), any(String.class), anyBoolean(), any(Pageable.class)))
+                .thenReturn(new BookFacetsDTO(new PageImpl<>(List.of(), pageable, 0), Map.of()));
+
+        mockMvc.perform(get(url)
+                        .param("page", String.valueOf(page))
+                        .param("books-per-page", String.valueOf(booksPerPage))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(bookService, times(1)).findAllByGenres(List.of(), BookService.MATCH_ALL_GENRES, false, pageable);
     }
 
     @Test
@@ -204,7 +443,7 @@ class BookControllerTest {
         String url = baseURL + "/search/by-genre";
         GenreException exception = new GenreException("No such genre found ", HttpStatus.NOT_FOUND);
 
-        when(bookService.findAllByGenre(any(String.class), any(Pageable.class))).thenThrow(exception);
+        when(bookService.findAllByGenre(any(String.class), any(Pageable.class), any(String.class), anyBoolean())).thenThrow(exception);
 
         mockMvc.perform(get(url)
                         .param("page", String.valueOf(page))
@@ -214,7 +453,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("No such genre found "));
 
-        verify(bookService, times(1)).findAllByGenre(any(String.class), any(Pageable.class));
+        verify(bookService, times(1)).findAllByGenre(any(String.class), any(Pageable.class), any(String.class), anyBoolean());
     }
 
     @Test
@@ -223,7 +462,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/is-checked-out/{bookId}";
         Boolean isBookCheckedOut = true;
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.isBookCheckedOutByPerson(any(String.class), any(Long.class))).thenReturn(isBookCheckedOut);
 
         mockMvc.perform(get(url, bookId)
@@ -232,7 +471,7 @@ class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string(String.valueOf(isBookCheckedOut)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).isBookCheckedOutByPerson(any(String.class), any(Long.class));
     }
 
@@ -242,7 +481,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/is-checked-out/{bookId}";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(bookService.isBookCheckedOutByPerson(any(String.class), any(Long.class))).thenThrow(exception);
 
         mockMvc.perform(get(url, bookId)
@@ -251,7 +490,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).isBookCheckedOutByPerson(any(String.class), any(Long.class));
     }
 
@@ -261,7 +500,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/is-checked-out/{bookId}";
         BookException exception = new BookException("Book not found ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.isBookCheckedOutByPerson(any(String.class), any(Long.class))).thenThrow(exception);
 
         mockMvc.perform(get(url, invalidBookId)
@@ -270,16 +509,58 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Book not found "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).isBookCheckedOutByPerson(any(String.class), any(Long.class));
     }
 
+    @Test
+    void getBookStatuses_shouldReturnStatusOfEveryRequestedBook() throws Exception {
+
+        String url = baseURL + "/secure/status";
+        Map<Long, BookStatusDTO> statuses = new LinkedHashMap<>();
+        statuses.put(bookId, new BookStatusDTO(true, false));
+        statuses.put(2L, new BookStatusDTO(false, true));
+
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
+        when(bookService.getBookStatuses(personEmail, List.of(bookId, 2L))).thenReturn(statuses);
+
+        mockMvc.perform(get(url).param("ids", "1,2")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1.checkedOut").value(true))
+                .andExpect(jsonPath("$.1.reviewed").value(false))
+                .andExpect(jsonPath("$.2.checkedOut").value(false))
+                .andExpect(jsonPath("$.2.reviewed").value(true));
+
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
+        verify(bookService, times(1)).getBookStatuses(personEmail, List.of(bookId, 2L));
+    }
+
+    @Test
+    void getBookStatuses_shouldReturnBadRequestIfTooManyIdsAreRequested() throws Exception {
+
+        String url = baseURL + "/secure/status";
+        BookException exception = new BookException("At most 100 book ids can be requested at once ", HttpStatus.BAD_REQUEST);
+
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
+        when(bookService.getBookStatuses(any(String.class), anyList())).thenThrow(exception);
+
+        mockMvc.perform(get(url).param("ids", "1,2")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("At most 100 book ids can be requested at once "));
+
+        verify(bookService, times(1)).getBookStatuses(any(String.class), anyList());
+    }
+
     @Test
     void checkoutBook_shouldCreateCheckoutEntityAndUpdateBook() throws Exception {
 
         String url = baseURL + "/secure/checkout/{bookId}";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doNothing().when(bookService).checkoutBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -288,7 +569,7 @@ class BookControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).checkoutBook(any(String.class), any(Long.class));
     }
 
@@ -298,7 +579,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/checkout/{bookId}";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         doThrow(exception).when(bookService).checkoutBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -308,7 +589,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).checkoutBook(any(String.class), any(Long.class));
     }
 
@@ -318,7 +599,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/checkout/{bookId}";
         BookException exception = new BookException("Book not found ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).checkoutBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, invalidBookId)
@@ -328,7 +609,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Book not found "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).checkoutBook(any(String.class), any(Long.class));
     }
 
@@ -338,7 +619,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/checkout/{bookId}";
         BookException exception = new BookException("Book quantity is already 0 ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).checkoutBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -348,7 +629,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Book quantity is already 0 "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).checkoutBook(any(String.class), any(Long.class));
     }
 
@@ -358,7 +639,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/checkout/{bookId}";
         BookException exception = new BookException("Book is already checked out by this user ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).checkoutBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -368,7 +649,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Book is already checked out by this user "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).checkoutBook(any(String.class), any(Long.class));
     }
 
@@ -378,7 +659,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/checkout/{bookId}";
         PaymentException exception = new PaymentException("You have outstanding fees / overdue books, checkout is unavailable", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).checkoutBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -388,7 +669,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("You have outstanding fees / overdue books, checkout is unavailable"));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).checkoutBook(any(String.class), any(Long.class));
     }
 
@@ -397,7 +678,7 @@ class BookControllerTest {
 
         String url = baseURL + "/secure/renew-checkout/{bookId}";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doNothing().when(bookService).renewCheckout(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -406,7 +687,7 @@ class BookControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).renewCheckout(any(String.class), any(Long.class));
     }
 
@@ -416,7 +697,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/renew-checkout/{bookId}";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         doThrow(exception).when(bookService).renewCheckout(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -426,7 +707,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).renewCheckout(any(String.class), any(Long.class));
     }
 
@@ -436,7 +717,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/renew-checkout/{bookId}";
         BookException exception = new BookException("Book not found ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).renewCheckout(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, invalidBookId)
@@ -446,7 +727,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Book not found "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).renewCheckout(any(String.class), any(Long.class));
     }
 
@@ -456,7 +737,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/renew-checkout/{bookId}";
         BookException exception = new BookException("This book is not checked out by this user ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).renewCheckout(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -466,7 +747,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("This book is not checked out by this user "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).renewCheckout(any(String.class), any(Long.class));
     }
 
@@ -476,7 +757,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/renew-checkout/{bookId}";
         BookException exception = new BookException("This book is overdue ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).renewCheckout(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -486,7 +767,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("This book is overdue "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).renewCheckout(any(String.class), any(Long.class));
     }
 
@@ -495,7 +776,7 @@ class BookControllerTest {
 
         String url = baseURL + "/secure/return/{bookId}";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doNothing().when(bookService).returnBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -504,7 +785,7 @@ class BookControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).returnBook(any(String.class), any(Long.class));
     }
 
@@ -514,7 +795,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/return/{bookId}";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         doThrow(exception).when(bookService).returnBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -524,7 +805,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).returnBook(any(String.class), any(Long.class));
     }
 
@@ -534,7 +815,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/return/{bookId}";
         BookException exception = new BookException("Book not found ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).returnBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, invalidBookId)
@@ -544,7 +825,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Book not found "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).returnBook(any(String.class), any(Long.class));
     }
 
@@ -554,7 +835,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/return/{bookId}";
         BookException exception = new BookException("This book is not checked out by this user ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).returnBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -564,7 +845,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("This book is not checked out by this user "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).returnBook(any(String.class), any(Long.class));
     }
 
@@ -574,7 +855,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/return/{bookId}";
         PaymentException exception = new PaymentException("Payment information is missing", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(bookService).returnBook(any(String.class), any(Long.class));
 
         mockMvc.perform(put(url, bookId)
@@ -584,7 +865,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Payment information is missing"));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).returnBook(any(String.class), any(Long.class));
     }
 
@@ -594,7 +875,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/is-reviewed/{bookId}";
         Boolean isBookReviewed = true;
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.isBookReviewedByPerson(any(String.class), any(Long.class))).thenReturn(isBookReviewed);
 
         mockMvc.perform(get(url, bookId)
@@ -603,7 +884,7 @@ class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string(String.valueOf(isBookReviewed)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).isBookReviewedByPerson(any(String.class), any(Long.class));
     }
 
@@ -613,7 +894,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/is-reviewed/{bookId}";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(bookService.isBookReviewedByPerson(any(String.class), any(Long.class))).thenThrow(exception);
 
         mockMvc.perform(get(url, bookId)
@@ -622,7 +903,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).isBookReviewedByPerson(any(String.class), any(Long.class));
     }
 
@@ -632,7 +913,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/is-reviewed/{bookId}";
         BookException exception = new BookException("Book not found ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.isBookReviewedByPerson(any(String.class), any(Long.class))).thenThrow(exception);
 
         mockMvc.perform(get(url, invalidBookId)
@@ -641,7 +922,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Book not found "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).isBookReviewedByPerson(any(String.class), any(Long.class));
     }
 
@@ -651,7 +932,7 @@ class BookControllerTest {
         String url = baseURL + "/secure/review/{bookId}";
         String dtoJson = objectMapper.writeValueAsString(reviewDTO);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class))).thenReturn(savedReviewDTO);
 
         mockMvc.perform(post(url, bookId)
@@ -663,7 +944,7 @@ class BookControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(content().json(objectMapper.writeValueAsString(savedReviewDTO)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class));
     }
 
@@ -674,7 +955,7 @@ class BookControllerTest {
         String dtoJson = objectMapper.writeValueAsString(reviewDTO);
         ReviewException exception = new ReviewException("Some fields are invalid. rating: Rating must be at least 0.5; ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class))).thenThrow(exception);
 
         mockMvc.perform(post(url, bookId)
@@ -686,7 +967,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Some fields are invalid. rating: Rating must be at least 0.5; "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class));
     }
 
@@ -697,7 +978,7 @@ class BookControllerTest {
         String dtoJson = objectMapper.writeValueAsString(reviewDTO);
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(bookService.reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class))).thenThrow(exception);
 
         mockMvc.perform(post(url, bookId)
@@ -709,7 +990,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class));
     }
 
@@ -720,7 +1001,7 @@ class BookControllerTest {
         String dtoJson = objectMapper.writeValueAsString(reviewDTO);
         BookException exception = new BookException("Book not found ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class))).thenThrow(exception);
 
         mockMvc.perform(post(url, invalidBookId)
@@ -732,7 +1013,7 @@ class BookControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Book not found "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class));
     }
 
@@ -743,7 +1024,7 @@ class BookControllerTest {
         String dtoJson = objectMapper.writeValueAsString(reviewDTO);
         ReviewException exception = new ReviewException("This book is already reviewed by this person ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(bookService.reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class))).thenThrow(exception);
 
         mockMvc.perform(post(url, bookId)
@@ -755,7 +1036,7 @@ class BookControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("This book is already reviewed by this person "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(bookService, times(1)).reviewBook(any(String.class), any(Long.class), any(ReviewDTO.class), any(BindingResult.class));
     }
 }
\ No newline at end of file
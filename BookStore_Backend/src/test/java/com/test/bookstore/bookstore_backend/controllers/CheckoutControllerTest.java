@@ -1,13 +1,14 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.CheckoutDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
 import com.test.bookstore.bookstore_backend.security.services.PersonDetailsService;
 import com.test.bookstore.bookstore_backend.services.CheckoutService;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,22 +57,20 @@ class CheckoutControllerTest {
         GenreDTO genreDTO = new GenreDTO();
         genreDTO.setDescription("Genre 1");
 
-        BookDTO bookDTO1 = new BookDTO();
+        BookSummaryDTO bookDTO1 = new BookSummaryDTO();
         bookDTO1.setTitle("Title 1");
         bookDTO1.setAuthor("Author 1");
-        bookDTO1.setDescription("Description 1");
+        bookDTO1.setDescriptionPreview("Description 1");
         bookDTO1.setCopies(10);
         bookDTO1.setCopiesAvailable(10);
-        bookDTO1.setImg("encodedImage 1");
         bookDTO1.setGenres(List.of(genreDTO));
 
-        BookDTO bookDTO2 = new BookDTO();
+        BookSummaryDTO bookDTO2 = new BookSummaryDTO();
         bookDTO2.setTitle("Title 2");
         bookDTO2.setAuthor("Author 2");
-        bookDTO2.setDescription("Description 2");
+        bookDTO2.setDescriptionPreview("Description 2");
         bookDTO2.setCopies(10);
         bookDTO2.setCopiesAvailable(10);
-        bookDTO2.setImg("encodedImage 2");
         bookDTO2.setGenres(List.of(genreDTO));
 
         checkoutDTO1 = new CheckoutDTO();
@@ -89,7 +88,7 @@ class CheckoutControllerTest {
         String url = baseURL + "/current-loans-count";
         Integer checkoutsCount = 2;
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(checkoutService.getCurrentCheckoutsCount(any(String.class))).thenReturn(checkoutsCount);
 
         mockMvc.perform(get(url)
@@ -98,7 +97,7 @@ class CheckoutControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(checkoutsCount)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(checkoutService, times(1)).getCurrentCheckoutsCount(any(String.class));
     }
 
@@ -108,7 +107,7 @@ class CheckoutControllerTest {
         String url = baseURL + "/current-loans-count";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(checkoutService.getCurrentCheckoutsCount(any(String.class))).thenThrow(exception);
 
         mockMvc.perform(get(url)
@@ -117,7 +116,7 @@ class CheckoutControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(checkoutService, times(1)).getCurrentCheckoutsCount(any(String.class));
     }
 
@@ -127,7 +126,7 @@ class CheckoutControllerTest {
         String url = baseURL + "/current-checkouts";
         List<CheckoutDTO> checkoutDTOList = List.of(checkoutDTO1, checkoutDTO2);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(checkoutService.getCurrentCheckouts(any(String.class))).thenReturn(checkoutDTOList);
 
         mockMvc.perform(get(url)
@@ -136,7 +135,7 @@ class CheckoutControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(checkoutDTOList)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(checkoutService, times(1)).getCurrentCheckouts(any(String.class));
     }
 
@@ -146,7 +145,7 @@ class CheckoutControllerTest {
         String url = baseURL + "/current-checkouts";
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(checkoutService.getCurrentCheckouts(any(String.class))).thenThrow(exception);
 
         mockMvc.perform(get(url)
@@ -155,7 +154,7 @@ class CheckoutControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(checkoutService, times(1)).getCurrentCheckouts(any(String.class));
     }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.test.bookstore.bookstore_backend.security.services.PersonDetailsServi
 import com.test.bookstore.bookstore_backend.services.DiscussionService;
 import com.test.bookstore.bookstore_backend.utils.exceptions.DiscussionException;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -95,7 +96,7 @@ class DiscussionControllerTest {
         Pageable pageable = PageRequest.of(page, discussionsPerPage);
         Page<DiscussionDTO> discussionDTOPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(discussionService.findAllByPersonEmail(any(String.class), any(Pageable.class))).thenReturn(discussionDTOPage);
 
         mockMvc.perform(get(baseURL)
@@ -106,7 +107,7 @@ class DiscussionControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(discussionDTOPage)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).findAllByPersonEmail(any(String.class), any(Pageable.class));
     }
 
@@ -115,7 +116,7 @@ class DiscussionControllerTest {
 
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(discussionService.findAllByPersonEmail(any(String.class), any(Pageable.class))).thenThrow(exception);
 
         mockMvc.perform(get(baseURL)
@@ -126,7 +127,7 @@ class DiscussionControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).findAllByPersonEmail(any(String.class), any(Pageable.class));
     }
 
@@ -136,7 +137,7 @@ class DiscussionControllerTest {
         String url = baseURL + "/add-discussion";
         String dtoJson = objectMapper.writeValueAsString(discussionDTO1);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(discussionService.addDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class))).thenReturn(savedDiscussionDTO);
 
         mockMvc.perform(post(url)
@@ -148,7 +149,7 @@ class DiscussionControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(content().json(objectMapper.writeValueAsString(savedDiscussionDTO)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).addDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 
@@ -159,7 +160,7 @@ class DiscussionControllerTest {
         String dtoJson = objectMapper.writeValueAsString(discussionDTO1);
         DiscussionException exception = new DiscussionException("Some fields are invalid. question: Question must be present and contain at least 1 character; ", HttpStatus.FORBIDDEN);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(discussionService.addDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class))).thenThrow(exception);
 
         mockMvc.perform(post(url)
@@ -171,7 +172,7 @@ class DiscussionControllerTest {
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Some fields are invalid. question: Question must be present and contain at least 1 character; "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).addDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 
@@ -182,7 +183,7 @@ class DiscussionControllerTest {
         String dtoJson = objectMapper.writeValueAsString(discussionDTO1);
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(discussionService.addDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class))).thenThrow(exception);
 
         mockMvc.perform(post(url)
@@ -194,7 +195,7 @@ class DiscussionControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(discussionService, times(1)).addDiscussion(any(String.class), any(DiscussionDTO.class), any(BindingResult.class));
     }
 }
\ No newline at end of file
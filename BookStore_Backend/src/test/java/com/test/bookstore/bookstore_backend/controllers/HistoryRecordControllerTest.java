@@ -1,13 +1,14 @@
 package com.test.bookstore.bookstore_backend.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.dto.HistoryRecordDTO;
 import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
 import com.test.bookstore.bookstore_backend.security.services.PersonDetailsService;
 import com.test.bookstore.bookstore_backend.services.HistoryRecordService;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -61,24 +62,22 @@ class HistoryRecordControllerTest {
         GenreDTO genreDTO = new GenreDTO();
         genreDTO.setDescription("Genre");
 
-        BookDTO bookDTO1 = new BookDTO();
+        BookSummaryDTO bookDTO1 = new BookSummaryDTO();
         bookDTO1.setId(1L);
         bookDTO1.setTitle("Title 1");
         bookDTO1.setAuthor("Author 1");
-        bookDTO1.setDescription("Description 1");
+        bookDTO1.setDescriptionPreview("Description 1");
         bookDTO1.setCopies(10);
         bookDTO1.setCopiesAvailable(10);
-        bookDTO1.setImg("encodedImage 1");
         bookDTO1.setGenres(List.of(genreDTO));
 
-        BookDTO bookDTO2 = new BookDTO();
+        BookSummaryDTO bookDTO2 = new BookSummaryDTO();
         bookDTO1.setId(2L);
         bookDTO2.setTitle("Title 1");
         bookDTO2.setAuthor("Author 1");
-        bookDTO2.setDescription("Description 1");
+        bookDTO2.setDescriptionPreview("Description 1");
         bookDTO2.setCopies(10);
         bookDTO2.setCopiesAvailable(10);
-        bookDTO2.setImg("encodedImage 1");
         bookDTO2.setGenres(List.of(genreDTO));
 
         historyRecordDTO1 = new HistoryRecordDTO();
@@ -101,7 +100,7 @@ class HistoryRecordControllerTest {
 
         String personEmail = "email@email.com";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(historyRecordService.findAllByPersonEmail(any(String.class), any(Pageable.class))).thenReturn(historyRecordDTOPage);
 
         mockMvc.perform(get(baseURL)
@@ -112,7 +111,7 @@ class HistoryRecordControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(historyRecordDTOPage)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(historyRecordService, times(1)).findAllByPersonEmail(any(String.class), any(Pageable.class));
     }
 
@@ -123,7 +122,7 @@ class HistoryRecordControllerTest {
 
         String invalidPersonEmail = "invalidEmail@email.com";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(historyRecordService.findAllByPersonEmail(any(String.class), any(Pageable.class))).thenThrow(exception);
 
         mockMvc.perform(get(baseURL)
@@ -134,7 +133,7 @@ class HistoryRecordControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(historyRecordService, times(1)).findAllByPersonEmail(any(String.class), any(Pageable.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.test.bookstore.bookstore_backend.controllers;
+
+import com.test.bookstore.bookstore_backend.images.StoredImage;
+import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
+import com.test.bookstore.bookstore_backend.security.services.PersonDetailsService;
+import com.test.bookstore.bookstore_backend.services.ImageService;
+import com.test.bookstore.bookstore_backend.utils.exceptions.ImageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImageController.class)
+@WithMockUser
+class ImageControllerTest {
+
+    private final String hash = "a".repeat(64);
+    private final String eTag = "\"" + hash + "\"";
+    private final String url = "/api/images/{hash}";
+
+    private byte[] bytes;
+    private StoredImage image;
+
+    @MockBean private ImageService imageService;
+    @MockBean private JwtUtils jwtUtils;
+    @MockBean private PersonDetailsService personDetailsService;
+
+    private final MockMvc mockMvc;
+
+    @Autowired
+    ImageControllerTest(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    @BeforeEach
+    void setUp(@TempDir Path directory) throws Exception {
+
+        bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) i;
+
+        image = new StoredImage(hash, Files.write(directory.resolve(hash), bytes), bytes.length, "image/png", true);
+
+        when(imageService.findByHash(hash)).thenReturn(image);
+        doCallRealMethod().when(imageService).transfer(any(StoredImage.class), anyLong(), anyLong(), any(WritableByteChannel.class));
+    }
+
+    @Test
+    void findByHash_shouldReturnWholeImageWithCachingHeaders() throws Exception {
+
+        mockMvc.perform(get(url, hash))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().bytes(bytes))
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100));
+
+        verify(imageService, times(1)).findByHash(hash);
+    }
+
+    @Test
+    void findByHash_shouldReturnNotModifiedIfClientHasImage() throws Exception {
+
+        mockMvc.perform(get(url, hash)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(imageService, times(0)).transfer(any(StoredImage.class), anyLong(), anyLong(), any(WritableByteChannel.class));
+    }
+
+    @Test
+    void findByHash_shouldReturnPartialContentForRange() throws Exception {
+
+        mockMvc.perform(get(url, hash)
+                        .header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/100"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().bytes(Arrays.copyOfRange(bytes, 10, 20)));
+
+        mockMvc.perform(get(url, hash)
+                        .header(HttpHeaders.RANGE, "bytes=-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 95-99/100"))
+                .andExpect(content().bytes(Arrays.copyOfRange(bytes, 95, 100)));
+    }
+
+    @Test
+    void findByHash_shouldReturnRangeNotSatisfiableIfRangeStartsAfterImage() throws Exception {
+
+        mockMvc.perform(get(url, hash)
+                        .header(HttpHeaders.RANGE, "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */100"));
+    }
+
+    @Test
+    void findByHash_shouldReturnWholeImageIfRangeIsForAnotherETag() throws Exception {
+
+        mockMvc.perform(get(url, hash)
+                        .header(HttpHeaders.RANGE, "bytes=10-19")
+                        .header(HttpHeaders.IF_RANGE, "\"" + "b".repeat(64) + "\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes));
+
+        mockMvc.perform(get(url, hash)
+                        .header(HttpHeaders.RANGE, "bytes=10-19")
+                        .header(HttpHeaders.IF_RANGE, eTag))
+                .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void findByHash_shouldReturnNotFoundIfImageIsNotStored() throws Exception {
+
+        String unknownHash = "b".repeat(64);
+
+        when(imageService.findByHash(unknownHash)).thenThrow(new ImageException("Image not found ", HttpStatus.NOT_FOUND));
+
+        mockMvc.perform(get(url, unknownHash))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Image not found "));
+    }
+
+    @Test
+    void findByHash_shouldReturnThumbnailOfRequestedSize() throws Exception {
+
+        when(imageService.findByHash(hash, "small")).thenReturn(new StoredImage(hash + "-small", image.path(), bytes.length, "image/png", true));
+
+        mockMvc.perform(get(url, hash)
+                        .param("size", "small"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "-small\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"));
+
+        verify(imageService, times(0)).findByHash(hash);
+    }
+
+    @Test
+    void findByHash_shouldNotCacheStandInForThumbnail() throws Exception {
+
+        when(imageService.findByHash(hash, "medium")).thenReturn(new StoredImage(hash + "-medium", image.path(), bytes.length, "image/png", false));
+
+        mockMvc.perform(get(url, hash)
+                        .param("size", "medium"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void findByHash_shouldReturnBadRequestIfSizeIsUnknown() throws Exception {
+
+        when(imageService.findByHash(hash, "huge")).thenThrow(new ImageException("Image size must be small, medium or large ", HttpStatus.BAD_REQUEST));
+
+        mockMvc.perform(get(url, hash)
+                        .param("size", "huge"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Image size must be small, medium or large "));
+    }
+}
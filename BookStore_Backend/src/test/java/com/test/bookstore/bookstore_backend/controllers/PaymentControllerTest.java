@@ -8,6 +8,7 @@ import com.test.bookstore.bookstore_backend.services.PaymentService;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PaymentException;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
 import com.stripe.model.PaymentIntent;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -67,7 +68,7 @@ class PaymentControllerTest {
 
         Double paymentFees = 10.00;
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         when(paymentService.findPaymentFeesByPersonEmail(any(String.class))).thenReturn(paymentFees);
 
         mockMvc.perform(get(baseURL)
@@ -76,7 +77,7 @@ class PaymentControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(objectMapper.writeValueAsString(paymentFees)));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(paymentService, times(1)).findPaymentFeesByPersonEmail(any(String.class));
     }
 
@@ -86,7 +87,7 @@ class PaymentControllerTest {
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
         String invalidPersonEmail = "invalidEmail@email.com";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(invalidPersonEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(invalidPersonEmail));
         when(paymentService.findPaymentFeesByPersonEmail(any(String.class))).thenThrow(exception);
 
         mockMvc.perform(get(baseURL)
@@ -95,7 +96,7 @@ class PaymentControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(paymentService, times(1)).findPaymentFeesByPersonEmail(any(String.class));
     }
 
@@ -125,7 +126,7 @@ class PaymentControllerTest {
 
         String url = baseURL + "/payment-complete";
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doNothing().when(paymentService).stripePayment(any(String.class));
 
         mockMvc.perform(put(url)
@@ -134,7 +135,7 @@ class PaymentControllerTest {
                         .header("Authorization", "Bearer " + jwtToken))
                 .andExpect(status().isNoContent());
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(paymentService, times(1)).stripePayment(any(String.class));
     }
 
@@ -145,7 +146,7 @@ class PaymentControllerTest {
 
         PersonException exception = new PersonException("Person with such email is not found. ", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(paymentService).stripePayment(any(String.class));
 
         mockMvc.perform(put(url)
@@ -155,7 +156,7 @@ class PaymentControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Person with such email is not found. "));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(paymentService, times(1)).stripePayment(any(String.class));
     }
 
@@ -166,7 +167,7 @@ class PaymentControllerTest {
 
         PaymentException exception = new PaymentException("Payment information is missing", HttpStatus.NOT_FOUND);
 
-        when(jwtUtils.extractPersonEmail(any(String.class))).thenReturn(personEmail);
+        when(jwtUtils.extractAllClaims(any(String.class))).thenReturn(Jwts.claims().setSubject(personEmail));
         doThrow(exception).when(paymentService).stripePayment(any(String.class));
 
         mockMvc.perform(put(url)
@@ -176,7 +177,7 @@ class PaymentControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("Payment information is missing"));
 
-        verify(jwtUtils, times(2)).extractPersonEmail(any(String.class));
+        verify(jwtUtils, times(1)).extractAllClaims(any(String.class));
         verify(paymentService, times(1)).stripePayment(any(String.class));
     }
 }
\ No newline at end of file
@@ -21,7 +21,9 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -143,4 +145,22 @@ class ReviewControllerTest {
 
         verify(reviewService, times(1)).getAverageRatingByBookId(any(Long.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAverageRatingsByBookIds_shouldReturnAverageRatingOfEveryFoundBook() throws Exception {
+
+        String url = baseURL + "/average-rating";
+        Map<Long, Double> ratings = new LinkedHashMap<>();
+        ratings.put(bookId, 4.0);
+        ratings.put(2L, 0.0);
+
+        when(reviewService.getAverageRatingsByBookIds(List.of(bookId, 2L, invalidBookId))).thenReturn(ratings);
+
+        mockMvc.perform(get(url).param("ids", "1,2,1000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(ratings)));
+
+        verify(reviewService, times(1)).getAverageRatingsByBookIds(List.of(bookId, 2L, invalidBookId));
+    }
+}
@@ -88,7 +88,7 @@ class AdminControllerIntegrationTest {
         bookDTO.setDescription("Description");
         bookDTO.setCopies(10);
         bookDTO.setCopiesAvailable(10);
-        bookDTO.setImg("Encoded image");
+        bookDTO.setImg("data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==");
         bookDTO.setGenres(List.of(genreDTO1, genreDTO2));
 
         return bookDTO;
@@ -160,7 +160,8 @@ class AdminControllerIntegrationTest {
         assertEquals(requestBody.getDescription(), response.getBody().getDescription());
         assertEquals(requestBody.getCopies(), response.getBody().getCopies());
         assertEquals(requestBody.getCopiesAvailable(), response.getBody().getCopiesAvailable());
-        assertEquals(requestBody.getImg(), response.getBody().getImg());
+        assertNull(response.getBody().getImg());
+        assertNotNull(response.getBody().getImageHash());
     }
 
     @Test
@@ -0,0 +1,83 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageStoreTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 16, 'J', 'F', 'I', 'F'};
+
+    @TempDir
+    private Path directory;
+
+    private ImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new ImageStore(directory.toString());
+    }
+
+    @Test
+    void store_shouldNameFileByHashOfItsBytesAndStoreSameImageOnce() throws IOException {
+
+        String hash = imageStore.store(PNG);
+
+        assertTrue(hash.matches("[0-9a-f]{64}"));
+        assertEquals(hash, imageStore.store(PNG.clone()));
+        assertNotEquals(hash, imageStore.store(JPEG));
+        assertArrayEquals(PNG, Files.readAllBytes(directory.resolve(hash.substring(0, 2)).resolve(hash)));
+
+        try (var files = Files.walk(directory)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void store_shouldRejectBytesThatAreNoSupportedImage() {
+
+        assertThrows(IllegalArgumentException.class, () -> imageStore.store("<svg></svg>".getBytes()));
+    }
+
+    @Test
+    void find_shouldReturnSizeAndContentTypeOfStoredImage() {
+
+        String hash = imageStore.store(JPEG);
+
+        StoredImage image = imageStore.find(hash).orElseThrow();
+
+        assertEquals(hash, image.name());
+        assertEquals(JPEG.length, image.size());
+        assertEquals("image/jpeg", image.contentType());
+        assertEquals("\"" + hash + "\"", image.eTag());
+    }
+
+    @Test
+    void find_shouldReturnEmptyOptionalForUnknownOrMalformedHash() {
+
+        assertTrue(imageStore.find("0".repeat(64)).isEmpty());
+        assertTrue(imageStore.find("../../etc/passwd").isEmpty());
+        assertTrue(imageStore.find(null).isEmpty());
+    }
+
+    @Test
+    void decodeDataUrl_shouldReturnBytesOfSupportedImagesOnly() {
+
+        String png = "data:image/png;base64," + Base64.getEncoder().encodeToString(PNG);
+        String svg = "data:image/svg+xml;base64," + Base64.getEncoder().encodeToString("<svg></svg>".getBytes());
+
+        assertArrayEquals(PNG, imageStore.decodeDataUrl(png).orElseThrow());
+        assertEquals(Optional.empty(), imageStore.decodeDataUrl(svg));
+        assertEquals(Optional.empty(), imageStore.decodeDataUrl("data:image/png;base64,%%%"));
+        assertEquals(Optional.empty(), imageStore.decodeDataUrl("encodedImage 1"));
+    }
+}
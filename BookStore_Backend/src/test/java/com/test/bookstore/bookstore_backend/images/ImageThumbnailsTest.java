@@ -0,0 +1,173 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageThumbnailsTest {
+
+    private static final byte[] WEBP = {'R', 'I', 'F', 'F', 4, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', ' '};
+
+    @TempDir
+    private Path directory;
+
+    private ImageStore imageStore;
+    private ThreadPoolExecutor executor;
+    private ImageThumbnails imageThumbnails;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new ImageStore(directory.resolve("images").toString());
+        // One worker and room for one more thumbnail, so a test can hold the worker and see what waits for it
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        imageThumbnails = new ImageThumbnails(imageStore, directory.resolve("thumbnails"), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void thumbnail_shouldScaleOpaqueImageToWidthOfSizeAsJpeg() throws Exception {
+
+        String hash = imageStore.store(encode(new BufferedImage(1000, 1500, BufferedImage.TYPE_INT_RGB), "png"));
+
+        Path path = imageThumbnails.thumbnail(hash, ThumbnailSize.SMALL).get(10, TimeUnit.SECONDS);
+        BufferedImage thumbnail = ImageIO.read(path.toFile());
+
+        assertEquals(200, thumbnail.getWidth());
+        assertEquals(300, thumbnail.getHeight());
+
+        StoredImage image = imageThumbnails.find(hash, ThumbnailSize.SMALL).orElseThrow();
+
+        assertEquals(hash + "-small", image.name());
+        assertEquals("image/jpeg", image.contentType());
+        assertEquals(Files.size(path), image.size());
+        assertTrue(image.immutable());
+    }
+
+    @Test
+    void thumbnail_shouldKeepTransparentImageAsPng() throws Exception {
+
+        String hash = imageStore.store(encode(new BufferedImage(900, 900, BufferedImage.TYPE_INT_ARGB), "png"));
+
+        imageThumbnails.thumbnail(hash, ThumbnailSize.MEDIUM).get(10, TimeUnit.SECONDS);
+
+        StoredImage image = imageThumbnails.find(hash, ThumbnailSize.MEDIUM).orElseThrow();
+        BufferedImage thumbnail = ImageIO.read(image.path().toFile());
+
+        assertEquals("image/png", image.contentType());
+        assertEquals(400, thumbnail.getWidth());
+        assertTrue(thumbnail.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void thumbnail_shouldUseOriginalIfItIsSmallOrCannotBeRead() throws Exception {
+
+        byte[] small = encode(new BufferedImage(150, 200, BufferedImage.TYPE_INT_RGB), "jpeg");
+        String smallHash = imageStore.store(small);
+        String webpHash = imageStore.store(WEBP);
+
+        imageThumbnails.thumbnail(smallHash, ThumbnailSize.SMALL).get(10, TimeUnit.SECONDS);
+        imageThumbnails.thumbnail(webpHash, ThumbnailSize.LARGE).get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(small, Files.readAllBytes(imageThumbnails.find(smallHash, ThumbnailSize.SMALL).orElseThrow().path()));
+        assertArrayEquals(WEBP, Files.readAllBytes(imageThumbnails.find(webpHash, ThumbnailSize.LARGE).orElseThrow().path()));
+        assertEquals("image/webp", imageThumbnails.find(webpHash, ThumbnailSize.LARGE).orElseThrow().contentType());
+    }
+
+    @Test
+    void thumbnail_shouldShareWorkOfThumbnailBeingMade() throws Exception {
+
+        String hash = imageStore.store(encode(new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB), "png"));
+        CountDownLatch release = holdWorker();
+
+        CompletableFuture<Path> first = imageThumbnails.thumbnail(hash, ThumbnailSize.SMALL);
+        CompletableFuture<Path> second = imageThumbnails.thumbnail(hash, ThumbnailSize.SMALL);
+
+        assertSame(first, second);
+
+        release.countDown();
+        Path path = first.get(10, TimeUnit.SECONDS);
+
+        assertTrue(Files.exists(path));
+        assertTrue(imageThumbnails.thumbnail(hash, ThumbnailSize.SMALL).isDone());
+    }
+
+    @Test
+    void thumbnail_shouldFailAndAllowRetryIfWorkersAreBusy() throws Exception {
+
+        String hash = imageStore.store(encode(new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB), "png"));
+        CountDownLatch release = holdWorker();
+
+        CompletableFuture<Path> queued = imageThumbnails.thumbnail(hash, ThumbnailSize.SMALL);
+        CompletableFuture<Path> rejected = imageThumbnails.thumbnail(hash, ThumbnailSize.MEDIUM);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+
+        release.countDown();
+        queued.get(10, TimeUnit.SECONDS);
+
+        assertNotNull(imageThumbnails.thumbnail(hash, ThumbnailSize.MEDIUM).get(10, TimeUnit.SECONDS));
+        assertTrue(imageThumbnails.find(hash, ThumbnailSize.MEDIUM).isPresent());
+    }
+
+    @Test
+    void find_shouldReturnEmptyIfThumbnailIsMissingOrHashIsInvalid() {
+
+        assertTrue(imageThumbnails.find("a".repeat(64), ThumbnailSize.SMALL).isEmpty());
+        assertTrue(imageThumbnails.find("../secret", ThumbnailSize.SMALL).isEmpty());
+    }
+
+    @Test
+    void scale_shouldKeepAspectRatio() {
+
+        BufferedImage scaled = ImageThumbnails.scale(new BufferedImage(3000, 1000, BufferedImage.TYPE_INT_RGB), 400, BufferedImage.TYPE_INT_RGB);
+
+        assertEquals(400, scaled.getWidth());
+        assertEquals(133, scaled.getHeight());
+    }
+
+    private CountDownLatch holdWorker() throws InterruptedException {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+
+        return release;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, format, bytes);
+
+        // Makes sure the test image is readable before it's stored
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(bytes.toByteArray())));
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.test.bookstore.bookstore_backend.images;
+
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InlineImageMigrationTest {
+
+    private final byte[] image = {1, 2, 3};
+
+    @Mock private BookRepository bookRepository;
+    @Mock private ImageStore imageStore;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @Test
+    void migrate_shouldMoveDataUrlCoversToImageStoreAndSkipOthers() {
+
+        InlineImageMigration migration = new InlineImageMigration(bookRepository, imageStore, transactionManager, false);
+
+        when(bookRepository.findInlineImagesAfter(0L, 50)).thenReturn(List.of(new Object[]{1L, "data:image/png;base64,AQID"}, new Object[]{2L, "encodedImage 2"}));
+        when(bookRepository.findInlineImagesAfter(2L, 50)).thenReturn(List.of());
+        when(imageStore.decodeDataUrl("data:image/png;base64,AQID")).thenReturn(Optional.of(image));
+        when(imageStore.decodeDataUrl("encodedImage 2")).thenReturn(Optional.empty());
+        when(imageStore.store(image)).thenReturn("imageHash 1");
+
+        assertEquals(1, migration.migrate());
+
+        verify(bookRepository, times(1)).moveImageToStore(1L, "imageHash 1");
+        verify(bookRepository, times(0)).moveImageToStore(eq(2L), any(String.class));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void migrateUntilFinished_shouldRetryFailedMigrationUntilItFinishes() {
+
+        InlineImageMigration migration = new InlineImageMigration(bookRepository, imageStore, transactionManager, true);
+
+        when(bookRepository.findInlineImagesAfter(0L, 50))
+                .thenThrow(new RuntimeException("Table BOOK not found "))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, "data:image/png;base64,AQID"}));
+        when(bookRepository.findInlineImagesAfter(1L, 50)).thenReturn(List.of());
+        when(imageStore.decodeDataUrl("data:image/png;base64,AQID")).thenReturn(Optional.of(image));
+        when(imageStore.store(image)).thenReturn("imageHash 1");
+
+        migration.migrateUntilFinished();
+        migration.migrateUntilFinished();
+        migration.migrateUntilFinished();
+
+        verify(bookRepository, times(2)).findInlineImagesAfter(0L, 50);
+        verify(bookRepository, times(1)).moveImageToStore(1L, "imageHash 1");
+    }
+
+    @Test
+    void migrateInBackground_shouldDoNothingIfDisabled() {
+
+        new InlineImageMigration(bookRepository, imageStore, transactionManager, false).migrateInBackground();
+
+        verifyNoInteractions(bookRepository, imageStore, transactionManager);
+    }
+}
@@ -0,0 +1,151 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.*;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+class AccountSummaryRepositoryTest {
+
+    private final String personEmail = "email@email.com";
+
+    private Book book1;
+    private Checkout checkout1;
+    private Checkout checkout2;
+
+    private final AccountSummaryRepository accountSummaryRepository;
+    private final PersonRepository personRepository;
+    private final BookRepository bookRepository;
+    private final GenreRepository genreRepository;
+    private final CheckoutRepository checkoutRepository;
+    private final TestEntityManager entityManager;
+
+    @Autowired
+    AccountSummaryRepositoryTest(AccountSummaryRepository accountSummaryRepository, PersonRepository personRepository, BookRepository bookRepository,
+                                 GenreRepository genreRepository, CheckoutRepository checkoutRepository, TestEntityManager entityManager) {
+        this.accountSummaryRepository = accountSummaryRepository;
+        this.personRepository = personRepository;
+        this.bookRepository = bookRepository;
+        this.genreRepository = genreRepository;
+        this.checkoutRepository = checkoutRepository;
+        this.entityManager = entityManager;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), personEmail, "Password");
+        person.setRole(Role.ROLE_USER);
+        person.setRegisteredAt(LocalDateTime.now());
+        personRepository.save(person);
+
+        Genre genre = genreRepository.save(new Genre("Genre 1"));
+
+        book1 = new Book("Title 1", "Author 1", "Description 1", 10, 9, "encodedImage 1");
+        book1.setGenres(List.of(genre));
+        book1 = bookRepository.save(book1);
+
+        Book book2 = new Book("Title 2", "Author 2", "Description 2", 10, 9, "encodedImage 2");
+        book2.setGenres(List.of(genre));
+        book2 = bookRepository.save(book2);
+
+        checkout1 = checkoutRepository.save(new Checkout(person, book1, LocalDate.now().minusDays(5), LocalDate.now().plusDays(2)));
+        checkout2 = checkoutRepository.save(new Checkout(person, book2, LocalDate.now(), LocalDate.now().plusDays(7)));
+
+        accountSummaryRepository.save(new AccountSummary(personEmail, 2, checkout1.getReturnDate(), 00.00));
+    }
+
+    @Test
+    void openWithLoan_shouldCreateSummaryWithOneLoan() {
+
+        accountSummaryRepository.deleteAll();
+        entityManager.flush();
+
+        assertEquals(1, accountSummaryRepository.openWithLoan(personEmail, checkout2.getReturnDate(), 5.0));
+
+        AccountSummary accountSummary = findAccountSummary();
+
+        assertEquals(1, accountSummary.getActiveLoans());
+        assertEquals(checkout2.getReturnDate(), accountSummary.getEarliestDueDate());
+        assertEquals(5.0, accountSummary.getOutstandingFees());
+    }
+
+    @Test
+    void addLoan_shouldCountLoanAndKeepEarliestDueDate() {
+
+        assertEquals(1, accountSummaryRepository.addLoan(personEmail, LocalDate.now().plusDays(7)));
+        assertEquals(0, accountSummaryRepository.addLoan("invalidEmail@email.com", LocalDate.now().plusDays(7)));
+
+        AccountSummary accountSummary = findAccountSummary();
+
+        assertEquals(3, accountSummary.getActiveLoans());
+        assertEquals(checkout1.getReturnDate(), accountSummary.getEarliestDueDate());
+    }
+
+    @Test
+    void removeLoan_shouldRecalculateEarliestDueDateFromRemainingCheckoutsAndAddFees() {
+
+        checkoutRepository.deleteById(checkout1.getId());
+
+        assertEquals(1, accountSummaryRepository.removeLoan(personEmail, 3.0));
+
+        AccountSummary accountSummary = findAccountSummary();
+
+        assertEquals(1, accountSummary.getActiveLoans());
+        assertEquals(checkout2.getReturnDate(), accountSummary.getEarliestDueDate());
+        assertEquals(3.0, accountSummary.getOutstandingFees());
+    }
+
+    @Test
+    void removeLoansOfBook_shouldRemoveLoanOfEveryHolderOfBook() {
+
+        assertEquals(1, accountSummaryRepository.removeLoansOfBook(book1.getId()));
+
+        AccountSummary accountSummary = findAccountSummary();
+
+        assertEquals(1, accountSummary.getActiveLoans());
+        assertEquals(checkout2.getReturnDate(), accountSummary.getEarliestDueDate());
+    }
+
+    @Test
+    void refreshEarliestDueDate_shouldSeeRenewedCheckout() {
+
+        checkout1.setReturnDate(LocalDate.now().plusDays(9));
+        checkoutRepository.save(checkout1);
+
+        assertEquals(1, accountSummaryRepository.refreshEarliestDueDate(personEmail));
+        assertEquals(checkout2.getReturnDate(), findAccountSummary().getEarliestDueDate());
+    }
+
+    @Test
+    void clearOutstandingFees_shouldSetFeesToZero() {
+
+        accountSummaryRepository.removeLoan(personEmail, 10.0);
+
+        assertEquals(1, accountSummaryRepository.clearOutstandingFees(personEmail));
+        assertEquals(0.0, findAccountSummary().getOutstandingFees());
+    }
+
+    // Bulk updates bypass the persistence context, so the summary is read again from the database
+    private AccountSummary findAccountSummary() {
+
+        entityManager.clear();
+
+        return accountSummaryRepository.findById(personEmail).orElseThrow();
+    }
+}
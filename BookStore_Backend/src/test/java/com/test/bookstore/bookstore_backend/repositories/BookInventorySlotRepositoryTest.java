@@ -0,0 +1,96 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.BookInventorySlot;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+class BookInventorySlotRepositoryTest {
+
+    private Book book;
+
+    private final BookInventorySlotRepository bookInventorySlotRepository;
+    private final BookRepository bookRepository;
+    private final GenreRepository genreRepository;
+
+    @Autowired
+    BookInventorySlotRepositoryTest(BookInventorySlotRepository bookInventorySlotRepository, BookRepository bookRepository, GenreRepository genreRepository) {
+        this.bookInventorySlotRepository = bookInventorySlotRepository;
+        this.bookRepository = bookRepository;
+        this.genreRepository = genreRepository;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        Genre genre = genreRepository.save(new Genre("Genre 1"));
+
+        book = new Book("Title 1", "Author 1", "Description 1", 10, 0, "encodedImage 1");
+        book.setGenres(List.of(genre));
+        book.setInventorySlots(2);
+        book = bookRepository.save(book);
+
+        bookInventorySlotRepository.save(new BookInventorySlot(book, 0, 1));
+        bookInventorySlotRepository.save(new BookInventorySlot(book, 1, 9));
+    }
+
+    @Test
+    void findBySlottedBookId_shouldReturnAllSlotsOfBook() {
+
+        List<BookInventorySlot> slots = bookInventorySlotRepository.findBySlottedBookId(book.getId());
+
+        assertEquals(2, slots.size());
+    }
+
+    @Test
+    void sumCopiesAvailable_shouldReturnSumOfAllSlotsOfBook() {
+
+        assertEquals(10, bookInventorySlotRepository.sumCopiesAvailable(book.getId()));
+        assertEquals(0, bookInventorySlotRepository.sumCopiesAvailable(-1L));
+    }
+
+    @Test
+    void decrementCopiesAvailable_shouldLeaveLastCopyOfSlotToTakeLastCopy() {
+
+        assertEquals(0, bookInventorySlotRepository.decrementCopiesAvailable(book.getId(), 0));
+        assertEquals(1, bookInventorySlotRepository.takeLastCopy(book.getId(), 0));
+        assertEquals(0, bookInventorySlotRepository.takeLastCopy(book.getId(), 0));
+        assertEquals(1, bookInventorySlotRepository.decrementCopiesAvailable(book.getId(), 1));
+        assertEquals(0, bookInventorySlotRepository.takeLastCopy(book.getId(), 1));
+        assertEquals(0, bookInventorySlotRepository.decrementCopiesAvailable(book.getId(), 2));
+        assertEquals(8, bookInventorySlotRepository.sumCopiesAvailable(book.getId()));
+    }
+
+    @Test
+    void incrementCopiesAvailable_shouldOnlyIncrementExistingSlot() {
+
+        assertEquals(1, bookInventorySlotRepository.incrementCopiesAvailable(book.getId(), 1));
+        assertEquals(0, bookInventorySlotRepository.incrementCopiesAvailable(book.getId(), 2));
+        assertEquals(11, bookInventorySlotRepository.sumCopiesAvailable(book.getId()));
+    }
+
+    @Test
+    void returnFirstCopy_shouldOnlyRestockEmptySlot() {
+
+        bookInventorySlotRepository.takeLastCopy(book.getId(), 0);
+
+        assertEquals(0, bookInventorySlotRepository.incrementCopiesAvailable(book.getId(), 0));
+        assertEquals(1, bookInventorySlotRepository.returnFirstCopy(book.getId(), 0));
+        assertEquals(0, bookInventorySlotRepository.returnFirstCopy(book.getId(), 0));
+        assertEquals(0, bookInventorySlotRepository.returnFirstCopy(book.getId(), 1));
+        assertEquals(10, bookInventorySlotRepository.sumCopiesAvailable(book.getId()));
+    }
+}
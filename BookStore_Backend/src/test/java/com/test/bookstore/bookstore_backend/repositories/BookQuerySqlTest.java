@@ -0,0 +1,244 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.utils.RecordingStatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the catalogue query with every combination of its filters and checks the SQL that Hibernate generates for it:
+ * one statement from the book table without joins, with exactly the conditions of the requested filters.
+ */
+@DataJpaTest(properties = RecordingStatementInspector.PROPERTY)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+class BookQuerySqlTest {
+
+    private static final String TITLE = "dragon";
+    private static final String AUTHOR = "LEE";
+
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final List<TestBook> books = new ArrayList<>();
+    private Genre fantasy;
+    private Genre horror;
+
+    @Autowired
+    BookQuerySqlTest(BookRepository bookRepository, JdbcTemplate jdbcTemplate) {
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        jdbcTemplate.update("INSERT INTO genre (description) VALUES ('Fantasy'), ('Horror')");
+        fantasy = new Genre("Fantasy");
+        fantasy.setId(jdbcTemplate.queryForObject("SELECT id FROM genre WHERE description = 'Fantasy'", Long.class));
+        horror = new Genre("Horror");
+        horror.setId(jdbcTemplate.queryForObject("SELECT id FROM genre WHERE description = 'Horror'", Long.class));
+
+        for (int i = 0; i < 32; i++) {
+
+            String title = (i % 2 == 0 ? "The Dragon " : "The Ghost ") + i;
+            String author = i % 3 == 0 ? "Ann Lee" : "Bo Smith";
+            int copiesAvailable = i % 4 == 0 ? 0 : 2;
+            // Hot books keep their copies on slots, the book row has none left. Half of them have all their slots emptied
+            boolean hot = i % 8 == 4;
+            int copiesPerSlot = i % 16 == 4 ? 1 : 0;
+            int stockedSlots = copiesPerSlot > 0 ? 2 : 0;
+
+            jdbcTemplate.update("INSERT INTO book (title, author, description, copies, copies_available, inventory_slots, stocked_slots) " +
+                    "VALUES (?, ?, 'Description', 2, ?, ?, ?)", title, author, copiesAvailable, hot ? 2 : 0, stockedSlots);
+            Long id = jdbcTemplate.queryForObject("SELECT max(id) FROM book", Long.class);
+
+            if (hot) {
+                jdbcTemplate.update("INSERT INTO book_inventory_slot (book_id, slot, copies_available) VALUES (?, 0, ?), (?, 1, ?)", id, copiesPerSlot, id, copiesPerSlot);
+                copiesAvailable = 2 * copiesPerSlot;
+            }
+
+            boolean inFantasy = i % 5 < 2;
+            // Books in both genres must still come back once
+            if (inFantasy) jdbcTemplate.update("INSERT INTO book_genre (book_id, genre_id) VALUES (?, ?)", id, fantasy.getId());
+            boolean inHorror = i % 5 != 0;
+            if (inHorror) jdbcTemplate.update("INSERT INTO book_genre (book_id, genre_id) VALUES (?, ?)", id, horror.getId());
+
+            books.add(new TestBook(id, title, author, inFantasy, inHorror, copiesAvailable));
+        }
+    }
+
+    @Test
+    void findSummariesMatching_shouldGenerateOneStatementWithConditionsOfRequestedFilters() {
+
+        for (int filters = 0; filters < 16; filters++) {
+
+            boolean byTitle = (filters & 1) != 0;
+            boolean byAuthor = (filters & 2) != 0;
+            boolean byGenre = (filters & 4) != 0;
+            boolean available = (filters & 8) != 0;
+            String combination = "title=" + byTitle + ", author=" + byAuthor + ", genre=" + byGenre + ", available=" + available;
+
+            Specification<Book> specification = Specification.where(null);
+            Predicate<TestBook> expected = book -> true;
+
+            if (byTitle) {
+                specification = specification.and(BookSpecifications.titleContains(TITLE));
+                expected = expected.and(book -> book.title().toLowerCase().contains(TITLE));
+            }
+            if (byAuthor) {
+                specification = specification.and(BookSpecifications.authorContains(AUTHOR));
+                expected = expected.and(book -> book.author().toLowerCase().contains(AUTHOR.toLowerCase()));
+            }
+            if (byGenre) {
+                specification = specification.and(BookSpecifications.inGenre(fantasy));
+                expected = expected.and(TestBook::inFantasy);
+            }
+            if (available) {
+                specification = specification.and(BookSpecifications.availableNow());
+                expected = expected.and(book -> book.copiesAvailable() > 0);
+            }
+
+            RecordingStatementInspector.SQL.clear();
+            Page<BookSummaryRow> page = bookRepository.findSummariesMatching(specification, PageRequest.of(0, 100, BookSort.ID.toSort()));
+            List<String> statements = List.copyOf(RecordingStatementInspector.SQL);
+
+            assertEquals(books.stream().filter(expected).map(TestBook::id).toList(), page.getContent().stream().map(BookSummaryRow::id).toList(), combination);
+            assertEquals(books.stream().filter(expected).map(TestBook::copiesAvailable).toList(),
+                    page.getContent().stream().map(BookSummaryRow::copiesAvailable).toList(), combination);
+
+            // The whole result fits on the page, so its total needs no count query
+            assertEquals(1, statements.size(), combination + ": " + statements);
+
+            String sql = statements.get(0);
+            String outerQuery = withoutSubqueries(sql);
+
+            assertFalse(sql.contains(" join "), combination + ": " + sql);
+            assertFalse(sql.contains("distinct"), combination + ": " + sql);
+            assertEquals(1, count(outerQuery, "from book b1_0"), combination + ": " + sql);
+            assertEquals(byTitle ? 1 : 0, count(outerQuery, "b1_0.title ilike ?"), combination + ": " + sql);
+            assertEquals(byAuthor ? 1 : 0, count(outerQuery, "b1_0.author ilike ?"), combination + ": " + sql);
+            assertEquals(byGenre ? 1 : 0, count(outerQuery, "exists(?)"), combination + ": " + sql);
+            assertEquals(available ? 1 : 0, count(outerQuery, "b1_0.available"), combination + ": " + sql);
+            assertEquals(filters == 0 ? 0 : 1, count(outerQuery, " where "), combination + ": " + sql);
+        }
+    }
+
+    @Test
+    void findSummariesMatching_shouldCountBooksOnlyIfPageDoesNotTellTotal() {
+
+        Specification<Book> specification = BookSpecifications.titleContains(TITLE);
+
+        RecordingStatementInspector.SQL.clear();
+        Page<BookSummaryRow> page = bookRepository.findSummariesMatching(specification, PageRequest.of(1, 5, BookSort.TITLE.toSort()));
+        List<String> statements = List.copyOf(RecordingStatementInspector.SQL);
+
+        assertEquals(16, page.getTotalElements());
+        assertEquals(2, statements.size(), statements.toString());
+        assertTrue(statements.get(1).startsWith("select count(b1_0.id) from book b1_0 where b1_0.title ilike ?"), statements.get(1));
+        assertTrue(statements.get(0).contains("order by 2,1 "), statements.get(0));
+    }
+
+    @Test
+    void findSummariesMatching_shouldSelectSameColumnsAsListOfAllBooks() {
+
+        jdbcTemplate.update("UPDATE book SET rating_count = 3, rating_sum = 10 WHERE id = ?", books.get(5).id());
+
+        PageRequest pageRequest = PageRequest.of(0, 100, BookSort.ID.toSort());
+
+        assertEquals(bookRepository.findSummaries(pageRequest).getContent(),
+                bookRepository.findSummariesMatching(Specification.where(null), pageRequest).getContent());
+    }
+
+    @Test
+    void findSummariesMatching_shouldCountTotalIfDataBaseHasNoEstimates() {
+
+        CountedPage<BookSummaryRow> page = bookRepository.findSummariesMatching(BookFilter.NONE, PageRequest.of(0, 5), true);
+
+        assertEquals(32, page.getTotalElements());
+        assertTrue(page.isTotalExact());
+    }
+
+    @Test
+    void inGenres_shouldMatchBooksInAllOrAnyOfGenres() {
+
+        PageRequest pageRequest = PageRequest.of(0, 100, BookSort.ID.toSort());
+
+        assertEquals(books.stream().filter(book -> book.inFantasy() && book.inHorror()).map(TestBook::id).toList(),
+                bookRepository.findSummariesMatching(BookSpecifications.inGenres(List.of(fantasy, horror), true), pageRequest).stream().map(BookSummaryRow::id).toList());
+        assertEquals(books.stream().filter(book -> book.inFantasy() || book.inHorror()).map(TestBook::id).toList(),
+                bookRepository.findSummariesMatching(BookSpecifications.inGenres(List.of(fantasy, horror), false), pageRequest).stream().map(BookSummaryRow::id).toList());
+        assertEquals(32, bookRepository.findSummariesMatching(BookSpecifications.inGenres(List.of(), true), pageRequest).getTotalElements());
+    }
+
+    @Test
+    void countGenresMatching_shouldCountMatchingBooksOfEveryGenreInOneStatement() {
+
+        Specification<Book> specification = BookSpecifications.inGenres(List.of(fantasy), true).and(BookSpecifications.availableNow());
+
+        RecordingStatementInspector.SQL.clear();
+        Map<String, Long> genreCounts = bookRepository.countGenresMatching(specification);
+
+        assertEquals(1, RecordingStatementInspector.SQL.size(), RecordingStatementInspector.SQL.toString());
+        assertEquals(books.stream().filter(book -> book.inFantasy() && book.copiesAvailable() > 0).count(), genreCounts.get("Fantasy"));
+        assertEquals(books.stream().filter(book -> book.inFantasy() && book.inHorror() && book.copiesAvailable() > 0).count(), genreCounts.get("Horror"));
+        assertEquals(Map.of("Fantasy", 0L, "Horror", 0L), bookRepository.countGenresMatching(BookSpecifications.titleContains("nothing")));
+    }
+
+    @Test
+    void titleContains_shouldMatchWildcardsLiterally() {
+
+        assertTrue(bookRepository.findSummariesMatching(BookSpecifications.titleContains("%"), PageRequest.of(0, 10)).isEmpty());
+        assertTrue(bookRepository.findSummariesMatching(BookSpecifications.titleContains("Dragon_"), PageRequest.of(0, 10)).isEmpty());
+        assertEquals(16, bookRepository.findSummariesMatching(BookSpecifications.titleContains("DRAGON "), PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    // Replaces every parenthesized select with (?), the subqueries' own conditions aren't conditions on the books
+    private static String withoutSubqueries(String sql) {
+
+        StringBuilder outer = new StringBuilder();
+        int depth = 0;
+
+        for (int i = 0; i < sql.length(); i++) {
+
+            if (depth == 0 && sql.startsWith("(select ", i)) {
+                outer.append("(?)");
+                depth = 1;
+                i += "(select ".length() - 1;
+            } else if (depth > 0) {
+                if (sql.charAt(i) == '(') depth++;
+                if (sql.charAt(i) == ')') depth--;
+            } else {
+                outer.append(sql.charAt(i));
+            }
+        }
+
+        return outer.toString();
+    }
+
+    private static int count(String sql, String part) {
+        return sql.split(Pattern.quote(part), -1).length - 1;
+    }
+
+    // Copies available on the book row and its slots together, as a list page shows them
+    private record TestBook(Long id, String title, String author, boolean inFantasy, boolean inHorror, int copiesAvailable) {
+    }
+}
@@ -1,17 +1,22 @@
 package com.test.bookstore.bookstore_backend.repositories;
 
 import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.BookInventorySlot;
 import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.entities.Review;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,11 +30,13 @@ class BookRepositoryTest {
     private Book book1;
     private Book book2;
 
+    private final TestEntityManager testEntityManager;
     private final BookRepository bookRepository;
     private final GenreRepository genreRepository;
 
     @Autowired
-    BookRepositoryTest(BookRepository bookRepository, GenreRepository genreRepository) {
+    BookRepositoryTest(TestEntityManager testEntityManager, BookRepository bookRepository, GenreRepository genreRepository) {
+        this.testEntityManager = testEntityManager;
         this.bookRepository = bookRepository;
         this.genreRepository = genreRepository;
     }
@@ -64,7 +71,7 @@ class BookRepositoryTest {
         assertEquals(book1.getDescription(), savedBook.getDescription());
         assertEquals(book1.getCopies(), savedBook.getCopies());
         assertEquals(book1.getCopiesAvailable(), savedBook.getCopiesAvailable());
-        assertEquals(book1.getImg(), savedBook.getImg());
+        assertEquals(book1.getImageHash(), savedBook.getImageHash());
         assertEquals(book1.getGenres(), savedBook.getGenres());
         assertTrue(savedBook.getId() > 0);
     }
@@ -150,33 +157,376 @@ class BookRepositoryTest {
     }
 
     @Test
-    void findByTitleContainingIgnoreCase_shouldReturnBooksByTitleContainingIgnoreCasePaginated() {
+    void findSummaries_shouldReturnPreviewOfDescriptionAndCountCopiesOfInventorySlots() {
+
+        book1.setDescription("D".repeat(BookSummaryRow.DESCRIPTION_PREVIEW_LENGTH + 100));
+        book1.setCopiesAvailable(1);
+        book1.setInventorySlots(2);
+        book1.setRatingCount(2);
+        book1.setRatingSum(7.0);
+        Book savedBook1 = bookRepository.save(book1);
+        testEntityManager.persist(new BookInventorySlot(savedBook1, 0, 3));
+        testEntityManager.persist(new BookInventorySlot(savedBook1, 1, 4));
+        bookRepository.save(book2);
+
+        Page<BookSummaryRow> books = bookRepository.findSummaries(PageRequest.of(0, 5));
+
+        assertEquals(2, books.getTotalElements());
+        assertEquals(new BookSummaryRow(savedBook1.getId(), "Title 1", "Author 1", "D".repeat(BookSummaryRow.DESCRIPTION_PREVIEW_LENGTH), 10, 8, 3.5, "encodedImage 1"),
+                books.getContent().get(0));
+        assertEquals(book2.getCopiesAvailable(), books.getContent().get(1).copiesAvailable());
+        assertEquals(0.0, books.getContent().get(1).averageRating());
+    }
+
+    @Test
+    void findSummariesByTitle_shouldReturnBooksByTitleContainingIgnoreCasePaginated() {
 
         bookRepository.save(book1);
         bookRepository.save(book2);
 
-        Page<Book> books = bookRepository.findByTitleContainingIgnoreCase("ITL", PageRequest.of(0, 5));
+        Page<BookSummaryRow> books = bookRepository.findSummariesByTitle("ITL", PageRequest.of(0, 5));
 
         assertNotNull(books);
         assertEquals(2, books.getTotalElements());
-        assertEquals(book1, books.getContent().get(0));
-        assertEquals(book2, books.getContent().get(1));
+        assertEquals(book1.getId(), books.getContent().get(0).id());
+        assertEquals(book2.getId(), books.getContent().get(1).id());
+        assertEquals(0, bookRepository.findSummariesByTitle("Author", PageRequest.of(0, 5)).getTotalElements());
     }
 
     @Test
-    void findByGenresContains_shouldReturnBooksByGenresContainingPaginated() {
+    void findSummariesByGenre_shouldReturnBooksOfGenrePaginated() {
 
         bookRepository.save(book1);
         bookRepository.save(book2);
 
-        Page<Book> genre1books = bookRepository.findByGenresContains(book1.getGenres().get(0), PageRequest.of(0, 5));
-        Page<Book> genre2books = bookRepository.findByGenresContains(book2.getGenres().get(0), PageRequest.of(0, 5));
+        Page<BookSummaryRow> genre1books = bookRepository.findSummariesByGenre(book1.getGenres().get(0), PageRequest.of(0, 5));
+        Page<BookSummaryRow> genre2books = bookRepository.findSummariesByGenre(book2.getGenres().get(0), PageRequest.of(0, 5));
 
-        assertNotNull(genre1books);
-        assertNotNull(genre2books);
         assertEquals(1, genre1books.getTotalElements());
         assertEquals(1, genre2books.getTotalElements());
-        assertEquals(book1, genre1books.getContent().get(0));
-        assertEquals(book2, genre2books.getContent().get(0));
+        assertEquals(book1.getId(), genre1books.getContent().get(0).id());
+        assertEquals(book2.getId(), genre2books.getContent().get(0).id());
+    }
+
+    @Test
+    void findSummariesSorted_shouldContinueAfterBookWithSameTitle() {
+
+        book2.setTitle(book1.getTitle());
+        Book savedBook1 = bookRepository.save(book1);
+        Book savedBook2 = bookRepository.save(book2);
+
+        List<SortedBookSummaryRow> firstSlice = bookRepository.findSummariesSorted(BookSort.TITLE, null, 1);
+        List<SortedBookSummaryRow> nextSlice = bookRepository.findSummariesSorted(BookSort.TITLE, firstSlice.get(0).keys(), 5);
+
+        assertEquals(savedBook1.getId(), firstSlice.get(0).book().id());
+        assertEquals(List.of(savedBook1.getTitle(), savedBook1.getId()), firstSlice.get(0).keys());
+        assertEquals(List.of(savedBook2.getId()), nextSlice.stream().map(row -> row.book().id()).toList());
+        assertEquals(List.of(savedBook2.getId()), bookRepository.findSummariesSorted(BookSort.ID, List.of(savedBook1.getId()), 5).stream().map(row -> row.book().id()).toList());
+    }
+
+    @Test
+    void findSummariesSorted_shouldReturnSameOrderInSlicesAsSortedPage() {
+
+        bookRepository.save(book1);
+        bookRepository.save(book2);
+        insertSortableBook("Title C", "Author B", 0, 0, 3, 12.0);
+        insertSortableBook("Title A", "Author B", 2, 0, 3, 12.0);
+        insertSortableBook("Title B", "Author A", 0, 2, 1, 5.0);
+        insertSortableBook("Title A", "Author C", 1, 0, 0, 0.0);
+        testEntityManager.clear();
+
+        for (BookSort sort : BookSort.values()) {
+
+            List<Long> sortedPage = bookRepository.findSummaries(PageRequest.of(0, 10, sort.toSort())).stream().map(BookSummaryRow::id).toList();
+            List<Long> slices = new ArrayList<>();
+            List<Object> after = null;
+
+            // Slices of two, each continuing after the keys of the previous slice's last book
+            do {
+                List<SortedBookSummaryRow> slice = bookRepository.findSummariesSorted(sort, after, 2);
+                slice.forEach(row -> slices.add(row.book().id()));
+                after = slice.size() < 2 ? null : slice.get(slice.size() - 1).keys();
+            } while (after != null);
+
+            assertEquals(6, sortedPage.size(), sort.name());
+            assertEquals(sortedPage, slices, sort.name());
+        }
+    }
+
+    @Test
+    void findSummariesSorted_shouldOrderByKeysOfSort() {
+
+        bookRepository.save(book1);
+        bookRepository.save(book2);
+        Long inStock = insertSortableBook("Title B", "Author B", 1, 0, 1, 3.0);
+        Long hot = insertSortableBook("Title C", "Author A", 0, 2, 4, 18.0);
+        Long outOfStock = insertSortableBook("Title A", "Author C", 0, 0, 2, 8.0);
+        Long soldOutHot = insertSortableBook("Title 0", "Author D", 0, 2, 0, 0.0);
+
+        // Both slots of the sold out hot book were emptied
+        bookRepository.decrementStockedSlots(soldOutHot);
+        bookRepository.decrementStockedSlots(soldOutHot);
+
+        List<Long> inserted = List.of(inStock, hot, outOfStock, soldOutHot);
+
+        assertEquals(List.of(hot, outOfStock, inStock, soldOutHot), sortedIds(BookSort.RATING, inserted));
+        assertEquals(List.of(hot, outOfStock, inStock, soldOutHot), sortedIds(BookSort.POPULARITY, inserted));
+        assertEquals(List.of(inStock, hot, soldOutHot, outOfStock), sortedIds(BookSort.AVAILABILITY, inserted));
+        assertEquals(List.of(hot, inStock, outOfStock, soldOutHot), sortedIds(BookSort.AUTHOR, inserted));
+        assertEquals(List.of(soldOutHot, outOfStock, hot, inStock), sortedIds(BookSort.NEWEST, inserted));
+        assertEquals(List.of(4.5, hot), bookRepository.findSummariesSorted(BookSort.RATING, null, 1).get(0).keys());
+    }
+
+    @Test
+    void findGenreLinksOfBooks_shouldReturnGenresOfGivenBooksOnly() {
+
+        Book savedBook1 = bookRepository.save(book1);
+        bookRepository.save(book2);
+
+        assertEquals(List.of(new BookGenreLink(savedBook1.getId(), book1.getGenres().get(0).getId(), "Genre 1")),
+                bookRepository.findGenreLinksOfBooks(List.of(savedBook1.getId())));
+        assertEquals(2, bookRepository.findSummariesByIds(List.of(savedBook1.getId(), book2.getId())).size());
+    }
+
+    @Test
+    void findInlineImagesAfter_shouldReturnOnlyCoversNotMovedToImageStore() {
+
+        // Saved with an image hash, so they're already in the image store
+        bookRepository.save(book1);
+        bookRepository.save(book2);
+        Long inlineBookId = insertBookWithInlineImage("Title 3", "data:image/png;base64,AAAA");
+
+        List<Object[]> inlineImages = bookRepository.findInlineImagesAfter(0L, 10);
+
+        assertEquals(1, inlineImages.size());
+        assertEquals(inlineBookId, ((Number) inlineImages.get(0)[0]).longValue());
+        assertEquals("data:image/png;base64,AAAA", inlineImages.get(0)[1]);
+        assertTrue(bookRepository.findInlineImagesAfter(inlineBookId, 10).isEmpty());
+    }
+
+    @Test
+    void moveImageToStore_shouldSetHashAndClearInlineImage() {
+
+        bookRepository.save(book1);
+        bookRepository.save(book2);
+        Long inlineBookId = insertBookWithInlineImage("Title 3", "data:image/png;base64,AAAA");
+
+        assertEquals(1, bookRepository.moveImageToStore(inlineBookId, "hash"));
+        assertEquals(0, bookRepository.moveImageToStore(inlineBookId, "other hash"));
+        testEntityManager.clear();
+
+        assertEquals("hash", bookRepository.findById(inlineBookId).orElseThrow().getImageHash());
+        assertTrue(bookRepository.findInlineImagesAfter(0L, 10).isEmpty());
+    }
+
+    @Test
+    void search_shouldReturnBooksMatchingTitleAuthorOrDescriptionWithTitleMatchesFirst() {
+
+        book2.setDescription("Description mentioning title 1");
+        bookRepository.save(book1);
+        bookRepository.save(book2);
+
+        Page<BookSummaryRow> books = bookRepository.search("TITLE 1", PageRequest.of(0, 5));
+        Page<BookSummaryRow> authorBooks = bookRepository.search("author 2", PageRequest.of(0, 5));
+
+        assertEquals(2, books.getTotalElements());
+        assertEquals(book1.getId(), books.getContent().get(0).id());
+        assertEquals(book2.getId(), books.getContent().get(1).id());
+        assertEquals("Description mentioning title 1", books.getContent().get(1).descriptionPreview());
+        assertEquals(1, authorBooks.getTotalElements());
+        assertEquals(book2.getId(), authorBooks.getContent().get(0).id());
+    }
+
+    @Test
+    void search_shouldReturnEmptyPageIfQueryHasNoWords() {
+
+        bookRepository.save(book1);
+
+        Page<BookSummaryRow> books = bookRepository.search(" %_! ", PageRequest.of(0, 5));
+
+        assertTrue(books.isEmpty());
+    }
+
+    @Test
+    void decrementCopiesAvailable_shouldDecrementOnlyWhileCopiesAreAvailable() {
+
+        book1.setCopiesAvailable(1);
+        Book savedBook = bookRepository.save(book1);
+
+        assertEquals(1, bookRepository.decrementCopiesAvailable(savedBook.getId()));
+        assertEquals(0, bookRepository.decrementCopiesAvailable(savedBook.getId()));
+
+        testEntityManager.clear();
+
+        assertEquals(0, bookRepository.findById(savedBook.getId()).get().getCopiesAvailable());
+    }
+
+    @Test
+    void incrementCopiesAvailable_shouldNotIncrementAboveCopies() {
+
+        book1.setCopiesAvailable(9);
+        Book savedBook = bookRepository.save(book1);
+
+        assertEquals(1, bookRepository.incrementCopiesAvailable(savedBook.getId()));
+        assertEquals(0, bookRepository.incrementCopiesAvailable(savedBook.getId()));
+
+        testEntityManager.clear();
+
+        assertEquals(10, bookRepository.findById(savedBook.getId()).get().getCopiesAvailable());
+    }
+
+    @Test
+    void decreaseQuantity_shouldDecreaseCopiesAndCopiesAvailableOnlyWhileCopiesAreAvailable() {
+
+        book1.setCopies(2);
+        book1.setCopiesAvailable(1);
+        Book savedBook = bookRepository.save(book1);
+
+        assertEquals(1, bookRepository.decreaseQuantity(savedBook.getId()));
+        assertEquals(0, bookRepository.decreaseQuantity(savedBook.getId()));
+        assertEquals(1, bookRepository.increaseQuantity(savedBook.getId()));
+        assertEquals(0, bookRepository.increaseQuantity(-1L));
+
+        testEntityManager.clear();
+
+        Book book = bookRepository.findById(savedBook.getId()).get();
+
+        assertEquals(2, book.getCopies());
+        assertEquals(1, book.getCopiesAvailable());
+    }
+
+    @Test
+    void addRating_shouldIncreaseRatingCountAndSum() {
+
+        Book savedBook = bookRepository.save(book1);
+
+        assertEquals(1, bookRepository.addRating(savedBook.getId(), 4.5));
+        assertEquals(1, bookRepository.addRating(savedBook.getId(), 3.5));
+        assertEquals(0, bookRepository.addRating(-1L, 5.0));
+
+        testEntityManager.clear();
+
+        Book book = bookRepository.findById(savedBook.getId()).get();
+
+        assertEquals(2, book.getRatingCount());
+        assertEquals(8.0, book.getRatingSum());
+        assertEquals(4.0, book.getAverageRating());
+    }
+
+    @Test
+    void recalculateRatings_shouldRepairOnlyBooksThatDifferFromReviews() {
+
+        book1.setRatingCount(5);
+        book1.setRatingSum(20.0);
+        Book savedBook1 = bookRepository.save(book1);
+        Book savedBook2 = bookRepository.save(book2);
+
+        testEntityManager.persist(new Review("email@email.com", "First Name", "Last Name", savedBook2, LocalDateTime.now(), 4.5, "Description"));
+        testEntityManager.persist(new Review("email@email.com", "First Name", "Last Name", savedBook2, LocalDateTime.now(), 3.0, "Description"));
+        testEntityManager.flush();
+
+        assertEquals(2, bookRepository.recalculateRatings());
+        assertEquals(0, bookRepository.recalculateRatings());
+
+        testEntityManager.clear();
+
+        Book book = bookRepository.findById(savedBook1.getId()).get();
+
+        assertEquals(0, book.getRatingCount());
+        assertEquals(0.0, book.getRatingSum());
+        assertEquals(0.0, book.getAverageRating());
+
+        book = bookRepository.findById(savedBook2.getId()).get();
+
+        assertEquals(2, book.getRatingCount());
+        assertEquals(7.5, book.getRatingSum());
+        assertEquals(3.75, book.getAverageRating());
+    }
+
+    @Test
+    void findAverageRatings_shouldReturnAverageRatingOfEveryFoundBook() {
+
+        book1.setRatingCount(2);
+        book1.setRatingSum(7.0);
+        Book savedBook1 = bookRepository.save(book1);
+        Book savedBook2 = bookRepository.save(book2);
+
+        List<BookAverageRating> ratings = bookRepository.findAverageRatings(List.of(savedBook1.getId(), savedBook2.getId(), -1L));
+
+        assertEquals(2, ratings.size());
+        assertTrue(ratings.contains(new BookAverageRating(savedBook1.getId(), 3.5)));
+        assertTrue(ratings.contains(new BookAverageRating(savedBook2.getId(), 0.0)));
+    }
+
+    @Test
+    void findSuggestionDocuments_shouldReturnBooksWithTitleStartingWithPrefixMostReviewedFirst() {
+
+        book1.setRatingCount(1);
+        book2.setRatingCount(3);
+        Book savedBook1 = bookRepository.save(book1);
+        Book savedBook2 = bookRepository.save(book2);
+
+        List<BookSearchDocument> documents = bookRepository.findSuggestionDocuments("tITLE", PageRequest.of(0, 5));
+
+        assertEquals(List.of(savedBook2.getId(), savedBook1.getId()), documents.stream().map(BookSearchDocument::id).toList());
+        assertTrue(bookRepository.findSuggestionDocuments("itle", PageRequest.of(0, 5)).isEmpty());
+    }
+
+    @Test
+    void findFacetRowsAfter_shouldCountCopiesOfInventorySlotsAsAvailable() {
+
+        book1.setCopiesAvailable(0);
+        book2.setCopiesAvailable(0);
+        Book savedBook1 = bookRepository.save(book1);
+        Book savedBook2 = bookRepository.save(book2);
+        testEntityManager.persist(new BookInventorySlot(savedBook2, 0, 1));
+
+        List<BookFacetRow> rows = bookRepository.findFacetRowsAfter(0L, PageRequest.of(0, 5));
+
+        assertEquals(List.of(new BookFacetRow(savedBook1.getId(), false), new BookFacetRow(savedBook2.getId(), true)), rows);
+        assertEquals(List.of(rows.get(1)), bookRepository.findFacetRowsAfter(savedBook1.getId(), PageRequest.of(0, 5)));
+    }
+
+    @Test
+    void findGenreLinks_shouldReturnGenresOfBooksInIdRange() {
+
+        Book savedBook1 = bookRepository.save(book1);
+        Book savedBook2 = bookRepository.save(book2);
+
+        assertEquals(List.of(new BookGenreLink(savedBook2.getId(), book2.getGenres().get(0).getId(), "Genre 2")), bookRepository.findGenreLinks(savedBook1.getId(), savedBook2.getId()));
+        assertEquals(2, bookRepository.findGenreLinks(0L, savedBook2.getId()).size());
+    }
+
+    private List<Long> sortedIds(BookSort sort, List<Long> ids) {
+        return bookRepository.findSummariesSorted(sort, null, 10).stream().map(row -> row.book().id()).filter(ids::contains).toList();
+    }
+
+    // Rating aggregates and inventory slots are set directly, every slot is stocked. Sorting only reads the book row
+    private Long insertSortableBook(String title, String author, int copiesAvailable, int inventorySlots, int ratingCount, double ratingSum) {
+
+        testEntityManager.getEntityManager()
+                .createNativeQuery("INSERT INTO book (title, author, description, copies, copies_available, inventory_slots, stocked_slots, rating_count, rating_sum) " +
+                        "VALUES (:title, :author, 'Description', 5, :copiesAvailable, :inventorySlots, :inventorySlots, :ratingCount, :ratingSum)")
+                .setParameter("title", title)
+                .setParameter("author", author)
+                .setParameter("copiesAvailable", copiesAvailable)
+                .setParameter("inventorySlots", inventorySlots)
+                .setParameter("ratingCount", ratingCount)
+                .setParameter("ratingSum", ratingSum)
+                .executeUpdate();
+
+        return ((Number) testEntityManager.getEntityManager().createNativeQuery("SELECT max(id) FROM book").getSingleResult()).longValue();
+    }
+
+    // Books saved before the image store, the entity can't write the img column any more
+    private Long insertBookWithInlineImage(String title, String img) {
+
+        testEntityManager.getEntityManager()
+                .createNativeQuery("INSERT INTO book (title, author, description, copies, copies_available, img) VALUES (:title, 'Author', 'Description', 1, 1, :img)")
+                .setParameter("title", title)
+                .setParameter("img", img)
+                .executeUpdate();
+
+        return bookRepository.findByTitleAndAuthor(title, "Author").orElseThrow().getId();
     }
-}
\ No newline at end of file
+}
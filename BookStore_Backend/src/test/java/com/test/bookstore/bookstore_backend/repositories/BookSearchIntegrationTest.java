@@ -0,0 +1,63 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Searches books with full text search and pg_trgm word similarity against PostgreSQL.
+ */
+@Disabled("Integration tests cannot be run without docker environment for testcontainers.")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:tc:postgresql:alpine:///bookstore?TC_INITSCRIPT=file:src/main/resources/schema.sql")
+class BookSearchIntegrationTest {
+
+    @Autowired private BookRepository bookRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+
+        jdbcTemplate.update("truncate book, genre cascade");
+        jdbcTemplate.update("insert into book (title, author, description, copies, copies_available) values " +
+                "('Harry Potter and the Philosopher''s Stone', 'J. K. Rowling', 'Description', 5, 5), " +
+                "('The Lord of the Rings', 'J. R. R. Tolkien', 'Description', 5, 5), " +
+                "('Foundation and Empire', 'Isaac Asimov', 'Description', 5, 5), " +
+                "('Dune', 'Frank Herbert', 'Description', 5, 5)");
+    }
+
+    @Test
+    void search_shouldFindMisspelledWordOfLongTitle() {
+
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone"), titles(bookRepository.search("poter", PageRequest.of(0, 10))));
+        assertEquals(List.of("Foundation and Empire"), titles(bookRepository.search("foundaton", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void search_shouldFindMisspelledAuthor() {
+
+        assertEquals(List.of("Foundation and Empire"), titles(bookRepository.search("asimovv", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void search_shouldNotMatchUnrelatedBooks() {
+
+        Page<BookSummaryRow> page = bookRepository.search("dune", PageRequest.of(0, 10));
+
+        assertEquals(List.of("Dune"), titles(page));
+        assertEquals(1, page.getTotalElements());
+    }
+
+    private static List<String> titles(Page<BookSummaryRow> page) {
+
+        return page.getContent().stream().map(BookSummaryRow::title).toList();
+    }
+}
@@ -0,0 +1,112 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.utils.RecordingStatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs EXPLAIN ANALYZE on the SQL that Hibernate generates for every BookSort against PostgreSQL with enough books
+ * that sorting them would cost more than reading an index. No plan may contain a Sort node, which is also the only node that spills to disk.
+ */
+@Disabled("Integration tests cannot be run without docker environment for testcontainers.")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:postgresql:alpine:///bookstore?TC_INITSCRIPT=file:src/main/resources/schema.sql",
+        RecordingStatementInspector.PROPERTY})
+class BookSortExplainIntegrationTest {
+
+    private static final int BOOKS = 20_000;
+    private static final int LIMIT = 20;
+    private static final Pattern SORT_NODE = Pattern.compile("(?m)^\\s*(->\\s+)?(Incremental )?Sort\\b");
+    private static final Pattern KEY_PARAMETER = Pattern.compile(":key(\\d+)");
+
+    @Autowired private BookRepository bookRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+
+        jdbcTemplate.update("truncate book cascade");
+        jdbcTemplate.update("insert into book (title, author, description, copies, copies_available, rating_count, rating_sum) " +
+                "select 'Title ' || i % 1000, 'Author ' || i % 300, 'Description', 5, i % 3, i % 50, (i % 50) * (i % 5) " +
+                "from generate_series(1, ?) i", BOOKS);
+        jdbcTemplate.execute("analyze book");
+    }
+
+    @Test
+    void findSummariesSorted_shouldNotSortBooks() {
+
+        for (BookSort sort : BookSort.values()) {
+
+            RecordingStatementInspector.SQL.clear();
+            List<SortedBookSummaryRow> firstSlice = bookRepository.findSummariesSorted(sort, null, LIMIT);
+            assertNoSort(sort, RecordingStatementInspector.lastSelect(), List.of(LIMIT));
+
+            List<Object> after = firstSlice.get(firstSlice.size() - 1).keys();
+
+            RecordingStatementInspector.SQL.clear();
+            bookRepository.findSummariesSorted(sort, after, LIMIT);
+            assertNoSort(sort, RecordingStatementInspector.lastSelect(), afterParameters(sort, after));
+        }
+    }
+
+    @Test
+    void findSummaries_shouldNotSortBooks() {
+
+        for (BookSort sort : BookSort.values()) {
+
+            RecordingStatementInspector.SQL.clear();
+            bookRepository.findSummaries(PageRequest.of(5, LIMIT, sort.toSort()));
+
+            assertNoSort(sort, RecordingStatementInspector.lastSelect(), List.of(5 * LIMIT, LIMIT));
+        }
+    }
+
+    // Hibernate binds a parameter once per occurrence in the query, the limit comes last
+    private static List<Object> afterParameters(BookSort sort, List<Object> after) {
+
+        List<Object> parameters = new ArrayList<>();
+        Matcher matcher = KEY_PARAMETER.matcher(sort.after());
+
+        while (matcher.find()) {
+            parameters.add(after.get(Integer.parseInt(matcher.group(1))));
+        }
+        parameters.add(LIMIT);
+
+        return parameters;
+    }
+
+    private void assertNoSort(BookSort sort, String sql, List<Object> parameters) {
+
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE) " + sql)) {
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+
+                StringBuilder lines = new StringBuilder();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) lines.append(rows.getString(1)).append('\n');
+                }
+                return lines.toString();
+            }
+        });
+
+        assertFalse(SORT_NODE.matcher(plan).find(), sort + " sorts the books:\n" + plan);
+    }
+}
@@ -0,0 +1,102 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.utils.RecordingStatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN on the SQL that Hibernate generates for every BookSort. H2 marks a query whose order comes from an index
+ * with "index sorted", anything else is sorted after all matching rows were read.
+ */
+@DataJpaTest(properties = RecordingStatementInspector.PROPERTY)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+class BookSortExplainTest {
+
+    private static final int BOOKS = 50;
+
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BookSortExplainTest(BookRepository bookRepository, JdbcTemplate jdbcTemplate) {
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        for (int i = 0; i < BOOKS; i++) {
+            jdbcTemplate.update("INSERT INTO book (title, author, description, copies, copies_available, rating_count, rating_sum) VALUES (?, ?, 'Description', 5, ?, ?, ?)",
+                    "Title " + i % 7, "Author " + i % 5, i % 3, i % 4, i % 4 * 3.5);
+        }
+    }
+
+    @Test
+    void findSummariesSorted_shouldReadBooksInOrderOfIndex() {
+
+        for (BookSort sort : BookSort.values()) {
+
+            List<SortedBookSummaryRow> firstSlice = recordSql(() -> bookRepository.findSummariesSorted(sort, null, 10));
+            String firstSliceSql = RecordingStatementInspector.lastSelect();
+            recordSql(() -> bookRepository.findSummariesSorted(sort, firstSlice.get(firstSlice.size() - 1).keys(), 10));
+            String nextSliceSql = RecordingStatementInspector.lastSelect();
+
+            assertIndexSorted(sort, firstSliceSql);
+            assertIndexSorted(sort, nextSliceSql);
+        }
+    }
+
+    @Test
+    void findSummaries_shouldReadPageInOrderOfIndex() {
+
+        for (BookSort sort : BookSort.values()) {
+
+            recordSql(() -> bookRepository.findSummaries(PageRequest.of(1, 10, sort.toSort())));
+
+            assertIndexSorted(sort, RecordingStatementInspector.lastSelect());
+        }
+    }
+
+    private <T> T recordSql(Supplier<T> query) {
+
+        RecordingStatementInspector.SQL.clear();
+
+        return query.get();
+    }
+
+    private void assertIndexSorted(BookSort sort, String sql) {
+
+        String plan = explain(sql);
+
+        assertTrue(plan.contains("/* index sorted */"), sort + " is sorted after reading the books:\n" + plan);
+        assertFalse(plan.contains("tableScan"), sort + " reads the whole table:\n" + plan);
+    }
+
+    // Parameters don't have to be bound to explain a statement
+    private String explain(String sql) {
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql); ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lists books with approximate totals against PostgreSQL, with more books than approximate_total_threshold after ANALYZE.
+ */
+@Disabled("Integration tests cannot be run without docker environment for testcontainers.")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:postgresql:alpine:///bookstore?TC_INITSCRIPT=file:src/main/resources/schema.sql",
+        "approximate_total_threshold=10000"})
+class BookTotalEstimateIntegrationTest {
+
+    private static final int BOOKS = 30_000;
+
+    @Autowired private BookRepository bookRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Genre genre;
+
+    @BeforeEach
+    void setUp() {
+
+        jdbcTemplate.update("truncate book, genre cascade");
+        jdbcTemplate.update("insert into book (title, author, description, copies, copies_available) " +
+                "select 'Title ' || i, 'Author ' || i % 300, 'Description', 5, i % 3 from generate_series(1, ?) i", BOOKS);
+
+        genre = new Genre("Estimated genre");
+        genre.setId(jdbcTemplate.queryForObject("insert into genre (description) values (?) returning id", Long.class, genre.getDescription()));
+        jdbcTemplate.update("insert into book_genre (book_id, genre_id) select id, ? from book where id % 2 = 0", genre.getId());
+
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void findSummariesMatching_shouldEstimateLargeTotals() {
+
+        assertEstimated(BookFilter.NONE, BOOKS);
+        assertEstimated(new BookFilter(null, null, null, true), BOOKS * 2 / 3);
+        assertEstimated(new BookFilter(null, null, genre, false), BOOKS / 2);
+    }
+
+    @Test
+    void findSummariesMatching_shouldCountSmallTotals() {
+
+        CountedPage<BookSummaryRow> page = bookRepository.findSummariesMatching(new BookFilter("Title 123", null, null, false), PageRequest.of(1, 5), true);
+
+        assertTrue(page.isTotalExact());
+        assertEquals(111, page.getTotalElements());
+    }
+
+    @Test
+    void findSummariesMatching_shouldCountTotalUnlessApproximateTotalIsRequested() {
+
+        CountedPage<BookSummaryRow> page = bookRepository.findSummariesMatching(BookFilter.NONE, PageRequest.of(1, 5), false);
+
+        assertTrue(page.isTotalExact());
+        assertEquals(BOOKS, page.getTotalElements());
+    }
+
+    // Planner estimates are within a quarter of the real number of books
+    private void assertEstimated(BookFilter filter, int books) {
+
+        CountedPage<BookSummaryRow> page = bookRepository.findSummariesMatching(filter, PageRequest.of(1, 5), true);
+
+        assertFalse(page.isTotalExact(), filter.toString());
+        assertEquals(books, page.getTotalElements(), books / 4.0, filter.toString());
+    }
+}
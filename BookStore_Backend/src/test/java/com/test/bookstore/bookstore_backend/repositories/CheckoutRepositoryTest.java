@@ -1,6 +1,7 @@
 package com.test.bookstore.bookstore_backend.repositories;
 
 import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.BookInventorySlot;
 import com.test.bookstore.bookstore_backend.entities.Checkout;
 import com.test.bookstore.bookstore_backend.entities.Genre;
 import com.test.bookstore.bookstore_backend.entities.Person;
@@ -34,12 +35,17 @@ class CheckoutRepositoryTest {
     private final PersonRepository personRepository;
     private final BookRepository bookRepository;
     private final CheckoutRepository checkoutRepository;
+    private final GenreRepository genreRepository;
+    private final BookInventorySlotRepository bookInventorySlotRepository;
 
     @Autowired
-    CheckoutRepositoryTest(PersonRepository personRepository, BookRepository bookRepository, CheckoutRepository checkoutRepository) {
+    CheckoutRepositoryTest(PersonRepository personRepository, BookRepository bookRepository, CheckoutRepository checkoutRepository,
+                           GenreRepository genreRepository, BookInventorySlotRepository bookInventorySlotRepository) {
         this.personRepository = personRepository;
         this.bookRepository = bookRepository;
         this.checkoutRepository = checkoutRepository;
+        this.genreRepository = genreRepository;
+        this.bookInventorySlotRepository = bookInventorySlotRepository;
     }
 
     @BeforeEach
@@ -109,17 +115,59 @@ class CheckoutRepositoryTest {
     }
 
     @Test
-    void findByCheckoutHolder_shouldReturnListOfCheckoutsByCheckoutHolder() {
+    void findCurrentCheckoutRows_shouldReturnRowPerGenreOfEveryCheckedOutBook() {
+
+        Genre genre1 = new Genre("Genre A");
+        genre1.setBooks(List.of(checkedOutBook1, checkedOutBook2));
+        genreRepository.save(genre1);
+
+        Genre genre2 = new Genre("Genre B");
+        genre2.setBooks(List.of(checkedOutBook1));
+        genreRepository.save(genre2);
+
+        checkoutRepository.save(checkout1);
+        checkoutRepository.save(checkout2);
+
+        bookRepository.addRating(checkedOutBook1.getId(), 4.5);
+        bookRepository.addRating(checkedOutBook1.getId(), 3.5);
+
+        List<CurrentCheckoutRow> rows = checkoutRepository.findCurrentCheckoutRows(checkoutHolder.getEmail());
+
+        assertEquals(3, rows.size());
+        assertEquals(List.of(checkedOutBook1.getId(), checkedOutBook1.getId(), checkedOutBook2.getId()), rows.stream().map(CurrentCheckoutRow::bookId).toList());
+        assertEquals(List.of("Genre A", "Genre B", "Genre A"), rows.stream().map(CurrentCheckoutRow::genreDescription).toList());
+        assertEquals(checkout1.getReturnDate(), rows.get(0).returnDate());
+        assertEquals(checkedOutBook2.getTitle(), rows.get(2).title());
+        assertEquals(4.0, rows.get(0).averageRating());
+        assertEquals(0.0, rows.get(2).averageRating());
+        assertTrue(checkoutRepository.findCurrentCheckoutRows("invalidEmail@email.com").isEmpty());
+    }
+
+    @Test
+    void findCurrentCheckoutRows_shouldCountCopiesOnInventorySlotsOfHotBooks() {
+
+        checkedOutBook1.setCopiesAvailable(0);
+        checkedOutBook1.setInventorySlots(2);
+
+        bookInventorySlotRepository.save(new BookInventorySlot(checkedOutBook1, 0, 3));
+        bookInventorySlotRepository.save(new BookInventorySlot(checkedOutBook1, 1, 4));
+
+        checkoutRepository.save(checkout1);
+        checkoutRepository.save(checkout2);
+
+        List<CurrentCheckoutRow> rows = checkoutRepository.findCurrentCheckoutRows(checkoutHolder.getEmail());
+
+        assertEquals(7, rows.get(0).copiesAvailable());
+        assertEquals(10, rows.get(1).copiesAvailable());
+    }
+
+    @Test
+    void findCheckedOutBookIds_shouldReturnOnlyRequestedBooksCheckedOutByPerson() {
 
         checkoutRepository.save(checkout1);
         checkoutRepository.save(checkout2);
 
-        List<Checkout> checkouts = checkoutRepository.findByCheckoutHolder(checkoutHolder);
-        assertNotNull(checkouts);
-        assertEquals(checkouts.size(), 2);
-        assertTrue(checkouts.contains(checkout1));
-        assertTrue(checkouts.contains(checkout2));
-        assertEquals(checkout1, checkouts.get(0));
-        assertEquals(checkout2, checkouts.get(1));
+        assertEquals(List.of(checkedOutBook1.getId()), checkoutRepository.findCheckedOutBookIds(checkoutHolder.getEmail(), List.of(checkedOutBook1.getId(), -1L)));
+        assertTrue(checkoutRepository.findCheckedOutBookIds("invalidEmail@email.com", List.of(checkedOutBook1.getId())).isEmpty());
     }
-}
\ No newline at end of file
+}
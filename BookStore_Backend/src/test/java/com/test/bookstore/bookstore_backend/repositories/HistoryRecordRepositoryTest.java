@@ -76,16 +76,19 @@ class HistoryRecordRepositoryTest {
     }
 
     @Test
-    void findByHistoryRecordHolder_shouldReturnAllHistoryRecordsByHistoryRecordHolderPaginated() {
+    void findRowsByPersonEmail_shouldReturnAllHistoryRecordsOfPersonPaginated() {
 
-        historyRecordRepository.save(historyRecord1);
-        historyRecordRepository.save(historyRecord2);
+        HistoryRecord savedHistoryRecord1 = historyRecordRepository.save(historyRecord1);
+        HistoryRecord savedHistoryRecord2 = historyRecordRepository.save(historyRecord2);
 
-        Page<HistoryRecord> historyRecords = historyRecordRepository.findByHistoryRecordHolder(historyRecordHolder, PageRequest.of(0, 5));
+        Page<HistoryRecordRow> historyRecords = historyRecordRepository.findRowsByPersonEmail(historyRecordHolder.getEmail(), PageRequest.of(0, 5));
 
         assertNotNull(historyRecords);
         assertEquals(2, historyRecords.getTotalElements());
-        assertEquals(historyRecord1, historyRecords.getContent().get(0));
-        assertEquals(historyRecord2, historyRecords.getContent().get(1));
+        assertEquals(new HistoryRecordRow(savedHistoryRecord1.getId(), historyRecord1.getHistoryRecordedBook().getId(),
+                historyRecord1.getCheckoutDate(), historyRecord1.getReturnDate()), historyRecords.getContent().get(0));
+        assertEquals(savedHistoryRecord2.getId(), historyRecords.getContent().get(1).id());
+        assertEquals(historyRecord2.getHistoryRecordedBook().getId(), historyRecords.getContent().get(1).bookId());
+        assertTrue(historyRecordRepository.findRowsByPersonEmail("other@email.com", PageRequest.of(0, 5)).isEmpty());
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.JwtSigningKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+class JwtSigningKeyRepositoryTest {
+
+    private final JwtSigningKeyRepository jwtSigningKeyRepository;
+
+    @Autowired
+    JwtSigningKeyRepositoryTest(JwtSigningKeyRepository jwtSigningKeyRepository) {
+        this.jwtSigningKeyRepository = jwtSigningKeyRepository;
+    }
+
+    @Test
+    public void findAllByOrderByIdAsc_shouldReturnKeysOldestFirst() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        jwtSigningKeyRepository.save(new JwtSigningKey("secret 1", now.minusHours(2)));
+        jwtSigningKeyRepository.save(new JwtSigningKey("secret 2", now.minusHours(1)));
+        jwtSigningKeyRepository.save(new JwtSigningKey("secret 3", now));
+
+        List<JwtSigningKey> keys = jwtSigningKeyRepository.findAllByOrderByIdAsc();
+
+        assertEquals(List.of("secret 1", "secret 2", "secret 3"), keys.stream().map(JwtSigningKey::getSecret).toList());
+    }
+}
@@ -72,4 +72,13 @@ class PersonRepositoryTest {
 
         assertNull(foundPerson);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void existsByEmail_shouldTellIfPersonWithEmailExists() {
+
+        personRepository.save(person);
+
+        assertTrue(personRepository.existsByEmail("email@email.com"));
+        assertFalse(personRepository.existsByEmail("incorrectEmail@email.com"));
+    }
+}
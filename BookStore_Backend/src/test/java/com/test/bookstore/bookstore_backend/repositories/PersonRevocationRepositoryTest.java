@@ -0,0 +1,84 @@
+package com.test.bookstore.bookstore_backend.repositories;
+
+import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.entities.PersonRevocation;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+class PersonRevocationRepositoryTest {
+
+    private final String personEmail1 = "email1@email.com";
+    private final String personEmail2 = "email2@email.com";
+
+    private final PersonRevocationRepository personRevocationRepository;
+    private final PersonRepository personRepository;
+
+    @Autowired
+    PersonRevocationRepositoryTest(PersonRevocationRepository personRevocationRepository, PersonRepository personRepository) {
+        this.personRevocationRepository = personRevocationRepository;
+        this.personRepository = personRepository;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        for (String personEmail : List.of(personEmail1, personEmail2)) {
+            Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), personEmail, "Password");
+            person.setRole(Role.ROLE_USER);
+            person.setRegisteredAt(LocalDateTime.now());
+            personRepository.save(person);
+        }
+    }
+
+    @Test
+    public void findByRevokedAtAfter_shouldReturnOnlyRecentRevocations() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        personRevocationRepository.save(new PersonRevocation(personEmail1, now.minusHours(2)));
+        personRevocationRepository.save(new PersonRevocation(personEmail2, now));
+
+        List<PersonRevocation> revocations = personRevocationRepository.findByRevokedAtAfter(now.minusHours(1));
+
+        assertEquals(List.of(personEmail2), revocations.stream().map(PersonRevocation::getPersonEmail).toList());
+    }
+
+    @Test
+    public void deleteRevokedBefore_shouldDeleteOnlyOldRevocations() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        personRevocationRepository.save(new PersonRevocation(personEmail1, now.minusHours(2)));
+        personRevocationRepository.save(new PersonRevocation(personEmail2, now));
+
+        assertEquals(1, personRevocationRepository.deleteRevokedBefore(now.minusHours(1)));
+        assertEquals(List.of(personEmail2), personRevocationRepository.findAll().stream().map(PersonRevocation::getPersonEmail).toList());
+    }
+
+    @Test
+    public void save_shouldReplaceEarlierRevocationOfPerson() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        personRevocationRepository.save(new PersonRevocation(personEmail1, now.minusMinutes(30)));
+        personRevocationRepository.save(new PersonRevocation(personEmail1, now));
+
+        assertEquals(1, personRevocationRepository.count());
+        assertEquals(now, personRevocationRepository.findById(personEmail1).orElseThrow().getRevokedAt());
+    }
+}
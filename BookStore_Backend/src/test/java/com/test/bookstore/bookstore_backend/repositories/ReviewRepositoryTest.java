@@ -145,4 +145,13 @@ class ReviewRepositoryTest {
         assertNotNull(rating);
         assertEquals(rating, (review1.getRating() + review2.getRating()) / 2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findReviewedBookIds_shouldReturnOnlyRequestedBooksReviewedByPerson() {
+
+        reviewRepository.save(review1);
+
+        assertEquals(List.of(book.getId()), reviewRepository.findReviewedBookIds(review1.getPersonEmail(), List.of(book.getId(), -1L)));
+        assertTrue(reviewRepository.findReviewedBookIds(review2.getPersonEmail(), List.of(book.getId())).isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import com.test.bookstore.bookstore_backend.repositories.BookSearchDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+    @Mock private BookRepository bookRepository;
+
+    @Test
+    void search_shouldReturnEmptyOptionalUntilIndexIsBuilt() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, true);
+
+        assertEquals(Optional.empty(), bookSearchIndex.search("title", 0, 10));
+    }
+
+    @Test
+    void rebuild_shouldIndexAllBooksOfDatabase() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, true);
+
+        when(bookRepository.findSearchDocumentsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new BookSearchDocument(1L, "Title 1", "Author 1", "Description 1", 0),
+                new BookSearchDocument(2L, "Title 2", "Author 2", "Description 2", 0)));
+
+        bookSearchIndex.rebuild();
+
+        assertEquals(new SearchHits(2, List.of(1L, 2L)), bookSearchIndex.search("title", 0, 10).orElseThrow());
+        verify(bookRepository, times(1)).findSearchDocumentsAfter(any(Long.class), any(Pageable.class));
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeWhileItRuns() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, true);
+
+        Book addedBook = new Book("Title 3", "Author 3", "Description 3", 10, 10, "encodedImage 3");
+        addedBook.setId(3L);
+
+        // Books change between reading the DataBase and replacing the index
+        when(bookRepository.findSearchDocumentsAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            bookSearchIndex.add(addedBook);
+            bookSearchIndex.remove(1L);
+            return List.of(new BookSearchDocument(1L, "Title 1", "Author 1", "Description 1", 0),
+                    new BookSearchDocument(2L, "Title 2", "Author 2", "Description 2", 0));
+        });
+
+        bookSearchIndex.rebuild();
+
+        assertEquals(new SearchHits(2, List.of(2L, 3L)), bookSearchIndex.search("title", 0, 10).orElseThrow());
+    }
+
+    @Test
+    void suggest_shouldFollowBooksAndReviewsAfterRebuild() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, true);
+
+        Book addedBook = new Book("Title 3", "Author 3", "Description 3", 10, 10, "encodedImage 3");
+        addedBook.setId(3L);
+
+        when(bookRepository.findSearchDocumentsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new BookSearchDocument(1L, "Title 1", "Author 1", "Description 1", 2),
+                new BookSearchDocument(2L, "Title 2", "Author 2", "Description 2", 1)));
+
+        assertEquals(Optional.empty(), bookSearchIndex.suggest("title"));
+
+        bookSearchIndex.rebuild();
+        bookSearchIndex.add(addedBook);
+        bookSearchIndex.reviewed(3L);
+        bookSearchIndex.reviewed(3L);
+        bookSearchIndex.reviewed(3L);
+        bookSearchIndex.remove(2L);
+
+        assertEquals(List.of(new Suggestion("Title 3", SuggestionType.TITLE, 3L), new Suggestion("Title 1", SuggestionType.TITLE, 1L)),
+                bookSearchIndex.suggest("tit").orElseThrow());
+    }
+
+    @Test
+    void rebuildInBackground_shouldDoNothingIfIndexIsDisabled() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, false);
+
+        bookSearchIndex.rebuildInBackground();
+
+        assertEquals(Optional.empty(), bookSearchIndex.search("title", 0, 10));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void refresh_shouldKeepFallingBackToDatabaseIfRebuildFailsAndRetryLater() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, true);
+
+        when(bookRepository.findSearchDocumentsAfter(eq(0L), any(Pageable.class)))
+                .thenThrow(new RuntimeException("Table BOOK not found "))
+                .thenReturn(List.of(new BookSearchDocument(1L, "Title 1", "Author 1", "Description 1", 0)));
+
+        bookSearchIndex.refresh();
+
+        assertEquals(Optional.empty(), bookSearchIndex.search("title", 0, 10));
+
+        bookSearchIndex.refresh();
+
+        assertEquals(new SearchHits(1, List.of(1L)), bookSearchIndex.search("title", 0, 10).orElseThrow());
+    }
+
+    @Test
+    void refresh_shouldDropDeletedBooksFromIndex() {
+
+        BookSearchIndex bookSearchIndex = new BookSearchIndex(bookRepository, true);
+
+        when(bookRepository.findSearchDocumentsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new BookSearchDocument(1L, "Title 1", "Author 1", "Description 1", 0),
+                        new BookSearchDocument(2L, "Title 2", "Author 2", "Description 2", 0)))
+                .thenReturn(List.of(new BookSearchDocument(2L, "Title 2", "Author 2", "Description 2", 0)));
+
+        bookSearchIndex.refresh();
+        bookSearchIndex.remove(1L);
+        bookSearchIndex.refresh();
+
+        assertEquals(new SearchHits(1, List.of(2L)), bookSearchIndex.search("title", 0, 10).orElseThrow());
+        verify(bookRepository, times(2)).findSearchDocumentsAfter(any(Long.class), any(Pageable.class));
+    }
+}
@@ -0,0 +1,77 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenreBitmapsTest {
+
+    private GenreBitmaps bitmaps;
+
+    @BeforeEach
+    void setUp() {
+
+        bitmaps = new GenreBitmaps();
+
+        bitmaps.addGenre("Poetry");
+        bitmaps.add(10L, true, List.of("Fantasy", "Classic"));
+        bitmaps.add(20L, false, List.of("Fantasy"));
+        bitmaps.add(30L, true, List.of("Science fiction", "Classic"));
+        bitmaps.add(40L, true, List.of("Fantasy", "Science fiction"));
+    }
+
+    @Test
+    void filter_shouldRequireEveryGenreWhenMatchingAll() {
+
+        FacetHits hits = bitmaps.filter(List.of("Fantasy", "Classic"), true, false, 0, 10);
+
+        assertEquals(new FacetHits(1, List.of(10L), Map.of("Classic", 1L, "Fantasy", 1L, "Poetry", 0L, "Science fiction", 0L)), hits);
+    }
+
+    @Test
+    void filter_shouldRequireAnyGenreWhenMatchingAny() {
+
+        FacetHits hits = bitmaps.filter(List.of("Classic", "Science fiction"), false, false, 0, 10);
+
+        assertEquals(List.of(10L, 30L, 40L), hits.bookIds());
+        assertEquals(Map.of("Classic", 2L, "Fantasy", 2L, "Poetry", 0L, "Science fiction", 2L), hits.genreCounts());
+    }
+
+    @Test
+    void filter_shouldMatchAllBooksWithoutGenresAndLeaveOutUnavailableOnes() {
+
+        assertEquals(List.of(10L, 20L, 30L, 40L), bitmaps.filter(List.of(), true, false, 0, 10).bookIds());
+        assertEquals(List.of(10L, 40L), bitmaps.filter(List.of("Fantasy"), true, true, 0, 10).bookIds());
+        assertEquals(0, bitmaps.filter(List.of("Poetry"), false, false, 0, 10).total());
+    }
+
+    @Test
+    void filter_shouldPageMatchingBooksAndReportTotal() {
+
+        FacetHits firstPage = bitmaps.filter(List.of(), true, false, 0, 3);
+        FacetHits secondPage = bitmaps.filter(List.of(), true, false, 3, 3);
+
+        assertEquals(new FacetHits(4, List.of(10L, 20L, 30L), firstPage.genreCounts()), firstPage);
+        assertEquals(new FacetHits(4, List.of(40L), secondPage.genreCounts()), secondPage);
+    }
+
+    @Test
+    void remove_shouldDropBookFromHitsAndCountsAndReplaceOnAdd() {
+
+        assertTrue(bitmaps.remove(10L));
+        assertFalse(bitmaps.remove(10L));
+        assertEquals(0, bitmaps.filter(List.of("Classic"), true, false, 0, 10).bookIds().indexOf(30L));
+        assertEquals(1L, bitmaps.filter(List.of(), true, false, 0, 10).genreCounts().get("Classic"));
+
+        bitmaps.add(20L, true, List.of("Poetry"));
+
+        assertEquals(List.of(40L), bitmaps.filter(List.of("Fantasy"), true, false, 0, 10).bookIds());
+        assertEquals(List.of(20L), bitmaps.filter(List.of("Poetry"), true, true, 0, 10).bookIds());
+        assertTrue(bitmaps.hasGenre("Poetry"));
+        assertFalse(bitmaps.hasGenre("Horror"));
+    }
+}
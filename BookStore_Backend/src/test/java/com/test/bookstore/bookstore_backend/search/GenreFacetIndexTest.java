@@ -0,0 +1,113 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.repositories.BookFacetRow;
+import com.test.bookstore.bookstore_backend.repositories.BookGenreLink;
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import com.test.bookstore.bookstore_backend.repositories.GenreRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GenreFacetIndexTest {
+
+    @Mock private BookRepository bookRepository;
+    @Mock private GenreRepository genreRepository;
+
+    @Test
+    void filter_shouldReturnNothingUntilBitmapsAreBuilt() {
+
+        GenreFacetIndex genreFacetIndex = new GenreFacetIndex(bookRepository, genreRepository, true);
+
+        assertTrue(genreFacetIndex.filter(List.of("Genre 1"), true, false, 0, 10).isEmpty());
+        verifyNoInteractions(bookRepository, genreRepository);
+
+        mockDataBase();
+        genreFacetIndex.rebuild();
+
+        assertTrue(genreFacetIndex.hasGenre("Genre 3"));
+        assertEquals(List.of(1L), genreFacetIndex.filter(List.of("Genre 1", "Genre 2"), true, false, 0, 10).orElseThrow().bookIds());
+        assertEquals(List.of(1L), genreFacetIndex.filter(List.of("Genre 2"), false, true, 0, 10).orElseThrow().bookIds());
+
+        verify(genreRepository, times(1)).findAll();
+        verify(bookRepository, times(1)).findFacetRowsAfter(any(Long.class), any(Pageable.class));
+        verify(bookRepository, times(1)).findGenreLinks(0L, 2L);
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeWhileItRuns() {
+
+        GenreFacetIndex genreFacetIndex = new GenreFacetIndex(bookRepository, genreRepository, true);
+
+        Genre genre = new Genre("Genre 3");
+        Book addedBook = new Book("Title 3", "Author 3", "Description 3", 10, 10, "encodedImage 3");
+        addedBook.setId(3L);
+        addedBook.setGenres(List.of(genre));
+
+        mockDataBase();
+
+        // Books change between reading the DataBase and replacing the bitmaps
+        when(genreRepository.findAll()).thenAnswer(invocation -> {
+            genreFacetIndex.add(addedBook);
+            genreFacetIndex.remove(1L);
+            return List.of(new Genre("Genre 1"), new Genre("Genre 2"), genre);
+        });
+
+        genreFacetIndex.rebuild();
+
+        FacetHits hits = genreFacetIndex.filter(List.of(), true, false, 0, 10).orElseThrow();
+
+        assertEquals(List.of(2L, 3L), hits.bookIds());
+        assertEquals(1L, hits.genreCounts().get("Genre 3"));
+        assertEquals(0L, hits.genreCounts().get("Genre 1"));
+    }
+
+    @Test
+    void refresh_shouldReturnNothingUntilRebuildSucceeds() {
+
+        GenreFacetIndex genreFacetIndex = new GenreFacetIndex(bookRepository, genreRepository, true);
+
+        mockDataBase();
+        when(genreRepository.findAll()).thenThrow(new RuntimeException("Table GENRE not found ")).thenReturn(List.of(new Genre("Genre 1")));
+
+        genreFacetIndex.refresh();
+
+        assertTrue(genreFacetIndex.filter(List.of(), true, false, 0, 10).isEmpty());
+
+        genreFacetIndex.refresh();
+
+        assertEquals(List.of(1L, 2L), genreFacetIndex.filter(List.of(), true, false, 0, 10).orElseThrow().bookIds());
+        verify(genreRepository, times(2)).findAll();
+    }
+
+    @Test
+    void refresh_shouldDoNothingIfIndexIsDisabled() {
+
+        GenreFacetIndex genreFacetIndex = new GenreFacetIndex(bookRepository, genreRepository, false);
+
+        genreFacetIndex.refresh();
+        genreFacetIndex.rebuildInBackground();
+
+        assertTrue(genreFacetIndex.filter(List.of("Genre 1"), true, false, 0, 10).isEmpty());
+        verifyNoInteractions(bookRepository, genreRepository);
+    }
+
+    private void mockDataBase() {
+
+        lenient().when(genreRepository.findAll()).thenReturn(List.of(new Genre("Genre 1"), new Genre("Genre 2"), new Genre("Genre 3")));
+        when(bookRepository.findFacetRowsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(new BookFacetRow(1L, true), new BookFacetRow(2L, false)));
+        when(bookRepository.findGenreLinks(0L, 2L)).thenReturn(List.of(
+                new BookGenreLink(1L, 1L, "Genre 1"), new BookGenreLink(1L, 2L, "Genre 2"), new BookGenreLink(2L, 2L, "Genre 2")));
+    }
+}
@@ -0,0 +1,78 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.repositories.BookSearchDocument;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Builds the index over a million synthetic books with a skewed vocabulary, like real titles and descriptions have,
+ * and publishes the build time and the average latency of each query shape as report entries.
+ */
+@Disabled("Needs about 2 GB of heap and several minutes, run it manually to measure the search index.")
+class InvertedIndexBenchmarkTest {
+
+    private static final int BOOKS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int WARM_UP_ROUNDS = 100;
+    private static final int ROUNDS = 1_000;
+
+    @Test
+    void search_latency(TestReporter testReporter) {
+
+        SplittableRandom random = new SplittableRandom(42);
+        InvertedIndex index = new InvertedIndex();
+
+        long start = System.nanoTime();
+
+        LongStream.rangeClosed(1, BOOKS)
+                .mapToObj(id -> new BookSearchDocument(id, words(random, 3), words(random, 2), words(random, 12), 0))
+                .map(InvertedIndex::analyze)
+                .forEach(index::add);
+
+        testReporter.publishEntry("buildMillis", String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+        Map<String, String> queries = Map.of(
+                "rareTerm", "w" + (VOCABULARY - 1),
+                "commonTerm", "w1",
+                "twoTerms", "w3 w40",
+                "prefix", "w12*",
+                "phrase", "\"w1 w2\"");
+
+        queries.forEach((name, query) -> {
+
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                index.search(query, 0, 20);
+            }
+
+            long queryStart = System.nanoTime();
+            long total = 0;
+
+            for (int i = 0; i < ROUNDS; i++) {
+                total += index.search(query, 0, 20).total();
+            }
+
+            testReporter.publishEntry(name + "Micros", String.valueOf(TimeUnit.NANOSECONDS.toMicros((System.nanoTime() - queryStart) / ROUNDS)));
+            testReporter.publishEntry(name + "Hits", String.valueOf(total / ROUNDS));
+        });
+
+        assertTrue(index.search("w1", 0, 20).total() > 0);
+    }
+
+    // Word ranks follow a roughly Zipfian distribution, a few words are in many books and most are rare
+    private static String words(SplittableRandom random, int count) {
+
+        return IntStream.range(0, count)
+                .mapToObj(i -> "w" + (int) Math.pow(VOCABULARY, random.nextDouble()))
+                .collect(Collectors.joining(" "));
+    }
+}
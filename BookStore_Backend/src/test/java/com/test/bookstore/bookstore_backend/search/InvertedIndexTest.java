@@ -0,0 +1,101 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import com.test.bookstore.bookstore_backend.repositories.BookSearchDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+
+        index = new InvertedIndex();
+
+        add(1L, "The Lord of the Rings", "J. R. R. Tolkien", "An epic high fantasy novel about the ring");
+        add(2L, "The Hobbit", "J. R. R. Tolkien", "A children's fantasy novel, there and back again");
+        add(3L, "Dune", "Frank Herbert", "Science fiction novel set on the desert planet Arrakis");
+        add(4L, "Rings of Saturn", "W. G. Sebald", "A walk along the coast of Suffolk");
+    }
+
+    @Test
+    void search_shouldRankBooksByBm25AndRequireEveryWord() {
+
+        SearchHits hits = index.search("fantasy TOLKIEN", 0, 10);
+
+        assertEquals(2, hits.total());
+        // The shorter document with the same term frequencies ranks higher
+        assertEquals(List.of(2L, 1L), hits.bookIds());
+        assertEquals(0, index.search("fantasy herbert", 0, 10).total());
+    }
+
+    @Test
+    void search_shouldAddUpScoresOfAllWordsMatchingPrefix() {
+
+        assertEquals(List.of(4L, 1L), index.search("rings", 0, 10).bookIds());
+        // The longer book also matches "ring"
+        assertEquals(List.of(1L, 4L), index.search("ring*", 0, 10).bookIds());
+    }
+
+    @Test
+    void search_shouldMatchWordPrefixes() {
+
+        assertEquals(List.of(3L), index.search("dun*", 0, 10).bookIds());
+        assertEquals(List.of(3L), index.search("scien* arra*", 0, 10).bookIds());
+        assertEquals(0, index.search("dun", 0, 10).total());
+        assertEquals(0, index.search("xyz*", 0, 10).total());
+    }
+
+    @Test
+    void search_shouldMatchPhrasesOnlyWhenWordsFollowEachOther() {
+
+        assertEquals(List.of(1L), index.search("\"lord of the rings\"", 0, 10).bookIds());
+        assertEquals(List.of(2L), index.search("\"there and back again\" tolkien", 0, 10).bookIds());
+        assertEquals(0, index.search("\"rings lord\"", 0, 10).total());
+        // Title and author are separate fields, a phrase can't run from one into the other
+        assertEquals(0, index.search("\"hobbit j\"", 0, 10).total());
+    }
+
+    @Test
+    void search_shouldPageHitsAndReportTotal() {
+
+        SearchHits firstPage = index.search("novel", 0, 2);
+        SearchHits secondPage = index.search("novel", 2, 2);
+
+        assertEquals(3, firstPage.total());
+        assertEquals(2, firstPage.bookIds().size());
+        assertEquals(3, secondPage.total());
+        assertEquals(1, secondPage.bookIds().size());
+        assertFalse(firstPage.bookIds().contains(secondPage.bookIds().get(0)));
+    }
+
+    @Test
+    void search_shouldReturnNoHitsForQueryWithoutWords() {
+
+        assertEquals(new SearchHits(0, List.of()), index.search(" - * \"\" ", 0, 10));
+    }
+
+    @Test
+    void remove_shouldDropBookFromHitsAndReplaceOnAdd() {
+
+        assertTrue(index.remove(2L));
+        assertFalse(index.remove(2L));
+        assertEquals(List.of(1L), index.search("tolkien", 0, 10).bookIds());
+        assertEquals(3, index.size());
+
+        add(1L, "Unfinished Tales", "J. R. R. Tolkien", "Stories of Middle-earth");
+
+        assertEquals(List.of(1L), index.search("tolkien", 0, 10).bookIds());
+        assertEquals(0, index.search("rings tolkien", 0, 10).total());
+        assertEquals(3, index.size());
+    }
+
+    private void add(Long id, String title, String author, String description) {
+        index.add(InvertedIndex.analyze(new BookSearchDocument(id, title, author, description, 0)));
+    }
+}
@@ -0,0 +1,74 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Builds the suggestion trie over a million synthetic books and publishes the build time
+ * and the median and 99th percentile latency of random one to four letter prefixes as report entries.
+ */
+@Disabled("Needs about 2 GB of heap and a few minutes, run it manually to measure typeahead latency.")
+class SuggestionTrieBenchmarkTest {
+
+    private static final int BOOKS = 1_000_000;
+    private static final int AUTHORS = 100_000;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+    private static final int WARM_UP_ROUNDS = 10_000;
+    private static final int ROUNDS = 100_000;
+
+    @Test
+    void suggest_latency(TestReporter testReporter) {
+
+        SplittableRandom random = new SplittableRandom(42);
+        SuggestionTrie trie = new SuggestionTrie();
+
+        long start = System.nanoTime();
+
+        for (long id = 1; id <= BOOKS; id++) {
+            trie.add(id, words(random, 1 + random.nextInt(5)), "author " + words(random, 1) + " " + random.nextInt(AUTHORS), random.nextInt(1_000));
+        }
+
+        testReporter.publishEntry("buildMillis", String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+        String[] prefixes = IntStream.range(0, ROUNDS).mapToObj(i -> word(random, 1 + random.nextInt(4))).toArray(String[]::new);
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            trie.suggest(prefixes[i]);
+        }
+
+        long[] latencies = new long[ROUNDS];
+
+        for (int i = 0; i < ROUNDS; i++) {
+            long queryStart = System.nanoTime();
+            trie.suggest(prefixes[i]);
+            latencies[i] = System.nanoTime() - queryStart;
+        }
+
+        Arrays.sort(latencies);
+
+        testReporter.publishEntry("medianMicros", String.valueOf(TimeUnit.NANOSECONDS.toMicros(latencies[ROUNDS / 2])));
+        testReporter.publishEntry("p99Micros", String.valueOf(TimeUnit.NANOSECONDS.toMicros(latencies[ROUNDS * 99 / 100])));
+
+        assertFalse(trie.suggest("a").isEmpty());
+    }
+
+    private static String words(SplittableRandom random, int count) {
+        return IntStream.range(0, count).mapToObj(i -> word(random, 3 + random.nextInt(8))).collect(Collectors.joining(" "));
+    }
+
+    // Letter frequencies are skewed like in real words, so some prefixes are shared by far more titles than others
+    private static String word(SplittableRandom random, int length) {
+        return IntStream.range(0, length)
+                .mapToObj(i -> String.valueOf(LETTERS.charAt((int) (LETTERS.length() * Math.pow(random.nextDouble(), 2)))))
+                .collect(Collectors.joining());
+    }
+}
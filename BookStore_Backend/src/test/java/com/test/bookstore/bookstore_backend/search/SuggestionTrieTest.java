@@ -0,0 +1,85 @@
+package com.test.bookstore.bookstore_backend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionTrieTest {
+
+    private SuggestionTrie trie;
+
+    @BeforeEach
+    void setUp() {
+
+        trie = new SuggestionTrie();
+
+        trie.add(1L, "The Lord of the Rings", "J. R. R. Tolkien", 30);
+        trie.add(2L, "The Hobbit", "J. R. R. Tolkien", 20);
+        trie.add(3L, "Dune", "Frank Herbert", 25);
+        trie.add(4L, "Rings of Saturn", "W. G. Sebald", 5);
+    }
+
+    @Test
+    void suggest_shouldReturnTitlesAndAuthorsStartingWithPrefixByPopularity() {
+
+        assertEquals(List.of(
+                new Suggestion("J. R. R. Tolkien", SuggestionType.AUTHOR, null),
+                new Suggestion("The Lord of the Rings", SuggestionType.TITLE, 1L),
+                new Suggestion("The Hobbit", SuggestionType.TITLE, 2L)), trie.suggest("t"));
+        assertEquals(List.of(new Suggestion("The Hobbit", SuggestionType.TITLE, 2L)), trie.suggest("the h"));
+        assertEquals(List.of(), trie.suggest("the x"));
+    }
+
+    @Test
+    void suggest_shouldMatchAnyWordAndIgnoreCaseAccentsAndPunctuation() {
+
+        assertEquals(List.of(
+                new Suggestion("The Lord of the Rings", SuggestionType.TITLE, 1L),
+                new Suggestion("Rings of Saturn", SuggestionType.TITLE, 4L)), trie.suggest("  RÍNG"));
+        assertEquals(List.of(new Suggestion("J. R. R. Tolkien", SuggestionType.AUTHOR, null)), trie.suggest("j r r"));
+        assertEquals(List.of(), trie.suggest(" . "));
+    }
+
+    @Test
+    void remove_shouldDropTitleAndAuthorWithoutBooks() {
+
+        trie.remove(1L);
+        trie.remove(3L);
+        trie.remove(3L);
+
+        assertEquals(List.of(
+                new Suggestion("J. R. R. Tolkien", SuggestionType.AUTHOR, null),
+                new Suggestion("The Hobbit", SuggestionType.TITLE, 2L)), trie.suggest("t"));
+        assertEquals(List.of(), trie.suggest("d"));
+        assertEquals(List.of(), trie.suggest("herbert"));
+    }
+
+    @Test
+    void addPopularity_shouldMoveSuggestionUp() {
+
+        trie.addPopularity(4L, 26);
+
+        assertEquals(List.of(
+                new Suggestion("Rings of Saturn", SuggestionType.TITLE, 4L),
+                new Suggestion("The Lord of the Rings", SuggestionType.TITLE, 1L)), trie.suggest("rings"));
+    }
+
+    @Test
+    void suggest_shouldReturnOnlyMostPopularSuggestions() {
+
+        IntStream.rangeClosed(10, 30).forEach(id -> trie.add(id, "Saga " + id, "Author " + id, id));
+
+        // Removing one of the most popular books brings the next one into the top list
+        trie.remove(30L);
+
+        List<Suggestion> suggestions = trie.suggest("saga");
+
+        assertEquals(SuggestionTrie.MAX_SUGGESTIONS, suggestions.size());
+        assertEquals(new Suggestion("Saga 29", SuggestionType.TITLE, 29L), suggestions.get(0));
+        assertEquals(new Suggestion("Saga 20", SuggestionType.TITLE, 20L), suggestions.get(SuggestionTrie.MAX_SUGGESTIONS - 1));
+    }
+}
@@ -0,0 +1,104 @@
+package com.test.bookstore.bookstore_backend.security.jwt;
+
+import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.JwtSigningKeyRepository;
+import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Authenticates the same token the way a secured request used to, with the filter and the controller each parsing it,
+ * and the way it does now, with the filter parsing it once and the controller getting the claims. Parses per request
+ * and requests per second of both paths are published as report entries.
+ */
+@Disabled("Measures throughput for several seconds, run it manually to compare the request paths.")
+class JwtRequestPathBenchmarkTest {
+
+    private static final int WARM_UP_REQUESTS = 20_000;
+    private static final int REQUESTS = 100_000;
+
+    private final CountingJwtUtils jwtUtils = new CountingJwtUtils();
+
+    @Test
+    void authenticate_throughput(TestReporter testReporter) {
+
+        Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), "email@email.com", "Password");
+        person.setId(1L);
+        person.setRole(Role.ROLE_USER);
+
+        PersonDetails personDetails = new PersonDetails(person);
+        String token = jwtUtils.generateToken(personDetails);
+
+        // Filter: extractPersonEmail, then isTokenValid read the subject and the expiration one parse each. Controller: extractEmail
+        long oldParses = measure("oldPath", testReporter, () -> {
+            String email = jwtUtils.extractPersonEmail(token);
+            boolean valid = jwtUtils.extractPersonEmail(token).equals(personDetails.getUsername())
+                    && jwtUtils.extractClaim(token, Claims::getExpiration).getTime() > System.currentTimeMillis();
+            return valid ? jwtUtils.extractPersonEmail(token).length() + email.length() : 0;
+        });
+
+        // Filter: one verified parse, its claims are handed to the controller through @CurrentPerson
+        long newParses = measure("newPath", testReporter, () -> {
+            Claims claims = jwtUtils.extractAllClaims(token);
+            return jwtUtils.isTokenValid(claims, personDetails) ? claims.getSubject().length() * 2 : 0;
+        });
+
+        assertEquals(4, oldParses);
+        assertEquals(1, newParses);
+    }
+
+    // Returns the parses of one request
+    private long measure(String name, TestReporter testReporter, Request request) {
+
+        long checksum = 0;
+
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            checksum += request.authenticate();
+        }
+
+        jwtUtils.parses.set(0);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            checksum += request.authenticate();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+
+        testReporter.publishEntry(name + "ParsesPerRequest", String.valueOf(jwtUtils.parses.get() / REQUESTS));
+        testReporter.publishEntry(name + "RequestsPerSecond", String.valueOf(REQUESTS * TimeUnit.SECONDS.toNanos(1) / elapsedNanos));
+        testReporter.publishEntry(name + "Checksum", String.valueOf(checksum));
+
+        return jwtUtils.parses.get() / REQUESTS;
+    }
+
+    private interface Request {
+        int authenticate();
+    }
+
+    // Counts every verified parse, the helpers on JwtUtils all go through extractAllClaims
+    private static class CountingJwtUtils extends JwtUtils {
+
+        private final AtomicLong parses = new AtomicLong();
+
+        CountingJwtUtils() {
+            super(mock(JwtSigningKeyRepository.class), "Zmlyc3QtdGVzdC1zZWNyZXQtZm9yLWhzMjU2LXNpZ25pbmcta2V5IQ==", TOKEN_LIFETIME_MILLIS);
+        }
+
+        @Override
+        public Claims extractAllClaims(String token) {
+            parses.incrementAndGet();
+            return super.extractAllClaims(token);
+        }
+    }
+}
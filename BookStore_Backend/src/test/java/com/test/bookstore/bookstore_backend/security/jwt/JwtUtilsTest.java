@@ -0,0 +1,204 @@
+package com.test.bookstore.bookstore_backend.security.jwt;
+
+import com.test.bookstore.bookstore_backend.entities.JwtSigningKey;
+import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.JwtSigningKeyRepository;
+import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.jsonwebtoken.security.WeakKeyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtUtilsTest {
+
+    private final String firstSecret = "Zmlyc3QtdGVzdC1zZWNyZXQtZm9yLWhzMjU2LXNpZ25pbmcta2V5IQ==";
+    private final String secondSecret = "c2Vjb25kLXRlc3Qtc2VjcmV0LWZvci1oczI1Ni1zaWduaW5nLWtleQ==";
+    private final String thirdSecret = "dGhpcmQtdGVzdC1zZWNyZXQtZm9yLWhzMjU2LXNpZ25pbmcta2V5ISE=";
+    private final String personEmail = "email@email.com";
+    private final long gracePeriod = 1000 * 60;
+
+    // Stands in for the jwt_signing_key table all instances share
+    private final List<JwtSigningKey> storedKeys = new ArrayList<>();
+
+    @Mock private JwtSigningKeyRepository jwtSigningKeyRepository;
+
+    private PersonDetails personDetails;
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+
+        Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), personEmail, "Password");
+        person.setId(1L);
+        person.setRole(Role.ROLE_USER);
+
+        personDetails = new PersonDetails(person);
+        jwtUtils = new JwtUtils(jwtSigningKeyRepository, firstSecret, gracePeriod);
+
+        lenient().when(jwtSigningKeyRepository.findAllByOrderByIdAsc()).thenAnswer(invocation -> List.copyOf(storedKeys));
+        lenient().when(jwtSigningKeyRepository.save(any(JwtSigningKey.class))).thenAnswer(invocation -> {
+            JwtSigningKey key = invocation.getArgument(0);
+            key.setId(storedKeys.size() + 1L);
+            storedKeys.add(key);
+            return key;
+        });
+    }
+
+    @Test
+    void extractAllClaims_shouldReturnVerifiedClaims() {
+
+        String token = jwtUtils.generateToken(personDetails);
+
+        Claims claims = jwtUtils.extractAllClaims(token);
+
+        assertEquals(personEmail, claims.getSubject());
+        assertEquals(1, claims.get("personId", Integer.class));
+        assertTrue(jwtUtils.isTokenValid(claims, personDetails));
+    }
+
+    @Test
+    void extractAllClaims_shouldVerifyTokensWithoutKeyIdWithConfiguredSecret() {
+
+        String token = Jwts.builder()
+                .setSubject(personEmail)
+                .setExpiration(new Date(System.currentTimeMillis() + JwtUtils.TOKEN_LIFETIME_MILLIS))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(firstSecret)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(token));
+    }
+
+    @Test
+    void extractAllClaims_shouldAcceptTokensSignedWithPreviousSecretDuringGracePeriod() {
+
+        String oldToken = jwtUtils.generateToken(personDetails);
+
+        jwtUtils.rotateSecret(secondSecret);
+        String newToken = jwtUtils.generateToken(personDetails);
+
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(oldToken));
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(newToken));
+        assertNotEquals(oldToken, newToken);
+    }
+
+    @Test
+    void extractAllClaims_shouldRejectTokensSignedWithPreviousSecretAfterGracePeriod() {
+
+        JwtUtils noGraceJwtUtils = new JwtUtils(jwtSigningKeyRepository, firstSecret, -1);
+        String oldToken = noGraceJwtUtils.generateToken(personDetails);
+
+        noGraceJwtUtils.rotateSecret(secondSecret);
+
+        assertThrows(SignatureException.class, () -> noGraceJwtUtils.extractAllClaims(oldToken));
+    }
+
+    @Test
+    void extractAllClaims_shouldAcceptEveryPreviousSecretDuringItsOwnGracePeriod() {
+
+        String oldestToken = jwtUtils.generateToken(personDetails);
+
+        jwtUtils.rotateSecret(secondSecret);
+        String olderToken = jwtUtils.generateToken(personDetails);
+        jwtUtils.rotateSecret(thirdSecret);
+
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(oldestToken));
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(olderToken));
+    }
+
+    @Test
+    void extractAllClaims_shouldRejectOnlySecretsWhoseGracePeriodIsOver() {
+
+        String oldestToken = jwtUtils.generateToken(personDetails);
+
+        jwtUtils.rotateSecret(secondSecret);
+        String olderToken = jwtUtils.generateToken(personDetails);
+
+        // The first secret was replaced before its grace period, the second one within it
+        storedKeys.get(0).setCreatedAt(LocalDateTime.now().minusMinutes(10));
+        jwtUtils.rotateSecret(thirdSecret);
+
+        assertThrows(SignatureException.class, () -> jwtUtils.extractAllClaims(oldestToken));
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(olderToken));
+    }
+
+    @Test
+    void generateToken_shouldSignWithStoredSecretAfterRestart() {
+
+        jwtUtils.rotateSecret(secondSecret);
+        String token = jwtUtils.generateToken(personDetails);
+
+        JwtUtils restartedJwtUtils = new JwtUtils(jwtSigningKeyRepository, firstSecret, gracePeriod);
+
+        assertEquals(personEmail, restartedJwtUtils.extractPersonEmail(token));
+        assertEquals(token.substring(0, token.indexOf('.')), restartedJwtUtils.generateToken(personDetails).substring(0, token.indexOf('.')));
+    }
+
+    @Test
+    void extractAllClaims_shouldAcceptTokensSignedWithSecretRotatedByOtherInstance() {
+
+        JwtUtils otherJwtUtils = new JwtUtils(jwtSigningKeyRepository, firstSecret, gracePeriod);
+
+        String oldToken = jwtUtils.generateToken(personDetails);
+
+        otherJwtUtils.rotateSecret(secondSecret);
+        String newToken = otherJwtUtils.generateToken(personDetails);
+
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(oldToken));
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(newToken));
+    }
+
+    @Test
+    void refresh_shouldSignWithSecretRotatedByOtherInstance() {
+
+        JwtUtils otherJwtUtils = new JwtUtils(jwtSigningKeyRepository, firstSecret, gracePeriod);
+
+        jwtUtils.generateToken(personDetails);
+        otherJwtUtils.rotateSecret(secondSecret);
+
+        jwtUtils.refresh();
+
+        String token = jwtUtils.generateToken(personDetails);
+        assertEquals(personEmail, otherJwtUtils.extractPersonEmail(token));
+    }
+
+    @Test
+    void generateToken_shouldSignWithConfiguredSecretIfKeysCantBeLoaded() {
+
+        when(jwtSigningKeyRepository.findAllByOrderByIdAsc()).thenThrow(new DataAccessResourceFailureException("Connection refused "));
+
+        String token = jwtUtils.generateToken(personDetails);
+
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(token));
+    }
+
+    @Test
+    void rotateSecret_shouldKeepCurrentSecretIfNewSecretIsTooWeak() {
+
+        String token = jwtUtils.generateToken(personDetails);
+
+        assertThrows(WeakKeyException.class, () -> jwtUtils.rotateSecret("c2hvcnQ="));
+        assertEquals(personEmail, jwtUtils.extractPersonEmail(token));
+        verify(jwtSigningKeyRepository, times(0)).save(any(JwtSigningKey.class));
+    }
+}
@@ -0,0 +1,83 @@
+package com.test.bookstore.bookstore_backend.security.jwt;
+
+import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.JwtSigningKeyRepository;
+import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies the same token the way JwtUtils used to, decoding the secret and building a key and a parser for every token,
+ * and through the key and parser JwtUtils now builds once. Tokens verified per second and bytes allocated per token
+ * of both are published as report entries.
+ */
+@Disabled("Measures throughput for several seconds, run it manually to compare token verification.")
+class JwtVerificationBenchmarkTest {
+
+    private static final String SECRET = "Zmlyc3QtdGVzdC1zZWNyZXQtZm9yLWhzMjU2LXNpZ25pbmcta2V5IQ==";
+    private static final int WARM_UP_TOKENS = 20_000;
+    private static final int TOKENS = 200_000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void extractAllClaims_throughput(TestReporter testReporter) {
+
+        Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), "email@email.com", "Password");
+        person.setId(1L);
+        person.setRole(Role.ROLE_USER);
+
+        JwtUtils jwtUtils = new JwtUtils(mock(JwtSigningKeyRepository.class), SECRET, JwtUtils.TOKEN_LIFETIME_MILLIS);
+        String token = jwtUtils.generateToken(new PersonDetails(person));
+
+        long before = measure("perToken", testReporter, token, t -> Jwts
+                .parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(t)
+                .getBody());
+
+        long after = measure("cached", testReporter, token, jwtUtils::extractAllClaims);
+
+        assertEquals(before, after);
+    }
+
+    // Returns a checksum of the verified subjects, so both ways must have verified the same tokens
+    private long measure(String name, TestReporter testReporter, String token, Function<String, Claims> verify) {
+
+        long checksum = 0;
+
+        for (int i = 0; i < WARM_UP_TOKENS; i++) {
+            verify.apply(token);
+        }
+
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < TOKENS; i++) {
+            checksum += verify.apply(token).getSubject().length();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        testReporter.publishEntry(name + "TokensPerSecond", String.valueOf(TOKENS * TimeUnit.SECONDS.toNanos(1) / elapsedNanos));
+        testReporter.publishEntry(name + "BytesPerToken", String.valueOf(allocatedBytes / TOKENS));
+
+        return checksum;
+    }
+}
@@ -2,14 +2,17 @@ package com.test.bookstore.bookstore_backend.security.services;
 
 import com.test.bookstore.bookstore_backend.entities.Person;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
+import com.test.bookstore.bookstore_backend.security.dto.requests.JwtSecretRotationDTO;
 import com.test.bookstore.bookstore_backend.security.dto.requests.PersonLoginDTO;
 import com.test.bookstore.bookstore_backend.security.dto.requests.PersonRegistrationDTO;
+import com.test.bookstore.bookstore_backend.security.dto.requests.PersonRoleChangeDTO;
 import com.test.bookstore.bookstore_backend.security.dto.responses.AuthenticationResponse;
 import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.security.jwt.JwtUtils;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
 import com.test.bookstore.bookstore_backend.utils.validators.PersonValidator;
+import io.jsonwebtoken.security.WeakKeyException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -50,6 +53,7 @@ class AuthenticationServiceTest {
     @Mock private PasswordEncoder passwordEncoder;
     @Mock private JwtUtils jwtUtils;
     @Mock private AuthenticationManager authenticationManager;
+    @Mock private PersonRevocationCache personRevocationCache;
 
     @InjectMocks
     private AuthenticationService authenticationService;
@@ -170,4 +174,63 @@ class AuthenticationServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(jwtUtils, times(0)).generateToken(any(PersonDetails.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void rotateJwtSecret_shouldPassNewSecretToJwtUtils() {
+
+        JwtSecretRotationDTO jwtSecretRotationDTO = new JwtSecretRotationDTO("newSecret");
+        BindingResult bindingResult = new BindException(jwtSecretRotationDTO, "jwtSecretRotationDTO");
+
+        doNothing().when(jwtUtils).rotateSecret(any(String.class));
+
+        assertDoesNotThrow(() -> authenticationService.rotateJwtSecret(jwtSecretRotationDTO, bindingResult));
+
+        verify(jwtUtils, times(1)).rotateSecret("newSecret");
+    }
+
+    @Test
+    void rotateJwtSecret_shouldThrowPersonExceptionIfSecretIsTooWeak() {
+
+        JwtSecretRotationDTO jwtSecretRotationDTO = new JwtSecretRotationDTO("c2hvcnQ=");
+        BindingResult bindingResult = new BindException(jwtSecretRotationDTO, "jwtSecretRotationDTO");
+
+        doThrow(new WeakKeyException("Key is too short")).when(jwtUtils).rotateSecret(any(String.class));
+
+        PersonException exception = assertThrows(PersonException.class, () -> authenticationService.rotateJwtSecret(jwtSecretRotationDTO, bindingResult));
+
+        assertEquals("Secret must be a Base64 encoded string of at least 256 bits. ", exception.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verify(jwtUtils, times(1)).rotateSecret(any(String.class));
+    }
+
+    @Test
+    void changePersonRole_shouldSaveNewRoleAndRevokeTokensOfPerson() {
+
+        PersonRoleChangeDTO personRoleChangeDTO = new PersonRoleChangeDTO(personEmail, Role.ROLE_ADMIN);
+        BindingResult bindingResult = new BindException(personRoleChangeDTO, "personRoleChangeDTO");
+
+        when(personRepository.findByEmail(personEmail)).thenReturn(Optional.of(person));
+
+        assertDoesNotThrow(() -> authenticationService.changePersonRole(personRoleChangeDTO, bindingResult));
+
+        assertEquals(Role.ROLE_ADMIN, person.getRole());
+        verify(personRepository, times(1)).save(person);
+        verify(personRevocationCache, times(1)).revoke(personEmail);
+    }
+
+    @Test
+    void changePersonRole_shouldThrowPersonExceptionIfPersonIsNotFound() {
+
+        PersonRoleChangeDTO personRoleChangeDTO = new PersonRoleChangeDTO(personEmail, Role.ROLE_ADMIN);
+        BindingResult bindingResult = new BindException(personRoleChangeDTO, "personRoleChangeDTO");
+
+        when(personRepository.findByEmail(personEmail)).thenReturn(Optional.empty());
+
+        PersonException exception = assertThrows(PersonException.class, () -> authenticationService.changePersonRole(personRoleChangeDTO, bindingResult));
+
+        assertEquals("Person with such email is not found. Please check the input fields. ", exception.getMessage());
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        verify(personRepository, times(0)).save(any(Person.class));
+        verifyNoInteractions(personRevocationCache);
+    }
+}
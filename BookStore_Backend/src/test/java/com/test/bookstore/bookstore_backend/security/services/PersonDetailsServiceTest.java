@@ -2,7 +2,10 @@ package com.test.bookstore.bookstore_backend.security.services;
 
 import com.test.bookstore.bookstore_backend.entities.Person;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
+import com.test.bookstore.bookstore_backend.security.entities.PersonDetails;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +17,9 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,8 +31,10 @@ class PersonDetailsServiceTest {
     private final String personEmail = "email@email.com";
 
     private Person person;
+    private Claims claims;
 
     @Mock private PersonRepository personRepository;
+    @Mock private PersonRevocationCache personRevocationCache;
 
     @InjectMocks
     private PersonDetailsService personDetailsService;
@@ -37,6 +45,10 @@ class PersonDetailsServiceTest {
         person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), personEmail, "Password");
         person.setRole(Role.ROLE_USER);
         person.setRegisteredAt(LocalDateTime.now());
+
+        claims = Jwts.claims().setSubject(personEmail).setIssuedAt(new Date());
+        claims.put("role", List.of(Map.of("authority", "ROLE_ADMIN")));
+        claims.put("personId", 1);
     }
 
     @Test
@@ -65,4 +77,43 @@ class PersonDetailsServiceTest {
         assertEquals("No users found with such email.", exception.getMessage());
         verify(personRepository, times(1)).findByEmail(any(String.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadUserByClaims_shouldBuildPersonDetailsFromClaimsWithoutDataBaseLookup() {
+
+        when(personRevocationCache.isRevoked(any(String.class), any(Date.class))).thenReturn(false);
+
+        UserDetails userDetails = assertDoesNotThrow(() -> personDetailsService.loadUserByClaims(claims));
+
+        assertEquals(personEmail, userDetails.getUsername());
+        assertEquals(1L, ((PersonDetails) userDetails).getPerson().getId());
+        assertEquals("ROLE_ADMIN", userDetails.getAuthorities().iterator().next().getAuthority());
+        verify(personRepository, times(0)).findByEmail(any(String.class));
+    }
+
+    @Test
+    void loadUserByClaims_shouldLoadPersonFromDataBaseIfPersonIsRevoked() {
+
+        when(personRevocationCache.isRevoked(any(String.class), any(Date.class))).thenReturn(true);
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+
+        UserDetails userDetails = assertDoesNotThrow(() -> personDetailsService.loadUserByClaims(claims));
+
+        assertEquals("ROLE_USER", userDetails.getAuthorities().iterator().next().getAuthority());
+        verify(personRepository, times(1)).findByEmail(any(String.class));
+    }
+
+    @Test
+    void loadUserByClaims_shouldLoadPersonFromDataBaseIfClaimsHaveNoPersonId() {
+
+        claims.remove("personId");
+
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+
+        UserDetails userDetails = assertDoesNotThrow(() -> personDetailsService.loadUserByClaims(claims));
+
+        assertEquals(person.getPassword(), userDetails.getPassword());
+        verify(personRevocationCache, times(0)).isRevoked(any(String.class), any(Date.class));
+        verify(personRepository, times(1)).findByEmail(any(String.class));
+    }
+}
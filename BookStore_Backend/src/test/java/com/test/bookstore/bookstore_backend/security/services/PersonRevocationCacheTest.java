@@ -0,0 +1,97 @@
+package com.test.bookstore.bookstore_backend.security.services;
+
+import com.test.bookstore.bookstore_backend.entities.PersonRevocation;
+import com.test.bookstore.bookstore_backend.repositories.PersonRevocationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PersonRevocationCacheTest {
+
+    private final String personEmail1 = "email1@email.com";
+    private final String personEmail2 = "email2@email.com";
+    private final String personEmail3 = "email3@email.com";
+
+    @Mock private PersonRevocationRepository personRevocationRepository;
+
+    @Test
+    void isRevoked_shouldRevokeTokensIssuedBeforeRevocation() {
+
+        PersonRevocationCache personRevocationCache = new PersonRevocationCache(personRevocationRepository, 10, 1000);
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+
+        personRevocationCache.revoke(personEmail1);
+
+        assertTrue(personRevocationCache.isRevoked(personEmail1, issuedBefore));
+        assertFalse(personRevocationCache.isRevoked(personEmail2, issuedBefore));
+        assertFalse(personRevocationCache.isRevoked(personEmail1, new Date(System.currentTimeMillis() + 1000)));
+        verify(personRevocationRepository, times(1)).save(any(PersonRevocation.class));
+        verify(personRevocationRepository, times(1)).deleteRevokedBefore(any(LocalDateTime.class));
+    }
+
+    @Test
+    void isRevoked_shouldKeepRevocationsSafeWhenCacheIsFull() {
+
+        PersonRevocationCache personRevocationCache = new PersonRevocationCache(personRevocationRepository, 1, 1000);
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+
+        personRevocationCache.revoke(personEmail1);
+        personRevocationCache.revoke(personEmail2);
+
+        assertTrue(personRevocationCache.isRevoked(personEmail1, issuedBefore));
+        assertTrue(personRevocationCache.isRevoked(personEmail2, issuedBefore));
+        assertTrue(personRevocationCache.isRevoked(personEmail3, issuedBefore));
+    }
+
+    @Test
+    void isRevoked_shouldSeeRevocationsStoredByOtherInstances() {
+
+        PersonRevocationCache personRevocationCache = new PersonRevocationCache(personRevocationRepository, 10, 1000);
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+
+        when(personRevocationRepository.findByRevokedAtAfter(any(LocalDateTime.class))).thenReturn(List.of(new PersonRevocation(personEmail1, LocalDateTime.now())));
+
+        assertTrue(personRevocationCache.isRevoked(personEmail1, issuedBefore));
+        assertFalse(personRevocationCache.isRevoked(personEmail2, issuedBefore));
+    }
+
+    @Test
+    void isRevoked_shouldLookUpRevocationsAtMostOncePerInterval() {
+
+        PersonRevocationCache personRevocationCache = new PersonRevocationCache(personRevocationRepository, 10, 60_000);
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+
+        when(personRevocationRepository.findByRevokedAtAfter(any(LocalDateTime.class))).thenReturn(List.of());
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(personRevocationCache.isRevoked(personEmail1, issuedBefore));
+        }
+
+        verify(personRevocationRepository, times(1)).findByRevokedAtAfter(any(LocalDateTime.class));
+    }
+
+    @Test
+    void isRevoked_shouldKeepLoadedRevocationsIfLookupFails() {
+
+        PersonRevocationCache personRevocationCache = new PersonRevocationCache(personRevocationRepository, 10, 0);
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+
+        when(personRevocationRepository.findByRevokedAtAfter(any(LocalDateTime.class)))
+                .thenReturn(List.of(new PersonRevocation(personEmail1, LocalDateTime.now())))
+                .thenThrow(new RuntimeException("Connection refused "));
+
+        assertTrue(personRevocationCache.isRevoked(personEmail1, issuedBefore));
+        assertTrue(personRevocationCache.isRevoked(personEmail1, issuedBefore));
+        verify(personRevocationRepository, times(2)).findByRevokedAtAfter(any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,179 @@
+package com.test.bookstore.bookstore_backend.services;
+
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.*;
+import com.test.bookstore.bookstore_backend.images.ImageStore;
+import com.test.bookstore.bookstore_backend.images.ImageThumbnails;
+import com.test.bookstore.bookstore_backend.search.BookSearchIndex;
+import com.test.bookstore.bookstore_backend.search.GenreFacetIndex;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import com.test.bookstore.bookstore_backend.utils.exceptions.BookException;
+import com.test.bookstore.bookstore_backend.utils.mappers.BookMapperImpl;
+import com.test.bookstore.bookstore_backend.utils.mappers.GenreMapperImpl;
+import com.test.bookstore.bookstore_backend.utils.mappers.ReviewMapperImpl;
+import com.test.bookstore.bookstore_backend.utils.validators.BookValidator;
+import com.test.bookstore.bookstore_backend.utils.validators.ReviewValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many people check out the same book at once. Every checkout runs in its own committed transaction,
+ * so copies are only safe from being handed out twice if the inventory update itself is atomic.
+ * The same load runs against the single book row and against inventory slots, checkouts per second of both are published as report entries.
+ */
+// Borrowers may wait for a row lock longer than the H2 default of one second
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:bookInventoryContention;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Sql("/schema.sql")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({BookService.class, BookSearchIndex.class, GenreFacetIndex.class, ImageStore.class, ImageThumbnails.class, BookValidator.class, ReviewValidator.class, BookMapperImpl.class, GenreMapperImpl.class, ReviewMapperImpl.class})
+class BookInventoryContentionTest {
+
+    private static final int COPIES = 64;
+    private static final int PEOPLE = 128;
+    private static final int BORROWERS = 64;
+    private static final int INVENTORY_SLOTS = 8;
+
+    private Book hotBook;
+    private List<Person> people;
+
+    private final BookService bookService;
+    private final BookRepository bookRepository;
+    private final BookInventorySlotRepository bookInventorySlotRepository;
+    private final GenreRepository genreRepository;
+    private final PersonRepository personRepository;
+    private final CheckoutRepository checkoutRepository;
+    private final PaymentRepository paymentRepository;
+
+    @Autowired
+    BookInventoryContentionTest(BookService bookService, BookRepository bookRepository, BookInventorySlotRepository bookInventorySlotRepository,
+                                GenreRepository genreRepository, PersonRepository personRepository, CheckoutRepository checkoutRepository,
+                                PaymentRepository paymentRepository) {
+        this.bookService = bookService;
+        this.bookRepository = bookRepository;
+        this.bookInventorySlotRepository = bookInventorySlotRepository;
+        this.genreRepository = genreRepository;
+        this.personRepository = personRepository;
+        this.checkoutRepository = checkoutRepository;
+        this.paymentRepository = paymentRepository;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        Genre genre = new Genre("Genre 1");
+
+        Book book = new Book("Title 1", "Author 1", "Description 1", COPIES, COPIES, "encodedImage 1");
+        book.setGenres(List.of(genre));
+        hotBook = bookRepository.save(book);
+
+        genre.setBooks(List.of(hotBook));
+        genreRepository.save(genre);
+
+        people = new ArrayList<>();
+
+        for (int i = 0; i < PEOPLE; i++) {
+
+            Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), "email" + i + "@email.com", "Password");
+            person.setRole(Role.ROLE_USER);
+            person.setRegisteredAt(LocalDateTime.now());
+            people.add(personRepository.save(person));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        checkoutRepository.deleteAll();
+        bookInventorySlotRepository.deleteAll();
+        paymentRepository.deleteAll();
+        personRepository.deleteAll();
+        bookRepository.deleteAll();
+        genreRepository.deleteAll();
+    }
+
+    @Test
+    void checkoutBook_shouldNeverCheckOutMoreCopiesThanAvailableUnderContention(TestReporter testReporter) throws Exception {
+
+        long checkoutsPerSecond = runConcurrentCheckouts();
+
+        testReporter.publishEntry("singleRowCheckoutsPerSecond", String.valueOf(checkoutsPerSecond));
+    }
+
+    @Test
+    void checkoutBook_shouldNeverCheckOutMoreCopiesThanAvailableUnderContentionWithInventorySlots(TestReporter testReporter) throws Exception {
+
+        bookService.changeInventorySlots(hotBook.getId(), INVENTORY_SLOTS);
+
+        long checkoutsPerSecond = runConcurrentCheckouts();
+
+        testReporter.publishEntry("inventorySlotsCheckoutsPerSecond", String.valueOf(checkoutsPerSecond));
+    }
+
+    private long runConcurrentCheckouts() throws Exception {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(BORROWERS);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger successfulCheckouts = new AtomicInteger();
+        AtomicInteger rejectedCheckouts = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (Person person : people) {
+            futures.add(executorService.submit(() -> {
+
+                startLatch.await();
+
+                try {
+                    bookService.checkoutBook(person.getEmail(), hotBook.getId());
+                    successfulCheckouts.incrementAndGet();
+                } catch (BookException e) {
+                    assertEquals("Book quantity is already 0 ", e.getMessage());
+                    rejectedCheckouts.incrementAndGet();
+                }
+
+                return null;
+            }));
+        }
+
+        long start = System.nanoTime();
+        startLatch.countDown();
+
+        // Anything other than a clean rejection, like a check constraint violation, fails the test here
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        executorService.shutdown();
+
+        assertEquals(COPIES, successfulCheckouts.get());
+        assertEquals(PEOPLE - COPIES, rejectedCheckouts.get());
+        assertEquals(0, bookRepository.findById(hotBook.getId()).orElseThrow().getCopiesAvailable());
+        assertFalse(bookRepository.findById(hotBook.getId()).orElseThrow().getAvailable());
+        assertEquals(0, bookInventorySlotRepository.sumCopiesAvailable(hotBook.getId()));
+        assertEquals(COPIES, checkoutRepository.count());
+
+        return PEOPLE * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsedNanos, 1);
+    }
+}
@@ -1,15 +1,31 @@
 package com.test.bookstore.bookstore_backend.services;
 
 import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookFacetsDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSliceDTO;
+import com.test.bookstore.bookstore_backend.dto.BookStatusDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSuggestionDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
 import com.test.bookstore.bookstore_backend.entities.*;
 import com.test.bookstore.bookstore_backend.repositories.*;
 import com.test.bookstore.bookstore_backend.entities.*;
 import com.test.bookstore.bookstore_backend.repositories.*;
+import com.test.bookstore.bookstore_backend.images.ImageStore;
+import com.test.bookstore.bookstore_backend.images.ImageThumbnails;
+import com.test.bookstore.bookstore_backend.repositories.BookCirculationRepository.CirculationResult;
+import com.test.bookstore.bookstore_backend.search.BookSearchIndex;
+import com.test.bookstore.bookstore_backend.search.FacetHits;
+import com.test.bookstore.bookstore_backend.search.GenreFacetIndex;
+import com.test.bookstore.bookstore_backend.search.SearchHits;
+import com.test.bookstore.bookstore_backend.search.Suggestion;
+import com.test.bookstore.bookstore_backend.search.SuggestionType;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.utils.exceptions.*;
 import com.test.bookstore.bookstore_backend.utils.exceptions.*;
+import com.test.bookstore.bookstore_backend.utils.mappers.BookMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.ReviewMapper;
 import com.test.bookstore.bookstore_backend.utils.validators.BookValidator;
 import com.test.bookstore.bookstore_backend.utils.validators.ReviewValidator;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,24 +34,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.validation.FieldError;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -49,27 +68,39 @@ class BookServiceTest {
     private final String invalidPersonEmail = "invalidEmail@email.com";
     private final int page = 0;
     private final int booksPerPage = 5;
+    private final byte[] image = {1, 2, 3};
+    private final String imageHash = "imageHash 1";
 
     private Genre genre1;
     private Book book1;
     private Book book2;
     private BookDTO bookDTO1;
+    private BookSummaryRow bookRow1;
+    private BookSummaryRow bookRow2;
     private Person person;
     private Checkout checkout;
     private Payment payment;
+    private AccountSummary accountSummary;
     private ReviewDTO reviewDTO;
     private Review review;
 
-    @Mock private ModelMapper modelMapper;
+    @Mock private BookMapper bookMapper;
+    @Mock private ReviewMapper reviewMapper;
     @Mock private BookValidator bookValidator;
     @Mock private ReviewValidator reviewValidator;
     @Mock private BookRepository bookRepository;
+    @Mock private BookInventorySlotRepository bookInventorySlotRepository;
     @Mock private GenreRepository genreRepository;
     @Mock private CheckoutRepository checkoutRepository;
     @Mock private PersonRepository personRepository;
     @Mock private PaymentRepository paymentRepository;
+    @Mock private AccountSummaryRepository accountSummaryRepository;
     @Mock private ReviewRepository reviewRepository;
     @Mock private HistoryRecordRepository historyRecordRepository;
+    @Mock private BookSearchIndex bookSearchIndex;
+    @Mock private GenreFacetIndex genreFacetIndex;
+    @Mock private ImageStore imageStore;
+    @Mock private ImageThumbnails imageThumbnails;
 
     @InjectMocks
     private BookService bookService;
@@ -97,6 +128,8 @@ class BookServiceTest {
 
         payment = new Payment(person, 00.00);
 
+        accountSummary = new AccountSummary(personEmail, 1, checkout.getReturnDate(), 00.00);
+
         review = new Review(null, null, null, null, LocalDateTime.now(), 4.5, "Review Description");
 
         bookDTO1 = new BookDTO();
@@ -105,9 +138,12 @@ class BookServiceTest {
         bookDTO1.setDescription("Description 1");
         bookDTO1.setCopies(10);
         bookDTO1.setCopiesAvailable(10);
-        bookDTO1.setImg("encodedImage 1");
+        bookDTO1.setImg("data:image/png;base64,encodedImage1");
         bookDTO1.setGenres(List.of(genreDTO1));
-        
+
+        bookRow1 = new BookSummaryRow(1L, "Title 1", "Author 1", "Description 1", 10, 10, 0.0, null);
+        bookRow2 = new BookSummaryRow(2L, "Title 2", "Author 2", "Description 2", 10, 10, 0.0, null);
+
         reviewDTO = new ReviewDTO();
         reviewDTO.setDate(LocalDateTime.now());
         reviewDTO.setRating(4.5);
@@ -117,26 +153,138 @@ class BookServiceTest {
     @Test
     void findAll_shouldReturnAllBooksPaginated() {
 
-        List<Book> pageContent = List.of(book1, book2);
+        List<BookSummaryRow> pageContent = List.of(bookRow1, bookRow2);
         Pageable pageable = PageRequest.of(page, booksPerPage);
-        Page<Book> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+        Page<BookSummaryRow> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(bookRepository.findAll(any(Pageable.class))).thenReturn(booksPage);
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO1);
+        when(bookRepository.findSummaries(any(Pageable.class))).thenReturn(booksPage);
+        mapSummaries();
 
-        Page<BookDTO> bookDTOPage = bookService.findAll(pageable);
+        Page<BookSummaryDTO> bookDTOPage = bookService.findAll(pageable, BookService.SORT_BY_ID, false);
 
         assertNotNull(bookDTOPage);
         assertEquals(pageContent.size(), bookDTOPage.getContent().size());
-        verify(bookRepository, times(1)).findAll(any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Book.class), eq(BookDTO.class));
+        verify(bookRepository, times(1)).findSummaries(PageRequest.of(page, booksPerPage, Sort.by(Sort.Direction.ASC, "id")));
+        verify(bookRepository, times(1)).findGenreLinksOfBooks(List.of(1L, 2L));
+        verify(bookRepository, times(0)).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void findAll_shouldSortByKeysOfRequestedSort() {
+
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        when(bookRepository.findSummaries(any(Pageable.class))).thenReturn(Page.empty(pageable));
+
+        bookService.findAll(pageable, "rating", false);
+        bookService.findAll(pageable, "availability", false);
+
+        verify(bookRepository, times(1)).findSummaries(PageRequest.of(page, booksPerPage,
+                Sort.by(Sort.Order.desc("averageRating"), Sort.Order.desc("id"))));
+        verify(bookRepository, times(1)).findSummaries(PageRequest.of(page, booksPerPage,
+                Sort.by(Sort.Order.desc("available"), Sort.Order.asc("title"), Sort.Order.asc("id"))));
+    }
+
+    @Test
+    void findAll_shouldThrowBookExceptionIfSortIsNotSupported() {
+
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.findAll(pageable, "description", false));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void findAllAfter_shouldReturnFirstSliceWithCursorOfLastBook() {
+
+        when(bookRepository.findSummariesSorted(BookSort.ID, null, 2))
+                .thenReturn(List.of(new SortedBookSummaryRow(bookRow1, List.of(1L)), new SortedBookSummaryRow(bookRow2, List.of(2L))));
+        mapSummaries();
+
+        BookSliceDTO bookSliceDTO = bookService.findAllAfter(null, 1, BookService.SORT_BY_ID);
+
+        assertEquals(1, bookSliceDTO.getContent().size());
+        assertNotNull(bookSliceDTO.getNextCursor());
+        verify(bookRepository, times(1)).findSummariesSorted(BookSort.ID, null, 2);
+        verify(bookRepository, times(0)).findSummaries(any(Pageable.class));
+        verify(bookMapper, times(1)).toBookSummaryDTOs(eq(List.of(bookRow1)), anyList());
+
+        when(bookRepository.findSummariesSorted(BookSort.ID, List.of(1L), 2)).thenReturn(List.of(new SortedBookSummaryRow(bookRow2, List.of(2L))));
+
+        BookSliceDTO nextBookSliceDTO = bookService.findAllAfter(bookSliceDTO.getNextCursor(), 1, BookService.SORT_BY_ID);
+
+        assertEquals(1, nextBookSliceDTO.getContent().size());
+        assertNull(nextBookSliceDTO.getNextCursor());
+        verify(bookRepository, times(1)).findSummariesSorted(BookSort.ID, List.of(1L), 2);
+    }
+
+    @Test
+    void findAllAfter_shouldContinueAfterTitleAndIdOfCursor() {
+
+        bookRow1 = new BookSummaryRow(7L, "Title 1", "Author 1", "Description 1", 10, 10, 0.0, null);
+
+        when(bookRepository.findSummariesSorted(BookSort.TITLE, null, 2))
+                .thenReturn(List.of(new SortedBookSummaryRow(bookRow1, List.of("Title 1", 7L)), new SortedBookSummaryRow(bookRow2, List.of("Title 2", 2L))));
+        mapSummaries();
+
+        String nextCursor = bookService.findAllAfter(null, 1, BookService.SORT_BY_TITLE).getNextCursor();
+        bookService.findAllAfter(nextCursor, 1, BookService.SORT_BY_TITLE);
+
+        verify(bookRepository, times(1)).findSummariesSorted(BookSort.TITLE, List.of("Title 1", 7L), 2);
+    }
+
+    @Test
+    void findAllAfter_shouldContinueAfterAllKeysOfSort() {
+
+        when(bookRepository.findSummariesSorted(eq(BookSort.RATING), isNull(), eq(2)))
+                .thenReturn(List.of(new SortedBookSummaryRow(bookRow1, List.of(4.25, 7L)), new SortedBookSummaryRow(bookRow2, List.of(4.0, 2L))));
+        when(bookRepository.findSummariesSorted(eq(BookSort.AVAILABILITY), isNull(), eq(2)))
+                .thenReturn(List.of(new SortedBookSummaryRow(bookRow1, List.of(true, "Title: 1", 7L)), new SortedBookSummaryRow(bookRow2, List.of(false, "Title 2", 2L))));
+        when(bookRepository.findSummariesSorted(BookSort.RATING, List.of(4.25, 7L), 2)).thenReturn(List.of());
+        when(bookRepository.findSummariesSorted(BookSort.AVAILABILITY, List.of(true, "Title: 1", 7L), 2)).thenReturn(List.of());
+        mapSummaries();
+
+        bookService.findAllAfter(bookService.findAllAfter(null, 1, "rating").getNextCursor(), 1, "rating");
+        bookService.findAllAfter(bookService.findAllAfter(null, 1, "availability").getNextCursor(), 1, "availability");
+
+        verify(bookRepository, times(1)).findSummariesSorted(BookSort.RATING, List.of(4.25, 7L), 2);
+        verify(bookRepository, times(1)).findSummariesSorted(BookSort.AVAILABILITY, List.of(true, "Title: 1", 7L), 2);
+    }
+
+    @Test
+    void findAllAfter_shouldThrowBookExceptionIfCursorIsInvalid() {
+
+        String idCursor = Base64.getUrlEncoder().encodeToString("id:1".getBytes(StandardCharsets.UTF_8));
+        String availabilityCursor = Base64.getUrlEncoder().encodeToString("availability:1:maybe:Title".getBytes(StandardCharsets.UTF_8));
+
+        BookException invalidException = assertThrows(BookException.class, () -> bookService.findAllAfter("not a cursor", booksPerPage, BookService.SORT_BY_ID));
+        BookException sortException = assertThrows(BookException.class, () -> bookService.findAllAfter(idCursor, booksPerPage, BookService.SORT_BY_TITLE));
+        BookException keyException = assertThrows(BookException.class, () -> bookService.findAllAfter(availabilityCursor, booksPerPage, "availability"));
+
+        assertEquals("Invalid cursor ", invalidException.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, invalidException.getHttpStatus());
+        assertEquals("Invalid cursor ", sortException.getMessage());
+        assertEquals("Invalid cursor ", keyException.getMessage());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void findAllAfter_shouldThrowBookExceptionIfSortIsNotSupported() {
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.findAllAfter(null, booksPerPage, "description"));
+
+        assertEquals("Books can only be sorted by 'id', 'title', 'author', 'newest', 'rating', 'popularity', 'availability' ", exception.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verifyNoInteractions(bookRepository);
     }
 
     @Test
     void findById_shouldReturnBookDtoById() {
 
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO1);
+        when(bookMapper.toBookDTO(any(Book.class))).thenReturn(bookDTO1);
 
         BookDTO returnedBookDTO = bookService.findById(bookId);
 
@@ -150,7 +298,25 @@ class BookServiceTest {
         assertEquals(bookDTO1.getImg(), returnedBookDTO.getImg());
         assertEquals(bookDTO1.getGenres(), returnedBookDTO.getGenres());
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(modelMapper, times(1)).map(any(Book.class), eq(BookDTO.class));
+        verify(bookMapper, times(1)).toBookDTO(any(Book.class));
+    }
+
+    @Test
+    void findById_shouldSumCopiesAvailableOfInventorySlotsIfBookIsHot() {
+
+        book1.setId(bookId);
+        book1.setInventorySlots(4);
+        book1.setCopiesAvailable(1);
+        bookDTO1.setCopiesAvailable(1);
+
+        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(bookMapper.toBookDTO(any(Book.class))).thenReturn(bookDTO1);
+        when(bookInventorySlotRepository.sumCopiesAvailable(any(Long.class))).thenReturn(8);
+
+        BookDTO returnedBookDTO = bookService.findById(bookId);
+
+        assertEquals(9, returnedBookDTO.getCopiesAvailable());
+        verify(bookInventorySlotRepository, times(1)).sumCopiesAvailable(any(Long.class));
     }
 
     @Test
@@ -162,48 +328,133 @@ class BookServiceTest {
         assertEquals("Book not found ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(modelMapper, times(0)).map(any(Book.class), eq(BookDTO.class));
+        verify(bookMapper, times(0)).toBookDTO(any(Book.class));
     }
 
     @Test
     void findAllByTitle_shouldReturnAllBooksByTitlePaginated() {
 
-        List<Book> pageContent = List.of(book1, book2);
+        List<BookSummaryRow> pageContent = List.of(bookRow1, bookRow2);
         Pageable pageable = PageRequest.of(page, booksPerPage);
-        Page<Book> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+        Page<BookSummaryRow> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(bookRepository.findByTitleContainingIgnoreCase(any(String.class), any(Pageable.class))).thenReturn(booksPage);
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO1);
+        when(bookRepository.findSummariesByTitle(any(String.class), any(Pageable.class))).thenReturn(booksPage);
+        mapSummaries();
 
-        Page<BookDTO> bookDTOPage = bookService.findAllByTitle("title", pageable);
+        Page<BookSummaryDTO> bookDTOPage = bookService.findAllByTitle("title", pageable, BookService.SORT_BY_TITLE, false);
 
         assertNotNull(bookDTOPage);
         assertEquals(pageContent.size(), bookDTOPage.getContent().size());
-        verify(bookRepository, times(1)).findByTitleContainingIgnoreCase(any(String.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Book.class), eq(BookDTO.class));
+        verify(bookRepository, times(1)).findSummariesByTitle(any(String.class), any(Pageable.class));
+        verify(bookMapper, times(0)).toBookDTO(any(Book.class));
     }
 
     @Test
-    void findAllByGenre_shouldReturnAllBooksByGenrePaginated() {
+    void searchBooks_shouldReturnBooksFoundByFullTextSearchPaginated() {
 
-        book1.setGenres(List.of(genre1));
-        book2.setGenres(List.of(genre1));
+        List<BookSummaryRow> pageContent = List.of(bookRow1, bookRow2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        Page<BookSummaryRow> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+
+        when(bookRepository.search(any(String.class), any(Pageable.class))).thenReturn(booksPage);
+        mapSummaries();
+
+        Page<BookSummaryDTO> bookDTOPage = bookService.searchBooks("title", pageable);
+
+        assertEquals(pageContent.size(), bookDTOPage.getContent().size());
+        assertEquals(2, bookDTOPage.getTotalElements());
+        verify(bookRepository, times(1)).search("title", pageable);
+    }
+
+    @Test
+    void searchBooksInIndex_shouldReturnBooksInRankedOrderWithTotalOfIndex() {
+
+        Pageable pageable = PageRequest.of(1, 2);
+
+        when(bookSearchIndex.search("title", 2, 2)).thenReturn(Optional.of(new SearchHits(5, List.of(2L, 3L, 1L))));
+        when(bookRepository.findSummariesByIds(List.of(2L, 3L, 1L))).thenReturn(List.of(bookRow1, bookRow2));
+        mapSummaries();
+
+        Page<BookSummaryDTO> bookDTOPage = bookService.searchBooksInIndex("title", pageable);
+
+        assertEquals(List.of(2L, 1L), bookDTOPage.getContent().stream().map(BookSummaryDTO::getId).toList());
+        assertEquals(5, bookDTOPage.getTotalElements());
+        verify(bookRepository, times(0)).search(any(String.class), any(Pageable.class));
+    }
+
+    @Test
+    void searchBooksInIndex_shouldFallBackToFullTextSearchIfIndexIsNotBuilt() {
 
-        List<Book> pageContent = List.of(book1, book2);
         Pageable pageable = PageRequest.of(page, booksPerPage);
-        Page<Book> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+
+        when(bookSearchIndex.search(any(String.class), anyInt(), anyInt())).thenReturn(Optional.empty());
+        when(bookRepository.search(any(String.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(bookRow1), pageable, 1));
+        mapSummaries();
+
+        Page<BookSummaryDTO> bookDTOPage = bookService.searchBooksInIndex("title", pageable);
+
+        assertEquals(1, bookDTOPage.getContent().size());
+        verify(bookRepository, times(1)).search("title", pageable);
+        verify(bookRepository, times(0)).findSummariesByIds(anyList());
+    }
+
+    @Test
+    void suggest_shouldReturnSuggestionsOfIndex() {
+
+        when(bookSearchIndex.suggest("tol")).thenReturn(Optional.of(List.of(
+                new Suggestion("J. R. R. Tolkien", SuggestionType.AUTHOR, null),
+                new Suggestion("The Hobbit", SuggestionType.TITLE, 2L))));
+
+        List<BookSuggestionDTO> suggestions = bookService.suggest("tol");
+
+        assertEquals(2, suggestions.size());
+        assertEquals("J. R. R. Tolkien", suggestions.get(0).getText());
+        assertEquals(SuggestionType.AUTHOR, suggestions.get(0).getType());
+        assertNull(suggestions.get(0).getBookId());
+        assertEquals(2L, suggestions.get(1).getBookId());
+        verify(bookRepository, times(0)).findSuggestionDocuments(any(String.class), any(Pageable.class));
+    }
+
+    @Test
+    void suggest_shouldFallBackToTitlesOfDataBaseIfIndexIsNotBuilt() {
+
+        when(bookSearchIndex.suggest(any(String.class))).thenReturn(Optional.empty());
+        when(bookRepository.findSuggestionDocuments(any(String.class), any(Pageable.class)))
+                .thenReturn(List.of(new BookSearchDocument(1L, "Title 1", "Author 1", "Description 1", 0)));
+
+        List<BookSuggestionDTO> suggestions = bookService.suggest(" tit ");
+
+        assertEquals(1, suggestions.size());
+        assertEquals("Title 1", suggestions.get(0).getText());
+        assertEquals(SuggestionType.TITLE, suggestions.get(0).getType());
+        assertEquals(1L, suggestions.get(0).getBookId());
+        verify(bookRepository, times(1)).findSuggestionDocuments("tit", PageRequest.of(0, BookSearchIndex.MAX_SUGGESTIONS));
+    }
+
+    @Test
+    void suggest_shouldReturnNothingForBlankPrefix() {
+
+        assertEquals(List.of(), bookService.suggest(" "));
+        verifyNoInteractions(bookSearchIndex);
+    }
+
+    @Test
+    void findAllByGenre_shouldReturnAllBooksByGenrePaginated() {
+
+        List<BookSummaryRow> pageContent = List.of(bookRow1, bookRow2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        Page<BookSummaryRow> booksPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
         when(genreRepository.findByDescription(any(String.class))).thenReturn(Optional.of(genre1));
-        when(bookRepository.findByGenresContains(any(Genre.class), any(Pageable.class))).thenReturn(booksPage);
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO1);
+        when(bookRepository.findSummariesByGenre(any(Genre.class), any(Pageable.class))).thenReturn(booksPage);
+        mapSummaries();
 
-        Page<BookDTO> bookDTOPage = bookService.findAllByGenre(genre1.getDescription(), pageable);
+        Page<BookSummaryDTO> bookDTOPage = bookService.findAllByGenre(genre1.getDescription(), pageable, BookService.SORT_BY_ID, false);
 
         assertNotNull(bookDTOPage);
         assertEquals(pageContent.size(), bookDTOPage.getContent().size());
         verify(genreRepository, times(1)).findByDescription(any(String.class));
-        verify(bookRepository, times(1)).findByGenresContains(any(Genre.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Book.class), eq(BookDTO.class));
+        verify(bookRepository, times(1)).findSummariesByGenre(any(Genre.class), any(Pageable.class));
     }
 
     @Test
@@ -213,26 +464,183 @@ class BookServiceTest {
 
         when(genreRepository.findByDescription(any(String.class))).thenReturn(Optional.empty());
 
-        GenreException exception = assertThrows(GenreException.class, () -> bookService.findAllByGenre("Incorrect genre", pageable));
+        GenreException exception = assertThrows(GenreException.class, () -> bookService.findAllByGenre("Incorrect genre", pageable, BookService.SORT_BY_ID, false));
         assertEquals("No such genre found ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(genreRepository, times(1)).findByDescription(any(String.class));
-        verify(bookRepository, times(0)).findByGenresContains(any(Genre.class), any(Pageable.class));
-        verify(modelMapper, times(0)).map(any(Book.class), eq(BookDTO.class));
+        verify(bookRepository, times(0)).findSummariesByGenre(any(Genre.class), any(Pageable.class));
+        verify(bookMapper, times(0)).toBookSummaryDTOs(anyList(), anyList());
+    }
+
+    @Test
+    void findAllMatching_shouldReturnPageOfBooksMatchingFilters() {
+
+        List<BookSummaryRow> pageContent = List.of(bookRow1, bookRow2);
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+        CountedPage<BookSummaryRow> booksPage = new CountedPage<>(pageContent, pageable, 20000, false);
+
+        when(genreRepository.findByDescription(genre1.getDescription())).thenReturn(Optional.of(genre1));
+        when(bookRepository.findSummariesMatching(any(BookFilter.class), any(Pageable.class), anyBoolean())).thenReturn(booksPage);
+        mapSummaries();
+
+        Page<BookSummaryDTO> bookDTOPage = bookService.findAllMatching(" Title ", "Author", genre1.getDescription(), true, pageable, BookService.SORT_BY_TITLE, true);
+
+        assertEquals(pageContent.size(), bookDTOPage.getContent().size());
+        assertEquals(20000, bookDTOPage.getTotalElements());
+        assertFalse(assertInstanceOf(CountedPage.class, bookDTOPage).isTotalExact());
+        verify(bookRepository, times(1)).findSummariesMatching(new BookFilter("Title", "Author", genre1, true),
+                PageRequest.of(page, booksPerPage, Sort.by(Sort.Direction.ASC, "title").and(Sort.by(Sort.Direction.ASC, "id"))), true);
+    }
+
+    @Test
+    void findAllMatching_shouldNotLookUpGenreIfItIsNotFiltered() {
+
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        when(bookRepository.findSummariesMatching(any(BookFilter.class), any(Pageable.class), anyBoolean()))
+                .thenReturn(new CountedPage<>(List.of(), pageable, 0, true));
+
+        Page<BookSummaryDTO> bookDTOPage = bookService.findAllMatching(null, " ", "", false, pageable, BookService.SORT_BY_ID, false);
+
+        assertTrue(bookDTOPage.isEmpty());
+        verify(genreRepository, times(0)).findByDescription(any(String.class));
+        verify(bookRepository, times(1)).findSummariesMatching(eq(BookFilter.NONE), any(Pageable.class), eq(false));
+    }
+
+    @Test
+    void findAllMatching_shouldThrowGenreExceptionIfGenreIsIncorrect() {
+
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        when(genreRepository.findByDescription(any(String.class))).thenReturn(Optional.empty());
+
+        GenreException exception = assertThrows(GenreException.class,
+                () -> bookService.findAllMatching("Title", null, "Incorrect genre", false, pageable, BookService.SORT_BY_ID, false));
+        assertEquals("No such genre found ", exception.getMessage());
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        verify(bookRepository, times(0)).findSummariesMatching(any(BookFilter.class), any(Pageable.class), anyBoolean());
+    }
+
+    @Test
+    void findAllMatching_shouldThrowBookExceptionIfSortIsNotSupported() {
+
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        BookException exception = assertThrows(BookException.class,
+                () -> bookService.findAllMatching(null, null, genre1.getDescription(), false, pageable, "price", false));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verify(genreRepository, times(0)).findByDescription(any(String.class));
+        verify(bookRepository, times(0)).findSummariesMatching(any(BookFilter.class), any(Pageable.class), anyBoolean());
+    }
+
+    @Test
+    void findAll_shouldListAllBooksWithApproximateTotalIfRequested() {
+
+        Pageable pageable = PageRequest.of(page, booksPerPage);
+
+        when(bookRepository.findSummariesMatching(any(BookFilter.class), any(Pageable.class), anyBoolean()))
+                .thenReturn(new CountedPage<>(List.of(), pageable, 0, true));
+
+        bookService.findAll(pageable, BookService.SORT_BY_ID, true);
+        bookService.findAllByTitle("title", pageable, BookService.SORT_BY_ID, true);
+
+        verify(bookRepository, times(1)).findSummariesMatching(eq(BookFilter.NONE), any(Pageable.class), eq(true));
+        verify(bookRepository, times(1)).findSummariesMatching(eq(new BookFilter("title", null, null, false)), any(Pageable.class), eq(true));
+        verify(bookRepository, times(0)).findSummaries(any(Pageable.class));
+        verify(bookRepository, times(0)).findSummariesByTitle(any(String.class), any(Pageable.class));
+    }
+
+    @Test
+    void findAllByGenres_shouldReturnPageOfFilteredBooksWithGenreCounts() {
+
+        Pageable pageable = PageRequest.of(1, 2);
+        Map<String, Long> genreCounts = Map.of("Genre 1", 5L, "Genre 2", 3L);
+
+        when(genreFacetIndex.hasGenre(any(String.class))).thenReturn(true);
+        when(genreFacetIndex.filter(List.of("Genre 1", "Genre 2"), false, true, 2, 2)).thenReturn(Optional.of(new FacetHits(5, List.of(2L, 1L), genreCounts)));
+        when(bookRepository.findSummariesByIds(List.of(2L, 1L))).thenReturn(List.of(bookRow1, bookRow2));
+        mapSummaries();
+
+        BookFacetsDTO bookFacetsDTO = bookService.findAllByGenres(List.of("Genre 1", "Genre 2"), BookService.MATCH_ANY_GENRE, true, pageable);
+
+        assertEquals(5, bookFacetsDTO.getBooks().getTotalElements());
+        assertEquals(2, bookFacetsDTO.getBooks().getContent().size());
+        assertEquals(genreCounts, bookFacetsDTO.getGenreCounts());
+        verify(bookRepository, times(0)).findSummariesByGenre(any(Genre.class), any(Pageable.class));
+    }
+
+    @Test
+    void findAllByGenres_shouldThrowGenreExceptionIfGenreIsNotFound() {
+
+        when(genreFacetIndex.filter(anyList(), anyBoolean(), anyBoolean(), anyInt(), anyInt())).thenReturn(Optional.of(new FacetHits(0, List.of(), Map.of())));
+        when(genreFacetIndex.hasGenre("Genre 1")).thenReturn(true);
+        when(genreFacetIndex.hasGenre("Unknown")).thenReturn(false);
+
+        GenreException genreException = assertThrows(GenreException.class,
+                () -> bookService.findAllByGenres(List.of("Genre 1", "Unknown"), BookService.MATCH_ALL_GENRES, false, PageRequest.of(page, booksPerPage)));
+
+        assertEquals("No such genre found ", genreException.getMessage());
+        verify(bookRepository, times(0)).findSummariesByIds(anyList());
+    }
+
+    @Test
+    void findAllByGenres_shouldFilterAndCountInDataBaseUntilBitmapsAreBuilt() {
+
+        Pageable pageable = PageRequest.of(1, 2);
+
+        when(genreFacetIndex.filter(List.of("Genre 1", "Genre 2"), false, true, 2, 2)).thenReturn(Optional.empty());
+        when(genreRepository.findAll()).thenReturn(List.of(new Genre("Genre 1"), new Genre("Genre 2"), new Genre("Genre 3")));
+        when(bookRepository.findSummariesMatching(any(Specification.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(bookRow1, bookRow2), pageable, 5));
+        when(bookRepository.countGenresMatching(any(Specification.class))).thenReturn(Map.of("Genre 1", 5L, "Genre 2", 3L, "Genre 3", 0L));
+        mapSummaries();
+
+        BookFacetsDTO bookFacetsDTO = bookService.findAllByGenres(List.of("Genre 1", "Genre 2"), BookService.MATCH_ANY_GENRE, true, pageable);
+
+        assertEquals(5, bookFacetsDTO.getBooks().getTotalElements());
+        assertEquals(2, bookFacetsDTO.getBooks().getContent().size());
+        assertEquals(Map.of("Genre 1", 5L, "Genre 2", 3L, "Genre 3", 0L), bookFacetsDTO.getGenreCounts());
+        verify(bookRepository, times(1)).findSummariesMatching(any(Specification.class), eq(PageRequest.of(1, 2, BookSort.ID.toSort())));
+        verify(genreFacetIndex, times(0)).hasGenre(any(String.class));
+    }
+
+    @Test
+    void findAllByGenres_shouldThrowGenreExceptionIfGenreIsNotInDataBase() {
+
+        when(genreFacetIndex.filter(anyList(), anyBoolean(), anyBoolean(), anyInt(), anyInt())).thenReturn(Optional.empty());
+        when(genreRepository.findAll()).thenReturn(List.of(new Genre("Genre 1")));
+
+        GenreException genreException = assertThrows(GenreException.class,
+                () -> bookService.findAllByGenres(List.of("Genre 1", "Unknown"), BookService.MATCH_ALL_GENRES, false, PageRequest.of(page, booksPerPage)));
+
+        assertEquals("No such genre found ", genreException.getMessage());
+        verify(bookRepository, times(0)).findSummariesMatching(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void findAllByGenres_shouldThrowBookExceptionIfMatchIsInvalid() {
+
+        BookException bookException = assertThrows(BookException.class,
+                () -> bookService.findAllByGenres(List.of("Genre 1"), "some", false, PageRequest.of(page, booksPerPage)));
+
+        assertEquals("Genre match must be all or any ", bookException.getMessage());
+        verifyNoInteractions(genreFacetIndex);
     }
 
     @Test
     void addBook_shouldAddBookToDatabaseAndReturnSavedBookDTO() {
 
-        genre1.setBooks(new ArrayList<>(Collections.singleton(book1)));
+        genre1.setId(1L);
+        book1.setId(bookId);
 
         BindingResult bindingResult = new BindException(bookDTO1, "bookDTO");
 
-        when(modelMapper.map(any(BookDTO.class), eq(Book.class))).thenReturn(book1);
+        when(bookMapper.toBook(any(BookDTO.class))).thenReturn(book1);
         doNothing().when(bookValidator).validate(any(Book.class), any(Errors.class));
+        when(imageStore.decodeDataUrl(bookDTO1.getImg())).thenReturn(Optional.of(image));
         when(genreRepository.findByDescriptionIn(anyList())).thenReturn(List.of(genre1));
+        when(imageStore.store(image)).thenReturn(imageHash);
         when(bookRepository.save(any(Book.class))).thenReturn(book1);
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO1);
+        when(bookMapper.toBookDTO(any(Book.class))).thenReturn(bookDTO1);
 
         BookDTO savedBookDTO = assertDoesNotThrow(() -> bookService.addBook(bookDTO1, bindingResult));
 
@@ -244,11 +652,16 @@ class BookServiceTest {
         assertEquals(bookDTO1.getCopiesAvailable(), savedBookDTO.getCopiesAvailable());
         assertEquals(bookDTO1.getImg(), savedBookDTO.getImg());
         assertEquals(bookDTO1.getGenres(), savedBookDTO.getGenres());
-        verify(modelMapper, times(1)).map(any(BookDTO.class), eq(Book.class));
+        assertEquals(imageHash, book1.getImageHash());
+        verify(imageThumbnails, times(1)).generateAll(imageHash);
+        verify(bookMapper, times(1)).toBook(any(BookDTO.class));
         verify(bookValidator, times(1)).validate(any(Book.class), any(Errors.class));
         verify(genreRepository, times(1)).findByDescriptionIn(anyList());
         verify(bookRepository, times(1)).save(any(Book.class));
-        verify(modelMapper, times(1)).map(any(Book.class), eq(BookDTO.class));
+        verify(bookRepository, times(1)).addGenres(bookId, List.of(1L));
+        verify(bookSearchIndex, times(1)).add(any(Book.class));
+        verify(genreFacetIndex, times(1)).add(any(Book.class));
+        verify(bookMapper, times(1)).toBookDTO(any(Book.class));
     }
 
     @Test
@@ -257,18 +670,36 @@ class BookServiceTest {
         BindingResult bindingResult = new BindException(bookDTO1, "bookDTO");
         bindingResult.addError(new FieldError("bookDTO", "title", "Book with this title from this author already exists"));
 
-        when(modelMapper.map(any(BookDTO.class), eq(Book.class))).thenReturn(book1);
+        when(bookMapper.toBook(any(BookDTO.class))).thenReturn(book1);
         doNothing().when(bookValidator).validate(any(Book.class), any(Errors.class));
+        when(imageStore.decodeDataUrl(bookDTO1.getImg())).thenReturn(Optional.of(image));
 
         BookException exception = assertThrows(BookException.class, () -> bookService.addBook(bookDTO1, bindingResult));
 
         assertEquals("Some fields are invalid. title: Book with this title from this author already exists; ", exception.getMessage());
         assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
-        verify(modelMapper, times(1)).map(any(BookDTO.class), eq(Book.class));
+        verify(bookMapper, times(1)).toBook(any(BookDTO.class));
         verify(bookValidator, times(1)).validate(any(Book.class), any(Errors.class));
         verify(genreRepository, times(0)).findByDescriptionIn(anyList());
         verify(bookRepository, times(0)).save(any(Book.class));
-        verify(modelMapper, times(0)).map(any(Book.class), eq(BookDTO.class));
+        verify(bookMapper, times(0)).toBookDTO(any(Book.class));
+    }
+
+    @Test
+    void addBook_shouldThrowBookExceptionIfImageIsNotSupported() {
+
+        BindingResult bindingResult = new BindException(bookDTO1, "bookDTO");
+
+        when(bookMapper.toBook(any(BookDTO.class))).thenReturn(book1);
+        doNothing().when(bookValidator).validate(any(Book.class), any(Errors.class));
+        when(imageStore.decodeDataUrl(bookDTO1.getImg())).thenReturn(Optional.empty());
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.addBook(bookDTO1, bindingResult));
+
+        assertEquals("Some fields are invalid. img: Cover image must be a PNG, JPEG, GIF or WebP data URL; ", exception.getMessage());
+        assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
+        verify(imageStore, times(0)).store(any());
+        verify(bookRepository, times(0)).save(any(Book.class));
     }
 
     @Test
@@ -276,18 +707,20 @@ class BookServiceTest {
 
         BindingResult bindingResult = new BindException(bookDTO1, "bookDTO");
 
-        when(modelMapper.map(any(BookDTO.class), eq(Book.class))).thenReturn(book1);
+        when(bookMapper.toBook(any(BookDTO.class))).thenReturn(book1);
         doNothing().when(bookValidator).validate(any(Book.class), any(Errors.class));
+        when(imageStore.decodeDataUrl(bookDTO1.getImg())).thenReturn(Optional.of(image));
         when(genreRepository.findByDescriptionIn(anyList())).thenReturn(List.of());
 
         GenreException exception = assertThrows(GenreException.class, () -> bookService.addBook(bookDTO1, bindingResult));
         assertEquals("No such genres found ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
-        verify(modelMapper, times(1)).map(any(BookDTO.class), eq(Book.class));
+        verify(bookMapper, times(1)).toBook(any(BookDTO.class));
         verify(bookValidator, times(1)).validate(any(Book.class), any(Errors.class));
         verify(genreRepository, times(1)).findByDescriptionIn(anyList());
+        verify(imageStore, times(0)).store(any());
         verify(bookRepository, times(0)).save(any(Book.class));
-        verify(modelMapper, times(0)).map(any(Book.class), eq(BookDTO.class));
+        verify(bookMapper, times(0)).toBookDTO(any(Book.class));
     }
 
     @Test
@@ -296,7 +729,10 @@ class BookServiceTest {
         doNothing().when(bookRepository).deleteById(any(Long.class));
 
         assertDoesNotThrow(() -> bookService.deleteById(bookId));
+        verify(accountSummaryRepository, times(1)).removeLoansOfBook(bookId);
         verify(bookRepository, times(1)).deleteById(any(Long.class));
+        verify(bookSearchIndex, times(1)).remove(bookId);
+        verify(genreFacetIndex, times(1)).remove(bookId);
     }
 
     @Test
@@ -304,12 +740,12 @@ class BookServiceTest {
 
         String operation = "increase";
 
-        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-        when(bookRepository.save(any(Book.class))).thenReturn(book1);
+        when(bookRepository.increaseQuantity(any(Long.class))).thenReturn(1);
 
         assertDoesNotThrow(() -> bookService.changeQuantity(bookId, operation));
-        verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(1)).increaseQuantity(any(Long.class));
+        verify(bookRepository, times(0)).findById(any(Long.class));
+        verify(bookRepository, times(0)).save(any(Book.class));
     }
 
     @Test
@@ -317,24 +753,22 @@ class BookServiceTest {
 
         String operation = "decrease";
 
-        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-        when(bookRepository.save(any(Book.class))).thenReturn(book1);
+        when(bookRepository.decreaseQuantity(any(Long.class))).thenReturn(1);
 
         assertDoesNotThrow(() -> bookService.changeQuantity(bookId, operation));
-        verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(1)).decreaseQuantity(any(Long.class));
+        verify(bookRepository, times(0)).existsById(any(Long.class));
+        verify(bookRepository, times(0)).save(any(Book.class));
     }
 
     @Test
-    void changeQuantity_shouldNotSaveIfOperationIsInvalid() {
+    void changeQuantity_shouldNotUpdateIfOperationIsInvalid() {
 
         String operation = "Invalid operation";
 
-        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-
         assertDoesNotThrow(() -> bookService.changeQuantity(bookId, operation));
-        verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(bookRepository, times(0)).save(any(Book.class));
+        verify(bookRepository, times(0)).increaseQuantity(any(Long.class));
+        verify(bookRepository, times(0)).decreaseQuantity(any(Long.class));
     }
 
     @Test
@@ -342,43 +776,119 @@ class BookServiceTest {
 
         String operation = "increase";
 
+        when(bookRepository.increaseQuantity(any(Long.class))).thenReturn(0);
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.changeQuantity(invalidBookId, operation));
+        assertEquals("Book not found ", exception.getMessage());
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        verify(bookRepository, times(1)).increaseQuantity(any(Long.class));
+    }
+
+    @Test
+    void changeQuantity_shouldThrowBookExceptionIfBookIdIsInvalidAndOperationIsDecrease() {
+
+        String operation = "decrease";
+
+        when(bookRepository.decreaseQuantity(any(Long.class))).thenReturn(0);
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.empty());
 
         BookException exception = assertThrows(BookException.class, () -> bookService.changeQuantity(invalidBookId, operation));
         assertEquals("Book not found ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        verify(bookRepository, times(1)).decreaseQuantity(any(Long.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(bookRepository, times(0)).save(any(Book.class));
     }
 
     @Test
-    void changeQuantity_shouldThrowBookExceptionIfCopiesIsAlreadyZero() {
+    void changeQuantity_shouldThrowBookExceptionIfCopiesOrCopiesAvailableIsAlreadyZero() {
 
         String operation = "decrease";
-        book1.setCopies(0);
 
+        when(bookRepository.decreaseQuantity(any(Long.class))).thenReturn(0);
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
 
         BookException exception = assertThrows(BookException.class, () -> bookService.changeQuantity(bookId, operation));
         assertEquals("Book quantity is already 0 ", exception.getMessage());
         assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
+        verify(bookRepository, times(1)).decreaseQuantity(any(Long.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(bookRepository, times(0)).save(any(Book.class));
+        verify(bookRepository, times(0)).decreaseCopies(any(Long.class));
     }
 
     @Test
-    void changeQuantity_shouldThrowBookExceptionIfCopiesAvailableIsAlreadyZero() {
+    void changeQuantity_shouldTakeCopyFromInventorySlotsIfBookIsHot() {
 
         String operation = "decrease";
-        book1.setCopiesAvailable(0);
+        book1.setId(bookId);
+        book1.setInventorySlots(2);
 
+        when(bookRepository.decreaseQuantity(any(Long.class))).thenReturn(0);
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(bookInventorySlotRepository.decrementCopiesAvailable(any(Long.class), anyInt())).thenReturn(1);
+        when(bookRepository.decreaseCopies(any(Long.class))).thenReturn(1);
 
-        BookException exception = assertThrows(BookException.class, () -> bookService.changeQuantity(bookId, operation));
-        assertEquals("Book quantity is already 0 ", exception.getMessage());
-        assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
-        verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(bookRepository, times(0)).save(any(Book.class));
+        assertDoesNotThrow(() -> bookService.changeQuantity(bookId, operation));
+        verify(bookInventorySlotRepository, times(1)).decrementCopiesAvailable(any(Long.class), anyInt());
+        verify(bookRepository, times(1)).decreaseCopies(any(Long.class));
+    }
+
+    @Test
+    void changeInventorySlots_shouldSpreadAllAvailableCopiesOverNewSlots() {
+
+        book1.setCopiesAvailable(3);
+        BookInventorySlot oldSlot = new BookInventorySlot(book1, 0, 8);
+
+        when(bookRepository.findByIdForUpdate(any(Long.class))).thenReturn(Optional.of(book1));
+        when(bookInventorySlotRepository.findBySlottedBookId(any(Long.class))).thenReturn(List.of(oldSlot));
+        when(bookRepository.save(any(Book.class))).thenReturn(book1);
+
+        assertDoesNotThrow(() -> bookService.changeInventorySlots(bookId, 4));
+
+        verify(bookInventorySlotRepository, times(1)).deleteAllInBatch(List.of(oldSlot));
+        verify(bookInventorySlotRepository, times(1)).saveAll(List.of(new BookInventorySlot(book1, 0, 3), new BookInventorySlot(book1, 1, 3),
+                new BookInventorySlot(book1, 2, 3), new BookInventorySlot(book1, 3, 2)));
+        assertEquals(0, book1.getCopiesAvailable());
+        assertEquals(4, book1.getInventorySlots());
+        verify(bookRepository, times(1)).setStockedSlots(bookId, 4);
+    }
+
+    @Test
+    void changeInventorySlots_shouldMoveCopiesBackToBookIfSlotsIsZero() {
+
+        book1.setCopiesAvailable(0);
+        book1.setInventorySlots(2);
+
+        when(bookRepository.findByIdForUpdate(any(Long.class))).thenReturn(Optional.of(book1));
+        when(bookInventorySlotRepository.findBySlottedBookId(any(Long.class)))
+                .thenReturn(List.of(new BookInventorySlot(book1, 0, 4), new BookInventorySlot(book1, 1, 5)));
+        when(bookRepository.save(any(Book.class))).thenReturn(book1);
+
+        assertDoesNotThrow(() -> bookService.changeInventorySlots(bookId, 0));
+
+        verify(bookInventorySlotRepository, times(1)).saveAll(List.of());
+        assertEquals(9, book1.getCopiesAvailable());
+        assertEquals(0, book1.getInventorySlots());
+        verify(bookRepository, times(1)).setStockedSlots(bookId, 0);
+    }
+
+    @Test
+    void changeInventorySlots_shouldThrowBookExceptionIfSlotsIsOutOfRange() {
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.changeInventorySlots(bookId, BookService.MAX_INVENTORY_SLOTS + 1));
+        assertEquals("Inventory slots must be between 0 and 64 ", exception.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verify(bookRepository, times(0)).findByIdForUpdate(any(Long.class));
+    }
+
+    @Test
+    void changeInventorySlots_shouldThrowBookExceptionIfBookIdIsInvalid() {
+
+        when(bookRepository.findByIdForUpdate(any(Long.class))).thenReturn(Optional.empty());
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.changeInventorySlots(invalidBookId, 4));
+        assertEquals("Book not found ", exception.getMessage());
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        verify(bookInventorySlotRepository, times(0)).saveAll(any());
     }
 
     @Test
@@ -442,28 +952,116 @@ class BookServiceTest {
     @Test
     void checkoutBook_shouldCreateCheckoutEntityAndUpdateBook() {
 
-        List<Checkout> checkouts = new ArrayList<>(Collections.singletonList(checkout));
-        book1.setCheckouts(checkouts);
-
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
-        when(checkoutRepository.findByCheckoutHolder(any(Person.class))).thenReturn(checkouts);
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.empty());
         when(paymentRepository.findByPaymentHolder(any(Person.class))).thenReturn(Optional.empty());
         when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
+        when(bookRepository.decrementCopiesAvailable(any(Long.class))).thenReturn(1);
         when(checkoutRepository.save(any(Checkout.class))).thenReturn(checkout);
-        when(bookRepository.save(any(Book.class))).thenReturn(book1);
 
         assertDoesNotThrow(() -> bookService.checkoutBook(personEmail, bookId));
-        assertEquals(book1.getCopies() - 1, book1.getCopiesAvailable());
+        assertNull(book1.getCheckouts());
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(1)).findByCheckoutHolder(any(Person.class));
+        verify(accountSummaryRepository, times(1)).findById(any(String.class));
         verify(paymentRepository, times(1)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(1)).openWithLoan(personEmail, LocalDate.now().plusDays(7), 00.00);
+        verify(bookRepository, times(1)).decrementCopiesAvailable(any(Long.class));
         verify(checkoutRepository, times(1)).save(any(Checkout.class));
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(0)).save(any(Book.class));
+    }
+
+    @Test
+    void checkoutBook_shouldTakeCopyFromInventorySlotInsteadOfBookRowIfBookIsHot() {
+
+        book1.setId(bookId);
+        book1.setInventorySlots(4);
+
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.of(accountSummary));
+        when(bookInventorySlotRepository.decrementCopiesAvailable(any(Long.class), anyInt())).thenReturn(0, 0, 1);
+        when(checkoutRepository.save(any(Checkout.class))).thenReturn(checkout);
+
+        assertDoesNotThrow(() -> bookService.checkoutBook(personEmail, bookId));
+        verify(bookInventorySlotRepository, times(3)).decrementCopiesAvailable(any(Long.class), anyInt());
+        verify(bookRepository, times(0)).decrementCopiesAvailable(any(Long.class));
+        verify(bookRepository, times(0)).decrementStockedSlots(any(Long.class));
+        verify(checkoutRepository, times(1)).save(any(Checkout.class));
+    }
+
+    @Test
+    void checkoutBook_shouldCountInventorySlotAsEmptiedIfItsLastCopyIsTaken() {
+
+        book1.setId(bookId);
+        book1.setInventorySlots(4);
+
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.of(accountSummary));
+        when(bookInventorySlotRepository.takeLastCopy(any(Long.class), anyInt())).thenReturn(1);
+        when(checkoutRepository.save(any(Checkout.class))).thenReturn(checkout);
+
+        assertDoesNotThrow(() -> bookService.checkoutBook(personEmail, bookId));
+        verify(bookInventorySlotRepository, times(1)).decrementCopiesAvailable(any(Long.class), anyInt());
+        verify(bookInventorySlotRepository, times(1)).takeLastCopy(any(Long.class), anyInt());
+        verify(bookRepository, times(1)).decrementStockedSlots(bookId);
+        verify(bookRepository, times(0)).decrementCopiesAvailable(any(Long.class));
+    }
+
+    @Test
+    void checkoutBook_shouldAddLoanToAccountSummaryWithoutLookingUpCheckoutsOrPayment() {
+
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.of(accountSummary));
+        when(bookRepository.decrementCopiesAvailable(any(Long.class))).thenReturn(1);
+
+        assertDoesNotThrow(() -> bookService.checkoutBook(personEmail, bookId));
+        verify(accountSummaryRepository, times(1)).addLoan(personEmail, LocalDate.now().plusDays(7));
+        verify(accountSummaryRepository, times(0)).openWithLoan(any(String.class), any(LocalDate.class), any(Double.class));
+        verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
+        verify(paymentRepository, times(0)).save(any(Payment.class));
+        verify(checkoutRepository, times(1)).save(any(Checkout.class));
+    }
+
+    @Test
+    void checkoutBook_shouldNotLoadEntitiesIfCheckoutIsDoneInOneStatement() {
+
+        when(bookRepository.checkoutInOneStatement(any(String.class), any(Long.class))).thenReturn(Optional.of(CirculationResult.OK));
+
+        assertDoesNotThrow(() -> bookService.checkoutBook(personEmail, bookId));
+        verify(personRepository, times(0)).findByEmail(any(String.class));
+        verify(bookRepository, times(0)).findById(any(Long.class));
+        verify(checkoutRepository, times(0)).save(any(Checkout.class));
+    }
+
+    @Test
+    void checkoutBook_shouldThrowBookExceptionIfOneStatementCheckoutReportsExistingCheckout() {
+
+        when(bookRepository.checkoutInOneStatement(any(String.class), any(Long.class))).thenReturn(Optional.of(CirculationResult.ALREADY_CHECKED_OUT));
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.checkoutBook(personEmail, bookId));
+        assertEquals("Book is already checked out by this user ", exception.getMessage());
+        assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
+        verify(personRepository, times(0)).findByEmail(any(String.class));
+    }
+
+    @Test
+    void checkoutBook_shouldThrowPaymentExceptionIfOneStatementCheckoutReportsOutstandingFees() {
+
+        when(bookRepository.checkoutInOneStatement(any(String.class), any(Long.class))).thenReturn(Optional.of(CirculationResult.OUTSTANDING_FEES));
+
+        PaymentException exception = assertThrows(PaymentException.class, () -> bookService.checkoutBook(personEmail, bookId));
+        assertEquals("You have outstanding fees / overdue books, checkout is unavailable", exception.getMessage());
+        assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
     }
 
     @Test
@@ -478,7 +1076,6 @@ class BookServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(0)).findById(any(Long.class));
         verify(checkoutRepository, times(0)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
         verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(0)).save(any(Payment.class));
         verify(checkoutRepository, times(0)).save(any(Checkout.class));
@@ -497,29 +1094,6 @@ class BookServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(0)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
-        verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
-        verify(paymentRepository, times(0)).save(any(Payment.class));
-        verify(checkoutRepository, times(0)).save(any(Checkout.class));
-        verify(bookRepository, times(0)).save(any(Book.class));
-    }
-
-    @Test
-    void checkoutBook_shouldThrowBookExceptionIfCopiesIsAlreadyZero() {
-
-        book1.setCopies(0);
-
-        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
-        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-        when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
-
-        BookException exception = assertThrows(BookException.class, () -> bookService.checkoutBook(personEmail, bookId));
-        assertEquals("Book quantity is already 0 ", exception.getMessage());
-        assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
-        verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
         verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(0)).save(any(Payment.class));
         verify(checkoutRepository, times(0)).save(any(Checkout.class));
@@ -529,11 +1103,11 @@ class BookServiceTest {
     @Test
     void checkoutBook_shouldThrowBookExceptionIfCopiesAvailableIsAlreadyZero() {
 
-        book1.setCopiesAvailable(0);
-
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.empty());
+        when(bookRepository.decrementCopiesAvailable(any(Long.class))).thenReturn(0);
 
         BookException exception = assertThrows(BookException.class, () -> bookService.checkoutBook(personEmail, bookId));
         assertEquals("Book quantity is already 0 ", exception.getMessage());
@@ -541,11 +1115,11 @@ class BookServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
-        verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
+        verify(accountSummaryRepository, times(1)).findById(any(String.class));
+        verify(bookRepository, times(1)).decrementCopiesAvailable(any(Long.class));
         verify(paymentRepository, times(0)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(0)).openWithLoan(any(String.class), any(LocalDate.class), any(Double.class));
         verify(checkoutRepository, times(0)).save(any(Checkout.class));
-        verify(bookRepository, times(0)).save(any(Book.class));
     }
 
     @Test
@@ -561,7 +1135,6 @@ class BookServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
         verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(0)).save(any(Payment.class));
         verify(checkoutRepository, times(0)).save(any(Checkout.class));
@@ -569,17 +1142,14 @@ class BookServiceTest {
     }
 
     @Test
-    void checkoutBook_shouldThrowPaymentExceptionIfPaymentExistsAndSomeBooksAreOverdue() {
+    void checkoutBook_shouldThrowPaymentExceptionIfSomeBooksAreOverdue() {
 
-        checkout.setReturnDate(LocalDate.now().minusDays(1));
-        List<Checkout> checkouts = new ArrayList<>(Collections.singletonList(checkout));
-        book1.setCheckouts(checkouts);
+        accountSummary.setEarliestDueDate(LocalDate.now().minusDays(1));
 
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
-        when(checkoutRepository.findByCheckoutHolder(any(Person.class))).thenReturn(checkouts);
-        when(paymentRepository.findByPaymentHolder(any(Person.class))).thenReturn(Optional.of(payment));
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.of(accountSummary));
 
         PaymentException exception = assertThrows(PaymentException.class, () -> bookService.checkoutBook(personEmail, bookId));
         assertEquals("You have outstanding fees / overdue books, checkout is unavailable", exception.getMessage());
@@ -587,26 +1157,22 @@ class BookServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(1)).findByCheckoutHolder(any(Person.class));
-        verify(paymentRepository, times(1)).findByPaymentHolder(any(Person.class));
-        verify(paymentRepository, times(0)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(1)).findById(any(String.class));
+        verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
+        verify(bookRepository, times(0)).decrementCopiesAvailable(any(Long.class));
         verify(checkoutRepository, times(0)).save(any(Checkout.class));
         verify(bookRepository, times(0)).save(any(Book.class));
     }
 
     @Test
-    void checkoutBook_shouldThrowPaymentExceptionIfPaymentExistsAndIsGreaterThanZero() {
+    void checkoutBook_shouldThrowPaymentExceptionIfOutstandingFeesAreGreaterThanZero() {
 
-        List<Checkout> checkouts = new ArrayList<>(Collections.singletonList(checkout));
-        book1.setCheckouts(checkouts);
-
-        payment.setAmount(10.00);
+        accountSummary.setOutstandingFees(10.00);
 
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.empty());
-        when(checkoutRepository.findByCheckoutHolder(any(Person.class))).thenReturn(checkouts);
-        when(paymentRepository.findByPaymentHolder(any(Person.class))).thenReturn(Optional.of(payment));
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.of(accountSummary));
 
         PaymentException exception = assertThrows(PaymentException.class, () -> bookService.checkoutBook(personEmail, bookId));
         assertEquals("You have outstanding fees / overdue books, checkout is unavailable", exception.getMessage());
@@ -614,9 +1180,9 @@ class BookServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
-        verify(checkoutRepository, times(1)).findByCheckoutHolder(any(Person.class));
-        verify(paymentRepository, times(1)).findByPaymentHolder(any(Person.class));
-        verify(paymentRepository, times(0)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(1)).findById(any(String.class));
+        verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
+        verify(bookRepository, times(0)).decrementCopiesAvailable(any(Long.class));
         verify(checkoutRepository, times(0)).save(any(Checkout.class));
         verify(bookRepository, times(0)).save(any(Book.class));
     }
@@ -635,6 +1201,7 @@ class BookServiceTest {
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(checkoutRepository, times(1)).findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class));
         verify(checkoutRepository, times(1)).save(any(Checkout.class));
+        verify(accountSummaryRepository, times(1)).refreshEarliestDueDate(personEmail);
     }
 
     @Test
@@ -706,17 +1273,11 @@ class BookServiceTest {
 
         checkout.setId(1L);
         checkout.setReturnDate(LocalDate.now().minusDays(3));
-        List<Checkout> checkouts = new ArrayList<>(Collections.singletonList(checkout));
-        book1.setCheckouts(checkouts);
 
         HistoryRecord historyRecord = new HistoryRecord(person, book1, checkout.getCheckoutDate(), LocalDate.now());
-        List<HistoryRecord> historyRecords = new ArrayList<>();
-        book1.setHistoryRecords(historyRecords);
 
         double expectedPaymentAmount = payment.getAmount() + (int) ChronoUnit.DAYS.between(checkout.getReturnDate(), LocalDate.now());
 
-        assertEquals(1, book1.getCheckouts().size());
-        assertEquals(0, book1.getHistoryRecords().size());
         assertEquals(book1.getCopies(), book1.getCopiesAvailable());
         assertEquals(00.00, payment.getAmount());
 
@@ -726,13 +1287,12 @@ class BookServiceTest {
         when(paymentRepository.findByPaymentHolder(any(Person.class))).thenReturn(Optional.of(payment));
         when(paymentRepository.save(any(Payment.class))).thenReturn(payment);
         when(historyRecordRepository.save(any(HistoryRecord.class))).thenReturn(historyRecord);
-        when(bookRepository.save(any(Book.class))).thenReturn(book1);
+        when(bookRepository.incrementCopiesAvailable(any(Long.class))).thenReturn(1);
         doNothing().when(checkoutRepository).deleteById(any(Long.class));
 
         assertDoesNotThrow(() -> bookService.returnBook(personEmail, bookId));
-        assertEquals(0, book1.getCheckouts().size());
-        assertEquals(1, book1.getHistoryRecords().size());
-        assertEquals(book1.getCopies() + 1, book1.getCopiesAvailable());
+        assertNull(book1.getCheckouts());
+        assertNull(book1.getHistoryRecords());
         assertEquals(expectedPaymentAmount, payment.getAmount());
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
@@ -740,8 +1300,66 @@ class BookServiceTest {
         verify(paymentRepository, times(1)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(1)).save(any(Payment.class));
         verify(historyRecordRepository, times(1)).save(any(HistoryRecord.class));
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(1)).incrementCopiesAvailable(any(Long.class));
         verify(checkoutRepository, times(1)).deleteById(any(Long.class));
+        verify(accountSummaryRepository, times(1)).removeLoan(personEmail, expectedPaymentAmount);
+    }
+
+    @Test
+    void returnBook_shouldReturnCopyToInventorySlotIfBookIsHot() {
+
+        book1.setId(bookId);
+        book1.setInventorySlots(4);
+
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.of(checkout));
+        when(bookInventorySlotRepository.incrementCopiesAvailable(any(Long.class), anyInt())).thenReturn(1);
+
+        assertDoesNotThrow(() -> bookService.returnBook(personEmail, bookId));
+        verify(bookInventorySlotRepository, times(1)).incrementCopiesAvailable(any(Long.class), anyInt());
+        verify(bookRepository, times(0)).incrementCopiesAvailable(any(Long.class));
+        verify(bookRepository, times(0)).incrementStockedSlots(any(Long.class));
+        verify(historyRecordRepository, times(1)).save(any(HistoryRecord.class));
+    }
+
+    @Test
+    void returnBook_shouldCountInventorySlotAsStockedIfFirstCopyIsReturnedToIt() {
+
+        book1.setId(bookId);
+        book1.setInventorySlots(4);
+
+        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
+        when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
+        when(checkoutRepository.findByCheckoutHolderAndCheckedOutBook(any(Person.class), any(Book.class))).thenReturn(Optional.of(checkout));
+        when(bookInventorySlotRepository.returnFirstCopy(any(Long.class), anyInt())).thenReturn(1);
+
+        assertDoesNotThrow(() -> bookService.returnBook(personEmail, bookId));
+        verify(bookInventorySlotRepository, times(1)).incrementCopiesAvailable(any(Long.class), anyInt());
+        verify(bookInventorySlotRepository, times(1)).returnFirstCopy(any(Long.class), anyInt());
+        verify(bookRepository, times(1)).incrementStockedSlots(bookId);
+        verify(bookRepository, times(0)).incrementCopiesAvailable(any(Long.class));
+    }
+
+    @Test
+    void returnBook_shouldNotLoadEntitiesIfReturnIsDoneInOneStatement() {
+
+        when(bookRepository.returnInOneStatement(any(String.class), any(Long.class))).thenReturn(Optional.of(CirculationResult.OK));
+
+        assertDoesNotThrow(() -> bookService.returnBook(personEmail, bookId));
+        verify(personRepository, times(0)).findByEmail(any(String.class));
+        verify(historyRecordRepository, times(0)).save(any(HistoryRecord.class));
+        verify(checkoutRepository, times(0)).deleteById(any(Long.class));
+    }
+
+    @Test
+    void returnBook_shouldThrowPaymentExceptionIfOneStatementReturnReportsMissingPayment() {
+
+        when(bookRepository.returnInOneStatement(any(String.class), any(Long.class))).thenReturn(Optional.of(CirculationResult.PAYMENT_MISSING));
+
+        PaymentException exception = assertThrows(PaymentException.class, () -> bookService.returnBook(personEmail, bookId));
+        assertEquals("Payment information is missing", exception.getMessage());
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
     }
 
     @Test
@@ -864,6 +1482,38 @@ class BookServiceTest {
         verify(reviewRepository, times(0)).findByPersonEmailAndReviewedBook(any(String.class), any(Book.class));
     }
 
+    @Test
+    void getBookStatuses_shouldReturnFlagsOfEveryDistinctBookInRequestedOrder() {
+
+        List<Long> ids = List.of(3L, 1L, 2L);
+
+        when(checkoutRepository.findCheckedOutBookIds(personEmail, ids)).thenReturn(List.of(1L));
+        when(reviewRepository.findReviewedBookIds(personEmail, ids)).thenReturn(List.of(1L, 2L));
+
+        Map<Long, BookStatusDTO> statuses = bookService.getBookStatuses(personEmail, List.of(3L, 1L, 2L, 1L));
+
+        assertEquals(ids, List.copyOf(statuses.keySet()));
+        assertFalse(statuses.get(3L).isCheckedOut());
+        assertFalse(statuses.get(3L).isReviewed());
+        assertTrue(statuses.get(1L).isCheckedOut());
+        assertTrue(statuses.get(1L).isReviewed());
+        assertFalse(statuses.get(2L).isCheckedOut());
+        assertTrue(statuses.get(2L).isReviewed());
+        verify(checkoutRepository, times(1)).findCheckedOutBookIds(personEmail, ids);
+        verify(reviewRepository, times(1)).findReviewedBookIds(personEmail, ids);
+    }
+
+    @Test
+    void getBookStatuses_shouldThrowBookExceptionIfTooManyIdsAreRequested() {
+
+        List<Long> ids = LongStream.rangeClosed(1, BookService.MAX_BATCH_BOOK_IDS + 1).boxed().toList();
+
+        BookException exception = assertThrows(BookException.class, () -> bookService.getBookStatuses(personEmail, ids));
+        assertEquals("At most 100 book ids can be requested at once ", exception.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verifyNoInteractions(checkoutRepository, reviewRepository);
+    }
+
     @Test
     void reviewBook_shouldCreateReviewEntityAndReturnSavedReviewDTO() {
 
@@ -874,13 +1524,13 @@ class BookServiceTest {
         assertNull(review.getPersonLastName());
         assertNull(review.getReviewedBook());
 
-        when(modelMapper.map(any(ReviewDTO.class), eq(Review.class))).thenReturn(review);
+        when(reviewMapper.toReview(any(ReviewDTO.class))).thenReturn(review);
         doNothing().when(reviewValidator).validate(any(Review.class), any(Errors.class));
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(reviewRepository.findByPersonEmailAndReviewedBook(any(String.class), any(Book.class))).thenReturn(Optional.empty());
         when(reviewRepository.save(any(Review.class))).thenReturn(review);
-        when(modelMapper.map(any(Review.class), eq(ReviewDTO.class))).thenReturn(reviewDTO);
+        when(reviewMapper.toReviewDTO(any(Review.class))).thenReturn(reviewDTO);
 
         ReviewDTO savedReviewDTO = assertDoesNotThrow(() -> bookService.reviewBook(personEmail, bookId, reviewDTO, bindingResult));
 
@@ -894,13 +1544,15 @@ class BookServiceTest {
         assertEquals(person.getFirstName(), review.getPersonFirstName());
         assertEquals(person.getLastName(), review.getPersonLastName());
         assertEquals(book1, review.getReviewedBook());
-        verify(modelMapper, times(1)).map(any(ReviewDTO.class), eq(Review.class));
+        verify(reviewMapper, times(1)).toReview(any(ReviewDTO.class));
         verify(reviewValidator, times(1)).validate(any(Review.class), any(Errors.class));
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(reviewRepository, times(1)).findByPersonEmailAndReviewedBook(any(String.class), any(Book.class));
         verify(reviewRepository, times(1)).save(any(Review.class));
-        verify(modelMapper, times(1)).map(any(Review.class), eq(ReviewDTO.class));
+        verify(bookRepository, times(1)).addRating(bookId, review.getRating());
+        verify(bookSearchIndex, times(1)).reviewed(bookId);
+        verify(reviewMapper, times(1)).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -909,20 +1561,21 @@ class BookServiceTest {
         BindingResult bindingResult = new BindException(reviewDTO, "reviewDTO");
         bindingResult.addError(new FieldError("bookDTO", "rating", "Rating must be at least 0.5"));
 
-        when(modelMapper.map(any(ReviewDTO.class), eq(Review.class))).thenReturn(review);
+        when(reviewMapper.toReview(any(ReviewDTO.class))).thenReturn(review);
         doNothing().when(reviewValidator).validate(any(Review.class), any(Errors.class));
 
         ReviewException exception = assertThrows(ReviewException.class, () -> bookService.reviewBook(personEmail, bookId, reviewDTO, bindingResult));
 
         assertEquals("Some fields are invalid. rating: Rating must be at least 0.5; ", exception.getMessage());
         assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
-        verify(modelMapper, times(1)).map(any(ReviewDTO.class), eq(Review.class));
+        verify(reviewMapper, times(1)).toReview(any(ReviewDTO.class));
         verify(reviewValidator, times(1)).validate(any(Review.class), any(Errors.class));
         verify(personRepository, times(0)).findByEmail(any(String.class));
         verify(bookRepository, times(0)).findById(any(Long.class));
         verify(reviewRepository, times(0)).findByPersonEmailAndReviewedBook(any(String.class), any(Book.class));
         verify(reviewRepository, times(0)).save(any(Review.class));
-        verify(modelMapper, times(0)).map(any(Review.class), eq(ReviewDTO.class));
+        verify(bookRepository, times(0)).addRating(any(Long.class), any(Double.class));
+        verify(reviewMapper, times(0)).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -930,7 +1583,7 @@ class BookServiceTest {
 
         BindingResult bindingResult = new BindException(reviewDTO, "reviewDTO");
 
-        when(modelMapper.map(any(ReviewDTO.class), eq(Review.class))).thenReturn(review);
+        when(reviewMapper.toReview(any(ReviewDTO.class))).thenReturn(review);
         doNothing().when(reviewValidator).validate(any(Review.class), any(Errors.class));
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.empty());
 
@@ -938,13 +1591,14 @@ class BookServiceTest {
 
         assertEquals("Person with such email is not found. ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
-        verify(modelMapper, times(1)).map(any(ReviewDTO.class), eq(Review.class));
+        verify(reviewMapper, times(1)).toReview(any(ReviewDTO.class));
         verify(reviewValidator, times(1)).validate(any(Review.class), any(Errors.class));
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(0)).findById(any(Long.class));
         verify(reviewRepository, times(0)).findByPersonEmailAndReviewedBook(any(String.class), any(Book.class));
         verify(reviewRepository, times(0)).save(any(Review.class));
-        verify(modelMapper, times(0)).map(any(Review.class), eq(ReviewDTO.class));
+        verify(bookRepository, times(0)).addRating(any(Long.class), any(Double.class));
+        verify(reviewMapper, times(0)).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -952,7 +1606,7 @@ class BookServiceTest {
 
         BindingResult bindingResult = new BindException(reviewDTO, "reviewDTO");
 
-        when(modelMapper.map(any(ReviewDTO.class), eq(Review.class))).thenReturn(review);
+        when(reviewMapper.toReview(any(ReviewDTO.class))).thenReturn(review);
         doNothing().when(reviewValidator).validate(any(Review.class), any(Errors.class));
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.empty());
@@ -961,13 +1615,14 @@ class BookServiceTest {
 
         assertEquals("Book not found ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
-        verify(modelMapper, times(1)).map(any(ReviewDTO.class), eq(Review.class));
+        verify(reviewMapper, times(1)).toReview(any(ReviewDTO.class));
         verify(reviewValidator, times(1)).validate(any(Review.class), any(Errors.class));
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(reviewRepository, times(0)).findByPersonEmailAndReviewedBook(any(String.class), any(Book.class));
         verify(reviewRepository, times(0)).save(any(Review.class));
-        verify(modelMapper, times(0)).map(any(Review.class), eq(ReviewDTO.class));
+        verify(bookRepository, times(0)).addRating(any(Long.class), any(Double.class));
+        verify(reviewMapper, times(0)).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -975,7 +1630,7 @@ class BookServiceTest {
 
         BindingResult bindingResult = new BindException(reviewDTO, "reviewDTO");
 
-        when(modelMapper.map(any(ReviewDTO.class), eq(Review.class))).thenReturn(review);
+        when(reviewMapper.toReview(any(ReviewDTO.class))).thenReturn(review);
         doNothing().when(reviewValidator).validate(any(Review.class), any(Errors.class));
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
@@ -985,12 +1640,29 @@ class BookServiceTest {
 
         assertEquals("This book is already reviewed by this person ", exception.getMessage());
         assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
-        verify(modelMapper, times(1)).map(any(ReviewDTO.class), eq(Review.class));
+        verify(reviewMapper, times(1)).toReview(any(ReviewDTO.class));
         verify(reviewValidator, times(1)).validate(any(Review.class), any(Errors.class));
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(reviewRepository, times(1)).findByPersonEmailAndReviewedBook(any(String.class), any(Book.class));
         verify(reviewRepository, times(0)).save(any(Review.class));
-        verify(modelMapper, times(0)).map(any(Review.class), eq(ReviewDTO.class));
+        verify(bookRepository, times(0)).addRating(any(Long.class), any(Double.class));
+        verify(reviewMapper, times(0)).toReviewDTO(any(Review.class));
+    }
+
+    // Every summary row becomes a DTO with the row's id and title, in the order of the rows
+    private void mapSummaries() {
+
+        when(bookMapper.toBookSummaryDTOs(anyList(), anyList())).thenAnswer(invocation -> {
+
+            List<BookSummaryRow> rows = invocation.getArgument(0);
+
+            return rows.stream().map(row -> {
+                BookSummaryDTO bookSummaryDTO = new BookSummaryDTO();
+                bookSummaryDTO.setId(row.id());
+                bookSummaryDTO.setTitle(row.title());
+                return bookSummaryDTO;
+            }).toList();
+        });
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,25 @@
 package com.test.bookstore.bookstore_backend.services;
 
-import com.test.bookstore.bookstore_backend.dto.BookDTO;
 import com.test.bookstore.bookstore_backend.dto.CheckoutDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
-import com.test.bookstore.bookstore_backend.entities.Book;
-import com.test.bookstore.bookstore_backend.entities.Checkout;
-import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.entities.AccountSummary;
 import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.AccountSummaryRepository;
 import com.test.bookstore.bookstore_backend.repositories.CheckoutRepository;
+import com.test.bookstore.bookstore_backend.repositories.CurrentCheckoutRow;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
+import com.test.bookstore.bookstore_backend.utils.mappers.CheckoutMapperImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,65 +33,59 @@ class CheckoutServiceTest {
     private final String invalidPersonEmail = "invalidEmail@email.com";
 
     private Person person;
-    private Checkout checkout1;
-    private Checkout checkout2;
-    private List<Checkout> checkouts;
-    private BookDTO bookDTO;
+    private List<CurrentCheckoutRow> rows;
 
-    @Mock private ModelMapper modelMapper;
     @Mock private CheckoutRepository checkoutRepository;
     @Mock private PersonRepository personRepository;
+    @Mock private AccountSummaryRepository accountSummaryRepository;
 
-    @InjectMocks
     private CheckoutService checkoutService;
 
     @BeforeEach
     void setUp() {
 
+        // Real generated checkout mapper, so days left and grouped genres are checked as well
+        checkoutService = new CheckoutService(new CheckoutMapperImpl(), checkoutRepository, personRepository, accountSummaryRepository);
+
         person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), personEmail, "Password");
         person.setRole(Role.ROLE_USER);
         person.setRegisteredAt(LocalDateTime.now());
 
-        Book book1 = new Book("Title 1", "Author 1", "Description 1", 10, 10, "encodedImage 1");
-        book1.setGenres(List.of(new Genre("Genre 1")));
-
-        Book book2 = new Book("Title 2", "Author 2", "Description 2", 10, 10, "encodedImage 2");
-        book2.setGenres(List.of(new Genre("Genre 2")));
+        // First book has two genres, so it comes back as two rows
+        rows = List.of(
+                new CurrentCheckoutRow(1L, "Title 1", "Author 1", "Description 1", 10, 9, 4.0, null, 1L, "Genre 1", LocalDate.now().plusDays(7)),
+                new CurrentCheckoutRow(1L, "Title 1", "Author 1", "Description 1", 10, 9, 4.0, null, 2L, "Genre 2", LocalDate.now().plusDays(7)),
+                new CurrentCheckoutRow(2L, "Title 2", "Author 2", "Description 2", 10, 9, 0.0, null, 2L, "Genre 2", LocalDate.now().plusDays(3)));
+    }
 
-        checkout1 = new Checkout(person, book1, LocalDate.now(), LocalDate.now().plusDays(7));
-        checkout2 = new Checkout(person, book2, LocalDate.now(), LocalDate.now().plusDays(7));
+    @Test
+    void getCurrentCheckoutsCount_shouldReturnCountOfCheckoutsMadeByPerson() {
 
-        checkouts = List.of(checkout1, checkout2);
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.of(new AccountSummary(personEmail, 2, LocalDate.now().plusDays(7), 00.00)));
 
-        GenreDTO genreDTO = new GenreDTO();
-        genreDTO.setDescription("Genre 1");
+        int returnedCount = checkoutService.getCurrentCheckoutsCount(personEmail);
 
-        bookDTO = new BookDTO();
-        bookDTO.setTitle("Title 1");
-        bookDTO.setAuthor("Author 1");
-        bookDTO.setDescription("Description 1");
-        bookDTO.setCopies(10);
-        bookDTO.setCopiesAvailable(10);
-        bookDTO.setImg("encodedImage 1");
-        bookDTO.setGenres(List.of(genreDTO));
+        assertEquals(2, returnedCount);
+        verify(accountSummaryRepository, times(1)).findById(any(String.class));
+        verify(personRepository, times(0)).findByEmail(any(String.class));
     }
 
     @Test
-    void getCurrentCheckoutsCount_shouldReturnCountOfCheckoutsMadeByPerson() {
+    void getCurrentCheckoutsCount_shouldReturnZeroIfPersonHasNoAccountSummary() {
 
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.empty());
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
-        when(checkoutRepository.findByCheckoutHolder(any(Person.class))).thenReturn(checkouts);
 
         int returnedCount = checkoutService.getCurrentCheckoutsCount(personEmail);
 
-        assertEquals(2, returnedCount);
+        assertEquals(0, returnedCount);
         verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(checkoutRepository, times(1)).findByCheckoutHolder(any(Person.class));
     }
 
     @Test
     void getCurrentCheckoutsCount_shouldThrowPersonExceptionIfPersonEmailIsInvalid() {
 
+        when(accountSummaryRepository.findById(any(String.class))).thenReturn(Optional.empty());
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.empty());
 
         PersonException exception = assertThrows(PersonException.class, () -> checkoutService.getCurrentCheckoutsCount(invalidPersonEmail));
@@ -102,35 +93,47 @@ class CheckoutServiceTest {
         assertEquals("Person with such email is not found. ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
     }
 
     @Test
-    void getCurrentCheckouts_shouldReturnAllCurrentCheckoutsMadeByPerson() {
+    void getCurrentCheckouts_shouldReturnAllCurrentCheckoutsMadeByPersonWithOneQuery() {
 
-        int checkout1DaysLeft = (int) ChronoUnit.DAYS.between(LocalDate.now(), checkout1.getReturnDate());
-        int checkout2DaysLeft = (int) ChronoUnit.DAYS.between(LocalDate.now(), checkout2.getReturnDate());
+        when(checkoutRepository.findCurrentCheckoutRows(any(String.class))).thenReturn(rows);
 
+        List<CheckoutDTO> checkoutDTOs = checkoutService.getCurrentCheckouts(personEmail);
+
+        assertNotNull(checkoutDTOs);
+        assertEquals(2, checkoutDTOs.size());
+        assertEquals(7, checkoutDTOs.get(0).getDaysLeft());
+        assertEquals(3, checkoutDTOs.get(1).getDaysLeft());
+        assertEquals("Title 1", checkoutDTOs.get(0).getBookDTO().getTitle());
+        assertEquals("Title 2", checkoutDTOs.get(1).getBookDTO().getTitle());
+        assertEquals(4.0, checkoutDTOs.get(0).getBookDTO().getAverageRating());
+        assertEquals(List.of("Genre 1", "Genre 2"), checkoutDTOs.get(0).getBookDTO().getGenres().stream().map(GenreDTO::getDescription).toList());
+        assertEquals(List.of("Genre 2"), checkoutDTOs.get(1).getBookDTO().getGenres().stream().map(GenreDTO::getDescription).toList());
+        // Books, genres and due dates all come from the single projection query
+        verify(checkoutRepository, times(1)).findCurrentCheckoutRows(personEmail);
+        verifyNoMoreInteractions(checkoutRepository);
+        verifyNoInteractions(personRepository, accountSummaryRepository);
+    }
+
+    @Test
+    void getCurrentCheckouts_shouldReturnEmptyListIfNothingIsCheckedOut() {
+
+        when(checkoutRepository.findCurrentCheckoutRows(any(String.class))).thenReturn(List.of());
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
-        when(checkoutRepository.findByCheckoutHolder(any(Person.class))).thenReturn(checkouts);
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO);
 
         List<CheckoutDTO> checkoutDTOs = checkoutService.getCurrentCheckouts(personEmail);
 
-        assertNotNull(checkoutDTOs);
-        assertEquals(checkouts.size(), checkoutDTOs.size());
-        assertEquals(checkout1DaysLeft, checkoutDTOs.get(0).getDaysLeft());
-        assertEquals(checkout2DaysLeft, checkoutDTOs.get(1).getDaysLeft());
-        assertEquals(bookDTO, checkoutDTOs.get(0).getBookDTO());
-        assertEquals(bookDTO, checkoutDTOs.get(1).getBookDTO());
+        assertTrue(checkoutDTOs.isEmpty());
+        verify(checkoutRepository, times(1)).findCurrentCheckoutRows(any(String.class));
         verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(checkoutRepository, times(1)).findByCheckoutHolder(any(Person.class));
-        verify(modelMapper, times(2)).map(any(Book.class), eq(BookDTO.class));
     }
 
     @Test
     void getCurrentCheckouts_shouldThrowPersonExceptionIfPersonEmailIsInvalid() {
 
+        when(checkoutRepository.findCurrentCheckoutRows(any(String.class))).thenReturn(List.of());
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.empty());
 
         PersonException exception = assertThrows(PersonException.class, () -> checkoutService.getCurrentCheckouts(invalidPersonEmail));
@@ -138,7 +141,6 @@ class CheckoutServiceTest {
         assertEquals("Person with such email is not found. ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(checkoutRepository, times(0)).findByCheckoutHolder(any(Person.class));
-        verify(modelMapper, times(0)).map(any(Book.class), eq(BookDTO.class));
+        verify(checkoutRepository, times(1)).findCurrentCheckoutRows(any(String.class));
     }
-}
\ No newline at end of file
+}
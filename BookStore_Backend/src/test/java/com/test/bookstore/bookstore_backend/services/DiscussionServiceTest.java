@@ -7,6 +7,7 @@ import com.test.bookstore.bookstore_backend.repositories.DiscussionRepository;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.utils.exceptions.DiscussionException;
+import com.test.bookstore.bookstore_backend.utils.mappers.DiscussionMapper;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,7 +15,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -47,7 +47,7 @@ class DiscussionServiceTest {
     private Discussion discussion2;
     private DiscussionDTO discussionDTO;
 
-    @Mock private ModelMapper modelMapper;
+    @Mock private DiscussionMapper discussionMapper;
     @Mock private DiscussionRepository discussionRepository;
     @Mock private PersonRepository personRepository;
 
@@ -89,7 +89,7 @@ class DiscussionServiceTest {
 
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
         when(discussionRepository.findByDiscussionHolder(any(Person.class), any(Pageable.class))).thenReturn(discussionsPage);
-        when(modelMapper.map(any(Discussion.class), eq(DiscussionDTO.class))).thenReturn(discussionDTO);
+        when(discussionMapper.toDiscussionDTO(any(Discussion.class))).thenReturn(discussionDTO);
 
         assertNull(discussionDTO.getPersonEmail());
         assertNull(discussionDTO.getPersonFirstName());
@@ -106,7 +106,7 @@ class DiscussionServiceTest {
         assertEquals(discussionDTO, discussionDTOs.getContent().get(1));
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(discussionRepository, times(1)).findByDiscussionHolder(any(Person.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Discussion.class), eq(DiscussionDTO.class));
+        verify(discussionMapper, times(pageContent.size())).toDiscussionDTO(any(Discussion.class));
     }
 
     @Test
@@ -122,7 +122,7 @@ class DiscussionServiceTest {
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(discussionRepository, times(0)).findByDiscussionHolder(any(Person.class), any(Pageable.class));
-        verify(modelMapper, times(0)).map(any(Discussion.class), eq(DiscussionDTO.class));
+        verify(discussionMapper, times(0)).toDiscussionDTO(any(Discussion.class));
     }
 
     @Test
@@ -133,7 +133,7 @@ class DiscussionServiceTest {
         Page<Discussion> discussionsPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
         when(discussionRepository.findByClosed(any(Boolean.class), any(Pageable.class))).thenReturn(discussionsPage);
-        when(modelMapper.map(any(Discussion.class), eq(DiscussionDTO.class))).thenReturn(discussionDTO);
+        when(discussionMapper.toDiscussionDTO(any(Discussion.class))).thenReturn(discussionDTO);
 
         assertNull(discussionDTO.getPersonEmail());
         assertNull(discussionDTO.getPersonFirstName());
@@ -148,7 +148,7 @@ class DiscussionServiceTest {
         assertEquals(person.getLastName(), discussionDTO.getPersonLastName());
         assertEquals(discussionDTO, discussionDTOs.getContent().get(0));
         verify(discussionRepository, times(1)).findByClosed(any(Boolean.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Discussion.class), eq(DiscussionDTO.class));
+        verify(discussionMapper, times(pageContent.size())).toDiscussionDTO(any(Discussion.class));
     }
 
     @Test
@@ -157,9 +157,9 @@ class DiscussionServiceTest {
         BindingResult bindingResult = new BindException(discussionDTO, "discussionDTO");
 
         when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
-        when(modelMapper.map(any(DiscussionDTO.class), eq(Discussion.class))).thenReturn(discussion1);
+        when(discussionMapper.toDiscussion(any(DiscussionDTO.class))).thenReturn(discussion1);
         when(discussionRepository.save(any(Discussion.class))).thenReturn(discussion1);
-        when(modelMapper.map(any(Discussion.class), eq(DiscussionDTO.class))).thenReturn(discussionDTO);
+        when(discussionMapper.toDiscussionDTO(any(Discussion.class))).thenReturn(discussionDTO);
 
         DiscussionDTO savedDiscussionDTO = assertDoesNotThrow(() -> discussionService.addDiscussion(personEmail, discussionDTO, bindingResult));
 
@@ -173,9 +173,9 @@ class DiscussionServiceTest {
         assertEquals(discussionDTO.getResponse(), savedDiscussionDTO.getResponse());
         assertEquals(discussionDTO.getClosed(), savedDiscussionDTO.getClosed());
         verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(modelMapper, times(1)).map(any(DiscussionDTO.class), eq(Discussion.class));
+        verify(discussionMapper, times(1)).toDiscussion(any(DiscussionDTO.class));
         verify(discussionRepository, times(1)).save(any(Discussion.class));
-        verify(modelMapper, times(1)).map(any(Discussion.class), eq(DiscussionDTO.class));
+        verify(discussionMapper, times(1)).toDiscussionDTO(any(Discussion.class));
     }
 
     @Test
@@ -188,9 +188,9 @@ class DiscussionServiceTest {
         assertEquals("Some fields are invalid. question: Question must be present and contain at least 1 character; ", exception.getMessage());
         assertEquals(HttpStatus.FORBIDDEN, exception.getHttpStatus());
         verify(personRepository, times(0)).findByEmail(any(String.class));
-        verify(modelMapper, times(0)).map(any(DiscussionDTO.class), eq(Discussion.class));
+        verify(discussionMapper, times(0)).toDiscussion(any(DiscussionDTO.class));
         verify(discussionRepository, times(0)).save(any(Discussion.class));
-        verify(modelMapper, times(0)).map(any(Discussion.class), eq(DiscussionDTO.class));
+        verify(discussionMapper, times(0)).toDiscussionDTO(any(Discussion.class));
     }
 
     @Test
@@ -205,9 +205,9 @@ class DiscussionServiceTest {
         assertEquals("Person with such email is not found. ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(modelMapper, times(0)).map(any(DiscussionDTO.class), eq(Discussion.class));
+        verify(discussionMapper, times(0)).toDiscussion(any(DiscussionDTO.class));
         verify(discussionRepository, times(0)).save(any(Discussion.class));
-        verify(modelMapper, times(0)).map(any(Discussion.class), eq(DiscussionDTO.class));
+        verify(discussionMapper, times(0)).toDiscussionDTO(any(Discussion.class));
     }
 
     @Test
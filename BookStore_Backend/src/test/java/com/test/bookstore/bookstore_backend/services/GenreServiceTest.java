@@ -3,12 +3,12 @@ package com.test.bookstore.bookstore_backend.services;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.entities.Genre;
 import com.test.bookstore.bookstore_backend.repositories.GenreRepository;
+import com.test.bookstore.bookstore_backend.utils.mappers.GenreMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.util.List;
 
@@ -18,7 +18,7 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class GenreServiceTest {
 
-    @Mock private ModelMapper modelMapper;
+    @Mock private GenreMapper genreMapper;
     @Mock private GenreRepository genreRepository;
 
     @InjectMocks
@@ -33,12 +33,12 @@ class GenreServiceTest {
         genreDTO.setDescription("Genre");
 
         when(genreRepository.findAll()).thenReturn(genres);
-        when(modelMapper.map(any(Genre.class), eq(GenreDTO.class))).thenReturn(genreDTO);
+        when(genreMapper.toGenreDTO(any(Genre.class))).thenReturn(genreDTO);
 
         List<GenreDTO> genreDTOs = genreService.findAll();
 
         assertEquals(genres.size(), genreDTOs.size());
         verify(genreRepository, times(1)).findAll();
-        verify(modelMapper, times(genres.size())).map(any(Genre.class), eq(GenreDTO.class));
+        verify(genreMapper, times(genres.size())).toGenreDTO(any(Genre.class));
     }
 }
\ No newline at end of file
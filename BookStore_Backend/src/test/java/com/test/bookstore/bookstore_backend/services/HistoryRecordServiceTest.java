@@ -1,23 +1,22 @@
 package com.test.bookstore.bookstore_backend.services;
 
-import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
 import com.test.bookstore.bookstore_backend.dto.GenreDTO;
 import com.test.bookstore.bookstore_backend.dto.HistoryRecordDTO;
-import com.test.bookstore.bookstore_backend.entities.Book;
-import com.test.bookstore.bookstore_backend.entities.Genre;
-import com.test.bookstore.bookstore_backend.entities.HistoryRecord;
-import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.BookRepository;
+import com.test.bookstore.bookstore_backend.repositories.BookSummaryRow;
 import com.test.bookstore.bookstore_backend.repositories.HistoryRecordRepository;
+import com.test.bookstore.bookstore_backend.repositories.HistoryRecordRow;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
-import com.test.bookstore.bookstore_backend.security.entities.Role;
 import com.test.bookstore.bookstore_backend.utils.exceptions.PersonException;
+import com.test.bookstore.bookstore_backend.utils.mappers.BookMapper;
+import com.test.bookstore.bookstore_backend.utils.mappers.HistoryRecordMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -25,9 +24,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -42,15 +39,16 @@ class HistoryRecordServiceTest {
     private final int page = 0;
     private final int recordsPerPage = 5;
 
-    private Person person;
-    private HistoryRecord historyRecord1;
-    private HistoryRecord historyRecord2;
-    private BookDTO bookDTO;
-    private HistoryRecordDTO historyRecordDTO;
+    private HistoryRecordRow historyRecord1;
+    private HistoryRecordRow historyRecord2;
+    private BookSummaryRow bookRow;
+    private BookSummaryDTO bookDTO;
 
-    @Mock private ModelMapper modelMapper;
+    @Mock private HistoryRecordMapper historyRecordMapper;
     @Mock private HistoryRecordRepository historyRecordRepository;
     @Mock private PersonRepository personRepository;
+    @Mock private BookRepository bookRepository;
+    @Mock private BookMapper bookMapper;
 
     @InjectMocks
     private HistoryRecordService historyRecordService;
@@ -58,48 +56,38 @@ class HistoryRecordServiceTest {
     @BeforeEach
     void setUp() {
 
-        person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), personEmail, "Password");
-        person.setRole(Role.ROLE_USER);
-        person.setRegisteredAt(LocalDateTime.now());
+        // The same book was checked out twice
+        historyRecord1 = new HistoryRecordRow(1L, 1L, LocalDate.now().minusDays(20), LocalDate.now().minusDays(10));
+        historyRecord2 = new HistoryRecordRow(2L, 1L, LocalDate.now().minusDays(2), LocalDate.now());
 
-        Book book1 = new Book("Title 1", "Author 1", "Description 1", 10, 10, "encodedImage 1");
-        book1.setGenres(List.of(new Genre("Genre 1")));
-
-        Book book2 = new Book("Title 2", "Author 2", "Description 2", 10, 10, "encodedImage 2");
-        book2.setGenres(List.of(new Genre("Genre 2")));
-
-        historyRecord1 = new HistoryRecord(person, book1, LocalDate.now().minusDays(2), LocalDate.now());
-        historyRecord2 = new HistoryRecord(person, book2, LocalDate.now().minusDays(2), LocalDate.now());
+        bookRow = new BookSummaryRow(1L, "Title", "Author", "Description", 10, 10, 0.0, null);
 
         GenreDTO genreDTO = new GenreDTO();
         genreDTO.setDescription("Genre");
 
-        bookDTO = new BookDTO();
+        bookDTO = new BookSummaryDTO();
+        bookDTO.setId(1L);
         bookDTO.setTitle("Title");
         bookDTO.setAuthor("Author");
-        bookDTO.setDescription("Description");
+        bookDTO.setDescriptionPreview("Description");
         bookDTO.setCopies(10);
         bookDTO.setCopiesAvailable(10);
-        bookDTO.setImg("encodedImage");
         bookDTO.setGenres(List.of(genreDTO));
-
-        historyRecordDTO = new HistoryRecordDTO();
-        historyRecordDTO.setBookDTO(bookDTO);
-        historyRecordDTO.setCheckoutDate(LocalDate.now().minusDays(2));
-        historyRecordDTO.setReturnDate(LocalDate.now());
     }
 
     @Test
     void findAllByPersonEmail_shouldReturnAllHistoryRecordsForAuthenticatedPerson() {
 
-        List<HistoryRecord> pageContent = List.of(historyRecord1, historyRecord2);
+        List<HistoryRecordRow> pageContent = List.of(historyRecord1, historyRecord2);
         Pageable pageable = PageRequest.of(page, recordsPerPage);
-        Page<HistoryRecord> historyRecordsPage = new PageImpl<>(pageContent, pageable, pageContent.size());
+        Page<HistoryRecordRow> historyRecordsPage = new PageImpl<>(pageContent, pageable, pageContent.size());
 
-        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.of(person));
-        when(historyRecordRepository.findByHistoryRecordHolder(any(Person.class), any(Pageable.class))).thenReturn(historyRecordsPage);
-        when(modelMapper.map(any(HistoryRecord.class), eq(HistoryRecordDTO.class))).thenReturn(historyRecordDTO);
-        when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO);
+        when(personRepository.existsByEmail(any(String.class))).thenReturn(true);
+        when(historyRecordRepository.findRowsByPersonEmail(any(String.class), any(Pageable.class))).thenReturn(historyRecordsPage);
+        when(historyRecordMapper.toHistoryRecordDTO(any(HistoryRecordRow.class))).thenAnswer(invocation -> new HistoryRecordDTO());
+        when(bookRepository.findSummariesByIds(List.of(1L))).thenReturn(List.of(bookRow));
+        when(bookRepository.findGenreLinksOfBooks(List.of(1L))).thenReturn(List.of());
+        when(bookMapper.toBookSummaryDTOs(List.of(bookRow), List.of())).thenReturn(List.of(bookDTO));
 
         Page<HistoryRecordDTO> historyRecordDTOs = historyRecordService.findAllByPersonEmail(personEmail, pageable);
 
@@ -107,10 +95,10 @@ class HistoryRecordServiceTest {
         assertEquals(pageContent.size(), historyRecordDTOs.getContent().size());
         assertEquals(bookDTO, historyRecordDTOs.getContent().get(0).getBookDTO());
         assertEquals(bookDTO, historyRecordDTOs.getContent().get(1).getBookDTO());
-        verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(historyRecordRepository, times(1)).findByHistoryRecordHolder(any(Person.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(HistoryRecord.class), eq(HistoryRecordDTO.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Book.class), eq(BookDTO.class));
+        verify(personRepository, times(1)).existsByEmail(any(String.class));
+        verify(historyRecordRepository, times(1)).findRowsByPersonEmail(any(String.class), any(Pageable.class));
+        verify(historyRecordMapper, times(pageContent.size())).toHistoryRecordDTO(any(HistoryRecordRow.class));
+        verify(bookRepository, times(1)).findSummariesByIds(List.of(1L));
     }
 
     @Test
@@ -118,15 +106,14 @@ class HistoryRecordServiceTest {
 
         Pageable pageable = PageRequest.of(page, recordsPerPage);
 
-        when(personRepository.findByEmail(any(String.class))).thenReturn(Optional.empty());
+        when(personRepository.existsByEmail(any(String.class))).thenReturn(false);
 
         PersonException exception = assertThrows(PersonException.class, () -> historyRecordService.findAllByPersonEmail(invalidPersonEmail, pageable));
 
         assertEquals("Person with such email is not found. ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
-        verify(personRepository, times(1)).findByEmail(any(String.class));
-        verify(historyRecordRepository, times(0)).findByHistoryRecordHolder(any(Person.class), any(Pageable.class));
-        verify(modelMapper, times(0)).map(any(HistoryRecord.class), eq(HistoryRecordDTO.class));
-        verify(modelMapper, times(0)).map(any(Book.class), eq(BookDTO.class));
+        verify(personRepository, times(1)).existsByEmail(any(String.class));
+        verify(historyRecordRepository, times(0)).findRowsByPersonEmail(any(String.class), any(Pageable.class));
+        verify(historyRecordMapper, times(0)).toHistoryRecordDTO(any(HistoryRecordRow.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.test.bookstore.bookstore_backend.services;
+
+import com.test.bookstore.bookstore_backend.images.ImageStore;
+import com.test.bookstore.bookstore_backend.images.ImageThumbnails;
+import com.test.bookstore.bookstore_backend.images.StoredImage;
+import com.test.bookstore.bookstore_backend.images.ThumbnailSize;
+import com.test.bookstore.bookstore_backend.utils.exceptions.ImageException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageServiceTest {
+
+    private final String hash = "a".repeat(64);
+
+    @Mock private ImageStore imageStore;
+    @Mock private ImageThumbnails imageThumbnails;
+
+    private ImageService imageService;
+
+    @BeforeEach
+    void setUp() {
+        imageService = new ImageService(imageStore, imageThumbnails, 100);
+    }
+
+    @Test
+    void findByHash_shouldReturnStoredImage() {
+
+        StoredImage image = new StoredImage(hash, Path.of(hash), 3, "image/png", true);
+
+        when(imageStore.find(hash)).thenReturn(Optional.of(image));
+
+        assertEquals(image, imageService.findByHash(hash));
+        verify(imageStore, times(1)).find(hash);
+    }
+
+    @Test
+    void findByHash_shouldThrowImageExceptionIfImageIsNotFound() {
+
+        when(imageStore.find(hash)).thenReturn(Optional.empty());
+
+        ImageException exception = assertThrows(ImageException.class, () -> imageService.findByHash(hash));
+
+        assertEquals("Image not found ", exception.getMessage());
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+    }
+
+    @Test
+    void transfer_shouldCopyRequestedBytesOfFile(@TempDir Path directory) throws Exception {
+
+        Path file = Files.write(directory.resolve(hash), new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        StoredImage image = new StoredImage(hash, file, 10, "image/png", true);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        imageService.transfer(image, 2, 5, Channels.newChannel(target));
+
+        assertArrayEquals(new byte[]{2, 3, 4, 5, 6}, target.toByteArray());
+    }
+
+    @Test
+    void findByHashAndSize_shouldReturnThumbnailOnDisk() {
+
+        StoredImage thumbnail = new StoredImage(hash + "-small", Path.of(hash), 2, "image/jpeg", true);
+
+        when(imageStore.find(hash)).thenReturn(Optional.of(new StoredImage(hash, Path.of(hash), 3, "image/png", true)));
+        when(imageThumbnails.find(hash, ThumbnailSize.SMALL)).thenReturn(Optional.of(thumbnail));
+
+        assertEquals(thumbnail, imageService.findByHash(hash, "small"));
+        verify(imageThumbnails, times(0)).thumbnail(hash, ThumbnailSize.SMALL);
+    }
+
+    @Test
+    void findByHashAndSize_shouldWaitForMissingThumbnail() {
+
+        StoredImage thumbnail = new StoredImage(hash + "-medium", Path.of(hash), 2, "image/jpeg", true);
+
+        when(imageStore.find(hash)).thenReturn(Optional.of(new StoredImage(hash, Path.of(hash), 3, "image/png", true)));
+        when(imageThumbnails.find(hash, ThumbnailSize.MEDIUM)).thenReturn(Optional.empty()).thenReturn(Optional.of(thumbnail));
+        when(imageThumbnails.thumbnail(hash, ThumbnailSize.MEDIUM)).thenReturn(CompletableFuture.completedFuture(Path.of(hash)));
+
+        assertEquals(thumbnail, imageService.findByHash(hash, "medium"));
+        verify(imageThumbnails, times(1)).thumbnail(hash, ThumbnailSize.MEDIUM);
+    }
+
+    @Test
+    void findByHashAndSize_shouldReturnOriginalAsStandInIfThumbnailIsNotReady() {
+
+        StoredImage original = new StoredImage(hash, Path.of(hash), 3, "image/png", true);
+
+        when(imageStore.find(hash)).thenReturn(Optional.of(original));
+        when(imageThumbnails.find(hash, ThumbnailSize.LARGE)).thenReturn(Optional.empty());
+        when(imageThumbnails.thumbnail(hash, ThumbnailSize.LARGE)).thenReturn(new CompletableFuture<>());
+
+        StoredImage image = imageService.findByHash(hash, "large");
+
+        assertEquals(original.path(), image.path());
+        assertFalse(image.immutable());
+
+        when(imageThumbnails.thumbnail(hash, ThumbnailSize.LARGE)).thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException()));
+
+        assertFalse(imageService.findByHash(hash, "large").immutable());
+    }
+
+    @Test
+    void findByHashAndSize_shouldThrowImageExceptionIfSizeIsUnknown() {
+
+        ImageException exception = assertThrows(ImageException.class, () -> imageService.findByHash(hash, "huge"));
+
+        assertEquals("Image size must be small, medium or large ", exception.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verifyNoInteractions(imageStore, imageThumbnails);
+    }
+
+    @Test
+    void findByHashAndSize_shouldThrowImageExceptionIfOriginalIsNotFound() {
+
+        when(imageStore.find(hash)).thenReturn(Optional.empty());
+
+        ImageException exception = assertThrows(ImageException.class, () -> imageService.findByHash(hash, "small"));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        verifyNoInteractions(imageThumbnails);
+    }
+}
@@ -3,6 +3,7 @@ package com.test.bookstore.bookstore_backend.services;
 import com.test.bookstore.bookstore_backend.dto.PaymentInfoDTO;
 import com.test.bookstore.bookstore_backend.entities.Payment;
 import com.test.bookstore.bookstore_backend.entities.Person;
+import com.test.bookstore.bookstore_backend.repositories.AccountSummaryRepository;
 import com.test.bookstore.bookstore_backend.repositories.PaymentRepository;
 import com.test.bookstore.bookstore_backend.repositories.PersonRepository;
 import com.test.bookstore.bookstore_backend.security.entities.Role;
@@ -38,6 +39,7 @@ class PaymentServiceTest {
 
     @Mock private PaymentRepository paymentRepository;
     @Mock private PersonRepository personRepository;
+    @Mock private AccountSummaryRepository accountSummaryRepository;
 
     @InjectMocks
     private PaymentService paymentService;
@@ -134,6 +136,7 @@ class PaymentServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(paymentRepository, times(1)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(1)).clearOutstandingFees(personEmail);
     }
 
     @Test
@@ -151,6 +154,7 @@ class PaymentServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(paymentRepository, times(0)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(0)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(0)).clearOutstandingFees(any(String.class));
     }
 
     @Test
@@ -169,5 +173,6 @@ class PaymentServiceTest {
         verify(personRepository, times(1)).findByEmail(any(String.class));
         verify(paymentRepository, times(1)).findByPaymentHolder(any(Person.class));
         verify(paymentRepository, times(0)).save(any(Payment.class));
+        verify(accountSummaryRepository, times(0)).clearOutstandingFees(any(String.class));
     }
 }
\ No newline at end of file
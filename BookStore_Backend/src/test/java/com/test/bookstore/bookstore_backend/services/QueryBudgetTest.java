@@ -0,0 +1,431 @@
+package com.test.bookstore.bookstore_backend.services;
+
+import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookFacetsDTO;
+import com.test.bookstore.bookstore_backend.dto.BookStatusDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
+import com.test.bookstore.bookstore_backend.dto.CheckoutDTO;
+import com.test.bookstore.bookstore_backend.dto.GenreDTO;
+import com.test.bookstore.bookstore_backend.entities.*;
+import com.test.bookstore.bookstore_backend.repositories.*;
+import com.test.bookstore.bookstore_backend.images.ImageStore;
+import com.test.bookstore.bookstore_backend.images.ImageThumbnails;
+import com.test.bookstore.bookstore_backend.search.BookSearchIndex;
+import com.test.bookstore.bookstore_backend.search.GenreFacetIndex;
+import com.test.bookstore.bookstore_backend.security.entities.Role;
+import com.test.bookstore.bookstore_backend.utils.mappers.*;
+import com.test.bookstore.bookstore_backend.utils.validators.BookValidator;
+import com.test.bookstore.bookstore_backend.utils.validators.ReviewValidator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.validation.BindException;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs list and checkout endpoints' service methods against the DataBase and fails when the number of executed statements
+ * exceeds a fixed budget, so a lazy association touched per row shows up as a failing build instead of N+1 queries.
+ */
+// The search index is only built where a test asks for it, a rebuild in the background would add to the statistics
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "book_search_index_enabled=false", "book_facet_index_enabled=false",
+        "image_store_directory=target/test-images"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Sql("/schema.sql")
+@Import({BookService.class, BookSearchIndex.class, GenreFacetIndex.class, ImageStore.class, ImageThumbnails.class, CheckoutService.class, DiscussionService.class, GenreService.class, HistoryRecordService.class,
+        ReviewService.class, BookValidator.class, ReviewValidator.class, BookMapperImpl.class, CheckoutMapperImpl.class,
+        DiscussionMapperImpl.class, GenreMapperImpl.class, HistoryRecordMapperImpl.class, ReviewMapperImpl.class})
+class QueryBudgetTest {
+
+    private static final int ROWS = 20;
+    private static final int BUSY_BOOK_ROWS = 1_000;
+
+    private final String personEmail = "email@email.com";
+
+    private Book firstBook;
+    private Genre firstGenre;
+    private List<Long> bookIds;
+
+    private final EntityManager entityManager;
+    private final Statistics statistics;
+    private final BookService bookService;
+    private final CheckoutService checkoutService;
+    private final DiscussionService discussionService;
+    private final GenreService genreService;
+    private final HistoryRecordService historyRecordService;
+    private final ReviewService reviewService;
+    private final BookSearchIndex bookSearchIndex;
+    private final GenreFacetIndex genreFacetIndex;
+
+    @Autowired
+    QueryBudgetTest(EntityManager entityManager, BookService bookService, CheckoutService checkoutService, DiscussionService discussionService,
+                    GenreService genreService, HistoryRecordService historyRecordService, ReviewService reviewService, BookSearchIndex bookSearchIndex,
+                    GenreFacetIndex genreFacetIndex) {
+        this.entityManager = entityManager;
+        this.statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        this.bookService = bookService;
+        this.checkoutService = checkoutService;
+        this.discussionService = discussionService;
+        this.genreService = genreService;
+        this.historyRecordService = historyRecordService;
+        this.reviewService = reviewService;
+        this.bookSearchIndex = bookSearchIndex;
+        this.genreFacetIndex = genreFacetIndex;
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        Person person = persistPerson(personEmail);
+
+        List<Genre> genres = List.of(new Genre("Genre 1"), new Genre("Genre 2"), new Genre("Genre 3"));
+        genres.forEach(genre -> genre.setBooks(new ArrayList<>()));
+        genres.forEach(entityManager::persist);
+        firstGenre = genres.get(0);
+
+        bookIds = new ArrayList<>();
+
+        for (int i = 0; i < ROWS; i++) {
+
+            Book book = new Book("Title " + i, "Author " + i, "Description " + i, 10, 10, "encodedImage " + i);
+            book.setGenres(List.of(genres.get(i % genres.size()), genres.get((i + 1) % genres.size())));
+            book.getGenres().forEach(genre -> genre.getBooks().add(book));
+            entityManager.persist(book);
+
+            if (i == 0) firstBook = book;
+            bookIds.add(book.getId());
+
+            Person discussionHolder = persistPerson("email" + i + "@email.com");
+            Discussion discussion = new Discussion(discussionHolder, "Title " + i, "Question " + i);
+            discussion.setClosed(false);
+
+            entityManager.persist(discussion);
+            entityManager.persist(new HistoryRecord(person, book, LocalDate.now().minusDays(7), LocalDate.now()));
+            entityManager.persist(new Checkout(person, book, LocalDate.now(), LocalDate.now().plusDays(7)));
+            entityManager.persist(new Review(discussionHolder.getEmail(), "First Name", "Last Name", firstBook, LocalDateTime.now(), 4.5, "Review"));
+        }
+
+        entityManager.persist(new AccountSummary(personEmail, ROWS, LocalDate.now().plusDays(7), 00.00));
+
+        // Every service call starts from an empty persistence context, like a new request
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void bookService_addBook_shouldStayWithinQueryBudgetWithoutLoadingBooksOfGenre() {
+
+        GenreDTO genreDTO = new GenreDTO();
+        genreDTO.setDescription("Genre 1");
+
+        BookDTO bookDTO = new BookDTO();
+        bookDTO.setTitle("New Title");
+        bookDTO.setAuthor("New Author");
+        bookDTO.setDescription("New Description");
+        bookDTO.setCopies(10);
+        bookDTO.setCopiesAvailable(10);
+        bookDTO.setImg("data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==");
+        bookDTO.setGenres(List.of(genreDTO));
+
+        BookDTO savedBookDTO = assertQueryBudget(4, () -> bookService.addBook(bookDTO, new BindException(bookDTO, "bookDTO")));
+
+        Genre genre = entityManager.find(Genre.class, savedBookDTO.getGenres().get(0).getId());
+
+        assertFalse(Hibernate.isInitialized(genre.getBooks()));
+
+        entityManager.clear();
+
+        assertEquals(1, entityManager.find(Book.class, savedBookDTO.getId()).getGenres().size());
+    }
+
+    @Test
+    void bookService_checkoutBook_shouldStayWithinQueryBudgetWithoutLoadingCheckoutsOfBook() {
+
+        assertQueryBudget(10, () -> {
+            bookService.checkoutBook("email1@email.com", firstBook.getId());
+            entityManager.flush();
+            return null;
+        });
+
+        // Copies are changed with a bulk update, the persistence context still holds the old values
+        entityManager.clear();
+
+        Book book = entityManager.find(Book.class, firstBook.getId());
+
+        assertFalse(Hibernate.isInitialized(book.getCheckouts()));
+        assertFalse(Hibernate.isInitialized(book.getHistoryRecords()));
+        assertEquals(9, book.getCopiesAvailable());
+    }
+
+    @Test
+    void bookService_checkoutBook_shouldStayWithinQueryBudgetReadingOnlyAccountSummaryForEligibility() {
+
+        bookService.returnBook(personEmail, firstBook.getId());
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        // Person with its payment, book, existing checkout, account summary, copies, loan and the new checkout, none of the other current checkouts
+        assertQueryBudget(8, () -> {
+            bookService.checkoutBook(personEmail, firstBook.getId());
+            entityManager.flush();
+            return null;
+        });
+
+        entityManager.clear();
+
+        AccountSummary accountSummary = entityManager.find(AccountSummary.class, personEmail);
+
+        assertEquals(ROWS, accountSummary.getActiveLoans());
+        assertEquals(LocalDate.now().plusDays(7), accountSummary.getEarliestDueDate());
+    }
+
+    @Test
+    void bookService_returnBook_shouldStayWithinQueryBudgetWithoutLoadingCheckoutsOfBook() {
+
+        assertQueryBudget(8, () -> {
+            bookService.returnBook(personEmail, firstBook.getId());
+            entityManager.flush();
+            return null;
+        });
+
+        // Copies are changed with a bulk update, the persistence context still holds the old values
+        entityManager.clear();
+
+        Book book = entityManager.find(Book.class, firstBook.getId());
+
+        assertFalse(Hibernate.isInitialized(book.getCheckouts()));
+        assertFalse(Hibernate.isInitialized(book.getHistoryRecords()));
+        // Every seeded copy is already on the shelf, so the return can't push copies available above copies
+        assertEquals(10, book.getCopiesAvailable());
+    }
+
+    @Test
+    void bookService_checkoutAndReturnBook_shouldCostTheSameWhateverHistoryOfBook() {
+
+        Book warmUpBook = persistBook("Warm Up Title");
+        Book quietBook = persistBook("Quiet Title");
+        Book busyBook = persistBook("Busy Title");
+
+        // Many people borrowed the busy book before and many have it now, none of it may be read by another checkout or return
+        Person reader = persistPerson("reader@email.com");
+
+        for (int i = 0; i < BUSY_BOOK_ROWS; i++) {
+            entityManager.persist(new HistoryRecord(reader, busyBook, LocalDate.now().minusDays(14), LocalDate.now().minusDays(7)));
+            entityManager.persist(new Checkout(reader, busyBook, LocalDate.now(), LocalDate.now().plusDays(7)));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        // The first run pays for class loading and warming up, it isn't compared
+        checkoutAndReturn(warmUpBook);
+
+        Cost[] quietCosts = checkoutAndReturn(quietBook);
+        Cost[] busyCosts = checkoutAndReturn(busyBook);
+
+        assertEquals(quietCosts[0].statements(), busyCosts[0].statements());
+        assertEquals(quietCosts[1].statements(), busyCosts[1].statements());
+
+        // Loading the busy book's rows would allocate megabytes, a few percent apart is noise
+        assertTrue(busyCosts[0].allocatedBytes() < quietCosts[0].allocatedBytes() * 2,
+                "Checkout allocated " + busyCosts[0].allocatedBytes() + " bytes for the busy book and " + quietCosts[0].allocatedBytes() + " for the quiet one");
+        assertTrue(busyCosts[1].allocatedBytes() < quietCosts[1].allocatedBytes() * 2,
+                "Return allocated " + busyCosts[1].allocatedBytes() + " bytes for the busy book and " + quietCosts[1].allocatedBytes() + " for the quiet one");
+    }
+
+    @Test
+    void bookService_findAll_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(3, () -> bookService.findAll(PageRequest.of(0, ROWS / 2), BookService.SORT_BY_TITLE, false));
+    }
+
+    @Test
+    void bookService_findAllByTitle_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(3, () -> bookService.findAllByTitle("title", PageRequest.of(0, ROWS / 2), BookService.SORT_BY_TITLE, false));
+    }
+
+    @Test
+    void bookService_findAllByGenre_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(4, () -> bookService.findAllByGenre("Genre 1", PageRequest.of(0, ROWS / 2), BookService.SORT_BY_TITLE, false));
+    }
+
+    @Test
+    void bookService_findAllAfter_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(2, () -> bookService.findAllAfter(null, ROWS / 2, BookService.SORT_BY_TITLE));
+    }
+
+    @Test
+    void bookService_searchBooks_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(3, () -> bookService.searchBooks("title", PageRequest.of(0, ROWS / 2)));
+    }
+
+    @Test
+    void bookService_getBookStatuses_shouldStayWithinQueryBudget() {
+
+        // One IN query for checkouts and one for reviews, whatever the number of books
+        Map<Long, BookStatusDTO> statuses = assertQueryBudget(2, () -> bookService.getBookStatuses(personEmail, bookIds));
+
+        assertEquals(ROWS, statuses.size());
+        assertTrue(statuses.values().stream().allMatch(BookStatusDTO::isCheckedOut));
+    }
+
+    @Test
+    void bookService_searchBooksInIndex_shouldStayWithinQueryBudget() {
+
+        bookSearchIndex.rebuild();
+        entityManager.clear();
+        statistics.clear();
+
+        // Ranking happens in memory, only the books of the page and their genres are loaded
+        Page<BookSummaryDTO> bookDTOPage = assertQueryBudget(2, () -> bookService.searchBooksInIndex("title", PageRequest.of(0, ROWS / 2)));
+
+        assertEquals(ROWS, bookDTOPage.getTotalElements());
+        assertEquals(ROWS / 2, bookDTOPage.getContent().size());
+    }
+
+    @Test
+    void bookService_findAllByGenres_shouldStayWithinQueryBudget() {
+
+        genreFacetIndex.rebuild();
+        entityManager.clear();
+        statistics.clear();
+
+        // Genres are combined and counted in memory, only the books of the page and their genres are loaded
+        BookFacetsDTO bookFacetsDTO = assertQueryBudget(2, () -> bookService.findAllByGenres(List.of("Genre 1", "Genre 2"),
+                BookService.MATCH_ALL_GENRES, false, PageRequest.of(0, ROWS)));
+
+        assertEquals(ROWS / 3 + 1, bookFacetsDTO.getBooks().getTotalElements());
+        assertEquals(ROWS / 3 + 1, bookFacetsDTO.getBooks().getContent().size());
+        assertEquals(ROWS / 3 + 1, bookFacetsDTO.getGenreCounts().get("Genre 1"));
+        assertEquals(0, bookFacetsDTO.getGenreCounts().get("Genre 3"));
+    }
+
+    @Test
+    void checkoutService_getCurrentCheckouts_shouldStayWithinQueryBudget() {
+
+        // Books, genres and due dates of all current checkouts come from one projection query
+        List<CheckoutDTO> checkoutDTOs = assertQueryBudget(1, () -> checkoutService.getCurrentCheckouts(personEmail));
+
+        assertEquals(ROWS, checkoutDTOs.size());
+        assertEquals(2, checkoutDTOs.get(0).getBookDTO().getGenres().size());
+    }
+
+    @Test
+    void checkoutService_getCurrentCheckoutsCount_shouldStayWithinQueryBudget() {
+
+        assertEquals(ROWS, assertQueryBudget(1, () -> checkoutService.getCurrentCheckoutsCount(personEmail)));
+    }
+
+    @Test
+    void discussionService_findAllByClosed_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(2, () -> discussionService.findAllByClosed(PageRequest.of(0, ROWS / 2)));
+    }
+
+    @Test
+    void genreService_findAll_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(1, () -> genreService.findAll());
+    }
+
+    @Test
+    void historyRecordService_findAllByPersonEmail_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(5, () -> historyRecordService.findAllByPersonEmail(personEmail, PageRequest.of(0, ROWS / 2)));
+    }
+
+    @Test
+    void reviewService_findAllByBookId_shouldStayWithinQueryBudget() {
+
+        assertQueryBudget(3, () -> reviewService.findAllByBookId(firstBook.getId(), PageRequest.of(0, ROWS / 2), true));
+    }
+
+    @Test
+    void reviewService_getAverageRatingsByBookIds_shouldStayWithinQueryBudget() {
+
+        assertEquals(ROWS, assertQueryBudget(1, () -> reviewService.getAverageRatingsByBookIds(bookIds)).size());
+    }
+
+    private Person persistPerson(String email) {
+
+        Person person = new Person("First Name", "Last Name", LocalDate.of(1990, 1, 1), email, "Password");
+        person.setRole(Role.ROLE_USER);
+        person.setRegisteredAt(LocalDateTime.now());
+        entityManager.persist(person);
+
+        return person;
+    }
+
+    private Book persistBook(String title) {
+
+        Book book = new Book(title, "Author", "Description", 10, 10, "encodedImage");
+        book.setGenres(List.of(firstGenre));
+        entityManager.persist(book);
+
+        return book;
+    }
+
+    // Checkout and return of the book by someone without loans, each in a new persistence context
+    private Cost[] checkoutAndReturn(Book book) {
+
+        Cost checkoutCost = measure(() -> bookService.checkoutBook("email1@email.com", book.getId()));
+        Cost returnCost = measure(() -> bookService.returnBook("email1@email.com", book.getId()));
+
+        return new Cost[]{checkoutCost, returnCost};
+    }
+
+    private Cost measure(Runnable serviceCall) {
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        entityManager.clear();
+        statistics.clear();
+
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+
+        serviceCall.run();
+        entityManager.flush();
+
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        return new Cost(statistics.getPrepareStatementCount(), allocatedBytes);
+    }
+
+    private <T> T assertQueryBudget(long budget, Supplier<T> serviceCall) {
+
+        T result = serviceCall.get();
+
+        long queries = statistics.getPrepareStatementCount();
+        assertTrue(queries <= budget, "Expected at most " + budget + " queries, but " + queries + " were executed");
+
+        return result;
+    }
+
+    private record Cost(long statements, long allocatedBytes) {
+    }
+}
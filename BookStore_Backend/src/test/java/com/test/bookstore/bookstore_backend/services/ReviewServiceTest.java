@@ -4,16 +4,17 @@ import com.test.bookstore.bookstore_backend.dto.ReviewDTO;
 import com.test.bookstore.bookstore_backend.entities.Book;
 import com.test.bookstore.bookstore_backend.entities.Genre;
 import com.test.bookstore.bookstore_backend.entities.Review;
+import com.test.bookstore.bookstore_backend.repositories.BookAverageRating;
 import com.test.bookstore.bookstore_backend.repositories.BookRepository;
 import com.test.bookstore.bookstore_backend.repositories.ReviewRepository;
 import com.test.bookstore.bookstore_backend.utils.exceptions.BookException;
+import com.test.bookstore.bookstore_backend.utils.mappers.ReviewMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -22,6 +23,7 @@ import org.springframework.http.HttpStatus;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,7 +44,7 @@ class ReviewServiceTest {
     private Review review2;
     private ReviewDTO reviewDTO;
 
-    @Mock private ModelMapper modelMapper;
+    @Mock private ReviewMapper reviewMapper;
     @Mock private ReviewRepository reviewRepository;
     @Mock private BookRepository bookRepository;
 
@@ -77,7 +79,7 @@ class ReviewServiceTest {
 
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(reviewRepository.findAllByReviewedBookOrderByIdDesc(any(Book.class), any(Pageable.class))).thenReturn(reviewsPage);
-        when(modelMapper.map(any(Review.class), eq(ReviewDTO.class))).thenReturn(reviewDTO);
+        when(reviewMapper.toReviewDTO(any(Review.class))).thenReturn(reviewDTO);
 
         Page<ReviewDTO> reviewDTOPage = reviewService.findAllByBookId(bookId, pageable, true);
 
@@ -85,7 +87,7 @@ class ReviewServiceTest {
         assertEquals(pageContent.size(), reviewDTOPage.getContent().size());
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(reviewRepository, times(1)).findAllByReviewedBookOrderByIdDesc(any(Book.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Review.class), eq(ReviewDTO.class));
+        verify(reviewMapper, times(pageContent.size())).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -97,7 +99,7 @@ class ReviewServiceTest {
 
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
         when(reviewRepository.findByReviewedBook(any(Book.class), any(Pageable.class))).thenReturn(reviewsPage);
-        when(modelMapper.map(any(Review.class), eq(ReviewDTO.class))).thenReturn(reviewDTO);
+        when(reviewMapper.toReviewDTO(any(Review.class))).thenReturn(reviewDTO);
 
         Page<ReviewDTO> reviewDTOPage = reviewService.findAllByBookId(bookId, pageable, false);
 
@@ -105,7 +107,7 @@ class ReviewServiceTest {
         assertEquals(pageContent.size(), reviewDTOPage.getContent().size());
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(reviewRepository, times(1)).findByReviewedBook(any(Book.class), any(Pageable.class));
-        verify(modelMapper, times(pageContent.size())).map(any(Review.class), eq(ReviewDTO.class));
+        verify(reviewMapper, times(pageContent.size())).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -120,7 +122,7 @@ class ReviewServiceTest {
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(bookRepository, times(1)).findById(any(Long.class));
         verify(reviewRepository, times(0)).findByReviewedBook(any(Book.class), any(Pageable.class));
-        verify(modelMapper, times(0)).map(any(Review.class), eq(ReviewDTO.class));
+        verify(reviewMapper, times(0)).toReviewDTO(any(Review.class));
     }
 
     @Test
@@ -128,14 +130,16 @@ class ReviewServiceTest {
 
         double avgRating = (review1.getRating() + review2.getRating()) / 2;
 
+        book1.setRatingCount(2);
+        book1.setRatingSum(review1.getRating() + review2.getRating());
+
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-        when(reviewRepository.getAverageRatingByReviewedBook(any(Book.class))).thenReturn(avgRating);
 
         double returnedAvgRating = reviewService.getAverageRatingByBookId(bookId);
 
         assertEquals(avgRating, returnedAvgRating);
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(reviewRepository, times(1)).getAverageRatingByReviewedBook(any(Book.class));
+        verifyNoInteractions(reviewRepository);
     }
 
     @Test
@@ -144,13 +148,12 @@ class ReviewServiceTest {
         double avgRating = 00.00;
 
         when(bookRepository.findById(any(Long.class))).thenReturn(Optional.of(book1));
-        when(reviewRepository.getAverageRatingByReviewedBook(any(Book.class))).thenReturn(null);
 
         double returnedAvgRating = reviewService.getAverageRatingByBookId(bookId);
 
         assertEquals(avgRating, returnedAvgRating);
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(reviewRepository, times(1)).getAverageRatingByReviewedBook(any(Book.class));
+        verifyNoInteractions(reviewRepository);
     }
 
     @Test
@@ -162,6 +165,37 @@ class ReviewServiceTest {
         assertEquals("Book not found ", exception.getMessage());
         assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
         verify(bookRepository, times(1)).findById(any(Long.class));
-        verify(reviewRepository, times(0)).getAverageRatingByReviewedBook(any(Book.class));
+        verifyNoInteractions(reviewRepository);
+    }
+
+    @Test
+    void recalculateBookRatings_shouldReturnCountOfRepairedBooks() {
+
+        when(bookRepository.recalculateRatings()).thenReturn(2);
+
+        assertEquals(2, reviewService.recalculateBookRatings());
+        verify(bookRepository, times(1)).recalculateRatings();
+    }
+
+    @Test
+    void getAverageRatingsByBookIds_shouldReturnRatingsOfFoundBooksInRequestedOrder() {
+
+        List<Long> ids = List.of(2L, bookId, invalidBookId);
+
+        when(bookRepository.findAverageRatings(ids)).thenReturn(List.of(new BookAverageRating(bookId, 4.0), new BookAverageRating(2L, 0.0)));
+
+        Map<Long, Double> ratings = reviewService.getAverageRatingsByBookIds(List.of(2L, bookId, invalidBookId, 2L));
+
+        assertEquals(List.of(2L, bookId), List.copyOf(ratings.keySet()));
+        assertEquals(4.0, ratings.get(bookId));
+        assertEquals(0.0, ratings.get(2L));
+        verify(bookRepository, times(1)).findAverageRatings(ids);
+    }
+
+    @Test
+    void getAverageRatingsByBookIds_shouldReturnEmptyMapWithoutQueryIfNoIdsAreRequested() {
+
+        assertTrue(reviewService.getAverageRatingsByBookIds(List.of()).isEmpty());
+        verifyNoInteractions(bookRepository);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.test.bookstore.bookstore_backend.services.integration;
+
+import com.test.bookstore.bookstore_backend.services.BookService;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks out and returns the same book many times against PostgreSQL, once through the entity based path
+ * and once through the single statement path, and publishes the average latency of both as report entries.
+ */
+@Disabled("Integration tests cannot be run without docker environment for testcontainers.")
+class BookCirculationLatencyIntegrationTest {
+
+    private static final String DATASOURCE_URL = "spring.datasource.url=jdbc:tc:postgresql:alpine:///bookstore?TC_INITSCRIPT=schema.sql";
+    private static final int WARM_UP_ROUNDS = 50;
+    private static final int ROUNDS = 500;
+
+    @Nested
+    @SpringBootTest(properties = {DATASOURCE_URL, "book_circulation_single_statement_enabled=false"})
+    class EntityPath {
+
+        @Autowired private BookService bookService;
+        @Autowired private JdbcTemplate jdbcTemplate;
+
+        @Test
+        void checkoutBookAndReturnBook_latency(TestReporter testReporter) {
+
+            measureCheckoutAndReturn(bookService, jdbcTemplate, testReporter, "entityPath");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {DATASOURCE_URL, "book_circulation_single_statement_enabled=true"})
+    class SingleStatementPath {
+
+        @Autowired private BookService bookService;
+        @Autowired private JdbcTemplate jdbcTemplate;
+
+        @Test
+        void checkoutBookAndReturnBook_latency(TestReporter testReporter) {
+
+            measureCheckoutAndReturn(bookService, jdbcTemplate, testReporter, "singleStatementPath");
+        }
+    }
+
+    private void measureCheckoutAndReturn(BookService bookService, JdbcTemplate jdbcTemplate, TestReporter testReporter, String path) {
+
+        String personEmail = path + "@email.com";
+
+        jdbcTemplate.update("insert into person (first_name, last_name, date_of_birth, email, password, role, registered_at) " +
+                "values ('First Name', 'Last Name', '2000-01-01', ?, 'Password', 'ROLE_USER', current_timestamp)", personEmail);
+        Long bookId = jdbcTemplate.queryForObject("insert into book (title, author, description, copies, copies_available, img) " +
+                "values (?, 'Author', 'Description', 10, 10, 'Encoded image') returning id", Long.class, path);
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            bookService.checkoutBook(personEmail, bookId);
+            bookService.returnBook(personEmail, bookId);
+        }
+
+        long checkoutNanos = 0;
+        long returnNanos = 0;
+
+        for (int i = 0; i < ROUNDS; i++) {
+
+            long start = System.nanoTime();
+            bookService.checkoutBook(personEmail, bookId);
+            long checkedOut = System.nanoTime();
+            bookService.returnBook(personEmail, bookId);
+
+            checkoutNanos += checkedOut - start;
+            returnNanos += System.nanoTime() - checkedOut;
+        }
+
+        testReporter.publishEntry(path + "CheckoutMicros", String.valueOf(TimeUnit.NANOSECONDS.toMicros(checkoutNanos / ROUNDS)));
+        testReporter.publishEntry(path + "ReturnMicros", String.valueOf(TimeUnit.NANOSECONDS.toMicros(returnNanos / ROUNDS)));
+
+        assertEquals(10, jdbcTemplate.queryForObject("select copies_available from book where id = ?", Integer.class, bookId));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from checkout where book_id = ?", Integer.class, bookId));
+        assertEquals(WARM_UP_ROUNDS + ROUNDS, jdbcTemplate.queryForObject("select count(*) from history_record where book_id = ?", Integer.class, bookId));
+    }
+}
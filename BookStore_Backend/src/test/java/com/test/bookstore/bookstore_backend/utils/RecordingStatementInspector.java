@@ -0,0 +1,29 @@
+package com.test.bookstore.bookstore_backend.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL of every statement Hibernate prepares, for tests that check the generated SQL.
+ * Registered with the hibernate.session_factory.statement_inspector property, which takes the class name.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+            "com.test.bookstore.bookstore_backend.utils.RecordingStatementInspector";
+
+    public static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        SQL.add(sql);
+        return sql;
+    }
+
+    // Paginated lists count the books after selecting them
+    public static String lastSelect() {
+        return SQL.stream().filter(sql -> !sql.startsWith("select count")).reduce((first, second) -> second).orElseThrow();
+    }
+}
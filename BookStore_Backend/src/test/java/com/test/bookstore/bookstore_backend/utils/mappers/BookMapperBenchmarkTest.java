@@ -0,0 +1,98 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.modelmapper.ModelMapper;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Maps pages of 20, 100 and 1000 books to DTOs through the reflective ModelMapper the services used before and through
+ * the generated BookMapper. Mapping time and bytes allocated per page of both are published as report entries.
+ */
+@Disabled("Measures mapping for several seconds, run it manually to compare the mappers.")
+class BookMapperBenchmarkTest {
+
+    private static final int[] PAGE_SIZES = {20, 100, 1000};
+
+    // Every page size maps the same number of books, so small pages run more rounds
+    private static final int WARM_UP_BOOKS = 200_000;
+    private static final int BOOKS = 1_000_000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final BookMapper bookMapper = new BookMapperImpl(new GenreMapperImpl());
+
+    @Test
+    void toBookDTO_pageCost(TestReporter testReporter) {
+
+        List<Genre> genres = List.of(genre(1L, "Genre 1"), genre(2L, "Genre 2"));
+
+        for (int pageSize : PAGE_SIZES) {
+
+            List<Book> page = LongStream.rangeClosed(1, pageSize).mapToObj(id -> book(id, genres)).toList();
+
+            long modelMapperChecksum = measure("modelMapper" + pageSize, testReporter, page, book -> modelMapper.map(book, BookDTO.class));
+            long bookMapperChecksum = measure("bookMapper" + pageSize, testReporter, page, bookMapper::toBookDTO);
+
+            assertEquals(modelMapperChecksum, bookMapperChecksum);
+        }
+    }
+
+    // Returns a checksum of the mapped ids and genres, so both mappers must have mapped the same DTOs
+    private long measure(String name, TestReporter testReporter, List<Book> page, Function<Book, BookDTO> map) {
+
+        int rounds = BOOKS / page.size();
+        long checksum = 0;
+
+        for (int i = 0; i < WARM_UP_BOOKS / page.size(); i++) {
+            page.stream().map(map).toList();
+        }
+
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            for (BookDTO bookDTO : page.stream().map(map).toList()) {
+                checksum += bookDTO.getId() + bookDTO.getGenres().size();
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        testReporter.publishEntry(name + "MicrosPerPage", String.valueOf(TimeUnit.NANOSECONDS.toMicros(elapsedNanos / rounds)));
+        testReporter.publishEntry(name + "BytesPerPage", String.valueOf(allocatedBytes / rounds));
+
+        return checksum;
+    }
+
+    private static Genre genre(Long id, String description) {
+
+        Genre genre = new Genre(description);
+        genre.setId(id);
+
+        return genre;
+    }
+
+    private static Book book(Long id, List<Genre> genres) {
+
+        Book book = new Book("Title " + id, "Author " + id, "Description " + id, 10, 5, null);
+        book.setId(id);
+        book.setGenres(genres);
+        book.setRatingCount(2);
+        book.setRatingSum(7.0);
+
+        return book;
+    }
+}
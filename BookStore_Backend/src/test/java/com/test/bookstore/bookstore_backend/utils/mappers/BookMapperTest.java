@@ -0,0 +1,108 @@
+package com.test.bookstore.bookstore_backend.utils.mappers;
+
+import com.test.bookstore.bookstore_backend.dto.BookDTO;
+import com.test.bookstore.bookstore_backend.dto.BookSummaryDTO;
+import com.test.bookstore.bookstore_backend.dto.GenreDTO;
+import com.test.bookstore.bookstore_backend.entities.Book;
+import com.test.bookstore.bookstore_backend.entities.Genre;
+import com.test.bookstore.bookstore_backend.repositories.BookGenreLink;
+import com.test.bookstore.bookstore_backend.repositories.BookSummaryRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookMapperTest {
+
+    private final BookMapper bookMapper = new BookMapperImpl(new GenreMapperImpl());
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+
+        Genre genre = new Genre("Genre 1");
+        genre.setId(1L);
+
+        book = new Book("Title 1", "Author 1", "Description 1", 10, 5, "encodedImage 1");
+        book.setId(1L);
+        book.setGenres(List.of(genre));
+        book.setRatingCount(2);
+        book.setRatingSum(7.0);
+    }
+
+    @Test
+    void toBookDTO_shouldCopyAllFieldsAndGenres() {
+
+        BookDTO bookDTO = bookMapper.toBookDTO(book);
+
+        assertEquals(book.getId(), bookDTO.getId());
+        assertEquals(book.getTitle(), bookDTO.getTitle());
+        assertEquals(book.getAuthor(), bookDTO.getAuthor());
+        assertEquals(book.getDescription(), bookDTO.getDescription());
+        assertEquals(book.getCopies(), bookDTO.getCopies());
+        assertEquals(book.getCopiesAvailable(), bookDTO.getCopiesAvailable());
+        assertEquals(book.getImageHash(), bookDTO.getImageHash());
+        assertNull(bookDTO.getImg());
+        assertEquals(3.5, bookDTO.getAverageRating());
+        assertEquals(1, bookDTO.getGenres().size());
+        assertEquals(1L, bookDTO.getGenres().get(0).getId());
+        assertEquals("Genre 1", bookDTO.getGenres().get(0).getDescription());
+    }
+
+    @Test
+    void toBookSummaryDTOs_shouldKeepOrderOfRowsAndAttachTheirGenres() {
+
+        List<BookSummaryRow> rows = List.of(new BookSummaryRow(2L, "Title 2", "Author 2", "Description 2", 10, 10, 0.0, null),
+                new BookSummaryRow(1L, "Title 1", "Author 1", "Description 1", 10, 5, 3.5, null));
+        List<BookGenreLink> genreLinks = List.of(new BookGenreLink(1L, 1L, "Genre 1"), new BookGenreLink(1L, 2L, "Genre 2"));
+
+        List<BookSummaryDTO> bookSummaryDTOs = bookMapper.toBookSummaryDTOs(rows, genreLinks);
+
+        assertEquals(List.of(2L, 1L), bookSummaryDTOs.stream().map(BookSummaryDTO::getId).toList());
+        assertEquals("Description 1", bookSummaryDTOs.get(1).getDescriptionPreview());
+        assertEquals(3.5, bookSummaryDTOs.get(1).getAverageRating());
+        assertEquals(List.of("Genre 1", "Genre 2"), bookSummaryDTOs.get(1).getGenres().stream().map(GenreDTO::getDescription).toList());
+        assertEquals(2L, bookSummaryDTOs.get(1).getGenres().get(1).getId());
+        assertTrue(bookSummaryDTOs.get(0).getGenres().isEmpty());
+    }
+
+    @Test
+    void toBook_shouldCopyAllFieldsAndLeaveRelationsEmpty() {
+
+        GenreDTO genreDTO = new GenreDTO();
+        genreDTO.setDescription("Genre 1");
+
+        BookDTO bookDTO = bookMapper.toBookDTO(book);
+        bookDTO.setGenres(List.of(genreDTO));
+
+        Book mappedBook = bookMapper.toBook(bookDTO);
+
+        assertEquals(book.getTitle(), mappedBook.getTitle());
+        assertEquals(book.getCopiesAvailable(), mappedBook.getCopiesAvailable());
+        assertEquals("Genre 1", mappedBook.getGenres().get(0).getDescription());
+        assertNull(mappedBook.getGenres().get(0).getBooks());
+        assertNull(mappedBook.getCheckouts());
+        assertNull(mappedBook.getReviews());
+    }
+
+    @Test
+    void toBookDTO_shouldMapLargePagesWithoutSharingState() {
+
+        List<Book> books = IntStream.range(0, 1000).mapToObj(i -> {
+            Book pageBook = new Book("Title " + i, "Author", "Description", 10, 10, "encodedImage");
+            pageBook.setId((long) i);
+            pageBook.setGenres(book.getGenres());
+            return pageBook;
+        }).toList();
+
+        List<BookDTO> bookDTOs = books.stream().map(bookMapper::toBookDTO).toList();
+
+        assertEquals(books.size(), bookDTOs.size());
+        assertEquals("Title 999", bookDTOs.get(999).getTitle());
+        assertNotSame(bookDTOs.get(0).getGenres(), bookDTOs.get(1).getGenres());
+    }
+}
@@ -30,6 +30,7 @@ insert into book_genre (book_id, genre_id) values (10000005, 1) on conflict do n
 -- Assigning reviews to the books inserted above --
 insert into review (id, person_email, person_first_name, person_last_name, book_id, date, rating, review_description) values (10000001, 'email1@email.com', 'First Name 1', 'Last Name 1', 10000001, '2024-01-01', 4.5, 'Description 1') on conflict do nothing;
 insert into review (id, person_email, person_first_name, person_last_name, book_id, date, rating, review_description) values (10000002, 'email2@email.com', 'First Name 2', 'Last Name 2', 10000001, '2024-01-01', 3.5, 'Description 2') on conflict do nothing;
+update book set rating_count = 2, rating_sum = 8.0 where id = 10000001;
 
 -- Inserting test payment fee for the first user --
 insert into payment (id, person_email, amount) values (10000001, 'email1@email.com', 10.00) on conflict do nothing;
@@ -45,4 +46,9 @@ insert into discussion (id, person_email, title, question, admin_email, response
 insert into checkout (id, person_email, book_id, checkout_date, return_date) values (10000001, 'email1@email.com', 10000002, current_date, current_date + 7) on conflict do nothing;
 insert into checkout (id, person_email, book_id, checkout_date, return_date) values (10000002, 'email1@email.com', 10000003, current_date, current_date + 7) on conflict do nothing;
 insert into checkout (id, person_email, book_id, checkout_date, return_date) values (10000003, 'email2@email.com', 10000004, current_date - 3, current_date + 4) on conflict do nothing;
-insert into checkout (id, person_email, book_id, checkout_date, return_date) values (10000004, 'email3@email.com', 10000004, current_date - 8, current_date - 1) on conflict do nothing;
\ No newline at end of file
+insert into checkout (id, person_email, book_id, checkout_date, return_date) values (10000004, 'email3@email.com', 10000004, current_date - 8, current_date - 1) on conflict do nothing;
+
+-- Inserting account summaries matching the test checkouts and payment fee above --
+insert into account_summary (person_email, active_loans, earliest_due_date, outstanding_fees) values ('email1@email.com', 2, current_date + 7, 10.00) on conflict do nothing;
+insert into account_summary (person_email, active_loans, earliest_due_date, outstanding_fees) values ('email2@email.com', 1, current_date + 4, 0) on conflict do nothing;
+insert into account_summary (person_email, active_loans, earliest_due_date, outstanding_fees) values ('email3@email.com', 1, current_date - 1, 0) on conflict do nothing;
\ No newline at end of file
@@ -16,7 +16,32 @@ create table if not exists book (
     description text not null,
     copies integer not null check (copies >= 0),
     copies_available integer not null check (copies_available >= 0),
-    img text not null
+    img text,
+    image_hash varchar(64),
+    inventory_slots integer default 0 not null check (inventory_slots >= 0),
+    stocked_slots integer default 0 not null check (stocked_slots >= 0),
+    rating_count integer default 0 not null check (rating_count >= 0),
+    rating_sum decimal(12, 2) default 0 not null,
+    average_rating double precision generated always as (case when rating_count = 0 then 0 else rating_sum / rating_count end),
+    available boolean generated always as (copies_available > 0 or stocked_slots > 0)
+);
+
+create index if not exists book_title_id_idx on book (title, id);
+
+-- One index per BookSort with its keys in their direction, so sorted lists are read from the index instead of being sorted.
+-- H2 doesn't read indexes backwards, newest needs its own
+create index if not exists book_author_id_idx on book (author, id);
+create index if not exists book_average_rating_id_idx on book (average_rating desc, id desc);
+create index if not exists book_rating_count_id_idx on book (rating_count desc, id desc);
+create index if not exists book_available_title_id_idx on book (available desc, title, id);
+create index if not exists book_id_desc_idx on book (id desc);
+
+create table if not exists book_inventory_slot (
+    id integer generated by default as identity primary key,
+    book_id integer not null references book (id) on delete cascade,
+    slot integer not null,
+    copies_available integer not null check (copies_available >= 0),
+    unique (book_id, slot)
 );
 
 create table if not exists genre (
@@ -38,6 +63,8 @@ create table if not exists checkout (
     return_date date not null
 );
 
+create index if not exists checkout_person_email_return_date_idx on checkout (person_email, return_date);
+
 create table if not exists review (
     id integer generated by default as identity primary key,
     person_email varchar(100) not null,
@@ -71,4 +98,24 @@ create table if not exists payment (
     id integer generated by default as identity primary key,
     person_email varchar(100) unique not null references person (email) on delete cascade,
     amount decimal(10, 2) not null
-);
\ No newline at end of file
+);
+
+create table if not exists account_summary (
+    person_email varchar(100) primary key references person (email) on delete cascade,
+    active_loans integer default 0 not null check (active_loans >= 0),
+    earliest_due_date date,
+    outstanding_fees decimal(10, 2) default 0 not null
+);
+
+create table if not exists jwt_signing_key (
+    id integer generated by default as identity primary key,
+    secret varchar not null,
+    created_at timestamp not null
+);
+
+create table if not exists person_revocation (
+    person_email varchar(100) primary key references person (email) on delete cascade,
+    revoked_at timestamp not null
+);
+
+create index if not exists person_revocation_revoked_at_idx on person_revocation (revoked_at);
\ No newline at end of file
@@ -1,10 +1,13 @@
 type PaginatedItemsCountProps = {
     itemsName: string,
     totalAmountOfItems: number,
-    resultRange: { start: number; end: number; }
+    resultRange: { start: number; end: number; },
+    isTotalExact?: boolean
 }
 
-export const PaginatedItemsCount = ({ itemsName, totalAmountOfItems, resultRange }: PaginatedItemsCountProps) => {
+const compactNumberFormat = new Intl.NumberFormat("en", { notation: "compact", maximumFractionDigits: 1 });
+
+export const PaginatedItemsCount = ({ itemsName, totalAmountOfItems, resultRange, isTotalExact = true }: PaginatedItemsCountProps) => {
 
     return (
 
@@ -16,9 +19,11 @@ export const PaginatedItemsCount = ({ itemsName, totalAmountOfItems, resultRange
                 {resultRange.start} - {totalAmountOfItems <= 5 ? totalAmountOfItems : resultRange.end}
             </p> 
 
-            out of 
+            {isTotalExact ? "out of" : "out of about"} 
 
-            <p className="sm:text-3xl max-sm:text-xl text-teal-600">{totalAmountOfItems}</p>
+            <p className="sm:text-3xl max-sm:text-xl text-teal-600">
+                {isTotalExact ? totalAmountOfItems : compactNumberFormat.format(totalAmountOfItems)}
+            </p>
 
         </div>
 
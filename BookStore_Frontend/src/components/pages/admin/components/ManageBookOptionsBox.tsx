@@ -3,11 +3,11 @@ import { useAuthenticationContext } from "../../../../authentication/authenticat
 import { useChangeBookQuantity } from "../../../../utils/api_fetchers/admin_controller/useChangeBookQuantity";
 import { useDeleteBook } from "../../../../utils/api_fetchers/admin_controller/useDeleteBook";
 import { FormLoader } from "../../../commons/form_loader/FormLoader";
-import { BookModel } from "../../../../models/BookModel";
+import { BookSummaryModel } from "../../../../models/BookSummaryModel";
 import { HttpErrorMessage } from "../../../commons/http_error_message/HttpErrorMessage";
 
 type ManageBookOptionsBoxProps = {
-    book: BookModel,
+    book: BookSummaryModel,
     setIsBookDeleted: React.Dispatch<React.SetStateAction<boolean>>
 }
 
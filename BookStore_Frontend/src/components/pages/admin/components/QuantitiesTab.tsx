@@ -1,5 +1,5 @@
 import { useState } from "react";
-import { BookModel } from "../../../../models/BookModel";
+import { BookSummaryModel } from "../../../../models/BookSummaryModel";
 import { useFetchBooks } from "../../../../utils/api_fetchers/book_controller/useFetchBooks";
 import { Pagination } from "../../../commons/pagination/Pagination";
 import { LoadingSpinner } from "../../../commons/loading_spinner/LoadingSpinner";
@@ -9,7 +9,7 @@ import { HttpErrorMessage } from "../../../commons/http_error_message/HttpErrorM
 
 export const QuantitiesTab = () => {
 
-    const [books, setBooks] = useState<BookModel[]>([]);
+    const [books, setBooks] = useState<BookSummaryModel[]>([]);
     const [isLoading, setIsLoading] = useState(true);
     const [httpError, setHttpError] = useState<string | null>(null);
     const [isBookDeleted, setIsBookDeleted] = useState(false);
@@ -1,9 +1,10 @@
-import { BookModel } from "../../../../models/BookModel"
+import { BookSummaryModel } from "../../../../models/BookSummaryModel"
 import { BookGenres } from "../../../commons/book_genres/BookGenres";
 import { ManageBookOptionsBox } from "./ManageBookOptionsBox";
+import { image_url } from "../../../../utils/apiEndpointsUrlsList";
 
 type BookCardProps = {
-    book: BookModel,
+    book: BookSummaryModel,
     setIsBookDeleted: React.Dispatch<React.SetStateAction<boolean>>
 }
 
@@ -13,7 +14,7 @@ export const QuantitiesTabBookCard = ({ book, setIsBookDeleted }: BookCardProps)
 
         <div className="book-card">
 
-            <img src={book.img} alt="cover" width={200} height={320} className="shadow-xl max-lg:w-[200px]"/>
+            <img src={image_url(book.imageHash, "small")} alt="cover" width={200} height={320} className="shadow-xl max-lg:w-[200px]"/>
             
             <div className="flex flex-col gap-10 max-lg:gap-5 xl:w-5/12 lg:flex-1 w-full">
 
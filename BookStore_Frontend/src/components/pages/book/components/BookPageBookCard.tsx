@@ -6,6 +6,7 @@ import { useFetchBookAverageRating } from "../../../../utils/api_fetchers/review
 import { FormLoader } from "../../../commons/form_loader/FormLoader"
 import { BookGenres } from "../../../commons/book_genres/BookGenres"
 import { HttpErrorMessage } from "../../../commons/http_error_message/HttpErrorMessage"
+import { image_url } from "../../../../utils/apiEndpointsUrlsList"
 
 type BookCardProps = {
     book: BookModel
@@ -24,7 +25,7 @@ export const BookPageBookCard = ({ book }: BookCardProps) => {
 
         <div className="book-card">
 
-            <img src={book.img} alt="cover" width={250} height={400} className="shadow-xl"/>
+            <img src={image_url(book.imageHash, "medium")} alt="cover" width={250} height={400} className="shadow-xl"/>
             
             <div className="flex flex-col gap-10 xl:w-5/12 lg:flex-1">
 
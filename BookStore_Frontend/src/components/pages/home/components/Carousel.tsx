@@ -1,5 +1,5 @@
 import { useState } from "react"
-import { BookModel } from "../../../../models/BookModel";
+import { BookSummaryModel } from "../../../../models/BookSummaryModel";
 import { LoadingSpinner } from "../../../commons/loading_spinner/LoadingSpinner";
 import { useFetchBooks } from "../../../../utils/api_fetchers/book_controller/useFetchBooks";
 import { Swiper, SwiperSlide } from 'swiper/react';
@@ -10,7 +10,7 @@ import 'swiper/css/bundle';
 
 export const Carousel = () => {
 
-    const [books, setBooks] = useState<BookModel[]>([]);
+    const [books, setBooks] = useState<BookSummaryModel[]>([]);
     const [isLoading, setIsLoading] = useState(true);
     const [httpError, setHttpError] = useState<string | null>(null);
 
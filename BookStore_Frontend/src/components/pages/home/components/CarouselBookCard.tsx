@@ -1,8 +1,9 @@
 import { Link } from "react-router-dom"
-import { BookModel } from "../../../../models/BookModel"
+import { BookSummaryModel } from "../../../../models/BookSummaryModel"
+import { image_url } from "../../../../utils/apiEndpointsUrlsList"
 
 type BookCardProps = {
-    book: BookModel
+    book: BookSummaryModel
 }
 
 export const CarouselBookCard = ({ book }: BookCardProps) => {
@@ -11,7 +12,7 @@ export const CarouselBookCard = ({ book }: BookCardProps) => {
 
         <div className="flex flex-col gap-5 items-center">
 
-            <img src={book.img} alt="cover" width={200} height={320} />
+            <img src={image_url(book.imageHash, "small")} alt="cover" width={200} height={320} />
             
             <div className="text-center">
                 
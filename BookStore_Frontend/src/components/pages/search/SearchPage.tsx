@@ -1,6 +1,6 @@
 import { Quote } from "../../commons/quote/Quote"
 import { useState } from "react";
-import { BookModel } from "../../../models/BookModel";
+import { BookSummaryModel } from "../../../models/BookSummaryModel";
 import { useFetchBooks } from "../../../utils/api_fetchers/book_controller/useFetchBooks";
 import { LoadingSpinner } from "../../commons/loading_spinner/LoadingSpinner";
 import { SearchPageBookCard } from "./components/SearchPageBookCard";
@@ -11,12 +11,13 @@ import { HttpErrorMessage } from "../../commons/http_error_message/HttpErrorMess
 
 export const SearchPage = () => {
 
-    const [books, setBooks] = useState<BookModel[]>([]);
+    const [books, setBooks] = useState<BookSummaryModel[]>([]);
     const [isLoading, setIsLoading] = useState(true);
     const [httpError, setHttpError] = useState<string | null>(null);
     const [currentPage, setCurrentPage] = useState(1);
     const [totalAmountOfBooks, setTotalAmountOfBooks] = useState(0);
     const [totalPages, setTotlalPages] = useState(0);
+    const [isTotalExact, setIsTotalExact] = useState(true);
     const [selectedGenre, setSelectedGenre] = useState("");
     const [titleQuery, setTitleQuery] = useState("");
     const [resultRange, setResultRange] = useState({start: 1, end: 5});
@@ -38,7 +39,7 @@ export const SearchPage = () => {
         if (value !== "") setSearchParams(`?genre-query=${value}`);
     };
 
-    useFetchBooks(currentPage, setBooks, setIsLoading, setHttpError, setTotalAmountOfBooks, setTotlalPages, 5, searchParams);
+    useFetchBooks(currentPage, setBooks, setIsLoading, setHttpError, setTotalAmountOfBooks, setTotlalPages, 5, searchParams, undefined, setIsTotalExact);
 
     return (
 
@@ -60,7 +61,7 @@ export const SearchPage = () => {
                                 
                                 <>
 
-                                    <PaginatedItemsCount itemsName={"Books"} totalAmountOfItems={totalAmountOfBooks} resultRange={resultRange} />
+                                    <PaginatedItemsCount itemsName={"Books"} totalAmountOfItems={totalAmountOfBooks} resultRange={resultRange} isTotalExact={isTotalExact} />
                                 
                                     {books.map(book => <SearchPageBookCard key={book.id} book={book} />)}
 
@@ -1,9 +1,10 @@
 import { Link } from "react-router-dom"
-import { BookModel } from "../../../../models/BookModel"
+import { BookSummaryModel } from "../../../../models/BookSummaryModel"
 import { BookGenres } from "../../../commons/book_genres/BookGenres"
+import { image_url } from "../../../../utils/apiEndpointsUrlsList"
 
 type BookCardProps = {
-    book: BookModel
+    book: BookSummaryModel
 }
 
 export const SearchPageBookCard = ({ book }: BookCardProps) => {
@@ -12,7 +13,7 @@ export const SearchPageBookCard = ({ book }: BookCardProps) => {
 
         <div className="book-card relative">
 
-            <img src={book.img} alt="cover" width={250} height={400} className="shadow-xl max-lg:w-[200px]"/>
+            <img src={image_url(book.imageHash, "medium")} alt="cover" width={250} height={400} className="shadow-xl max-lg:w-[200px]"/>
             
             <div className="flex flex-col gap-10 lg:w-1/2">
 
@@ -27,7 +28,7 @@ export const SearchPageBookCard = ({ book }: BookCardProps) => {
 
                 <div className="max-lg:text-center">
 
-                    {book.description}
+                    {book.descriptionPreview}
 
                 </div>
             
@@ -1,6 +1,7 @@
 import { CheckoutModel } from "../../../../models/CheckoutModel"
 import { BookGenres } from "../../../commons/book_genres/BookGenres"
 import { CheckoutOptionsBox } from "./CheckoutOptionsBox"
+import { image_url } from "../../../../utils/apiEndpointsUrlsList"
 
 type CheckoutsTabBookCardProps = {
     checkout: CheckoutModel,
@@ -14,7 +15,7 @@ export const CheckoutsTabBookCard = ({ checkout, setIsBookReturned, setIsCheckou
 
         <div className="book-card">
 
-            <img src={checkout.bookDTO.img} alt="cover" width={200} height={320} className="shadow-xl" />
+            <img src={image_url(checkout.bookDTO.imageHash, "small")} alt="cover" width={200} height={320} className="shadow-xl" />
 
             <div className="flex flex-col gap-10 xl:w-5/12 lg:flex-1 w-full">
 
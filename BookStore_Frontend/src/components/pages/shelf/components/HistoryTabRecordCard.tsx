@@ -1,6 +1,7 @@
 import { HistoryRecordModel } from "../../../../models/HistoryRecordModel"
 import { BookGenres } from "../../../commons/book_genres/BookGenres"
 import { HistoryRecordInfoBox } from "./HistoryRecordInfoBox"
+import { image_url } from "../../../../utils/apiEndpointsUrlsList"
 
 type HistoryTabRecordCardProps = {
     record: HistoryRecordModel
@@ -12,7 +13,7 @@ export const HistoryTabRecordCard = ({ record }: HistoryTabRecordCardProps) => {
 
         <div className="book-card">
 
-            <img src={record.bookDTO.img} alt="cover" width={200} height={320} className="shadow-xl" />
+            <img src={image_url(record.bookDTO.imageHash, "small")} alt="cover" width={200} height={320} className="shadow-xl" />
 
             <div className="flex flex-col gap-10 max-lg:gap-5 xl:w-5/12 lg:flex-1 w-full">
 
@@ -10,6 +10,7 @@ export class BookModel {
     copiesAvailable: number;
     genres: GenreModel[];
     img: string;
+    imageHash?: string | null;
 
     constructor (title: string, author: string, description: string, copies: number, copiesAvailable: number, genres: GenreModel[], img: string, id?: number) {
 
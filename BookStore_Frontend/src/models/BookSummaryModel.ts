@@ -0,0 +1,26 @@
+import { GenreModel } from "./GenreModel";
+
+export class BookSummaryModel {
+
+    id: number;
+    title: string;
+    author: string;
+    descriptionPreview: string;
+    copies: number;
+    copiesAvailable: number;
+    genres: GenreModel[];
+    imageHash: string | null;
+
+    constructor (id: number, title: string, author: string, descriptionPreview: string, copies: number, copiesAvailable: number, genres: GenreModel[], imageHash: string | null) {
+
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.descriptionPreview = descriptionPreview;
+        this.copies = copies;
+        this.copiesAvailable = copiesAvailable;
+        this.genres = genres;
+        this.imageHash = imageHash;
+    }
+    
+}
@@ -1,11 +1,11 @@
-import { BookModel } from "./BookModel";
+import { BookSummaryModel } from "./BookSummaryModel";
 
 export class CheckoutModel {
 
-    bookDTO: BookModel;
+    bookDTO: BookSummaryModel;
     daysLeft: number
 
-    constructor(bookDTO: BookModel, daysLeft: number) {
+    constructor(bookDTO: BookSummaryModel, daysLeft: number) {
         this.bookDTO = bookDTO;
         this.daysLeft = daysLeft;
     }
@@ -1,13 +1,13 @@
-import { BookModel } from "./BookModel";
+import { BookSummaryModel } from "./BookSummaryModel";
 
 export class HistoryRecordModel {
 
     id: number;
-    bookDTO: BookModel;
+    bookDTO: BookSummaryModel;
     checkoutDate: Date;
     returnDate: Date;
 
-    constructor(id: number, bookDTO: BookModel, checkoutDate: Date, returnDate: Date) {
+    constructor(id: number, bookDTO: BookSummaryModel, checkoutDate: Date, returnDate: Date) {
         this.id = id;
         this.bookDTO = bookDTO;
         this.checkoutDate = checkoutDate;
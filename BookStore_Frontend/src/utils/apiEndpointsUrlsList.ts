@@ -13,6 +13,7 @@ const checkout_controller_entry       = `${base_url}${import.meta.env.VITE_CHECK
 const discussion_controller_entry     = `${base_url}${import.meta.env.VITE_DISCUSSION_CONTROLLER_URL_PART}`;
 const genre_controller_entry          = `${base_url}${import.meta.env.VITE_GENRE_CONTROLLER_URL_PART}`;
 const history_record_controller_entry = `${base_url}${import.meta.env.VITE_HISTORY_RECORD_CONTROLLER_URL_PART}`;
+const image_controller_entry          = `${base_url}${import.meta.env.VITE_IMAGE_CONTROLLER_URL_PART}`;
 const payment_controller_entry        = `${base_url}${import.meta.env.VITE_PAYMENT_CONTROLLER_URL_PART}`;
 const review_controller_entry         = `${base_url}${import.meta.env.VITE_REVIEW_CONTROLLER_URL_PART}`;
 const authentication_controller_entry = `${base_url}${import.meta.env.VITE_AUTHENTICATION_CONTROLLER_URL_PART}`;
@@ -137,6 +138,10 @@ export const history_record_controller_endpoints = {
 
 };
 
+// Covers are served by the hash of their bytes and never change, so the browser keeps them cached
+export const image_url = (imageHash?: string | null, size?: "small" | "medium" | "large") =>
+    imageHash ? `${image_controller_entry}/${imageHash}${size ? `?size=${size}` : ""}` : undefined;
+
 export const payment_controller_endpoints = {
 
     get_payment_info:      { method: "GET",  url: new URL(`${payment_controller_entry}${secure_url_part}`) },
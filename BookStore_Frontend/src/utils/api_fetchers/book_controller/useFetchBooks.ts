@@ -1,16 +1,17 @@
 import { useEffect } from "react";
-import { BookModel } from "../../../models/BookModel";
+import { BookSummaryModel } from "../../../models/BookSummaryModel";
 import { book_controller_endpoints } from "../../apiEndpointsUrlsList";
 
 export const useFetchBooks = (currentPage: number,
-                              setBooks: React.Dispatch<React.SetStateAction<BookModel[]>>,
+                              setBooks: React.Dispatch<React.SetStateAction<BookSummaryModel[]>>,
                               setIsLoading: React.Dispatch<React.SetStateAction<boolean>>,
                               setHttpError: React.Dispatch<React.SetStateAction<string | null>>,
                               setTotalAmountOfBooks?: React.Dispatch<React.SetStateAction<number>>,
                               setTotlalPages?: React.Dispatch<React.SetStateAction<number>>,
                               booksPerPage?: number,
                               urlSearchParams?: string,
-                              isBookDeleted?: boolean) => {
+                              isBookDeleted?: boolean,
+                              setIsTotalExact?: React.Dispatch<React.SetStateAction<boolean>>) => {
 
     useEffect(
 
@@ -22,7 +23,9 @@ export const useFetchBooks = (currentPage: number,
 
                 const searchParams = urlSearchParams ? (urlSearchParams + "&") : "?";
                 const paginationParams = `page=${currentPage - 1}&books-per-page=${booksPerPage ? booksPerPage : 9}`;
-                const urlParams = searchParams + paginationParams;
+                // Huge totals are then estimated by the DataBase instead of counted
+                const approximateTotalParam = setIsTotalExact ? "&approximate-total=true" : "";
+                const urlParams = searchParams + paginationParams + approximateTotalParam;
 
                 const find_all_endpoint = book_controller_endpoints.find_all_books;
                 const search_by_title_endpoint = book_controller_endpoints.search_by_title;
@@ -53,10 +56,11 @@ export const useFetchBooks = (currentPage: number,
 
                 if (setTotalAmountOfBooks) setTotalAmountOfBooks(responseJson.totalElements);
                 if (setTotlalPages) setTotlalPages(responseJson.totalPages);
+                if (setIsTotalExact) setIsTotalExact(responseJson.totalExact !== false);
 
                 const responseBooksContentArray = responseJson.content;
 
-                const loadedBooks: BookModel[] = [];
+                const loadedBooks: BookSummaryModel[] = [];
 
                 for (const key in responseBooksContentArray) {
 